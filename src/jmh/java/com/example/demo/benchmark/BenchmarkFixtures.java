@@ -0,0 +1,274 @@
+package com.example.demo.benchmark;
+
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.PriceSeries;
+import com.example.demo.model.SectorView;
+import com.example.demo.model.StockTaSummary;
+import com.example.demo.model.TickerView;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * Benchmark 用的輸入資料，格式與實際的字幕、FinMind / FMP / Gemini 回應相同。
+ * 全部由固定的 seed 產生，每次執行的輸入完全一樣，結果才能互相比較。
+ */
+public final class BenchmarkFixtures {
+
+    public static final long SEED = 20240101L;
+
+    private static final String[] SENTENCES = {
+            "大家好，歡迎收聽今天的財經節目",
+            "今天我們先來看一下台積電的法說會",
+            "聯發科這一季的毛利率比市場預期好一點",
+            "輝達 NVDA 的資料中心營收又創新高",
+            "2024 年 AI 伺服器的出貨量大概成長三成",
+            "鴻海跟廣達都在搶 GB200 的訂單",
+            "有聽眾問說 Tesla 現在還能不能買",
+            "特斯拉的交車數字其實不太好看",
+            "台積電股價一度站上 1000 元",
+            "美光 Micron 說 HBM 明年的產能已經賣完了",
+            "聯準會如果降息，金融股像富邦金、國泰金會比較受惠",
+            "我們下週再來聊散熱族群，奇鋐跟雙鴻",
+            "這段只是閒聊，沒有提到任何公司",
+            "ASML 的訂單能見度大概到 2026 年",
+            "蘋果的新 iPhone 對供應鏈的拉貨力道普普"
+    };
+
+    private static final String[][] TICKERS = {
+            {"2330", "台積電"}, {"2454", "聯發科"}, {"NVDA", "輝達"}, {"2317", "鴻海"},
+            {"TSLA", "特斯拉"}, {null, "廣達"}, {"MU", "美光"}, {null, "奇鋐"}
+    };
+
+    private BenchmarkFixtures() {
+    }
+
+    /**
+     * YouTube 自動字幕風格的 VTT：每個 cue 重複上一個 cue 的最後一行，行內帶逐字時間標籤。
+     */
+    public static String youtubeVtt(int targetChars) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(targetChars + 256);
+        sb.append("WEBVTT\nKind: captions\nLanguage: zh-TW\n\n");
+        String previous = SENTENCES[0];
+        int ms = 0;
+        while (sb.length() < targetChars) {
+            String next = SENTENCES[random.nextInt(SENTENCES.length)];
+            sb.append(timestamp(ms)).append(" --> ").append(timestamp(ms + 2000))
+                    .append(" align:start position:0%\n");
+            sb.append(previous).append('\n');
+            int split = next.length() / 2;
+            sb.append(next, 0, split)
+                    .append('<').append(timestamp(ms + 1000)).append("><c> ")
+                    .append(next, split, next.length())
+                    .append("</c>\n\n");
+            previous = next;
+            ms += 2000;
+        }
+        return sb.toString();
+    }
+
+    private static String timestamp(int ms) {
+        return String.format(Locale.ROOT, "%02d:%02d:%02d.%03d",
+                ms / 3_600_000, ms / 60_000 % 60, ms / 1000 % 60, ms % 1000);
+    }
+
+    /**
+     * 清洗後的逐字稿：一行一句，夾雜公司名稱、代號、年份與價格。
+     */
+    public static String transcript(int targetChars) {
+        Random random = new Random(SEED);
+        StringBuilder sb = new StringBuilder(targetChars + 64);
+        while (sb.length() < targetChars) {
+            sb.append(SENTENCES[random.nextInt(SENTENCES.length)]).append('\n');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * 隨機漫步的日 K，從 2000-01-03 起每個平日一根。
+     */
+    public static PriceSeries priceSeries(int bars) {
+        Random random = new Random(SEED);
+        PriceSeries.Builder builder = PriceSeries.builder(bars);
+        LocalDate date = LocalDate.of(2000, 1, 3);
+        double close = 100.0;
+        for (int i = 0; i < bars; i++) {
+            double open = close;
+            close = Math.max(1.0, close * (1.0 + random.nextGaussian() * 0.02));
+            double high = Math.max(open, close) * (1.0 + random.nextDouble() * 0.01);
+            double low = Math.min(open, close) * (1.0 - random.nextDouble() * 0.01);
+            builder.add(date, open, high, low, close, 1_000_000L + random.nextInt(50_000_000));
+            date = nextWeekday(date);
+        }
+        return builder.build();
+    }
+
+    /**
+     * FinMind TaiwanStockPrice 回應（舊到新）。
+     */
+    public static String finMindJson(String stockId, int bars) {
+        PriceSeries series = priceSeries(bars);
+        StringBuilder sb = new StringBuilder(bars * 220);
+        sb.append("{\"msg\":\"success\",\"status\":200,\"data\":[");
+        for (int i = 0; i < series.size(); i++) {
+            if (i > 0) {
+                sb.append(',');
+            }
+            long volume = series.volume(i);
+            sb.append("{\"date\":\"").append(series.date(i))
+                    .append("\",\"stock_id\":\"").append(stockId)
+                    .append("\",\"Trading_Volume\":").append(volume)
+                    .append(",\"Trading_money\":").append((long) (volume * series.close(i)))
+                    .append(",\"open\":").append(price(series.open(i)))
+                    .append(",\"max\":").append(price(series.high(i)))
+                    .append(",\"min\":").append(price(series.low(i)))
+                    .append(",\"close\":").append(price(series.close(i)))
+                    .append(",\"spread\":").append(price(series.close(i) - series.open(i)))
+                    .append(",\"Trading_turnover\":").append(volume / 1000)
+                    .append('}');
+        }
+        return sb.append("]}").toString();
+    }
+
+    /**
+     * FMP historical-price-eod/full 回應（新到舊）。
+     */
+    public static String fmpJson(String symbol, int bars) {
+        PriceSeries series = priceSeries(bars);
+        StringBuilder sb = new StringBuilder(bars * 200);
+        sb.append('[');
+        for (int i = series.size() - 1; i >= 0; i--) {
+            if (i < series.size() - 1) {
+                sb.append(',');
+            }
+            double change = series.close(i) - series.open(i);
+            sb.append("{\"symbol\":\"").append(symbol)
+                    .append("\",\"date\":\"").append(series.date(i))
+                    .append("\",\"open\":").append(price(series.open(i)))
+                    .append(",\"high\":").append(price(series.high(i)))
+                    .append(",\"low\":").append(price(series.low(i)))
+                    .append(",\"close\":").append(price(series.close(i)))
+                    .append(",\"volume\":").append(series.volume(i))
+                    .append(",\"change\":").append(price(change))
+                    .append(",\"changePercent\":").append(price(change / series.open(i) * 100))
+                    .append(",\"vwap\":").append(price((series.high(i) + series.low(i) + series.close(i)) / 3))
+                    .append('}');
+        }
+        return sb.append(']').toString();
+    }
+
+    private static String price(double value) {
+        return String.format(Locale.ROOT, "%.2f", value);
+    }
+
+    private static LocalDate nextWeekday(LocalDate date) {
+        LocalDate next = date.plusDays(1);
+        while (next.getDayOfWeek().getValue() > 5) {
+            next = next.plusDays(1);
+        }
+        return next;
+    }
+
+    /**
+     * Gemini 的文字分析結果；symbol 為 null 的項目模擬 Gemini 只認出公司名稱的情況。
+     */
+    public static PodcastAnalysisResult analysis(int tickers) {
+        PodcastAnalysisResult result = new PodcastAnalysisResult();
+        StringBuilder summary = new StringBuilder();
+        for (int i = 0; i < 12; i++) {
+            summary.append(SENTENCES[i % SENTENCES.length]).append("。");
+        }
+        result.setSummary(summary.toString());
+
+        List<TickerView> views = new ArrayList<>();
+        for (int i = 0; i < tickers; i++) {
+            String[] ticker = TICKERS[i % TICKERS.length];
+            TickerView view = new TickerView();
+            view.setSymbol(ticker[0]);
+            view.setName(ticker[1]);
+            view.setSentiment(i % 3 == 0 ? "bullish" : i % 3 == 1 ? "bearish" : "neutral");
+            view.setReason(SENTENCES[(i * 7) % SENTENCES.length]);
+            views.add(view);
+        }
+        result.setTickers(views);
+
+        List<SectorView> sectors = new ArrayList<>();
+        for (String name : new String[]{"AI 伺服器", "半導體", "散熱", "金融"}) {
+            SectorView sector = new SectorView();
+            sector.setName(name);
+            sector.setSentiment("bullish");
+            sector.setReason(SENTENCES[name.length() % SENTENCES.length]);
+            sectors.add(sector);
+        }
+        result.setSectors(sectors);
+        result.setMacroView(List.of("市場在等聯準會降息", "AI 資本支出仍是主軸", "新台幣偏強"));
+        return result;
+    }
+
+    /**
+     * 與 analysis(tickers) 對應的技術分析結果：有代號的都成功，最後一檔模擬 FMP 402。
+     */
+    public static Map<String, StockTaSummary> technicals(PodcastAnalysisResult analysis) {
+        Map<String, StockTaSummary> result = new LinkedHashMap<>();
+        int i = 0;
+        for (TickerView view : analysis.getTickers()) {
+            if (view.getSymbol() == null || result.containsKey(view.getSymbol())) {
+                continue;
+            }
+            StockTaSummary summary = new StockTaSummary();
+            summary.setSymbol(view.getSymbol());
+            summary.setLastClose(100.0 + i * 13.7);
+            summary.setSma20(98.0 + i * 13.1);
+            summary.setRsi14(40.0 + i * 3.3);
+            summary.setAboveSma20(summary.getLastClose() >= summary.getSma20());
+            summary.setMessage("OK");
+            result.put(view.getSymbol(), summary);
+            i++;
+        }
+        if (!result.isEmpty()) {
+            StockTaSummary last = null;
+            for (StockTaSummary summary : result.values()) {
+                last = summary;
+            }
+            last.setMessage("FMP API HTTP 狀態碼異常: 402，body=Restricted Endpoint: subscription required");
+        }
+        return result;
+    }
+
+    /**
+     * Gemini generateContent 回應：candidates[0].content.parts[0].text 是包在 ```json 區塊中的分析結果。
+     */
+    public static String geminiResponse(PodcastAnalysisResult analysis) {
+        ObjectMapper mapper = new ObjectMapper();
+        try {
+            String text = "```json\n" + mapper.writerWithDefaultPrettyPrinter().writeValueAsString(analysis) + "\n```";
+            Map<String, Object> part = Map.of("text", text);
+            Map<String, Object> content = new LinkedHashMap<>();
+            content.put("parts", List.of(part));
+            content.put("role", "model");
+            Map<String, Object> candidate = new LinkedHashMap<>();
+            candidate.put("content", content);
+            candidate.put("finishReason", "STOP");
+            candidate.put("index", 0);
+            Map<String, Object> usage = new LinkedHashMap<>();
+            usage.put("promptTokenCount", 18234);
+            usage.put("candidatesTokenCount", 1542);
+            usage.put("totalTokenCount", 19776);
+            Map<String, Object> root = new LinkedHashMap<>();
+            root.put("candidates", List.of(candidate));
+            root.put("usageMetadata", usage);
+            root.put("modelVersion", "gemini-2.5-flash");
+            return mapper.writeValueAsString(root);
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
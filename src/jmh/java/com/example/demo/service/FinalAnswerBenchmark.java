@@ -0,0 +1,51 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.BenchmarkFixtures;
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.StockTaSummary;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * PodcastEnrichmentService.buildFinalAnswer：把分析結果與技術分析組成給使用者看的文字。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class FinalAnswerBenchmark {
+
+    @Param({"8", "40"})
+    public int tickers;
+
+    private PodcastEnrichmentService service;
+    private PodcastAnalysisResult analysis;
+    private Map<String, StockTaSummary> technicals;
+
+    @Setup
+    public void setUp() {
+        // buildFinalAnswer 不會用到其他相依元件
+        service = new PodcastEnrichmentService(null, null, null, true);
+        analysis = BenchmarkFixtures.analysis(tickers);
+        technicals = BenchmarkFixtures.technicals(analysis);
+    }
+
+    @Benchmark
+    public String buildFinalAnswer() {
+        return service.buildFinalAnswer(analysis, technicals);
+    }
+}
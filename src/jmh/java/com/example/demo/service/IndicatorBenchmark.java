@@ -0,0 +1,62 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.BenchmarkFixtures;
+import com.example.demo.model.PriceSeries;
+import com.example.demo.model.StockTaSummary;
+import com.example.demo.util.PriceIndicators;
+import com.example.demo.util.TradingCalendar;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TechnicalAnalysisService 取得日 K 之後的計算部分：
+ * - smaRsi：SMA20 / RSI14（PriceIndicators，primitive 陣列）
+ * - allIndicators：IndicatorEngine.apply 算出全部指標（EMA、MACD、布林、ATR、OBV 走 ta4j）；
+ *   快取大小設為 0，每次都重新計算
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class IndicatorBenchmark {
+
+    // 120 是分析 endpoint 的預設天數，5000 約為 20 年
+    @Param({"120", "1250", "5000"})
+    public int bars;
+
+    private PriceSeries series;
+    private IndicatorEngine engine;
+
+    @Setup
+    public void setUp() {
+        series = BenchmarkFixtures.priceSeries(bars);
+        engine = new IndicatorEngine(
+                new String[]{"SMA", "EMA", "MACD", "BOLLINGER", "ATR", "RSI", "OBV"},
+                20, 12, 26, 9, 20, 2.0, 0);
+    }
+
+    @Benchmark
+    public double smaRsi() {
+        return PriceIndicators.sma(series, 20) + PriceIndicators.wilderRsi(series, 14);
+    }
+
+    @Benchmark
+    public StockTaSummary allIndicators() {
+        StockTaSummary summary = new StockTaSummary();
+        engine.apply(summary, TradingCalendar.MARKET_US, "NVDA", series);
+        return summary;
+    }
+}
@@ -0,0 +1,92 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.BenchmarkFixtures;
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.PriceSeries;
+import com.example.demo.util.PriceJsonReader;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 外部 API 回應的解析：
+ * - FinMind / FMP 日 K：FinMindClient、FmpClient 用的 PriceJsonReader（從位元組串流逐 token 讀取）
+ * - Gemini：GeminiClient 的 readTree 取出 candidates[0] 文字，去掉 ```json 後轉成 PodcastAnalysisResult
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class ProviderPayloadBenchmark {
+
+    // 日 K 根數（一年約 250 根）；Gemini 回應固定為 16 檔股票的分析結果
+    @Param({"250", "5000"})
+    public int bars;
+
+    // 與 Spring Boot 自動設定的 ObjectMapper 一樣忽略未知欄位
+    private final ObjectMapper objectMapper = new ObjectMapper()
+            .configure(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES, false);
+
+    private byte[] finMind;
+    private byte[] fmp;
+    private String gemini;
+    private LocalDate from;
+    private LocalDate to;
+
+    @Setup
+    public void setUp() {
+        finMind = BenchmarkFixtures.finMindJson("2330", bars).getBytes(StandardCharsets.UTF_8);
+        fmp = BenchmarkFixtures.fmpJson("NVDA", bars).getBytes(StandardCharsets.UTF_8);
+        gemini = BenchmarkFixtures.geminiResponse(BenchmarkFixtures.analysis(16));
+        from = LocalDate.of(1990, 1, 1);
+        to = LocalDate.of(2100, 1, 1);
+    }
+
+    @Benchmark
+    public PriceSeries finMind() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(finMind))) {
+            return PriceJsonReader.readFinMind(parser, from, to);
+        }
+    }
+
+    @Benchmark
+    public PriceSeries fmp() throws IOException {
+        try (JsonParser parser = objectMapper.getFactory().createParser(new ByteArrayInputStream(fmp))) {
+            return PriceJsonReader.readFmp(parser, from, to);
+        }
+    }
+
+    @Benchmark
+    public PodcastAnalysisResult gemini() throws IOException {
+        JsonNode root = objectMapper.readTree(gemini);
+        String text = root.path("candidates").get(0).path("content").path("parts").get(0).path("text").asText();
+        String json = text.trim();
+        if (json.startsWith("```json")) {
+            json = json.substring(7);
+        }
+        if (json.endsWith("```")) {
+            json = json.substring(0, json.length() - 3);
+        }
+        return objectMapper.readValue(json.trim(), PodcastAnalysisResult.class);
+    }
+}
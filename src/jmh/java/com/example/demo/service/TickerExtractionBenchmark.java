@@ -0,0 +1,83 @@
+package com.example.demo.service;
+
+import com.example.demo.benchmark.BenchmarkFixtures;
+import com.example.demo.model.ListedSymbol;
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.TickerView;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * PodcastEnrichmentService 在技術分析前找出股票的部分：
+ * - transcriptMentions：用 SymbolUniverse 的自動機掃整份逐字稿
+ * - resolveTickers：把 Gemini 的 TickerView 對到股票清單（含 symbol 為 null 時用名稱補）
+ * - legacyDigitRegex：舊版每次 compile 的 \b(\d{4})\b，留作對照
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class TickerExtractionBenchmark {
+
+    // 一小時的節目清洗後約 20,000 字
+    @Param({"20000", "200000"})
+    public int transcriptChars;
+
+    private SymbolUniverse universe;
+    private String transcript;
+    private List<TickerView> tickers;
+
+    @Setup
+    public void setUp() {
+        universe = new SymbolUniverse(new DefaultResourceLoader(), null, null, "classpath:symbols/universe.tsv", false);
+        transcript = BenchmarkFixtures.transcript(transcriptChars);
+        tickers = BenchmarkFixtures.analysis(16).getTickers();
+    }
+
+    @Benchmark
+    public List<SymbolUniverse.Mention> transcriptMentions() {
+        return universe.findMentions(transcript);
+    }
+
+    @Benchmark
+    public Set<String> resolveTickers() {
+        Set<String> symbols = new LinkedHashSet<>();
+        for (TickerView ticker : tickers) {
+            Optional<ListedSymbol> known = ticker.getSymbol() != null
+                    ? universe.find(ticker.getSymbol())
+                    : universe.resolveName(ticker.getName());
+            known.ifPresent(symbol -> symbols.add(symbol.getSymbol()));
+        }
+        return symbols;
+    }
+
+    @Benchmark
+    public Set<String> legacyDigitRegex() {
+        Set<String> symbols = new LinkedHashSet<>();
+        Matcher m = Pattern.compile("\\b(\\d{4})\\b").matcher(transcript);
+        while (m.find()) {
+            symbols.add(m.group(1));
+        }
+        return symbols;
+    }
+}
@@ -0,0 +1,54 @@
+package com.example.demo.util;
+
+import com.example.demo.benchmark.BenchmarkFixtures;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * TranscriptCleaner 在 1～10MB 的 YouTube 自動字幕上的耗時：
+ * clean(String) 是 JSON body 的路徑，cleanStream 是直接上傳字幕檔（邊讀 UTF-8 位元組邊清洗）的路徑。
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = {"-Xms1g", "-Xmx1g"})
+@State(Scope.Benchmark)
+public class TranscriptCleanerBenchmark {
+
+    @Param({"1", "10"})
+    public int sizeMb;
+
+    private String vtt;
+    private byte[] vttBytes;
+
+    @Setup
+    public void setUp() {
+        vtt = BenchmarkFixtures.youtubeVtt(sizeMb * 1024 * 1024);
+        vttBytes = vtt.getBytes(StandardCharsets.UTF_8);
+    }
+
+    @Benchmark
+    public String cleanString() {
+        return TranscriptCleaner.clean(vtt);
+    }
+
+    @Benchmark
+    public String cleanStream() throws IOException {
+        return TranscriptCleaner.clean(new ByteArrayInputStream(vttBytes), StandardCharsets.UTF_8, vtt.length());
+    }
+}
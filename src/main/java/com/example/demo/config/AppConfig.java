@@ -1,12 +1,25 @@
 package com.example.demo.config;
 
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.TimeValue;
+import org.apache.hc.core5.util.Timeout;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.http.converter.StringHttpMessageConverter;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 
+import java.net.http.HttpClient;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.concurrent.ThreadPoolExecutor;
 
 @Configuration
 public class AppConfig {
@@ -28,4 +41,194 @@ public class AppConfig {
 
         return restTemplate;
     }
+
+    /**
+     * 技術分析 fan-out 專用的執行緒池，與 Tomcat request thread 分開。
+     * 佇列滿了直接拒絕，被拒絕的股票回傳逾時的結果；不在 request thread 上執行，才不會超過整批的 deadline。
+     */
+    @Bean(name = "taExecutor")
+    public ThreadPoolTaskExecutor taExecutor(
+            @Value("${ta.fanout.threads:8}") int threads,
+            @Value("${ta.fanout.queue-capacity:256}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ta-fanout-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 分段語音轉文字用的執行緒池，執行緒數即同時送往 STT 服務的請求上限（跨所有請求共用）。
+     */
+    @Bean(name = "sttExecutor")
+    public ThreadPoolTaskExecutor sttExecutor(
+            @Value("${stt.chunk.concurrency:4}") int concurrency
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(256);
+        executor.setThreadNamePrefix("stt-chunk-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 長逐字稿 map-reduce 分析（GeminiClient）的分段呼叫，執行緒數即同時送往 Gemini 的分段數上限。
+     * 佇列滿時由呼叫端自己執行。
+     */
+    @Bean(name = "geminiExecutor")
+    public ThreadPoolTaskExecutor geminiExecutor(
+            @Value("${gemini.map-reduce.concurrency:4}") int concurrency
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(concurrency);
+        executor.setMaxPoolSize(concurrency);
+        executor.setQueueCapacity(256);
+        executor.setThreadNamePrefix("gemini-map-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 背景工作（JobService）的 worker pool，與 web tier 分開調整大小。
+     * 佇列滿了直接拒絕，讓 API 回 503，而不是在 request thread 上執行。
+     */
+    @Bean(name = "jobExecutor")
+    public ThreadPoolTaskExecutor jobExecutor(
+            @Value("${job.workers:2}") int workers,
+            @Value("${job.queue-capacity:20}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("job-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * SSE 串流分析（/api/process-podcast-vtt/stream）的 worker，連線期間佔用一個執行緒。
+     * 佇列滿了直接拒絕（回 503），不在 request thread 上執行。
+     */
+    @Bean(name = "streamExecutor")
+    public ThreadPoolTaskExecutor streamExecutor(
+            @Value("${stream.workers:4}") int workers,
+            @Value("${stream.queue-capacity:16}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("stream-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 背景 RSS 輪詢（EpisodeIngestService）處理新集數用；每一集都要下載、轉錄、呼叫 Gemini，
+     * 同時處理的集數刻意壓低，佇列滿了由輪詢還回租約，下一輪再處理。
+     */
+    @Bean(name = "ingestExecutor")
+    public ThreadPoolTaskExecutor ingestExecutor(
+            @Value("${ingest.workers:1}") int workers,
+            @Value("${ingest.queue-capacity:5}") int queueCapacity
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(workers);
+        executor.setMaxPoolSize(workers);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("ingest-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.AbortPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 音檔分段平行下載（RangedDownloader）的連線 worker，跨所有下載共用。
+     * 佇列滿時由呼叫端自己下載，退化成較少的平行連線。
+     */
+    @Bean(name = "downloadExecutor")
+    public ThreadPoolTaskExecutor downloadExecutor(
+            @Value("${download.parallel.threads:8}") int threads
+    ) {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(threads);
+        executor.setMaxPoolSize(threads);
+        executor.setQueueCapacity(64);
+        executor.setThreadNamePrefix("download-");
+        executor.setRejectedExecutionHandler(new ThreadPoolExecutor.CallerRunsPolicy());
+        executor.setWaitForTasksToCompleteOnShutdown(false);
+        executor.initialize();
+        return executor;
+    }
+
+    /**
+     * 所有 java.net.http 呼叫（FinMind、FMP、Gemini、RSS、Podcast 下載）共用的 client。
+     * 同一個 client 內部依 host 保留 keep-alive 連線，HTTPS 會透過 ALPN 優先用 HTTP/2。
+     * 連線逾時在這裡統一設定，讀取逾時由各資料源在 HttpRequest 上各自設定。
+     */
+    @Bean
+    public HttpClient outboundHttpClient(
+            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs
+    ) {
+        return HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_2)
+                .connectTimeout(Duration.ofMillis(connectTimeoutMs))
+                .followRedirects(HttpClient.Redirect.NORMAL)
+                .build();
+    }
+
+    /**
+     * Apache HttpClient 的連線池（Whisper multipart 上傳用）。
+     */
+    @Bean(destroyMethod = "close")
+    public PoolingHttpClientConnectionManager pooledConnectionManager(
+            @Value("${http.pool.max-total:20}") int maxTotal,
+            @Value("${http.pool.max-per-route:5}") int maxPerRoute,
+            @Value("${http.client.connect-timeout-ms:5000}") long connectTimeoutMs
+    ) {
+        return PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(maxTotal)
+                .setMaxConnPerRoute(maxPerRoute)
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.ofMilliseconds(connectTimeoutMs))
+                        .setValidateAfterInactivity(TimeValue.ofSeconds(10))
+                        .build())
+                .build();
+    }
+
+    /**
+     * 共用的 Apache HttpClient，取代每次呼叫都重建 client 的寫法；
+     * 回應逾時由呼叫端在 request 上設定。
+     */
+    @Bean(destroyMethod = "close")
+    public CloseableHttpClient pooledHttpClient(
+            PoolingHttpClientConnectionManager pooledConnectionManager,
+            @Value("${http.pool.keep-alive-seconds:60}") long keepAliveSeconds
+    ) {
+        return HttpClients.custom()
+                .setConnectionManager(pooledConnectionManager)
+                .setKeepAliveStrategy((response, context) -> TimeValue.ofSeconds(keepAliveSeconds))
+                .evictIdleConnections(TimeValue.ofSeconds(keepAliveSeconds))
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setConnectionRequestTimeout(Timeout.ofSeconds(30))
+                        .build())
+                .build();
+    }
 }
@@ -7,11 +7,28 @@ import com.example.demo.api.CleanTranscriptResponse;
 import com.example.demo.api.ProcessPodcastVttResponse;
 import com.example.demo.model.PodcastAnalysisResult;
 import com.example.demo.model.PodcastWithTaResponse;
+import com.example.demo.model.StockTaSummary;
 import com.example.demo.service.AiService;
+import com.example.demo.service.JobProgress;
+import com.example.demo.service.PodcastAnalysisListener;
 import com.example.demo.service.PodcastEnrichmentService;
+import com.example.demo.service.PodcastPipelineService;
 import com.example.demo.util.TranscriptCleaner;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import javax.servlet.http.HttpServletRequest;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
 
 @RestController
 @RequestMapping("/api")
@@ -19,11 +36,20 @@ public class AnalyzeController {
 
     private final AiService aiService;
     private final PodcastEnrichmentService podcastEnrichmentService;
+    private final PodcastPipelineService podcastPipelineService;
+    private final Executor streamExecutor;
+    private final long streamTimeoutMs;
 
     public AnalyzeController(AiService aiService,
-                             PodcastEnrichmentService podcastEnrichmentService) {
+                             PodcastEnrichmentService podcastEnrichmentService,
+                             PodcastPipelineService podcastPipelineService,
+                             @Qualifier("streamExecutor") Executor streamExecutor,
+                             @Value("${stream.timeout-ms:600000}") long streamTimeoutMs) {
         this.aiService = aiService;
         this.podcastEnrichmentService = podcastEnrichmentService;
+        this.podcastPipelineService = podcastPipelineService;
+        this.streamExecutor = streamExecutor;
+        this.streamTimeoutMs = streamTimeoutMs;
     }
 
     @PostMapping("/analyze-text")
@@ -55,18 +81,118 @@ public class AnalyzeController {
         return ResponseEntity.ok(new CleanTranscriptResponse(cleaned));
     }
 
+    /**
+     * 直接上傳字幕檔（不用包成 JSON 字串），邊讀 request body 邊清洗。
+     * 例：curl -X POST http://localhost:8080/api/clean-transcript
+     *       -H "Content-Type: text/vtt" --data-binary @episode.vtt
+     */
+    @PostMapping(path = "/clean-transcript", consumes = {"text/vtt", "application/x-subrip", "text/plain"})
+    public ResponseEntity<CleanTranscriptResponse> cleanTranscriptFile(HttpServletRequest request) throws IOException {
+        // VTT 規定是 UTF-8；SRT 沒有規定，沒帶 charset 時一樣當 UTF-8
+        Charset charset = request.getCharacterEncoding() != null
+                ? Charset.forName(request.getCharacterEncoding())
+                : StandardCharsets.UTF_8;
+        int sizeHint = (int) Math.min(Integer.MAX_VALUE, Math.max(0L, request.getContentLengthLong()));
+        String cleaned = TranscriptCleaner.clean(request.getInputStream(), charset, sizeHint);
+        return ResponseEntity.ok(new CleanTranscriptResponse(cleaned));
+    }
+
     // 新增：從 VTT 一路跑到 podcast 分析 + TA 的一條龍 endpoint
+    // 背景執行版本：POST /api/jobs/process-podcast-vtt
     @PostMapping("/process-podcast-vtt")
     public ResponseEntity<ProcessPodcastVttResponse> processPodcastVtt(
             @RequestBody CleanTranscriptRequest request
     ) {
-        String cleaned = TranscriptCleaner.clean(request.getRawText());
-        PodcastWithTaResponse analysis = podcastEnrichmentService.analyzeWithTa(cleaned);
+        ProcessPodcastVttResponse response =
+                podcastPipelineService.processVtt(request.getRawText(), JobProgress.NONE);
+        return ResponseEntity.ok(response);
+    }
+
+    /**
+     * 與 /process-podcast-vtt 相同的流程，改用 Server-Sent Events 逐步回傳：
+     * <pre>
+     * event: stage      {"stage":"cleaning"} / analyzing / technical-analysis
+     * event: cleaned    {"text":"清洗後的逐字稿"}
+     * event: summary    {"text":"summary 片段"}（可能有很多個，依序串接）
+     * event: analysis   PodcastAnalysisResult
+     * event: technical  StockTaSummary（每檔一個，完成順序不固定）
+     * event: final      PodcastWithTaResponse（含 finalAnswer 與所有技術分析）
+     * event: error      {"message":"..."}
+     * </pre>
+     * 例：curl -N -X POST http://localhost:8080/api/process-podcast-vtt/stream
+     *       -H "Content-Type: application/json" -d '{"rawText":"WEBVTT ..."}'
+     */
+    @PostMapping(path = "/process-podcast-vtt/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> processPodcastVttStream(@RequestBody CleanTranscriptRequest request) {
+        String rawText = request.getRawText();
+        SseEmitter emitter = new SseEmitter(streamTimeoutMs);
+        SseAnalysisListener listener = new SseAnalysisListener(emitter);
+        try {
+            streamExecutor.execute(() -> {
+                try {
+                    ProcessPodcastVttResponse response = podcastPipelineService.processVtt(rawText, listener, listener);
+                    listener.send("final", response.getAnalysis());
+                } catch (RuntimeException e) {
+                    listener.send("error", Collections.singletonMap("message", e.getMessage()));
+                } finally {
+                    emitter.complete();
+                }
+            });
+        } catch (RejectedExecutionException e) {
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
 
-        ProcessPodcastVttResponse response = new ProcessPodcastVttResponse();
-        response.setCleanedText(cleaned);
-        response.setAnalysis(analysis);
+    /**
+     * 把各階段的結果轉成 SSE 事件。文字也包成 JSON，換行才不會破壞 SSE 的格式。
+     * 用戶端斷線後不再送出，但分析本身會跑完（結果仍會進快取）。
+     */
+    private static final class SseAnalysisListener implements PodcastAnalysisListener, JobProgress {
+        private final SseEmitter emitter;
+        private volatile boolean closed;
 
-        return ResponseEntity.ok(response);
+        private SseAnalysisListener(SseEmitter emitter) {
+            this.emitter = emitter;
+            emitter.onCompletion(() -> closed = true);
+            emitter.onTimeout(() -> closed = true);
+            emitter.onError(e -> closed = true);
+        }
+
+        @Override
+        public void stage(String name) {
+            send("stage", Collections.singletonMap("stage", name));
+        }
+
+        @Override
+        public void onCleanedText(String cleanedText) {
+            send("cleaned", Collections.singletonMap("text", cleanedText));
+        }
+
+        @Override
+        public void onSummaryDelta(String delta) {
+            send("summary", Collections.singletonMap("text", delta));
+        }
+
+        @Override
+        public void onAnalysis(PodcastAnalysisResult analysis) {
+            send("analysis", analysis);
+        }
+
+        @Override
+        public void onTechnical(StockTaSummary technical) {
+            send("technical", technical);
+        }
+
+        private void send(String event, Object data) {
+            if (closed) {
+                return;
+            }
+            try {
+                emitter.send(SseEmitter.event().name(event).data(data, MediaType.APPLICATION_JSON));
+            } catch (IOException | IllegalStateException e) {
+                closed = true;
+            }
+        }
     }
 }
@@ -1,7 +1,8 @@
 package com.example.demo.controller;
 
-import com.example.demo.service.PodcastEnrichmentService;
-import com.example.demo.service.WhisperClient; // 引入新的 WhisperClient
+import com.example.demo.service.JobProgress;
+import com.example.demo.service.PodcastPipelineService;
+import com.example.demo.util.TempFiles;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,6 +13,7 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 import java.util.LinkedHashMap;
 import java.util.Map;
 
@@ -19,15 +21,11 @@ import java.util.Map;
 @RequestMapping("/api")
 public class AudioAnalysisController {
 
-    // *** 依賴注入修改 ***
-    // 移除 GeminiSttService，加入 WhisperClient
-    private final WhisperClient whisperClient;
-    private final PodcastEnrichmentService podcastEnrichmentService;
+    // Whisper 轉錄 + 分析的流程在 PodcastPipelineService，背景工作也共用
+    private final PodcastPipelineService podcastPipelineService;
 
-    public AudioAnalysisController(WhisperClient whisperClient,
-                                   PodcastEnrichmentService podcastEnrichmentService) {
-        this.whisperClient = whisperClient;
-        this.podcastEnrichmentService = podcastEnrichmentService;
+    public AudioAnalysisController(PodcastPipelineService podcastPipelineService) {
+        this.podcastPipelineService = podcastPipelineService;
     }
 
     @PostMapping(
@@ -46,23 +44,16 @@ public class AudioAnalysisController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(result);
         }
 
+        Path tempFile = null;
         try {
-            byte[] audioBytes = file.getBytes();
-            String originalFilename = file.getOriginalFilename();
+            // 上傳內容先落地成暫存檔（同時算出 sha256 查逐字稿），之後全程以串流處理，不讀成 byte[]
+            TempFiles.Saved upload = TempFiles.saveWithSha256(file.getInputStream(), "upload-", ".audio");
+            tempFile = upload.getPath();
 
-            // *** 核心流程修改 ***
-            // 步驟 1: 呼叫 WhisperClient 進行語音轉文字
-            String transcript = whisperClient.transcribe(audioBytes, originalFilename);
-
-            // 步驟 2: 將純文字逐字稿交給 EnrichmentService 進行後續分析
-            Object analysisResult = podcastEnrichmentService.analyzeWithTa(transcript);
-
-            // 步驟 3: 組合回應 (與之前相同)
-            result.put("transcript", transcript);
-            result.put("analysisResult", analysisResult);
-            result.put("originalFilename", originalFilename);
-            result.put("sizeBytes", audioBytes.length);
-            result.put("message", "OK");
+            // 背景執行版本：POST /api/jobs/analyze-audio-with-ta
+            result = podcastPipelineService.analyzeAudioWithTa(
+                    tempFile, upload.getSha256(), file.getOriginalFilename(), file.getContentType(),
+                    upload.getSize(), JobProgress.NONE);
 
             return ResponseEntity.ok(result);
 
@@ -77,6 +68,8 @@ public class AudioAnalysisController {
             result.put("analysisResult", null);
             result.put("message", "音訊分析過程中發生錯誤: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(result);
+        } finally {
+            TempFiles.deleteQuietly(tempFile);
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,120 @@
+package com.example.demo.controller;
+
+import com.example.demo.api.CleanTranscriptRequest;
+import com.example.demo.model.JobView;
+import com.example.demo.service.JobService;
+import com.example.demo.service.PodcastPipelineService;
+import com.example.demo.util.TempFiles;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestPart;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.file.Path;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 長時間流程的背景執行版本：送出後立即回 202 與 jobId，再用 GET /api/jobs/{jobId} 查詢進度與結果。
+ * <p>
+ * 例：
+ *   curl -X POST http://localhost:8080/api/jobs/analyze-audio-with-ta -F "file=@sample.mp3"
+ *   curl http://localhost:8080/api/jobs/{jobId}
+ */
+@RestController
+@RequestMapping("/api/jobs")
+public class JobController {
+
+    private final JobService jobService;
+    private final PodcastPipelineService podcastPipelineService;
+
+    public JobController(JobService jobService, PodcastPipelineService podcastPipelineService) {
+        this.jobService = jobService;
+        this.podcastPipelineService = podcastPipelineService;
+    }
+
+    @GetMapping("/{jobId}")
+    public ResponseEntity<JobView> getJob(@PathVariable("jobId") String jobId) {
+        return jobService.find(jobId)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
+
+    @PostMapping("/process-podcast-vtt")
+    public ResponseEntity<JobView> processPodcastVtt(@RequestBody CleanTranscriptRequest request) {
+        String rawText = request.getRawText();
+        return submit("process-podcast-vtt", null,
+                progress -> podcastPipelineService.processVtt(rawText, progress));
+    }
+
+    @PostMapping(path = "/transcribe-audio", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<JobView> transcribeAudio(@RequestPart("file") MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return badRequest("上傳的檔案為空，請確認有選擇音訊檔案。");
+        }
+        // MultipartFile 在 request 結束後就失效，送出工作前先落地成暫存檔
+        TempFiles.Saved upload = TempFiles.saveWithSha256(file.getInputStream(), "job-upload-", ".audio");
+        Path tempFile = upload.getPath();
+        String contentType = file.getContentType();
+        return submit("transcribe-audio", tempFile, progress -> {
+            try {
+                return podcastPipelineService.transcribe(
+                        tempFile, upload.getSha256(), contentType, upload.getSize(), progress);
+            } finally {
+                TempFiles.deleteQuietly(tempFile);
+            }
+        });
+    }
+
+    @PostMapping(path = "/analyze-audio-with-ta", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<JobView> analyzeAudioWithTa(@RequestPart("file") MultipartFile file) throws IOException {
+        if (file == null || file.isEmpty()) {
+            return badRequest("上傳的檔案為空，請確認有選擇音訊檔案。");
+        }
+        TempFiles.Saved upload = TempFiles.saveWithSha256(file.getInputStream(), "job-upload-", ".audio");
+        Path tempFile = upload.getPath();
+        String originalFilename = file.getOriginalFilename();
+        String contentType = file.getContentType();
+        return submit("analyze-audio-with-ta", tempFile, progress -> {
+            try {
+                return podcastPipelineService.analyzeAudioWithTa(
+                        tempFile, upload.getSha256(), originalFilename, contentType, upload.getSize(), progress);
+            } finally {
+                TempFiles.deleteQuietly(tempFile);
+            }
+        });
+    }
+
+    /**
+     * @param upload 工作被拒絕時要清掉的暫存檔（沒有則為 null）；工作執行後由工作本身刪除
+     */
+    private ResponseEntity<JobView> submit(String type, Path upload, JobService.JobTask task) {
+        try {
+            JobView job = jobService.submit(type, task);
+            return ResponseEntity.accepted()
+                    .location(URI.create("/api/jobs/" + job.getJobId()))
+                    .body(job);
+        } catch (RejectedExecutionException e) {
+            TempFiles.deleteQuietly(upload);
+            JobView rejected = new JobView();
+            rejected.setType(type);
+            rejected.setStatus("REJECTED");
+            rejected.setError("目前排隊的工作太多，請稍後再試。");
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).body(rejected);
+        }
+    }
+
+    private static ResponseEntity<JobView> badRequest(String message) {
+        JobView view = new JobView();
+        view.setError(message);
+        return ResponseEntity.badRequest().body(view);
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.demo.controller;
+
+import com.example.demo.service.MetricsSource;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@RestController
+@RequestMapping("/api/metrics")
+public class MetricsController {
+
+    private final List<MetricsSource> sources;
+
+    public MetricsController(List<MetricsSource> sources) {
+        this.sources = sources;
+    }
+
+    /**
+     * 例：
+     *   GET /api/metrics
+     */
+    @GetMapping
+    public Map<String, Map<String, Object>> metrics() {
+        Map<String, Map<String, Object>> result = new TreeMap<>();
+        for (MetricsSource source : sources) {
+            result.put(source.metricsName(), source.metrics());
+        }
+        return result;
+    }
+}
@@ -3,7 +3,9 @@ package com.example.demo.controller;
 import com.example.demo.model.PodcastEpisode;
 import com.example.demo.model.PodcastEpisodesByQueryResponse;
 import com.example.demo.model.PodcastQueryRequest;
+import com.example.demo.service.EpisodeIngestService;
 import com.example.demo.service.PodcastService;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
@@ -14,9 +16,11 @@ import java.util.List;
 public class PodcastController {
 
     private final PodcastService podcastService;
+    private final EpisodeIngestService episodeIngestService;
 
-    public PodcastController(PodcastService podcastService) {
+    public PodcastController(PodcastService podcastService, EpisodeIngestService episodeIngestService) {
         this.podcastService = podcastService;
+        this.episodeIngestService = episodeIngestService;
     }
 
     // 既有：用 sourceId + limit 直接抓
@@ -42,4 +46,13 @@ public class PodcastController {
                 podcastService.getEpisodesByQuery(request.getQuery());
         return ResponseEntity.ok(resp);
     }
+
+    // 背景輪詢已處理好的單集分析（PodcastWithTaResponse），尚未處理時回 404
+    // 例：GET /api/podcasts/episodes/analysis?guid=...
+    @GetMapping(path = "/episodes/analysis", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getEpisodeAnalysis(@RequestParam("guid") String guid) {
+        return episodeIngestService.findResultJson(guid)
+                .map(ResponseEntity::ok)
+                .orElseGet(() -> ResponseEntity.notFound().build());
+    }
 }
@@ -2,10 +2,17 @@ package com.example.demo.controller;
 
 import com.example.demo.model.PodcastDownloadRequest;
 import com.example.demo.model.PodcastDownloadResult;
+import com.example.demo.service.AudioCache;
 import com.example.demo.service.PodcastDownloadService;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 
+import javax.servlet.http.HttpServletResponse;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api")
 public class PodcastDownloadController {
@@ -21,4 +28,22 @@ public class PodcastDownloadController {
         PodcastDownloadResult result = podcastDownloadService.download(request.getAudioUrl());
         return ResponseEntity.ok(result);
     }
+
+    /**
+     * 下載快取中的音檔內容（download-podcast-audio 回傳的 downloadPath）；已被快取淘汰時回 404，重新呼叫下載即可。
+     * 傳送期間持有 lease，檔案不會在傳到一半時被刪除。
+     */
+    @GetMapping("/podcast-audio/{sha256}")
+    public void audio(@PathVariable("sha256") String sha256, HttpServletResponse response) throws IOException {
+        Optional<AudioCache.Lease> lease = podcastDownloadService.openCached(sha256);
+        if (lease.isEmpty()) {
+            response.sendError(HttpStatus.NOT_FOUND.value());
+            return;
+        }
+        try (AudioCache.Lease audio = lease.get()) {
+            response.setContentType(audio.getContentType());
+            response.setContentLengthLong(audio.getSizeBytes());
+            Files.copy(audio.getPath(), response.getOutputStream());
+        }
+    }
 }
@@ -1,7 +1,9 @@
 package com.example.demo.controller;
 
 import com.example.demo.model.TranscriptionResponse;
-import com.example.demo.service.SpeechToTextService;
+import com.example.demo.service.JobProgress;
+import com.example.demo.service.PodcastPipelineService;
+import com.example.demo.util.TempFiles;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
@@ -12,15 +14,16 @@ import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.multipart.MultipartFile;
 
 import java.io.IOException;
+import java.nio.file.Path;
 
 @RestController
 @RequestMapping("/api")
 public class TranscriptionController {
 
-    private final SpeechToTextService speechToTextService;
+    private final PodcastPipelineService podcastPipelineService;
 
-    public TranscriptionController(SpeechToTextService speechToTextService) {
-        this.speechToTextService = speechToTextService;
+    public TranscriptionController(PodcastPipelineService podcastPipelineService) {
+        this.podcastPipelineService = podcastPipelineService;
     }
 
     /**
@@ -47,21 +50,19 @@ public class TranscriptionController {
             return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(response);
         }
 
+        Path tempFile = null;
         try {
-            byte[] audioBytes = file.getBytes();
-            String mimeType = file.getContentType();
-            if (mimeType == null || mimeType.isEmpty()) {
-                // 若無法從上傳內容判斷，就給一個預設值
-                mimeType = "audio/mpeg";
-            }
-
-            String transcript = speechToTextService.transcribe(audioBytes, mimeType);
-
-            response.setTranscript(transcript);
-            response.setMimeType(mimeType);
-            response.setSizeBytes(audioBytes.length);
-            response.setMessage("OK");
+            // 上傳內容先落地成暫存檔（同時算出 sha256 查逐字稿），之後全程以串流處理，不讀成 byte[]
+            TempFiles.Saved upload = TempFiles.saveWithSha256(file.getInputStream(), "upload-", ".audio");
+            tempFile = upload.getPath();
+            // 長音檔會切段平行轉錄；背景執行版本：POST /api/jobs/transcribe-audio
+            response = podcastPipelineService.transcribe(
+                    tempFile, upload.getSha256(), file.getContentType(), upload.getSize(), JobProgress.NONE);
 
+            if (!"OK".equals(response.getMessage())) {
+                // STT 服務回傳錯誤（或分段轉錄有一段失敗），message 是錯誤原因
+                return ResponseEntity.status(HttpStatus.BAD_GATEWAY).body(response);
+            }
             return ResponseEntity.ok(response);
         } catch (IOException ex) {
             response.setTranscript(null);
@@ -69,6 +70,8 @@ public class TranscriptionController {
             response.setSizeBytes(0L);
             response.setMessage("讀取上傳檔案失敗: " + ex.getMessage());
             return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR).body(response);
+        } finally {
+            TempFiles.deleteQuietly(tempFile);
         }
     }
 }
@@ -0,0 +1,57 @@
+package com.example.demo.model;
+
+import java.util.List;
+
+/**
+ * 股票清單（symbols/universe.tsv）中的一檔股票。
+ */
+public class ListedSymbol {
+
+    // TW / US
+    private final String market;
+
+    // 股票代號，例如 2330、NVDA
+    private final String symbol;
+
+    // 中文名稱，例如 台積電、輝達
+    private final String nameZh;
+
+    // 英文名稱，例如 TSMC、NVIDIA
+    private final String nameEn;
+
+    // 其他常見叫法，例如 台積、發哥
+    private final List<String> aliases;
+
+    public ListedSymbol(String market, String symbol, String nameZh, String nameEn, List<String> aliases) {
+        this.market = market;
+        this.symbol = symbol;
+        this.nameZh = nameZh;
+        this.nameEn = nameEn;
+        this.aliases = List.copyOf(aliases);
+    }
+
+    public String getMarket() {
+        return market;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public String getNameZh() {
+        return nameZh;
+    }
+
+    public String getNameEn() {
+        return nameEn;
+    }
+
+    public List<String> getAliases() {
+        return aliases;
+    }
+
+    @Override
+    public String toString() {
+        return market + ":" + symbol + "(" + nameZh + ")";
+    }
+}
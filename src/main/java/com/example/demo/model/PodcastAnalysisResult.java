@@ -16,6 +16,9 @@ public class PodcastAnalysisResult {
     // 宏觀觀點的關鍵句，例如 "市場目前關注利率" 等
     private List<String> macroView;
 
+    // Gemini 呼叫或回應解析失敗時為 true，此時 summary 是錯誤訊息
+    private boolean failed;
+
     public PodcastAnalysisResult() {
     }
 
@@ -50,4 +53,12 @@ public class PodcastAnalysisResult {
     public void setMacroView(List<String> macroView) {
         this.macroView = macroView;
     }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
 }
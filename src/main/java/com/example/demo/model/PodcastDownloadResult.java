@@ -6,8 +6,16 @@ public class PodcastDownloadResult {
     private String fileName;
     private String contentType;
     private long sizeBytes;
-    private String tempFilePath;
+    // 取得音檔內容的 API 路徑（GET），由快取以 sha256 提供
+    private String downloadPath;
     private String message;
+    // 音檔內容的 sha256；fromCache = true 表示直接使用本機快取，沒有重新下載
+    private String audioSha256;
+    private boolean fromCache;
+    // 下載統計：耗時、這次實際傳輸的平均速度、使用的連線數
+    private long elapsedMillis;
+    private long throughputBytesPerSec;
+    private int connections;
 
     public String getAudioUrl() {
         return audioUrl;
@@ -41,12 +49,12 @@ public class PodcastDownloadResult {
         this.sizeBytes = sizeBytes;
     }
 
-    public String getTempFilePath() {
-        return tempFilePath;
+    public String getDownloadPath() {
+        return downloadPath;
     }
 
-    public void setTempFilePath(String tempFilePath) {
-        this.tempFilePath = tempFilePath;
+    public void setDownloadPath(String downloadPath) {
+        this.downloadPath = downloadPath;
     }
 
     public String getMessage() {
@@ -56,4 +64,44 @@ public class PodcastDownloadResult {
     public void setMessage(String message) {
         this.message = message;
     }
+
+    public long getElapsedMillis() {
+        return elapsedMillis;
+    }
+
+    public void setElapsedMillis(long elapsedMillis) {
+        this.elapsedMillis = elapsedMillis;
+    }
+
+    public long getThroughputBytesPerSec() {
+        return throughputBytesPerSec;
+    }
+
+    public void setThroughputBytesPerSec(long throughputBytesPerSec) {
+        this.throughputBytesPerSec = throughputBytesPerSec;
+    }
+
+    public int getConnections() {
+        return connections;
+    }
+
+    public void setConnections(int connections) {
+        this.connections = connections;
+    }
+
+    public String getAudioSha256() {
+        return audioSha256;
+    }
+
+    public void setAudioSha256(String audioSha256) {
+        this.audioSha256 = audioSha256;
+    }
+
+    public boolean isFromCache() {
+        return fromCache;
+    }
+
+    public void setFromCache(boolean fromCache) {
+        this.fromCache = fromCache;
+    }
 }
@@ -5,7 +5,7 @@ public enum PodcastSource {
     GOOAYE(
             "gooaye",
             "股癌",
-            "https://feeds.soundon.fm/podcasts/954689a5-3096-43a4-a80b-7810b219cef3.xml "
+            "https://feeds.soundon.fm/podcasts/954689a5-3096-43a4-a80b-7810b219cef3.xml"
     ),
     JENNY(
             "jenny",
@@ -14,6 +14,9 @@ public class PodcastWithTaResponse {
     private String message;
         private String finalAnswer;
 
+    // 文字分析失敗時為 true，此時未執行技術分析，message 說明原因
+    private boolean failed;
+
     public PodcastWithTaResponse() {
     }
 
@@ -48,4 +51,12 @@ public class PodcastWithTaResponse {
     public void setFinalAnswer(String finalAnswer) {
         this.finalAnswer = finalAnswer;
     }
+
+    public boolean isFailed() {
+        return failed;
+    }
+
+    public void setFailed(boolean failed) {
+        this.failed = failed;
+    }
 }
@@ -0,0 +1,96 @@
+package com.example.demo.model;
+
+import javax.persistence.Column;
+import javax.persistence.EmbeddedId;
+import javax.persistence.Entity;
+import javax.persistence.Table;
+import java.time.Instant;
+
+/**
+ * 日 K 資料表 price_bar，主鍵 (market, symbol, trade_date)。
+ * 寫入走 PriceBarRepository 的 JDBC batch upsert，這個 Entity 主要讓 ddl-auto=validate 檢查表結構。
+ */
+@Entity
+@Table(name = "price_bar")
+public class PriceBar {
+
+    @EmbeddedId
+    private PriceBarId id;
+
+    @Column(name = "open", nullable = false)
+    private double open;
+
+    @Column(name = "high", nullable = false)
+    private double high;
+
+    @Column(name = "low", nullable = false)
+    private double low;
+
+    @Column(name = "close", nullable = false)
+    private double close;
+
+    @Column(name = "volume", nullable = false)
+    private long volume;
+
+    @Column(name = "updated_at", nullable = false)
+    private Instant updatedAt;
+
+    public PriceBar() {
+    }
+
+    public PriceBarId getId() {
+        return id;
+    }
+
+    public void setId(PriceBarId id) {
+        this.id = id;
+    }
+
+    public double getOpen() {
+        return open;
+    }
+
+    public void setOpen(double open) {
+        this.open = open;
+    }
+
+    public double getHigh() {
+        return high;
+    }
+
+    public void setHigh(double high) {
+        this.high = high;
+    }
+
+    public double getLow() {
+        return low;
+    }
+
+    public void setLow(double low) {
+        this.low = low;
+    }
+
+    public double getClose() {
+        return close;
+    }
+
+    public void setClose(double close) {
+        this.close = close;
+    }
+
+    public long getVolume() {
+        return volume;
+    }
+
+    public void setVolume(long volume) {
+        this.volume = volume;
+    }
+
+    public Instant getUpdatedAt() {
+        return updatedAt;
+    }
+
+    public void setUpdatedAt(Instant updatedAt) {
+        this.updatedAt = updatedAt;
+    }
+}
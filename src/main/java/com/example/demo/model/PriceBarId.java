@@ -0,0 +1,76 @@
+package com.example.demo.model;
+
+import javax.persistence.Column;
+import javax.persistence.Embeddable;
+import java.io.Serializable;
+import java.time.LocalDate;
+import java.util.Objects;
+
+@Embeddable
+public class PriceBarId implements Serializable {
+
+    private static final long serialVersionUID = 1L;
+
+    // TW / US
+    @Column(name = "market", length = 8, nullable = false)
+    private String market;
+
+    // 股票代號，例如 2330、NVDA
+    @Column(name = "symbol", length = 16, nullable = false)
+    private String symbol;
+
+    @Column(name = "trade_date", nullable = false)
+    private LocalDate tradeDate;
+
+    public PriceBarId() {
+    }
+
+    public PriceBarId(String market, String symbol, LocalDate tradeDate) {
+        this.market = market;
+        this.symbol = symbol;
+        this.tradeDate = tradeDate;
+    }
+
+    public String getMarket() {
+        return market;
+    }
+
+    public void setMarket(String market) {
+        this.market = market;
+    }
+
+    public String getSymbol() {
+        return symbol;
+    }
+
+    public void setSymbol(String symbol) {
+        this.symbol = symbol;
+    }
+
+    public LocalDate getTradeDate() {
+        return tradeDate;
+    }
+
+    public void setTradeDate(LocalDate tradeDate) {
+        this.tradeDate = tradeDate;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof PriceBarId)) {
+            return false;
+        }
+        PriceBarId that = (PriceBarId) o;
+        return Objects.equals(market, that.market)
+                && Objects.equals(symbol, that.symbol)
+                && Objects.equals(tradeDate, that.tradeDate);
+    }
+
+    @Override
+    public int hashCode() {
+        return Objects.hash(market, symbol, tradeDate);
+    }
+}
@@ -0,0 +1,264 @@
+package com.example.demo.model;
+
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * 日 K 序列（由舊到新），用欄位式的 primitive 陣列保存：
+ * epochDay int[]、open/high/low/close double[]、volume long[]。
+ * 建立後不可變，可以安全地在多執行緒間共用（例如放在快取裡）。
+ */
+public final class PriceSeries {
+
+    private static final PriceSeries EMPTY =
+            new PriceSeries(0, 0, new int[0], new double[0], new double[0], new double[0], new double[0], new long[0]);
+
+    // tail() 等操作回傳共用底層陣列的視圖，offset 為視圖在陣列中的起點
+    private final int offset;
+    private final int size;
+    private final int[] epochDays;
+    private final double[] open;
+    private final double[] high;
+    private final double[] low;
+    private final double[] close;
+    private final long[] volume;
+
+    private PriceSeries(int offset, int size, int[] epochDays, double[] open, double[] high,
+                        double[] low, double[] close, long[] volume) {
+        this.offset = offset;
+        this.size = size;
+        this.epochDays = epochDays;
+        this.open = open;
+        this.high = high;
+        this.low = low;
+        this.close = close;
+        this.volume = volume;
+    }
+
+    public static PriceSeries empty() {
+        return EMPTY;
+    }
+
+    public static Builder builder(int expectedSize) {
+        return new Builder(expectedSize);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public boolean isEmpty() {
+        return size == 0;
+    }
+
+    public int epochDay(int index) {
+        return epochDays[offset + index];
+    }
+
+    public LocalDate date(int index) {
+        return LocalDate.ofEpochDay(epochDays[offset + index]);
+    }
+
+    public double open(int index) {
+        return open[offset + index];
+    }
+
+    public double high(int index) {
+        return high[offset + index];
+    }
+
+    public double low(int index) {
+        return low[offset + index];
+    }
+
+    public double close(int index) {
+        return close[offset + index];
+    }
+
+    public long volume(int index) {
+        return volume[offset + index];
+    }
+
+    public LocalDate firstDate() {
+        return size == 0 ? null : date(0);
+    }
+
+    public LocalDate lastDate() {
+        return size == 0 ? null : date(size - 1);
+    }
+
+    /**
+     * 取最後 n 根 K 線（共用底層陣列，不複製）。
+     */
+    public PriceSeries tail(int n) {
+        if (n >= size) {
+            return this;
+        }
+        if (n <= 0) {
+            return EMPTY;
+        }
+        return new PriceSeries(offset + size - n, n, epochDays, open, high, low, close, volume);
+    }
+
+    /**
+     * 接上較新的資料：只保留 newer 裡日期晚於目前最後一根的 K 線。
+     */
+    public PriceSeries appendNewer(PriceSeries newer) {
+        if (newer == null || newer.isEmpty()) {
+            return this;
+        }
+        if (size == 0) {
+            return newer;
+        }
+        int last = epochDay(size - 1);
+        int from = 0;
+        while (from < newer.size && newer.epochDay(from) <= last) {
+            from++;
+        }
+        int extra = newer.size - from;
+        if (extra == 0) {
+            return this;
+        }
+
+        int total = size + extra;
+        int[] d = Arrays.copyOfRange(epochDays, offset, offset + total);
+        double[] o = Arrays.copyOfRange(open, offset, offset + total);
+        double[] h = Arrays.copyOfRange(high, offset, offset + total);
+        double[] l = Arrays.copyOfRange(low, offset, offset + total);
+        double[] c = Arrays.copyOfRange(close, offset, offset + total);
+        long[] v = Arrays.copyOfRange(volume, offset, offset + total);
+        int src = newer.offset + from;
+        System.arraycopy(newer.epochDays, src, d, size, extra);
+        System.arraycopy(newer.open, src, o, size, extra);
+        System.arraycopy(newer.high, src, h, size, extra);
+        System.arraycopy(newer.low, src, l, size, extra);
+        System.arraycopy(newer.close, src, c, size, extra);
+        System.arraycopy(newer.volume, src, v, size, extra);
+        return new PriceSeries(0, total, d, o, h, l, c, v);
+    }
+
+    /**
+     * 依序加入 K 線；資料來源可能是新到舊（例如 FMP），build() 時會統一排成舊到新，
+     * 同一天重複的資料以後加入的為準。
+     */
+    public static final class Builder {
+
+        private int size;
+        private int[] epochDays;
+        private double[] open;
+        private double[] high;
+        private double[] low;
+        private double[] close;
+        private long[] volume;
+
+        private Builder(int expectedSize) {
+            int capacity = Math.max(8, expectedSize);
+            this.epochDays = new int[capacity];
+            this.open = new double[capacity];
+            this.high = new double[capacity];
+            this.low = new double[capacity];
+            this.close = new double[capacity];
+            this.volume = new long[capacity];
+        }
+
+        public Builder add(LocalDate date, double o, double h, double l, double c, long v) {
+            return add((int) date.toEpochDay(), o, h, l, c, v);
+        }
+
+        public Builder add(int epochDay, double o, double h, double l, double c, long v) {
+            if (size == epochDays.length) {
+                grow();
+            }
+            epochDays[size] = epochDay;
+            open[size] = o;
+            high[size] = h;
+            low[size] = l;
+            close[size] = c;
+            volume[size] = v;
+            size++;
+            return this;
+        }
+
+        public int size() {
+            return size;
+        }
+
+        public PriceSeries build() {
+            if (size == 0) {
+                return EMPTY;
+            }
+            if (!isStrictlyAscending()) {
+                sortByDate();
+            }
+            return new PriceSeries(
+                    0,
+                    size,
+                    Arrays.copyOf(epochDays, size),
+                    Arrays.copyOf(open, size),
+                    Arrays.copyOf(high, size),
+                    Arrays.copyOf(low, size),
+                    Arrays.copyOf(close, size),
+                    Arrays.copyOf(volume, size)
+            );
+        }
+
+        private void grow() {
+            int capacity = epochDays.length * 2;
+            epochDays = Arrays.copyOf(epochDays, capacity);
+            open = Arrays.copyOf(open, capacity);
+            high = Arrays.copyOf(high, capacity);
+            low = Arrays.copyOf(low, capacity);
+            close = Arrays.copyOf(close, capacity);
+            volume = Arrays.copyOf(volume, capacity);
+        }
+
+        private boolean isStrictlyAscending() {
+            for (int i = 1; i < size; i++) {
+                if (epochDays[i] <= epochDays[i - 1]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private void sortByDate() {
+            // 把 (epochDay, 原始位置) 打包成 long 排序，避免建立 boxed 的索引陣列
+            long[] keys = new long[size];
+            for (int i = 0; i < size; i++) {
+                keys[i] = ((long) epochDays[i] << 32) | i;
+            }
+            Arrays.sort(keys);
+
+            int[] d = new int[size];
+            double[] o = new double[size];
+            double[] h = new double[size];
+            double[] l = new double[size];
+            double[] c = new double[size];
+            long[] v = new long[size];
+
+            int n = 0;
+            for (int k = 0; k < size; k++) {
+                int idx = (int) keys[k];
+                int day = (int) (keys[k] >> 32);
+                if (n > 0 && d[n - 1] == day) {
+                    n--; // 同一天以後加入的為準
+                }
+                d[n] = day;
+                o[n] = open[idx];
+                h[n] = high[idx];
+                l[n] = low[idx];
+                c[n] = close[idx];
+                v[n] = volume[idx];
+                n++;
+            }
+
+            epochDays = d;
+            open = o;
+            high = h;
+            low = l;
+            close = c;
+            volume = v;
+            size = n;
+        }
+    }
+}
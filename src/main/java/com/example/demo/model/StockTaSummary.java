@@ -24,6 +24,28 @@ public class StockTaSummary {
     // 收盤價是否站上 20 日線
     private boolean aboveSma20;
 
+    // ---- 以下由 IndicatorEngine（ta4j）計算，未啟用或資料不足時為 null ----
+
+    // EMA（期數見 emaPeriod）
+    private Double ema;
+    private Integer emaPeriod;
+
+    // MACD 與訊號線、柱狀體（預設 12 / 26 / 9）
+    private Double macd;
+    private Double macdSignal;
+    private Double macdHistogram;
+
+    // 布林通道（預設 20 日、2 倍標準差）
+    private Double bollingerUpper;
+    private Double bollingerMiddle;
+    private Double bollingerLower;
+
+    // 14 日 ATR
+    private Double atr14;
+
+    // 能量潮 OBV
+    private Double obv;
+
     // 附帶訊息（成功 / 失敗原因等）
     private String message;
 
@@ -94,6 +116,86 @@ public class StockTaSummary {
         this.aboveSma20 = aboveSma20;
     }
 
+    public Double getEma() {
+        return ema;
+    }
+
+    public void setEma(Double ema) {
+        this.ema = ema;
+    }
+
+    public Integer getEmaPeriod() {
+        return emaPeriod;
+    }
+
+    public void setEmaPeriod(Integer emaPeriod) {
+        this.emaPeriod = emaPeriod;
+    }
+
+    public Double getMacd() {
+        return macd;
+    }
+
+    public void setMacd(Double macd) {
+        this.macd = macd;
+    }
+
+    public Double getMacdSignal() {
+        return macdSignal;
+    }
+
+    public void setMacdSignal(Double macdSignal) {
+        this.macdSignal = macdSignal;
+    }
+
+    public Double getMacdHistogram() {
+        return macdHistogram;
+    }
+
+    public void setMacdHistogram(Double macdHistogram) {
+        this.macdHistogram = macdHistogram;
+    }
+
+    public Double getBollingerUpper() {
+        return bollingerUpper;
+    }
+
+    public void setBollingerUpper(Double bollingerUpper) {
+        this.bollingerUpper = bollingerUpper;
+    }
+
+    public Double getBollingerMiddle() {
+        return bollingerMiddle;
+    }
+
+    public void setBollingerMiddle(Double bollingerMiddle) {
+        this.bollingerMiddle = bollingerMiddle;
+    }
+
+    public Double getBollingerLower() {
+        return bollingerLower;
+    }
+
+    public void setBollingerLower(Double bollingerLower) {
+        this.bollingerLower = bollingerLower;
+    }
+
+    public Double getAtr14() {
+        return atr14;
+    }
+
+    public void setAtr14(Double atr14) {
+        this.atr14 = atr14;
+    }
+
+    public Double getObv() {
+        return obv;
+    }
+
+    public void setObv(Double obv) {
+        this.obv = obv;
+    }
+
     public String getMessage() {
         return message;
     }
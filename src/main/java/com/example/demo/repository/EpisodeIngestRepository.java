@@ -0,0 +1,125 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PodcastEpisode;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * episode_ingest 的 JDBC 存取。狀態轉換都用單一條件式 UPDATE 完成，
+ * 多個執行個體同時輪詢時也只有一個能取得某集的租約。
+ */
+@Repository
+public class EpisodeIngestRepository {
+
+    private static final String INSERT_SQL =
+            "INSERT INTO episode_ingest (episode_guid, source_id, title, pub_date, audio_url) "
+                    + "VALUES (?, ?, ?, ?, ?) ON CONFLICT (episode_guid) DO NOTHING";
+
+    private static final String FIND_RUNNABLE_SQL =
+            "SELECT episode_guid, source_id, title, pub_date, audio_url FROM episode_ingest "
+                    + "WHERE status IN ('NEW', 'TRANSCRIBED') AND (lease_until IS NULL OR lease_until < now()) "
+                    + "ORDER BY created_at LIMIT ?";
+
+    private static final String CLAIM_SQL =
+            "UPDATE episode_ingest SET lease_until = now() + (? * INTERVAL '1 second'), "
+                    + "attempts = attempts + 1, updated_at = now() "
+                    + "WHERE episode_guid = ? AND status IN ('NEW', 'TRANSCRIBED') "
+                    + "AND (lease_until IS NULL OR lease_until < now())";
+
+    // 佇列滿了送不出去：還回租約，不算一次嘗試
+    private static final String RELEASE_SQL =
+            "UPDATE episode_ingest SET lease_until = NULL, attempts = attempts - 1, updated_at = now() "
+                    + "WHERE episode_guid = ?";
+
+    private static final String MARK_TRANSCRIBED_SQL =
+            "UPDATE episode_ingest SET status = 'TRANSCRIBED', updated_at = now() WHERE episode_guid = ?";
+
+    private static final String MARK_DONE_SQL =
+            "UPDATE episode_ingest SET status = 'DONE', result_json = ?, last_error = NULL, "
+                    + "lease_until = NULL, updated_at = now() WHERE episode_guid = ?";
+
+    // 保留原本的 status 作為 checkpoint，重試次數用完才標成 FAILED
+    private static final String MARK_FAILED_SQL =
+            "UPDATE episode_ingest SET status = CASE WHEN attempts >= ? THEN 'FAILED' ELSE status END, "
+                    + "last_error = ?, lease_until = NULL, updated_at = now() WHERE episode_guid = ?";
+
+    private static final String FIND_RESULT_SQL =
+            "SELECT result_json FROM episode_ingest WHERE episode_guid = ? AND status = 'DONE'";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public EpisodeIngestRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    /**
+     * @return 第一次看到這個 guid 時為 true
+     */
+    public boolean insertIfAbsent(String sourceId, PodcastEpisode episode) {
+        return jdbcTemplate.update(INSERT_SQL, episode.getGuid(), sourceId,
+                episode.getTitle(), episode.getPubDate(), episode.getAudioUrl()) > 0;
+    }
+
+    public List<Pending> findRunnable(int limit) {
+        return jdbcTemplate.query(FIND_RUNNABLE_SQL, (rs, i) -> {
+            PodcastEpisode ep = new PodcastEpisode();
+            ep.setGuid(rs.getString("episode_guid"));
+            ep.setTitle(rs.getString("title"));
+            ep.setPubDate(rs.getString("pub_date"));
+            ep.setAudioUrl(rs.getString("audio_url"));
+            return new Pending(rs.getString("source_id"), ep);
+        }, limit);
+    }
+
+    /**
+     * @return 取得租約時為 true；已被其他執行緒 / 執行個體處理中或已完成時為 false
+     */
+    public boolean claim(String episodeGuid, long leaseSeconds) {
+        return jdbcTemplate.update(CLAIM_SQL, leaseSeconds, episodeGuid) > 0;
+    }
+
+    public void release(String episodeGuid) {
+        jdbcTemplate.update(RELEASE_SQL, episodeGuid);
+    }
+
+    public void markTranscribed(String episodeGuid) {
+        jdbcTemplate.update(MARK_TRANSCRIBED_SQL, episodeGuid);
+    }
+
+    public void markDone(String episodeGuid, String resultJson) {
+        jdbcTemplate.update(MARK_DONE_SQL, resultJson, episodeGuid);
+    }
+
+    public void markFailed(String episodeGuid, String error, int maxAttempts) {
+        jdbcTemplate.update(MARK_FAILED_SQL, maxAttempts, error, episodeGuid);
+    }
+
+    public Optional<String> findResultJson(String episodeGuid) {
+        List<String> rows = jdbcTemplate.queryForList(FIND_RESULT_SQL, String.class, episodeGuid);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    /**
+     * 等待處理（NEW 或 TRANSCRIBED）的一集。
+     */
+    public static final class Pending {
+        private final String sourceId;
+        private final PodcastEpisode episode;
+
+        private Pending(String sourceId, PodcastEpisode episode) {
+            this.sourceId = sourceId;
+            this.episode = episode;
+        }
+
+        public String getSourceId() {
+            return sourceId;
+        }
+
+        public PodcastEpisode getEpisode() {
+            return episode;
+        }
+    }
+}
@@ -0,0 +1,37 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * gemini_result_cache 的 JDBC 存取；只有單純的 key → 文字，不需要 JPA entity。
+ */
+@Repository
+public class GeminiResultRepository {
+
+    private static final String FIND_SQL =
+            "SELECT result FROM gemini_result_cache WHERE cache_key = ?";
+
+    // 同一個 key 的結果視為相同，重複寫入直接略過
+    private static final String INSERT_SQL =
+            "INSERT INTO gemini_result_cache (cache_key, model, prompt_version, result) "
+                    + "VALUES (?, ?, ?, ?) ON CONFLICT (cache_key) DO NOTHING";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public GeminiResultRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<String> find(String cacheKey) {
+        List<String> rows = jdbcTemplate.queryForList(FIND_SQL, String.class, cacheKey);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public void save(String cacheKey, String model, String promptVersion, String result) {
+        jdbcTemplate.update(INSERT_SQL, cacheKey, model, promptVersion, result);
+    }
+}
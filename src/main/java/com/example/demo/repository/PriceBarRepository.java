@@ -0,0 +1,8 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PriceBar;
+import com.example.demo.model.PriceBarId;
+import org.springframework.data.jpa.repository.JpaRepository;
+
+public interface PriceBarRepository extends JpaRepository<PriceBar, PriceBarId>, PriceBarRepositoryCustom {
+}
@@ -0,0 +1,20 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PriceSeries;
+
+import java.time.LocalDate;
+
+public interface PriceBarRepositoryCustom {
+
+    /**
+     * 讀取 [from, to] 區間的日 K（由舊到新），直接填進 primitive 陣列，不建立 Entity。
+     */
+    PriceSeries findSeries(String market, String symbol, LocalDate from, LocalDate to);
+
+    /**
+     * 以 (market, symbol, trade_date) 為 key 批次 upsert。
+     *
+     * @return 寫入的筆數
+     */
+    int upsertSeries(String market, String symbol, PriceSeries series);
+}
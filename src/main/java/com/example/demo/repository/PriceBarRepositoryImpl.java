@@ -0,0 +1,92 @@
+package com.example.demo.repository;
+
+import com.example.demo.model.PriceSeries;
+import org.springframework.jdbc.core.BatchPreparedStatementSetter;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.sql.Date;
+import java.sql.PreparedStatement;
+import java.sql.SQLException;
+import java.time.LocalDate;
+
+/**
+ * PriceBarRepository 的 JDBC 實作：批次 upsert 與區間讀取。
+ * 區間查詢條件 (market, symbol, trade_date BETWEEN) 直接吃主鍵索引。
+ */
+public class PriceBarRepositoryImpl implements PriceBarRepositoryCustom {
+
+    private static final int BATCH_SIZE = 500;
+
+    private static final String UPSERT_SQL =
+            "INSERT INTO price_bar (market, symbol, trade_date, open, high, low, close, volume, updated_at) "
+                    + "VALUES (?, ?, ?, ?, ?, ?, ?, ?, now()) "
+                    + "ON CONFLICT (market, symbol, trade_date) DO UPDATE SET "
+                    + "open = EXCLUDED.open, high = EXCLUDED.high, low = EXCLUDED.low, "
+                    + "close = EXCLUDED.close, volume = EXCLUDED.volume, updated_at = now()";
+
+    private static final String RANGE_SQL =
+            "SELECT trade_date, open, high, low, close, volume FROM price_bar "
+                    + "WHERE market = ? AND symbol = ? AND trade_date BETWEEN ? AND ? "
+                    + "ORDER BY trade_date";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PriceBarRepositoryImpl(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    @Override
+    public PriceSeries findSeries(String market, String symbol, LocalDate from, LocalDate to) {
+        PriceSeries.Builder builder = PriceSeries.builder(256);
+        jdbcTemplate.query(
+                RANGE_SQL,
+                rs -> {
+                    builder.add(
+                            rs.getDate(1).toLocalDate(),
+                            rs.getDouble(2),
+                            rs.getDouble(3),
+                            rs.getDouble(4),
+                            rs.getDouble(5),
+                            rs.getLong(6)
+                    );
+                },
+                market, symbol, Date.valueOf(from), Date.valueOf(to)
+        );
+        return builder.build();
+    }
+
+    @Override
+    public int upsertSeries(String market, String symbol, PriceSeries series) {
+        if (series == null || series.isEmpty()) {
+            return 0;
+        }
+
+        int written = 0;
+        for (int start = 0; start < series.size(); start += BATCH_SIZE) {
+            int offset = start;
+            int count = Math.min(BATCH_SIZE, series.size() - start);
+
+            jdbcTemplate.batchUpdate(UPSERT_SQL, new BatchPreparedStatementSetter() {
+                @Override
+                public void setValues(PreparedStatement ps, int i) throws SQLException {
+                    int idx = offset + i;
+                    ps.setString(1, market);
+                    ps.setString(2, symbol);
+                    ps.setDate(3, Date.valueOf(series.date(idx)));
+                    ps.setDouble(4, series.open(idx));
+                    ps.setDouble(5, series.high(idx));
+                    ps.setDouble(6, series.low(idx));
+                    ps.setDouble(7, series.close(idx));
+                    ps.setLong(8, series.volume(idx));
+                }
+
+                @Override
+                public int getBatchSize() {
+                    return count;
+                }
+            });
+            written += count;
+        }
+        return written;
+    }
+}
@@ -0,0 +1,52 @@
+package com.example.demo.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+/**
+ * transcript / transcript_episode 的 JDBC 存取；逐字稿內容為 gzip 後的位元組，由呼叫端負責壓縮與解壓。
+ */
+@Repository
+public class TranscriptRepository {
+
+    private static final String FIND_BY_SHA_SQL =
+            "SELECT transcript_gzip FROM transcript WHERE audio_sha256 = ?";
+
+    private static final String FIND_SHA_BY_GUID_SQL =
+            "SELECT audio_sha256 FROM transcript_episode WHERE episode_guid = ?";
+
+    private static final String INSERT_SQL =
+            "INSERT INTO transcript (audio_sha256, provider, transcript_gzip, char_count) "
+                    + "VALUES (?, ?, ?, ?) ON CONFLICT (audio_sha256) DO NOTHING";
+
+    private static final String LINK_GUID_SQL =
+            "INSERT INTO transcript_episode (episode_guid, audio_sha256) VALUES (?, ?) "
+                    + "ON CONFLICT (episode_guid) DO UPDATE SET audio_sha256 = EXCLUDED.audio_sha256";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public TranscriptRepository(JdbcTemplate jdbcTemplate) {
+        this.jdbcTemplate = jdbcTemplate;
+    }
+
+    public Optional<byte[]> findCompressed(String audioSha256) {
+        List<byte[]> rows = jdbcTemplate.query(FIND_BY_SHA_SQL, (rs, i) -> rs.getBytes(1), audioSha256);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public Optional<String> findAudioSha256ByGuid(String episodeGuid) {
+        List<String> rows = jdbcTemplate.queryForList(FIND_SHA_BY_GUID_SQL, String.class, episodeGuid);
+        return rows.isEmpty() ? Optional.empty() : Optional.ofNullable(rows.get(0));
+    }
+
+    public void save(String audioSha256, String provider, byte[] compressed, int charCount) {
+        jdbcTemplate.update(INSERT_SQL, audioSha256, provider, compressed, charCount);
+    }
+
+    public void linkGuid(String episodeGuid, String audioSha256) {
+        jdbcTemplate.update(LINK_GUID_SQL, episodeGuid, audioSha256);
+    }
+}
@@ -3,6 +3,8 @@ package com.example.demo.service;
 import com.example.demo.model.PodcastAnalysisResult;
 import org.springframework.stereotype.Service;
 
+import java.util.function.Consumer;
+
 @Service
 public class AiService {
 
@@ -29,4 +31,9 @@ public class AiService {
     public PodcastAnalysisResult analyzePodcastText(String text) {
         return geminiClient.analyzePodcast(text);
     }
+
+    // 串流版本：summary 一邊產生一邊回呼
+    public PodcastAnalysisResult analyzePodcastText(String text, Consumer<String> onSummaryDelta) {
+        return geminiClient.analyzePodcast(text, onSummaryDelta);
+    }
 }
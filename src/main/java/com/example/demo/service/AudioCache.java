@@ -0,0 +1,365 @@
+package com.example.demo.service;
+
+import com.example.demo.util.Sha256;
+import com.example.demo.util.TempFiles;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本機音檔快取，檔名為內容的 sha256，另外以 enclosure URL 建立索引：
+ * <p>
+ * - 總大小超過 maxBytes 時依 LRU 刪除，但有 {@link Lease} 使用中（轉錄進行中）的檔案不會被刪
+ * - 每個檔案旁邊有一個 .meta（Content-Type、對應的 URL），重啟後仍可用 URL 命中
+ * - 啟動時清掉沒有 .meta 的殘檔、下載到一半的暫存檔，以及過期的續傳檔
+ */
+@Component
+public class AudioCache implements MetricsSource {
+
+    private static final String META_SUFFIX = ".meta";
+    private static final String TEMP_PREFIX = "download-";
+
+    private final Path dir;
+    private final long maxBytes;
+    private final Path partialDir;
+    private final Duration partialMaxAge;
+
+    // key = sha256，access order 即 LRU 順序
+    private final LinkedHashMap<String, Entry> entries = new LinkedHashMap<>(64, 0.75f, true);
+    // enclosure URL → sha256
+    private final Map<String, String> urlIndex = new HashMap<>();
+    private long totalBytes;
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+    private final AtomicLong evictions = new AtomicLong();
+    private final AtomicLong sweptFiles = new AtomicLong();
+
+    public AudioCache(
+            @Value("${audio.cache.dir:${java.io.tmpdir}/podcast-audio}") String dir,
+            @Value("${audio.cache.max-bytes:2147483648}") long maxBytes,
+            @Value("${download.partial-dir:${java.io.tmpdir}/podcast-partial}") String partialDir,
+            @Value("${audio.cache.partial-max-age-hours:24}") long partialMaxAgeHours
+    ) {
+        this.dir = Path.of(dir);
+        this.maxBytes = maxBytes;
+        this.partialDir = Path.of(partialDir);
+        this.partialMaxAge = Duration.ofHours(partialMaxAgeHours);
+    }
+
+    /**
+     * 啟動時重建索引並清理殘檔。
+     */
+    @PostConstruct
+    public synchronized void sweep() throws IOException {
+        Files.createDirectories(dir);
+
+        Set<Path> known = new LinkedHashSet<>();
+        try (DirectoryStream<Path> metas = Files.newDirectoryStream(dir, "*" + META_SUFFIX)) {
+            for (Path meta : metas) {
+                Entry entry = readMeta(meta);
+                if (entry == null) {
+                    TempFiles.deleteQuietly(meta);
+                    continue;
+                }
+                entries.put(entry.sha256, entry);
+                entry.urls.forEach(url -> urlIndex.put(url, entry.sha256));
+                totalBytes += entry.sizeBytes;
+                known.add(meta);
+                known.add(entry.path);
+            }
+        }
+
+        // 下載中斷留下的暫存檔、沒有 .meta 的音檔
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(dir)) {
+            for (Path file : files) {
+                if (!known.contains(file) && Files.isRegularFile(file)) {
+                    TempFiles.deleteQuietly(file);
+                    sweptFiles.incrementAndGet();
+                }
+            }
+        }
+
+        // RangedDownloader 的續傳檔放太久就不會再用到了
+        if (Files.isDirectory(partialDir)) {
+            Instant cutoff = Instant.now().minus(partialMaxAge);
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(partialDir)) {
+                for (Path file : files) {
+                    if (Files.getLastModifiedTime(file).toInstant().isBefore(cutoff)) {
+                        TempFiles.deleteQuietly(file);
+                        sweptFiles.incrementAndGet();
+                    }
+                }
+            }
+        }
+
+        evictIfNeeded();
+    }
+
+    /**
+     * 以 enclosure URL 查詢；命中時回傳的 lease 用完要 close。
+     */
+    public synchronized Optional<Lease> acquire(String url) {
+        String sha256 = urlIndex.get(url);
+        Entry entry = sha256 == null ? null : entries.get(sha256);
+        if (entry == null || !Files.exists(entry.path)) {
+            if (entry != null) {
+                remove(entry);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        entry.refs++;
+        return Optional.of(new Lease(entry, true));
+    }
+
+    /**
+     * 以內容的 sha256 查詢；命中時回傳的 lease 用完要 close。
+     */
+    public synchronized Optional<Lease> acquireBySha256(String sha256) {
+        Entry entry = sha256 == null ? null : entries.get(sha256);
+        if (entry == null || !Files.exists(entry.path)) {
+            if (entry != null) {
+                remove(entry);
+            }
+            misses.incrementAndGet();
+            return Optional.empty();
+        }
+        hits.incrementAndGet();
+        entry.refs++;
+        return Optional.of(new Lease(entry, true));
+    }
+
+    /**
+     * 下載用的暫存檔，與快取在同一個目錄，完成後可以直接 rename 進快取。
+     */
+    public Path newTempFile(String suffix) throws IOException {
+        Files.createDirectories(dir);
+        return Files.createTempFile(dir, TEMP_PREFIX, suffix + ".tmp");
+    }
+
+    /**
+     * 把下載好的檔案移進快取（檔案會被移走或刪除）。內容相同的檔案已在快取中時直接共用。
+     */
+    public Lease put(String url, Path downloaded, String suffix, String contentType) throws IOException {
+        // 雜湊在鎖外計算，大檔案不會卡住其他查詢
+        String sha256 = Sha256.of(downloaded);
+        long size = Files.size(downloaded);
+
+        synchronized (this) {
+            Entry entry = entries.get(sha256);
+            if (entry != null && Files.exists(entry.path)) {
+                Files.deleteIfExists(downloaded);
+            } else {
+                if (entry != null) {
+                    remove(entry);
+                }
+                Path target = dir.resolve(sha256 + suffix);
+                Files.move(downloaded, target, StandardCopyOption.REPLACE_EXISTING);
+                entry = new Entry(sha256, target, size, contentType);
+                entries.put(sha256, entry);
+                totalBytes += size;
+            }
+
+            String previous = urlIndex.put(url, sha256);
+            if (previous != null && !previous.equals(sha256)) {
+                // 同一個網址換了內容（重新上傳），舊檔案不再對應這個網址
+                Entry old = entries.get(previous);
+                if (old != null) {
+                    old.urls.remove(url);
+                }
+            }
+            entry.urls.add(url);
+            writeMeta(entry);
+
+            entry.refs++;
+            Lease lease = new Lease(entry, false);
+            evictIfNeeded();
+            return lease;
+        }
+    }
+
+    private synchronized void release(Entry entry) {
+        entry.refs--;
+        evictIfNeeded();
+    }
+
+    /**
+     * 依 LRU 刪除，略過使用中的檔案；全部都在使用中時暫時允許超過上限。
+     */
+    private void evictIfNeeded() {
+        Iterator<Entry> it = entries.values().iterator();
+        while (totalBytes > maxBytes && it.hasNext()) {
+            Entry entry = it.next();
+            if (entry.refs > 0) {
+                continue;
+            }
+            it.remove();
+            forget(entry);
+            evictions.incrementAndGet();
+        }
+    }
+
+    private void remove(Entry entry) {
+        entries.remove(entry.sha256);
+        forget(entry);
+    }
+
+    private void forget(Entry entry) {
+        totalBytes -= entry.sizeBytes;
+        for (String url : entry.urls) {
+            urlIndex.remove(url, entry.sha256);
+        }
+        if (entry.refs == 0) {
+            TempFiles.deleteQuietly(entry.path);
+        }
+        TempFiles.deleteQuietly(metaPath(entry.sha256));
+    }
+
+    private Path metaPath(String sha256) {
+        return dir.resolve(sha256 + META_SUFFIX);
+    }
+
+    private void writeMeta(Entry entry) throws IOException {
+        Properties props = new Properties();
+        props.setProperty("file", entry.path.getFileName().toString());
+        props.setProperty("contentType", entry.contentType);
+        int i = 0;
+        for (String url : entry.urls) {
+            props.setProperty("url." + i++, url);
+        }
+        try (OutputStream out = Files.newOutputStream(metaPath(entry.sha256))) {
+            props.store(out, null);
+        }
+    }
+
+    /**
+     * @return 格式不符或對應的音檔不存在時為 null
+     */
+    private Entry readMeta(Path meta) {
+        String name = meta.getFileName().toString();
+        String sha256 = name.substring(0, name.length() - META_SUFFIX.length());
+        Properties props = new Properties();
+        try (InputStream in = Files.newInputStream(meta)) {
+            props.load(in);
+            String file = props.getProperty("file");
+            if (file == null || !file.startsWith(sha256)) {
+                return null;
+            }
+            Path path = dir.resolve(file);
+            if (!Files.isRegularFile(path)) {
+                return null;
+            }
+            Entry entry = new Entry(sha256, path, Files.size(path),
+                    props.getProperty("contentType", "application/octet-stream"));
+            for (int i = 0; props.getProperty("url." + i) != null; i++) {
+                entry.urls.add(props.getProperty("url." + i));
+            }
+            return entry;
+        } catch (IOException | IllegalArgumentException e) {
+            return null;
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "audio.cache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (this) {
+            m.put("files", entries.size());
+            m.put("bytes", totalBytes);
+            m.put("inUse", entries.values().stream().filter(e -> e.refs > 0).count());
+        }
+        m.put("maxBytes", maxBytes);
+        m.put("hits", hits.get());
+        m.put("misses", misses.get());
+        m.put("evictions", evictions.get());
+        m.put("sweptFiles", sweptFiles.get());
+        return m;
+    }
+
+    private static final class Entry {
+        private final String sha256;
+        private final Path path;
+        private final long sizeBytes;
+        private final String contentType;
+        private final Set<String> urls = new LinkedHashSet<>();
+        private int refs;
+
+        private Entry(String sha256, Path path, long sizeBytes, String contentType) {
+            this.sha256 = sha256;
+            this.path = path;
+            this.sizeBytes = sizeBytes;
+            this.contentType = contentType;
+        }
+    }
+
+    /**
+     * 使用中的快取檔案；close 之前檔案不會被淘汰。close 可重複呼叫。
+     */
+    public final class Lease implements AutoCloseable {
+        private final Entry entry;
+        private final boolean fromCache;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Lease(Entry entry, boolean fromCache) {
+            this.entry = entry;
+            this.fromCache = fromCache;
+        }
+
+        public Path getPath() {
+            return entry.path;
+        }
+
+        public String getSha256() {
+            return entry.sha256;
+        }
+
+        public long getSizeBytes() {
+            return entry.sizeBytes;
+        }
+
+        public String getContentType() {
+            return entry.contentType;
+        }
+
+        /**
+         * true 表示直接使用本機已有的檔案，沒有重新下載。
+         */
+        public boolean isFromCache() {
+            return fromCache;
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                release(entry);
+            }
+        }
+    }
+}
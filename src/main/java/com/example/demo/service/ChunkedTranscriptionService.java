@@ -0,0 +1,170 @@
+package com.example.demo.service;
+
+import com.example.demo.util.Mp3Splitter;
+import com.example.demo.util.TranscriptStitcher;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+
+/**
+ * 長音檔的分段平行轉錄：
+ * - 依 MP3 frame 邊界切成固定長度的片段，每段多帶幾秒重疊
+ * - 丟到 sttExecutor 平行轉錄（執行緒數就是同時送出的請求上限）
+ * - 依原本順序接回，並去掉重疊區間重複的文字
+ * <p>
+ * 可以包裝任何 {@link SpeechToTextService}；音檔短於一段的長度時直接整段送出。
+ * 傳入 {@link Path} 時全程以檔案處理（memory-mapped 掃描 frame、片段寫成暫存檔），不把整個音檔讀進 heap。
+ */
+@Service
+public class ChunkedTranscriptionService {
+
+    // 語速上限的估計（中文每秒約 4～6 字），用來把重疊秒數換算成接合時比對的字元數
+    private static final double STITCH_CHARS_PER_SECOND = 8;
+    private static final int STITCH_MIN_WINDOW_CHARS = 24;
+    // 視為重疊的最短共同字串；太短容易把兩段各自出現的常見詞誤判為重疊
+    private static final int STITCH_MIN_MATCH_CHARS = 8;
+    // 片段邊緣被切斷的字詞，轉錄結果可能各自不同，容許重疊內容離交界處這麼多字
+    private static final double STITCH_EDGE_SECONDS = 1.5;
+
+    private final Executor sttExecutor;
+    private final double chunkSeconds;
+    private final double overlapSeconds;
+    private final int stitchWindow;
+    private final int stitchEdgeSkip;
+
+    public ChunkedTranscriptionService(
+            @Qualifier("sttExecutor") Executor sttExecutor,
+            @Value("${stt.chunk.seconds:300}") double chunkSeconds,
+            @Value("${stt.chunk.overlap-seconds:5}") double overlapSeconds
+    ) {
+        this.sttExecutor = sttExecutor;
+        this.chunkSeconds = chunkSeconds;
+        this.overlapSeconds = overlapSeconds;
+        this.stitchWindow = Math.max(STITCH_MIN_WINDOW_CHARS,
+                (int) Math.ceil((overlapSeconds + STITCH_EDGE_SECONDS) * STITCH_CHARS_PER_SECOND));
+        this.stitchEdgeSkip = (int) Math.ceil(STITCH_EDGE_SECONDS * STITCH_CHARS_PER_SECOND);
+    }
+
+    public String transcribe(SpeechToTextService delegate, byte[] audioBytes, String mimeType) {
+        if (audioBytes == null || audioBytes.length == 0) {
+            return "";
+        }
+
+        List<Mp3Splitter.Chunk> chunks = Mp3Splitter.split(audioBytes, chunkSeconds, overlapSeconds);
+        if (chunks.size() <= 1) {
+            return delegate.transcribe(audioBytes, mimeType);
+        }
+
+        // 切出來的片段一律是 MP3
+        String chunkMimeType = "audio/mpeg";
+        List<CompletableFuture<String>> futures = new ArrayList<>(chunks.size());
+        for (Mp3Splitter.Chunk chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(
+                    () -> delegate.transcribe(chunk.slice(audioBytes), chunkMimeType),
+                    sttExecutor
+            ));
+        }
+
+        return TranscriptStitcher.stitch(joinAll(delegate, futures), stitchWindow, STITCH_MIN_MATCH_CHARS, stitchEdgeSkip);
+    }
+
+    public String transcribe(SpeechToTextService delegate, Path audioFile, String mimeType) throws IOException {
+        if (Files.size(audioFile) == 0) {
+            return "";
+        }
+
+        List<Mp3Splitter.Chunk> chunks;
+        try (FileChannel channel = FileChannel.open(audioFile, StandardOpenOption.READ)) {
+            // memory-mapped 讀取，只掃 frame header，不佔 heap
+            MappedByteBuffer mapped = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            chunks = Mp3Splitter.split(mapped, chunkSeconds, overlapSeconds);
+        }
+        if (chunks.size() <= 1) {
+            return delegate.transcribe(audioFile, mimeType);
+        }
+
+        String chunkMimeType = "audio/mpeg";
+        List<CompletableFuture<String>> futures = new ArrayList<>(chunks.size());
+        for (Mp3Splitter.Chunk chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                Path part = null;
+                try {
+                    part = writeChunk(audioFile, chunk);
+                    return delegate.transcribe(part, chunkMimeType);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                } finally {
+                    deleteQuietly(part);
+                }
+            }, sttExecutor));
+        }
+
+        return TranscriptStitcher.stitch(joinAll(delegate, futures), stitchWindow, STITCH_MIN_MATCH_CHARS, stitchEdgeSkip);
+    }
+
+    private static List<String> joinAll(SpeechToTextService delegate, List<CompletableFuture<String>> futures) {
+        List<String> parts = new ArrayList<>(futures.size());
+        try {
+            for (CompletableFuture<String> future : futures) {
+                String part = future.join();
+                if (delegate.isFailure(part)) {
+                    // 錯誤訊息不能接進逐字稿裡
+                    futures.forEach(f -> f.cancel(false));
+                    throw new IllegalStateException("分段轉錄失敗: " + part);
+                }
+                parts.add(part);
+            }
+        } catch (CompletionException e) {
+            // 任一段失敗就整體失敗，其餘還沒開始的片段不用再送
+            futures.forEach(f -> f.cancel(false));
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            if (cause instanceof RuntimeException) {
+                throw (RuntimeException) cause;
+            }
+            throw new IllegalStateException("分段轉錄失敗: " + cause.getMessage(), cause);
+        }
+        return parts;
+    }
+
+    private static Path writeChunk(Path audioFile, Mp3Splitter.Chunk chunk) throws IOException {
+        Path part = Files.createTempFile("stt-chunk-" + chunk.getIndex() + "-", ".mp3");
+        try (FileChannel in = FileChannel.open(audioFile, StandardOpenOption.READ);
+             FileChannel out = FileChannel.open(part, StandardOpenOption.WRITE)) {
+            long position = chunk.getStart();
+            long remaining = chunk.length();
+            while (remaining > 0) {
+                long n = in.transferTo(position, remaining, out);
+                if (n <= 0) {
+                    break;
+                }
+                position += n;
+                remaining -= n;
+            }
+        }
+        return part;
+    }
+
+    private static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignore) {
+            // 暫存檔刪不掉就留給系統清理
+        }
+    }
+}
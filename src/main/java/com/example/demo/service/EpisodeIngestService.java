@@ -0,0 +1,207 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PodcastEpisode;
+import com.example.demo.model.PodcastSource;
+import com.example.demo.model.PodcastWithTaResponse;
+import com.example.demo.model.TranscriptionResponse;
+import com.example.demo.repository.EpisodeIngestRepository;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 背景輪詢 {@link PodcastSource} 的 RSS，新的集數在有人查詢之前就先處理好：
+ * 下載 → 轉錄 → {@link PodcastEnrichmentService#analyzeWithTa} → 結果存進 episode_ingest。
+ * <p>
+ * - 每個 guid 只處理一次：新 guid 以 INSERT ... ON CONFLICT DO NOTHING 登記，處理前要先取得 DB 租約
+ * - checkpoint：轉錄完成後標成 TRANSCRIBED，逐字稿已存在 {@link TranscriptStore}，重試時不會重新轉錄
+ * - 同時處理的集數受 ingestExecutor 限制，佇列滿了就還回租約，留給下一輪
+ * - 失敗會在下一輪重試，超過 maxAttempts 次標成 FAILED
+ */
+@Service
+public class EpisodeIngestService implements MetricsSource {
+
+    private static final int MAX_ERROR_LENGTH = 2000;
+
+    private final SoundOnRssService soundOnRssService;
+    private final PodcastPipelineService podcastPipelineService;
+    private final PodcastEnrichmentService podcastEnrichmentService;
+    private final EpisodeIngestRepository repository;
+    private final ObjectMapper objectMapper;
+    private final Executor ingestExecutor;
+    private final boolean enabled;
+    private final int episodesPerFeed;
+    private final int batchSize;
+    private final long leaseSeconds;
+    private final int maxAttempts;
+
+    private final AtomicLong polls = new AtomicLong();
+    private final AtomicLong discovered = new AtomicLong();
+    private final AtomicLong completed = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+    private final AtomicLong deferred = new AtomicLong();
+    private final AtomicInteger running = new AtomicInteger();
+
+    public EpisodeIngestService(
+            SoundOnRssService soundOnRssService,
+            PodcastPipelineService podcastPipelineService,
+            PodcastEnrichmentService podcastEnrichmentService,
+            EpisodeIngestRepository repository,
+            ObjectMapper objectMapper,
+            @Qualifier("ingestExecutor") Executor ingestExecutor,
+            @Value("${ingest.enabled:false}") boolean enabled,
+            @Value("${ingest.episodes-per-feed:3}") int episodesPerFeed,
+            @Value("${ingest.batch-size:10}") int batchSize,
+            @Value("${ingest.lease-minutes:120}") long leaseMinutes,
+            @Value("${ingest.max-attempts:3}") int maxAttempts
+    ) {
+        this.soundOnRssService = soundOnRssService;
+        this.podcastPipelineService = podcastPipelineService;
+        this.podcastEnrichmentService = podcastEnrichmentService;
+        this.repository = repository;
+        this.objectMapper = objectMapper;
+        this.ingestExecutor = ingestExecutor;
+        this.enabled = enabled;
+        this.episodesPerFeed = episodesPerFeed;
+        this.batchSize = batchSize;
+        this.leaseSeconds = leaseMinutes * 60;
+        this.maxAttempts = maxAttempts;
+    }
+
+    /**
+     * 已處理完成的分析結果（PodcastWithTaResponse 的 JSON）；還沒處理或處理失敗時為 empty。
+     */
+    public Optional<String> findResultJson(String episodeGuid) {
+        return repository.findResultJson(episodeGuid);
+    }
+
+    @Scheduled(initialDelayString = "${ingest.initial-delay-ms:60000}",
+            fixedDelayString = "${ingest.poll-interval-ms:900000}")
+    public void poll() {
+        if (!enabled) {
+            return;
+        }
+        polls.incrementAndGet();
+        discover();
+        dispatch();
+    }
+
+    /**
+     * 讀每個 feed 最新的幾集，沒看過的 guid 登記成 NEW。RSS 有快取，短時間內重複輪詢不會重新下載。
+     */
+    private void discover() {
+        for (PodcastSource source : PodcastSource.values()) {
+            List<PodcastEpisode> episodes = soundOnRssService.fetchEpisodes(source.getRssUrl(), episodesPerFeed);
+            for (PodcastEpisode ep : episodes) {
+                if (isBlank(ep.getGuid()) || isBlank(ep.getAudioUrl())) {
+                    continue;
+                }
+                try {
+                    if (repository.insertIfAbsent(source.getId(), ep)) {
+                        discovered.incrementAndGet();
+                    }
+                } catch (RuntimeException e) {
+                    // DB 暫時不能用，下一輪再登記
+                    return;
+                }
+            }
+        }
+    }
+
+    private void dispatch() {
+        List<EpisodeIngestRepository.Pending> pending;
+        try {
+            pending = repository.findRunnable(batchSize);
+        } catch (RuntimeException e) {
+            return;
+        }
+
+        for (EpisodeIngestRepository.Pending p : pending) {
+            String guid = p.getEpisode().getGuid();
+            try {
+                if (!repository.claim(guid, leaseSeconds)) {
+                    continue; // 其他執行個體已經在處理
+                }
+                ingestExecutor.execute(() -> process(p.getEpisode()));
+            } catch (RejectedExecutionException e) {
+                repository.release(guid);
+                deferred.incrementAndGet();
+                return;
+            } catch (RuntimeException e) {
+                return;
+            }
+        }
+    }
+
+    private void process(PodcastEpisode episode) {
+        String guid = episode.getGuid();
+        running.incrementAndGet();
+        try {
+            // 逐字稿以 guid 存在 TranscriptStore，TRANSCRIBED 的集數在這裡直接命中，不會重新下載
+            TranscriptionResponse transcription = podcastPipelineService.transcribeEpisode(episode, JobProgress.NONE);
+            if (!"OK".equals(transcription.getMessage())) {
+                fail(guid, transcription.getMessage());
+                return;
+            }
+            repository.markTranscribed(guid);
+
+            PodcastWithTaResponse analysis = podcastEnrichmentService.analyzeWithTa(transcription.getTranscript());
+            if (analysis.isFailed()) {
+                fail(guid, analysis.getMessage());
+                return;
+            }
+
+            repository.markDone(guid, objectMapper.writeValueAsString(analysis));
+            completed.incrementAndGet();
+        } catch (Exception e) {
+            fail(guid, e.getClass().getSimpleName() + ": " + e.getMessage());
+        } finally {
+            running.decrementAndGet();
+        }
+    }
+
+    private void fail(String guid, String error) {
+        failed.incrementAndGet();
+        String trimmed = error != null && error.length() > MAX_ERROR_LENGTH
+                ? error.substring(0, MAX_ERROR_LENGTH)
+                : error;
+        try {
+            repository.markFailed(guid, trimmed, maxAttempts);
+        } catch (RuntimeException ignore) {
+            // 寫不進去的話租約到期後會再被撿起來
+        }
+    }
+
+    private static boolean isBlank(String s) {
+        return s == null || s.isBlank();
+    }
+
+    @Override
+    public String metricsName() {
+        return "ingest";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("enabled", enabled);
+        m.put("polls", polls.get());
+        m.put("discovered", discovered.get());
+        m.put("running", running.get());
+        m.put("completed", completed.get());
+        m.put("failed", failed.get());
+        m.put("deferred", deferred.get());
+        return m;
+    }
+}
@@ -1,33 +1,52 @@
 package com.example.demo.service;
 
-import com.example.demo.model.FinMindPriceRecord;
+import com.example.demo.model.ListedSymbol;
+import com.example.demo.model.PriceSeries;
+import com.example.demo.util.PriceJsonReader;
+import com.example.demo.util.TradingCalendar;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.IOException;
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
 import java.time.LocalDate;
+import java.util.ArrayList;
 import java.util.Collections;
-import java.util.Comparator;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 @Component
 public class FinMindClient {
 
     private static final String FINMIND_URL = "https://api.finmindtrade.com/api/v4/data";
 
-    private final HttpClient httpClient;
+    private static final String PROVIDER = "finmind";
+
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
     private final String token;
 
-    public FinMindClient(ObjectMapper objectMapper) {
-        this.httpClient = HttpClient.newHttpClient();
+    public FinMindClient(
+            ObjectMapper objectMapper,
+            OutboundHttpClient httpClient,
+            @Value("${http.client.finmind.read-timeout-ms:30000}") long readTimeoutMs
+    ) {
+        this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
         // 從環境變數讀取 FinMind token
         this.token = System.getenv("FINMIND_API_TOKEN");
     }
@@ -37,57 +56,146 @@ public class FinMindClient {
     }
 
     /**
-     * 從 FinMind 取得台股日 K 資料 (TaiwanStockPrice)
+     * 從 FinMind 取得台股日 K 資料 (TaiwanStockPrice)，以 streaming 方式讀取 response body，
+     * 直接把欄位填進 {@link PriceSeries}，不建立 String、JsonNode tree 與每根 K 線的物件。
      */
-    public List<FinMindPriceRecord> getTaiwanDailyPrice(
+    public PriceSeries getTaiwanDailySeries(
             String stockId,
             LocalDate startDate,
             LocalDate endDate
     ) throws Exception {
 
-        String query = String.format(
-                "dataset=%s&data_id=%s&start_date=%s&end_date=%s",
-                URLEncoder.encode("TaiwanStockPrice", StandardCharsets.UTF_8),
-                URLEncoder.encode(stockId, StandardCharsets.UTF_8),
-                URLEncoder.encode(startDate.toString(), StandardCharsets.UTF_8),
-                URLEncoder.encode(endDate.toString(), StandardCharsets.UTF_8)
-        );
+        HttpRequest request = buildTaiwanStockPriceRequest(stockId, startDate, endDate);
 
-        URI uri = URI.create(FINMIND_URL + "?" + query);
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = checkStatus(response);
+             JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            return PriceJsonReader.readFinMind(parser, startDate, endDate);
+        }
+    }
 
+    /**
+     * 批次模式：不帶 data_id 查詢整個市場在 [startDate, endDate] 的日 K，
+     * 一次回應就涵蓋所有上市櫃股票，再依 stock_id 拆出 stockIds 需要的部分。
+     * 日期區間越長回應越大，呼叫端應只用來補最近幾天的缺口。
+     *
+     * @return key = stock_id，沒有資料的代號（停牌、代號有誤）不會出現在結果中
+     */
+    public Map<String, PriceSeries> getTaiwanDailySeriesBatch(
+            Set<String> stockIds,
+            LocalDate startDate,
+            LocalDate endDate
+    ) throws Exception {
+
+        HttpRequest request = buildTaiwanStockPriceRequest(null, startDate, endDate);
+
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = checkStatus(response);
+             JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            return PriceJsonReader.readFinMindByStock(parser, startDate, endDate, stockIds);
+        }
+    }
+
+    /**
+     * 台股上市櫃清單（TaiwanStockInfo）。同一檔可能因為多個產業別出現多次，只保留一筆；
+     * 只收上市（twse）與上櫃（tpex）。
+     */
+    public List<ListedSymbol> getTaiwanStockInfo() throws Exception {
         HttpRequest.Builder builder = HttpRequest.newBuilder()
-                .uri(uri)
+                .uri(URI.create(FINMIND_URL + "?dataset=TaiwanStockInfo"))
+                .timeout(readTimeout)
                 .GET();
-
         if (hasToken()) {
             builder.header("Authorization", "Bearer " + token);
         }
 
-        HttpRequest request = builder.build();
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, builder.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+        Map<String, ListedSymbol> listed = new LinkedHashMap<>();
+        String msg = null;
+        try (InputStream body = checkStatus(response);
+             JsonParser parser = objectMapper.getFactory().createParser(body)) {
+            if (parser.nextToken() != JsonToken.START_OBJECT) {
+                throw new IllegalStateException("FinMind 回應格式不符合預期（不是 JSON 物件）。");
+            }
+            while (parser.nextToken() == JsonToken.FIELD_NAME) {
+                String field = parser.getCurrentName();
+                JsonToken value = parser.nextToken();
+                if ("msg".equals(field)) {
+                    msg = parser.getValueAsString();
+                } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                    while (parser.nextToken() == JsonToken.START_OBJECT) {
+                        JsonNode row = parser.readValueAsTree();
+                        String stockId = row.path("stock_id").asText("").trim();
+                        String name = row.path("stock_name").asText("").trim();
+                        String type = row.path("type").asText("");
+                        if (stockId.isEmpty() || name.isEmpty()
+                                || !("twse".equals(type) || "tpex".equals(type))) {
+                            continue;
+                        }
+                        listed.putIfAbsent(stockId, new ListedSymbol(
+                                TradingCalendar.MARKET_TW, stockId, name, "", Collections.emptyList()));
+                    }
+                } else {
+                    parser.skipChildren();
+                }
+            }
+        }
 
-        HttpResponse<String> response =
-                httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        if (msg != null && !"success".equalsIgnoreCase(msg)) {
+            throw new IllegalStateException("FinMind 回傳錯誤: " + msg);
+        }
+        return new ArrayList<>(listed.values());
+    }
 
+    private InputStream checkStatus(HttpResponse<InputStream> response) throws IOException {
+        InputStream body = response.body();
         if (response.statusCode() / 100 != 2) {
+            String error;
+            try (InputStream in = body) {
+                error = new String(in.readAllBytes(), StandardCharsets.UTF_8);
+            }
             throw new IllegalStateException(
                     "FinMind API 回傳非 2xx 狀態碼，status="
                             + response.statusCode()
-                            + "，body=" + response.body());
+                            + "，body=" + error);
         }
+        return body;
+    }
 
-        JsonNode root = objectMapper.readTree(response.body());
-        JsonNode dataNode = root.path("data");
+    private HttpRequest buildTaiwanStockPriceRequest(
+            String stockId,
+            LocalDate startDate,
+            LocalDate endDate
+    ) {
 
-        if (!dataNode.isArray()) {
-            return Collections.emptyList();
+        // stockId 為 null 時不帶 data_id，查整個市場
+        String query = String.format(
+                "dataset=%s&start_date=%s&end_date=%s",
+                URLEncoder.encode("TaiwanStockPrice", StandardCharsets.UTF_8),
+                URLEncoder.encode(startDate.toString(), StandardCharsets.UTF_8),
+                URLEncoder.encode(endDate.toString(), StandardCharsets.UTF_8)
+        );
+        if (stockId != null) {
+            query += "&data_id=" + URLEncoder.encode(stockId, StandardCharsets.UTF_8);
         }
 
-        List<FinMindPriceRecord> records =
-                objectMapper.readerForListOf(FinMindPriceRecord.class).readValue(dataNode);
+        URI uri = URI.create(FINMIND_URL + "?" + query);
 
-        // 確保依日期排序（由舊到新）
-        records.sort(Comparator.comparing(FinMindPriceRecord::getDate));
+        HttpRequest.Builder builder = HttpRequest.newBuilder()
+                .uri(uri)
+                .timeout(readTimeout)
+                .GET();
+
+        if (hasToken()) {
+            builder.header("Authorization", "Bearer " + token);
+        }
 
-        return records;
+        return builder.build();
     }
 }
@@ -1,18 +1,28 @@
 package com.example.demo.service;
 
+import com.example.demo.model.ListedSymbol;
+import com.example.demo.model.PriceSeries;
+import com.example.demo.util.PriceJsonReader;
+import com.example.demo.util.TradingCalendar;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.InputStream;
 import java.net.URI;
 import java.net.URLEncoder;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDate;
 import java.util.ArrayList;
 import java.util.Collections;
 import java.util.List;
+import java.util.regex.Pattern;
 
 @Component
 public class FmpClient {
@@ -20,84 +30,114 @@ public class FmpClient {
     private static final String FMP_EOD_URL =
             "https://financialmodelingprep.com/stable/historical-price-eod/full";
 
+    private static final String FMP_STOCK_LIST_URL =
+            "https://financialmodelingprep.com/stable/stock-list";
+
+    // 美股代號，例如 NVDA、BRK-B；帶交易所後綴的（例如 .L、.TO）不是美股
+    private static final Pattern US_SYMBOL = Pattern.compile("[A-Z]{1,5}(-[A-Z])?");
+
+    private static final String PROVIDER = "fmp";
+
     private final String apiKey;
-    private final HttpClient httpClient;
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
 
-    public FmpClient(ObjectMapper objectMapper) {
+    public FmpClient(
+            ObjectMapper objectMapper,
+            OutboundHttpClient httpClient,
+            @Value("${http.client.fmp.read-timeout-ms:15000}") long readTimeoutMs
+    ) {
         // 正式環境用環境變數讀 Key
         this.apiKey = System.getenv("FMP_API_KEY");
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+    }
+
+    public boolean hasApiKey() {
+        return apiKey != null && !apiKey.isBlank();
     }
 
     /**
-     * 從 FMP 取得美股歷史日 K 資料，並回傳收盤價列表（由舊到新）。
+     * FMP 的股票清單（symbol + companyName），只保留美股格式的代號。
      */
-    public List<Double> fetchDailyCloses(String symbol, int days) throws Exception {
-        if (apiKey == null || apiKey.isBlank()) {
+    public List<ListedSymbol> fetchStockList() throws Exception {
+        if (!hasApiKey()) {
             throw new IllegalStateException("尚未設定 FMP_API_KEY 環境變數。");
         }
 
-        int lookbackDays = days + 30; // 多抓一些天數防假日
-
-        String url = FMP_EOD_URL
-                + "?symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8)
-                + "&timeseries=" + lookbackDays
-                + "&apikey=" + apiKey;
-
         HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(url))
+                .uri(URI.create(FMP_STOCK_LIST_URL + "?apikey=" + apiKey))
+                .timeout(readTimeout)
                 .GET()
                 .build();
 
-        HttpResponse<String> response =
-                httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
 
-        if (response.statusCode() / 100 != 2) {
-            if (response.statusCode() == 404) {
-                return Collections.emptyList();
+        List<ListedSymbol> listed = new ArrayList<>();
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                throw new IllegalStateException(
+                        "FMP API HTTP 狀態碼異常: " + response.statusCode()
+                                + "，body=" + new String(body.readAllBytes(), StandardCharsets.UTF_8));
+            }
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                if (parser.nextToken() != JsonToken.START_ARRAY) {
+                    throw new IllegalStateException("FMP 股票清單格式不符合預期（不是 JSON 陣列）。");
+                }
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    JsonNode row = parser.readValueAsTree();
+                    String symbol = row.path("symbol").asText("");
+                    if (!US_SYMBOL.matcher(symbol).matches()) {
+                        continue;
+                    }
+                    listed.add(new ListedSymbol(TradingCalendar.MARKET_US, symbol, "",
+                            row.path("companyName").asText("").trim(), Collections.emptyList()));
+                }
             }
-            throw new IllegalStateException(
-                    "FMP API HTTP 狀態碼異常: " + response.statusCode()
-                            + "，body=" + response.body());
         }
+        return listed;
+    }
 
-        JsonNode root = objectMapper.readTree(response.body());
-
-        if (root.has("Error Message")) {
-            throw new IllegalStateException("FMP API 回傳錯誤: " + root.get("Error Message").asText());
+    /**
+     * 從 FMP 取得指定日期區間（含頭尾）的美股日 K，回傳由舊到新的序列。
+     */
+    public PriceSeries fetchDailyBars(String symbol, LocalDate from, LocalDate to) throws Exception {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("尚未設定 FMP_API_KEY 環境變數。");
         }
 
-        // stable/historical-price-eod/full 通常直接回傳陣列，
-        // 但舊文件是包在 "historical" 裡，兩種都支援一下
-        JsonNode dataNode;
-        if (root.isArray()) {
-            dataNode = root;
-        } else {
-            dataNode = root.path("historical");
-        }
+        String url = FMP_EOD_URL
+                + "?symbol=" + URLEncoder.encode(symbol, StandardCharsets.UTF_8)
+                + "&from=" + from
+                + "&to=" + to
+                + "&apikey=" + apiKey;
 
-        if (!dataNode.isArray() || dataNode.isEmpty()) {
-            return Collections.emptyList();
-        }
+        HttpRequest request = HttpRequest.newBuilder()
+                .uri(URI.create(url))
+                .timeout(readTimeout)
+                .GET()
+                .build();
 
-        List<Double> closes = new ArrayList<>();
-        for (JsonNode dayNode : dataNode) {
-            JsonNode closeNode = dayNode.path("close");
-            if (closeNode.isNumber()) {
-                closes.add(closeNode.asDouble());
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
+
+        try (InputStream body = response.body()) {
+            if (response.statusCode() / 100 != 2) {
+                if (response.statusCode() == 404) {
+                    return PriceSeries.empty();
+                }
+                throw new IllegalStateException(
+                        "FMP API HTTP 狀態碼異常: " + response.statusCode()
+                                + "，body=" + new String(body.readAllBytes(), StandardCharsets.UTF_8));
             }
-        }
-
-        // API 多半是「新到舊」，反轉成「舊到新」
-        Collections.reverse(closes);
 
-        if (closes.size() <= days) {
-            return closes;
-        } else {
-            int fromIndex = closes.size() - days;
-            return new ArrayList<>(closes.subList(fromIndex, closes.size()));
+            // 逐 token 讀取；FMP 是新到舊，讀到早於 from 的資料就不再往下讀
+            try (JsonParser parser = objectMapper.getFactory().createParser(body)) {
+                return PriceJsonReader.readFmp(parser, from, to);
+            }
         }
     }
 }
@@ -1,33 +1,85 @@
 package com.example.demo.service;
 
 import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.util.JsonStringFieldTap;
+import com.example.demo.util.PodcastAnalysisMerger;
+import com.example.demo.util.TranscriptChunker;
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
+import java.io.BufferedReader;
+import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.net.URI;
-import java.net.http.HttpClient;
 import java.net.http.HttpRequest;
 import java.net.http.HttpResponse;
 import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.Collections;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
 
 @Component
 public class GeminiClient {
 
+    private static final String MODEL = "gemini-2.5-flash";
+
     private static final String GEMINI_ENDPOINT =
-            "https://generativelanguage.googleapis.com/v1beta/models/gemini-2.5-flash:generateContent?key=";
+            "https://generativelanguage.googleapis.com/v1beta/models/" + MODEL + ":generateContent?key=";
+
+    private static final String GEMINI_STREAM_ENDPOINT =
+            "https://generativelanguage.googleapis.com/v1beta/models/" + MODEL + ":streamGenerateContent?alt=sse&key=";
+
+    // 修改 prompt 時要一併調整版本，快取才不會拿到舊 prompt 的結果
+    private static final String SUMMARY_PROMPT_VERSION = "summary-v1";
+    private static final String PODCAST_ANALYSIS_PROMPT_VERSION = "podcast-analysis-v1";
+    private static final String PODCAST_REDUCE_PROMPT_VERSION = "podcast-reduce-v1";
+
+    private static final String PROVIDER = "gemini";
 
     private final String apiKey;
-    private final HttpClient httpClient;
+    private final OutboundHttpClient httpClient;
     private final ObjectMapper objectMapper;
-
-    public GeminiClient(ObjectMapper objectMapper) {
+    private final Duration readTimeout;
+    private final GeminiResultCache resultCache;
+    private final Executor geminiExecutor;
+    private final int mapReduceThresholdTokens;
+    private final int mapReduceChunkTokens;
+    private final GeminiRateLimiter rateLimiter;
+    private final ProviderResilience resilience;
+
+    public GeminiClient(
+            ObjectMapper objectMapper,
+            OutboundHttpClient httpClient,
+            GeminiResultCache resultCache,
+            @Qualifier("geminiExecutor") Executor geminiExecutor,
+            GeminiRateLimiter rateLimiter,
+            ProviderResilience resilience,
+            @Value("${http.client.gemini.read-timeout-ms:120000}") long readTimeoutMs,
+            @Value("${gemini.map-reduce.threshold-tokens:16000}") int mapReduceThresholdTokens,
+            @Value("${gemini.map-reduce.chunk-tokens:6000}") int mapReduceChunkTokens
+    ) {
         this.apiKey = System.getenv("GOOGLE_API_KEY");
-        this.httpClient = HttpClient.newHttpClient();
+        this.httpClient = httpClient;
         this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.resultCache = resultCache;
+        this.geminiExecutor = geminiExecutor;
+        this.mapReduceThresholdTokens = mapReduceThresholdTokens;
+        this.mapReduceChunkTokens = mapReduceChunkTokens;
+        this.rateLimiter = rateLimiter;
+        this.resilience = resilience;
     }
 
     // ----------------- 1) 簡單文字摘要 -----------------
@@ -41,6 +93,12 @@ public class GeminiClient {
             return "尚未設定 GOOGLE_API_KEY，無法呼叫 Gemini。";
         }
 
+        String cacheKey = GeminiResultCache.key(MODEL, SUMMARY_PROMPT_VERSION, input);
+        Optional<String> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
         try {
             String prompt = "請用繁體中文幫我整理下面這段文字的重點，"
                     + "抓出最重要的 3~5 個重點條列，控制在 300 字以內：\n\n"
@@ -52,6 +110,7 @@ public class GeminiClient {
                 return "Gemini API 沒有回傳任何文字內容。";
             }
 
+            resultCache.put(cacheKey, MODEL, SUMMARY_PROMPT_VERSION, modelText);
             return modelText;
         } catch (Exception e) {
             return "呼叫 Gemini API 失敗：" + e.getClass().getSimpleName() + " - " + e.getMessage();
@@ -60,7 +119,15 @@ public class GeminiClient {
 
     // ----------------- 2) Podcast JSON 分析 -----------------
 
-   public PodcastAnalysisResult analyzePodcast(String input) {
+    public PodcastAnalysisResult analyzePodcast(String input) {
+        return analyzePodcast(input, null);
+    }
+
+    /**
+     * @param onSummaryDelta 不為 null 時改用 streamGenerateContent，summary 一邊產生一邊回呼（呼叫端的執行緒）；
+     *                       快取命中或長逐字稿走 map-reduce 時，完成後一次回呼整段 summary
+     */
+    public PodcastAnalysisResult analyzePodcast(String input, Consumer<String> onSummaryDelta) {
         if (input == null || input.isBlank()) {
             PodcastAnalysisResult empty = new PodcastAnalysisResult();
             empty.setSummary("（沒有內容可供分析）");
@@ -70,106 +137,247 @@ public class GeminiClient {
         if (this.apiKey == null || this.apiKey.isBlank()) {
             PodcastAnalysisResult error = new PodcastAnalysisResult();
             error.setSummary("尚未設定 GOOGLE_API_KEY，無法呼叫 Gemini。");
+            error.setFailed(true);
             return error;
         }
 
         try {
-            String prompt =
-                    "你是一個財經 Podcast 助理，使用繁體中文回答。\n"
-                            + "請針對我提供的節錄文字，分析「講者在節目中對市場與個股的看法」。\n\n"
-                            + "你必須只回傳 **JSON**，不要加任何其他說明文字、不要加 markdown、不要加註解。\n\n"
-                            + "JSON 結構固定為：\n"
-                            + "{\n"
-                            + "  \"summary\": \"用繁體中文，簡短總結整集或這段內容的重點\",\n"
-                            + "  \"tickers\": [\n"
-                            + "    {\n"
-                            + "      \"symbol\": \"股票代碼，例如 TSLA、NVDA；若只提公司中文名稱而無法判斷代碼，可以用 null\",\n"
-                            + "      \"name\": \"股票或公司名稱（可為 null）\",\n"
-                            + "      \"sentiment\": \"bullish 或 bearish 或 neutral\",\n"
-                            + "      \"reason\": \"講者對該股票持此看法的原因，簡短一句話\"\n"
-                            + "    }\n"
-                            + "  ],\n"
-                            + "  \"sectors\": [\n"
-                            + "    {\n"
-                            + "      \"name\": \"產業或主題名稱，例如 AI 半導體、雲端、電動車\",\n"
-                            + "      \"sentiment\": \"bullish 或 bearish 或 neutral\",\n"
-                            + "      \"reason\": \"講者對該產業的看法與理由，簡短一句話\"\n"
-                            + "    }\n"
-                            + "  ],\n"
-                            + "  \"macroView\": [\n"
-                            + "    \"列出講者對總體經濟、利率、通膨、政策、資金行情等觀點，每個元素一個重點句子\"\n"
-                            + "  ]\n"
-                            + "}\n\n"
-                            + "請務必遵守：\n"
-                            + "1. 一定要回傳合法的 JSON。\n"
-                            + "2. 所有字串內容使用繁體中文。\n"
-                            + "3. 若沒有找到任何股票或產業，就使用空陣列 [].\n"
-                            + "4. macroView 也可以是空陣列。\n\n"
-                            + "以下是節錄的 Podcast 內容：\n\n"
-                            + input;
+            if (TranscriptChunker.estimateTokens(input) > mapReduceThresholdTokens) {
+                PodcastAnalysisResult merged = analyzeMapReduce(input);
+                if (onSummaryDelta != null && merged.getSummary() != null) {
+                    onSummaryDelta.accept(merged.getSummary());
+                }
+                return merged;
+            }
+            return requestAnalysis(input, onSummaryDelta);
+        } catch (AnalysisException e) {
+            PodcastAnalysisResult error = new PodcastAnalysisResult();
+            error.setSummary(e.getMessage());
+            error.setFailed(true);
+            return error;
+        } catch (Exception e) {
+            PodcastAnalysisResult error = new PodcastAnalysisResult();
+            error.setSummary("呼叫 Gemini API 失敗：" + e.getClass().getSimpleName() + " - " + e.getMessage());
+            error.setFailed(true);
+            return error;
+        }
+    }
 
-            String modelText = callGeminiRawWithRetry(prompt);
+    /**
+     * 長逐字稿：依句子切成 token 預算內的多段，平行分析（同時數量受 geminiExecutor 限制），
+     * 合併各段的 tickers / sectors / macroView，最後用一次簡短的呼叫把各段摘要整合成 summary。
+     * 總延遲取決於每段的大小，而不是整集長度；每段的結果各自進快取。
+     * <p>
+     * 部分段落失敗時用其餘段落的結果；全部失敗才丟出第一個錯誤。
+     */
+    private PodcastAnalysisResult analyzeMapReduce(String input) throws Exception {
+        List<String> chunks = TranscriptChunker.split(input, mapReduceChunkTokens);
+
+        List<CompletableFuture<PodcastAnalysisResult>> futures = new ArrayList<>(chunks.size());
+        for (String chunk : chunks) {
+            futures.add(CompletableFuture.supplyAsync(() -> {
+                try {
+                    return requestAnalysis(chunk, null);
+                } catch (Exception e) {
+                    throw new CompletionException(e);
+                }
+            }, geminiExecutor));
+        }
 
-            if (modelText == null || modelText.isBlank()) {
-                PodcastAnalysisResult error = new PodcastAnalysisResult();
-                error.setSummary("Gemini API 沒有回傳任何文字內容。");
-                return error;
+        List<PodcastAnalysisResult> parts = new ArrayList<>(chunks.size());
+        Exception firstError = null;
+        for (CompletableFuture<PodcastAnalysisResult> future : futures) {
+            try {
+                parts.add(future.get());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw e;
+            } catch (ExecutionException e) {
+                if (firstError == null) {
+                    firstError = e.getCause() instanceof Exception ? (Exception) e.getCause() : e;
+                }
             }
+        }
+        if (parts.isEmpty()) {
+            throw firstError != null ? firstError : new AnalysisException("（沒有內容可供分析）");
+        }
 
-            // *** 核心修改点：加入防御性解析逻辑 ***
-            String cleanedJson = modelText.trim();
-            if (cleanedJson.startsWith("```json")) {
-                cleanedJson = cleanedJson.substring(7); // 移除 ```json
-            } else if (cleanedJson.startsWith("```")) {
-                cleanedJson = cleanedJson.substring(3); // 移除 ```
+        PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(parts);
+        merged.setSummary(reduceSummaries(parts));
+        return merged;
+    }
+
+    /**
+     * 把各段摘要整合成一段；失敗時退回直接串接各段摘要。
+     */
+    private String reduceSummaries(List<PodcastAnalysisResult> parts) {
+        StringBuilder joined = new StringBuilder();
+        for (int i = 0; i < parts.size(); i++) {
+            String summary = parts.get(i).getSummary();
+            if (summary != null && !summary.isBlank()) {
+                joined.append("第 ").append(i + 1).append(" 段：").append(summary.trim()).append("\n");
             }
-            if (cleanedJson.endsWith("```")) {
-                cleanedJson = cleanedJson.substring(0, cleanedJson.length() - 3);
+        }
+        if (parts.size() == 1 || joined.length() == 0) {
+            return parts.get(0).getSummary();
+        }
+
+        String cacheKey = GeminiResultCache.key(MODEL, PODCAST_REDUCE_PROMPT_VERSION, joined.toString());
+        Optional<String> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        try {
+            String prompt = "你是一個財經 Podcast 助理，使用繁體中文回答。\n"
+                    + "以下是同一集節目依時間順序分段整理出的重點，"
+                    + "請整合成一段完整的總結，控制在 300 字以內，只回傳總結文字：\n\n"
+                    + joined;
+            String modelText = callGeminiRawWithRetry(prompt);
+            if (modelText == null || modelText.isBlank()) {
+                return joined.toString().trim();
             }
-            cleanedJson = cleanedJson.trim(); // 再次 trim 确保没有多余的换行符
+            resultCache.put(cacheKey, MODEL, PODCAST_REDUCE_PROMPT_VERSION, modelText.trim());
+            return modelText.trim();
+        } catch (Exception e) {
+            return joined.toString().trim();
+        }
+    }
 
+    /**
+     * 單次分析呼叫（含快取）。
+     *
+     * @throws AnalysisException Gemini 沒有回傳內容，或回應無法解析為 JSON
+     */
+    private PodcastAnalysisResult requestAnalysis(String input, Consumer<String> onSummaryDelta) throws Exception {
+        // 快取的是 Gemini 原始回應文字，命中時一樣走下面的 JSON 解析
+        String cacheKey = GeminiResultCache.key(MODEL, PODCAST_ANALYSIS_PROMPT_VERSION, input);
+        Optional<String> cached = resultCache.get(cacheKey);
+        if (cached.isPresent()) {
             try {
-                // 使用清洗过的 JSON 字符串进行解析
-                return objectMapper.readValue(cleanedJson, PodcastAnalysisResult.class);
-            } catch (Exception parseError) {
-                PodcastAnalysisResult error = new PodcastAnalysisResult();
-                error.setSummary("無法將 Gemini 回應解析為 JSON，原始內容如下：\n" + modelText);
-                return error;
+                PodcastAnalysisResult parsed = parseAnalysis(cached.get());
+                if (onSummaryDelta != null && parsed.getSummary() != null) {
+                    onSummaryDelta.accept(parsed.getSummary());
+                }
+                return parsed;
+            } catch (Exception ignore) {
+                // 理論上只會存可解析的結果；萬一失敗就當作沒命中，重新呼叫
             }
+        }
 
-        } catch (Exception e) {
-            PodcastAnalysisResult error = new PodcastAnalysisResult();
-            error.setSummary("呼叫 Gemini API 失敗：" + e.getClass().getSimpleName() + " - " + e.getMessage());
-            return error;
+        String prompt =
+                "你是一個財經 Podcast 助理，使用繁體中文回答。\n"
+                        + "請針對我提供的節錄文字，分析「講者在節目中對市場與個股的看法」。\n\n"
+                        + "你必須只回傳 **JSON**，不要加任何其他說明文字、不要加 markdown、不要加註解。\n\n"
+                        + "JSON 結構固定為：\n"
+                        + "{\n"
+                        + "  \"summary\": \"用繁體中文，簡短總結整集或這段內容的重點\",\n"
+                        + "  \"tickers\": [\n"
+                        + "    {\n"
+                        + "      \"symbol\": \"股票代碼，例如 TSLA、NVDA；若只提公司中文名稱而無法判斷代碼，可以用 null\",\n"
+                        + "      \"name\": \"股票或公司名稱（可為 null）\",\n"
+                        + "      \"sentiment\": \"bullish 或 bearish 或 neutral\",\n"
+                        + "      \"reason\": \"講者對該股票持此看法的原因，簡短一句話\"\n"
+                        + "    }\n"
+                        + "  ],\n"
+                        + "  \"sectors\": [\n"
+                        + "    {\n"
+                        + "      \"name\": \"產業或主題名稱，例如 AI 半導體、雲端、電動車\",\n"
+                        + "      \"sentiment\": \"bullish 或 bearish 或 neutral\",\n"
+                        + "      \"reason\": \"講者對該產業的看法與理由，簡短一句話\"\n"
+                        + "    }\n"
+                        + "  ],\n"
+                        + "  \"macroView\": [\n"
+                        + "    \"列出講者對總體經濟、利率、通膨、政策、資金行情等觀點，每個元素一個重點句子\"\n"
+                        + "  ]\n"
+                        + "}\n\n"
+                        + "請務必遵守：\n"
+                        + "1. 一定要回傳合法的 JSON。\n"
+                        + "2. 所有字串內容使用繁體中文。\n"
+                        + "3. 若沒有找到任何股票或產業，就使用空陣列 [].\n"
+                        + "4. macroView 也可以是空陣列。\n\n"
+                        + "以下是節錄的 Podcast 內容：\n\n"
+                        + input;
+
+        // 串流時從尚未完整的 JSON 中取出 summary 欄位的文字
+        JsonStringFieldTap summaryTap = onSummaryDelta == null
+                ? null
+                : new JsonStringFieldTap("summary", onSummaryDelta);
+        String modelText = callGeminiRawWithRetry(prompt, summaryTap == null ? null : summaryTap::accept);
+
+        if (modelText == null || modelText.isBlank()) {
+            throw new AnalysisException("Gemini API 沒有回傳任何文字內容。");
+        }
+
+        PodcastAnalysisResult parsed;
+        try {
+            parsed = parseAnalysis(modelText);
+        } catch (Exception parseError) {
+            throw new AnalysisException("無法將 Gemini 回應解析為 JSON，原始內容如下：\n" + modelText);
         }
+        // 只快取可以成功解析的結果
+        resultCache.put(cacheKey, MODEL, PODCAST_ANALYSIS_PROMPT_VERSION, modelText);
+        return parsed;
+    }
+
+    private PodcastAnalysisResult parseAnalysis(String modelText) throws Exception {
+        // *** 核心修改点：加入防御性解析逻辑 ***
+        String cleanedJson = modelText.trim();
+        if (cleanedJson.startsWith("```json")) {
+            cleanedJson = cleanedJson.substring(7); // 移除 ```json
+        } else if (cleanedJson.startsWith("```")) {
+            cleanedJson = cleanedJson.substring(3); // 移除 ```
+        }
+        if (cleanedJson.endsWith("```")) {
+            cleanedJson = cleanedJson.substring(0, cleanedJson.length() - 3);
+        }
+        cleanedJson = cleanedJson.trim(); // 再次 trim 确保没有多余的换行符
+
+        // 使用清洗过的 JSON 字符串进行解析
+        return objectMapper.readValue(cleanedJson, PodcastAnalysisResult.class);
     }
 
     // ----------------- 3) 內部：帶 Retry 的呼叫邏輯 -----------------
 
     private String callGeminiRawWithRetry(String prompt) throws Exception {
-        int maxRetries = 3;
+        return callGeminiRawWithRetry(prompt, null);
+    }
+
+    /**
+     * @param onText 不為 null 時使用串流 API，每收到一段文字就回呼；
+     *               只有在還沒收到任何內容（回應狀態碼就是 429 / 503）時才會重試，不會重複回呼
+     */
+    private String callGeminiRawWithRetry(String prompt, Consumer<String> onText) throws Exception {
+        int maxRetries = resilience.maxAttempts();
         int attempt = 0;
         Exception lastException = null;
+        long estimatedTokens = TranscriptChunker.estimateTokens(prompt);
 
         while (attempt < maxRetries) {
             attempt++;
+            // 斷路器開啟時直接丟 ProviderUnavailableException，不必排隊等額度
+            resilience.checkAvailable(PROVIDER);
+            GeminiRateLimiter.Permit permit = rateLimiter.acquire(estimatedTokens);
             try {
-                return callGeminiOnce(prompt);
-            } catch (IllegalStateException e) {
-                String msg = e.getMessage();
-                // 如果是 503 / UNAVAILABLE，再重試；其他錯誤就直接丟出去
-                if (msg != null && msg.contains("status=503")) {
-                    lastException = e;
-                    // 簡單 backoff
-                    Thread.sleep(500L * attempt);
+                return onText == null ? callGeminiOnce(prompt) : callGeminiStreamOnce(prompt, onText);
+            } catch (StatusException e) {
+                // 429 / 503 再重試；暫停交給 rateLimiter，所有呼叫一起等，不會各自重試又打爆配額
+                lastException = e;
+                if ((e.status == 429 || e.status == 503)
+                        && attempt < maxRetries
+                        && resilience.tryRetry(PROVIDER)) {
+                    int failedAttempt = attempt;
+                    rateLimiter.backOff(e.retryAfter.orElseGet(() -> resilience.backoff(failedAttempt)));
                     continue;
                 } else {
                     throw e;
                 }
+            } finally {
+                permit.close();
             }
         }
 
-        // 多次重試還是 503，就把最後一次錯誤丟出去
+        // 多次重試還是 429 / 503，就把最後一次錯誤丟出去
         if (lastException != null) {
             throw lastException;
         } else {
@@ -178,28 +386,16 @@ public class GeminiClient {
     }
 
     private String callGeminiOnce(String prompt) throws Exception {
-        Map<String, Object> body = new HashMap<>();
-        Map<String, Object> content = new HashMap<>();
-        Map<String, String> part = new HashMap<>();
-
-        part.put("text", prompt);
-        content.put("parts", Collections.singletonList(part));
-        body.put("contents", Collections.singletonList(content));
-
-        String json = objectMapper.writeValueAsString(body);
-
-        HttpRequest request = HttpRequest.newBuilder()
-                .uri(URI.create(GEMINI_ENDPOINT + apiKey))
-                .header("Content-Type", "application/json")
-                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
-                .build();
+        HttpRequest request = buildRequest(GEMINI_ENDPOINT, prompt);
 
         HttpResponse<String> response =
-                httpClient.send(request, HttpResponse.BodyHandlers.ofString());
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofString());
 
         int status = response.statusCode();
         if (status / 100 != 2) {
-            throw new IllegalStateException(
+            throw new StatusException(
+                    status,
+                    ProviderResilience.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)),
                     "Gemini API 回傳非 2xx 狀態碼，status="
                             + status
                             + "，body=\n"
@@ -231,4 +427,100 @@ public class GeminiClient {
 
         return sb.toString();
     }
+
+    /**
+     * streamGenerateContent（alt=sse）：每個 "data:" 行是一個 GenerateContentResponse，
+     * 內含這次新產生的文字片段。回傳所有片段串起來的完整文字。
+     */
+    private String callGeminiStreamOnce(String prompt, Consumer<String> onText) throws Exception {
+        HttpRequest request = buildRequest(GEMINI_STREAM_ENDPOINT, prompt);
+
+        HttpResponse<InputStream> response =
+                httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
+
+        StringBuilder sb = new StringBuilder();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(response.body(), StandardCharsets.UTF_8))) {
+            int status = response.statusCode();
+            if (status / 100 != 2) {
+                StringBuilder error = new StringBuilder();
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    error.append(line).append('\n');
+                }
+                throw new StatusException(
+                        status,
+                        ProviderResilience.parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null)),
+                        "Gemini API 回傳非 2xx 狀態碼，status="
+                                + status
+                                + "，body=\n"
+                                + error);
+            }
+
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.startsWith("data:")) {
+                    continue;
+                }
+                JsonNode parts = objectMapper.readTree(line.substring(5))
+                        .path("candidates").path(0).path("content").path("parts");
+                for (JsonNode p : parts) {
+                    JsonNode textNode = p.get("text");
+                    if (textNode != null && !textNode.isNull() && !textNode.asText().isEmpty()) {
+                        sb.append(textNode.asText());
+                        onText.accept(textNode.asText());
+                    }
+                }
+            }
+        }
+
+        if (sb.length() == 0) {
+            throw new IllegalStateException("Gemini API 串流回應中沒有任何文字內容。");
+        }
+        return sb.toString();
+    }
+
+    private HttpRequest buildRequest(String endpoint, String prompt) throws Exception {
+        Map<String, Object> body = new HashMap<>();
+        Map<String, Object> content = new HashMap<>();
+        Map<String, String> part = new HashMap<>();
+
+        part.put("text", prompt);
+        content.put("parts", Collections.singletonList(part));
+        body.put("contents", Collections.singletonList(content));
+
+        String json = objectMapper.writeValueAsString(body);
+
+        return HttpRequest.newBuilder()
+                .uri(URI.create(endpoint + apiKey))
+                .header("Content-Type", "application/json")
+                .timeout(readTimeout)
+                .POST(HttpRequest.BodyPublishers.ofString(json, StandardCharsets.UTF_8))
+                .build();
+    }
+
+    /**
+     * 訊息本身就是要回給使用者的 summary（不再加「呼叫 Gemini API 失敗」前綴）。
+     */
+    private static final class AnalysisException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private AnalysisException(String message) {
+            super(message);
+        }
+    }
+
+    private static final class StatusException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        private final int status;
+        // Optional 不可序列化；只在同一次呼叫的重試迴圈中使用
+        private final transient Optional<Duration> retryAfter;
+
+        private StatusException(int status, Optional<Duration> retryAfter, String message) {
+            super(message);
+            this.status = status;
+            this.retryAfter = retryAfter;
+        }
+    }
 }
@@ -0,0 +1,211 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所有 Gemini 呼叫（{@link GeminiClient}、{@link GeminiSpeechToTextService}）共用的用量控制：
+ * <p>
+ * - 同時進行中的請求數上限（公平的 {@link Semaphore}，先到先拿）
+ * - 每分鐘請求數（RPM）與每分鐘 token 數（TPM）兩個 token bucket；
+ *   以預約方式扣額度，額度不足的呼叫依預約順序等待，不會一起衝出去
+ * - 收到 429 / 503 時依 Retry-After 暫停所有呼叫，避免每個執行緒各自重試造成 retry storm
+ * - 等待超過 acquireTimeout 直接放棄（{@link LimitTimeoutException}）
+ */
+@Component
+public class GeminiRateLimiter implements MetricsSource {
+
+    private static final long NANOS_PER_MINUTE = TimeUnit.MINUTES.toNanos(1);
+
+    private final Semaphore inFlight;
+    private final int maxInFlight;
+    private final Bucket requests;
+    private final Bucket tokens;
+    private final long acquireTimeoutNanos;
+
+    // 被 429 / 503 要求暫停到這個時間點（System.nanoTime）
+    private long pausedUntil;
+
+    private final AtomicInteger waitingForRate = new AtomicInteger();
+    private final AtomicLong acquired = new AtomicLong();
+    private final AtomicLong timeouts = new AtomicLong();
+    private final AtomicLong throttled = new AtomicLong();
+    private final AtomicLong totalWaitMillis = new AtomicLong();
+
+    public GeminiRateLimiter(
+            @Value("${gemini.limit.requests-per-minute:60}") long requestsPerMinute,
+            @Value("${gemini.limit.tokens-per-minute:1000000}") long tokensPerMinute,
+            @Value("${gemini.limit.max-in-flight:8}") int maxInFlight,
+            @Value("${gemini.limit.acquire-timeout-ms:120000}") long acquireTimeoutMs
+    ) {
+        this.maxInFlight = maxInFlight;
+        this.inFlight = new Semaphore(maxInFlight, true);
+        this.requests = new Bucket(requestsPerMinute);
+        this.tokens = new Bucket(tokensPerMinute);
+        this.acquireTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(acquireTimeoutMs);
+    }
+
+    /**
+     * 取得一次呼叫的額度；回傳的 permit 要在收到回應後 close。
+     *
+     * @param estimatedTokens 這次請求估計的 token 數（prompt + 音訊）
+     * @throws LimitTimeoutException 等待超過 acquireTimeout
+     */
+    public Permit acquire(long estimatedTokens) throws InterruptedException {
+        long start = System.nanoTime();
+        long deadline = start + acquireTimeoutNanos;
+
+        if (!inFlight.tryAcquire(acquireTimeoutNanos, TimeUnit.NANOSECONDS)) {
+            timeouts.incrementAndGet();
+            throw new LimitTimeoutException("Gemini 同時請求數已達上限，等待逾時");
+        }
+
+        try {
+            long waitNanos = reserve(estimatedTokens, deadline);
+            if (waitNanos > 0) {
+                waitingForRate.incrementAndGet();
+                try {
+                    TimeUnit.NANOSECONDS.sleep(waitNanos);
+                } finally {
+                    waitingForRate.decrementAndGet();
+                }
+            }
+        } catch (InterruptedException | RuntimeException e) {
+            inFlight.release();
+            throw e;
+        }
+
+        acquired.incrementAndGet();
+        totalWaitMillis.addAndGet(TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start));
+        return new Permit();
+    }
+
+    /**
+     * 收到 429 / 503 時呼叫：所有後續呼叫至少等到 delay 之後。
+     */
+    public synchronized void backOff(Duration delay) {
+        throttled.incrementAndGet();
+        long until = System.nanoTime() + delay.toNanos();
+        if (until - pausedUntil > 0) {
+            pausedUntil = until;
+        }
+    }
+
+    /**
+     * 預約 RPM 與 TPM 額度，回傳需要等待的時間；等待會超過 deadline 時不扣額度，直接丟出逾時。
+     */
+    private synchronized long reserve(long estimatedTokens, long deadline) {
+        long now = System.nanoTime();
+        long readyAt = Math.max(now, pausedUntil);
+        readyAt = Math.max(readyAt, requests.availableAt(1, now));
+        readyAt = Math.max(readyAt, tokens.availableAt(estimatedTokens, now));
+        if (readyAt - deadline > 0) {
+            timeouts.incrementAndGet();
+            throw new LimitTimeoutException("Gemini 每分鐘額度不足，等待逾時");
+        }
+        requests.take(1, now);
+        tokens.take(estimatedTokens, now);
+        return readyAt - now;
+    }
+
+    /**
+     * 音訊的 token 估計：Gemini 約每秒 32 token，以 128 kbps（16 KB/s）的 MP3 換算約每 500 bytes 1 token。
+     */
+    public static long estimateAudioTokens(long audioBytes) {
+        return audioBytes / 500;
+    }
+
+    @Override
+    public String metricsName() {
+        return "gemini.limiter";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("inFlight", maxInFlight - inFlight.availablePermits());
+        m.put("maxInFlight", maxInFlight);
+        m.put("waitingForSlot", inFlight.getQueueLength());
+        m.put("waitingForRate", waitingForRate.get());
+        m.put("acquired", acquired.get());
+        m.put("timeouts", timeouts.get());
+        m.put("throttled", throttled.get());
+        long n = acquired.get();
+        m.put("avgWaitMillis", n == 0 ? 0 : totalWaitMillis.get() / n);
+        return m;
+    }
+
+    /**
+     * 每分鐘 capacity 的 token bucket，以 nanoTime 連續補充。
+     * 餘額可以扣成負的（代表已經預約出去的額度），之後的預約要等補回來。
+     */
+    private static final class Bucket {
+        private final long capacity;
+        private double balance;
+        private long updatedAt;
+
+        private Bucket(long perMinute) {
+            this.capacity = Math.max(1, perMinute);
+            this.balance = capacity;
+            this.updatedAt = System.nanoTime();
+        }
+
+        private void refill(long now) {
+            if (now - updatedAt > 0) {
+                balance = Math.min(capacity, balance + (double) (now - updatedAt) * capacity / NANOS_PER_MINUTE);
+                updatedAt = now;
+            }
+        }
+
+        /**
+         * 額度足夠扣 amount 的時間點；單次超過容量的請求只要求補滿。
+         */
+        private long availableAt(long amount, long now) {
+            refill(now);
+            double need = Math.min(amount, capacity) - balance;
+            if (need <= 0) {
+                return now;
+            }
+            return now + (long) Math.ceil(need * NANOS_PER_MINUTE / capacity);
+        }
+
+        private void take(long amount, long now) {
+            refill(now);
+            balance -= Math.min(amount, capacity);
+        }
+    }
+
+    /**
+     * 一次呼叫佔用的同時請求名額；close 可重複呼叫。
+     */
+    public final class Permit implements AutoCloseable {
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit() {
+        }
+
+        @Override
+        public void close() {
+            if (closed.compareAndSet(false, true)) {
+                inFlight.release();
+            }
+        }
+    }
+
+    public static final class LimitTimeoutException extends IllegalStateException {
+        private static final long serialVersionUID = 1L;
+
+        public LimitTimeoutException(String message) {
+            super(message);
+        }
+    }
+}
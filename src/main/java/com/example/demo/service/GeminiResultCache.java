@@ -0,0 +1,147 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.GeminiResultRepository;
+import com.example.demo.util.Sha256;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.text.Normalizer;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Pattern;
+
+/**
+ * Gemini 回應文字的內容定址快取，key = sha256(model | prompt 版本 | 正規化後的輸入文字)。
+ * <p>
+ * - 記憶體層：LRU，依保存的字元總數（而不是筆數）淘汰，長逐字稿的分析結果不會擠爆 heap
+ * - 持久層（可關閉）：PostgreSQL 的 gemini_result_cache，重啟後仍可命中；讀寫失敗只當作未命中
+ * <p>
+ * prompt 內容有改動時要一併調整呼叫端的 prompt 版本，舊的結果自然不會再被命中。
+ */
+@Component
+public class GeminiResultCache implements MetricsSource {
+
+    private static final Pattern WHITESPACE = Pattern.compile("\\s+");
+
+    private final GeminiResultRepository repository;
+    private final boolean persistentEnabled;
+    private final long maxMemoryChars;
+
+    private final LinkedHashMap<String, String> memory = new LinkedHashMap<>(64, 0.75f, true);
+    private long memoryChars;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public GeminiResultCache(
+            GeminiResultRepository repository,
+            @Value("${gemini.cache.persistent-enabled:true}") boolean persistentEnabled,
+            @Value("${gemini.cache.max-memory-chars:4000000}") long maxMemoryChars
+    ) {
+        this.repository = repository;
+        this.persistentEnabled = persistentEnabled;
+        this.maxMemoryChars = maxMemoryChars;
+    }
+
+    public static String key(String model, String promptVersion, String input) {
+        return Sha256.of(model + "\n" + promptVersion + "\n" + normalize(input));
+    }
+
+    /**
+     * 只影響 key：全形/半形統一（NFKC）、連續空白合併、去頭尾空白，
+     * 同一段逐字稿因為換行或空白差異而重送時仍可命中。
+     */
+    static String normalize(String input) {
+        if (input == null) {
+            return "";
+        }
+        String n = Normalizer.normalize(input, Normalizer.Form.NFKC);
+        return WHITESPACE.matcher(n).replaceAll(" ").trim();
+    }
+
+    public Optional<String> get(String key) {
+        synchronized (memory) {
+            String cached = memory.get(key);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+
+        if (persistentEnabled) {
+            Optional<String> stored = readStored(key);
+            if (stored.isPresent()) {
+                persistentHits.incrementAndGet();
+                putMemory(key, stored.get());
+                return stored;
+            }
+        }
+
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    public void put(String key, String model, String promptVersion, String result) {
+        if (result == null || result.isBlank()) {
+            return;
+        }
+        putMemory(key, result);
+        if (persistentEnabled) {
+            try {
+                repository.save(key, model, promptVersion, result);
+            } catch (RuntimeException e) {
+                // DB 寫入失敗不影響本次回應，只是重啟後不會命中
+            }
+        }
+    }
+
+    private Optional<String> readStored(String key) {
+        try {
+            return repository.find(key);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private void putMemory(String key, String result) {
+        if (result.length() > maxMemoryChars) {
+            return;
+        }
+        synchronized (memory) {
+            String previous = memory.put(key, result);
+            if (previous != null) {
+                memoryChars -= previous.length();
+            }
+            memoryChars += result.length();
+
+            Iterator<Map.Entry<String, String>> it = memory.entrySet().iterator();
+            while (memoryChars > maxMemoryChars && it.hasNext()) {
+                Map.Entry<String, String> eldest = it.next();
+                memoryChars -= eldest.getValue().length();
+                it.remove();
+            }
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "gemini.result-cache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("memory-hits", memoryHits.get());
+        result.put("persistent-hits", persistentHits.get());
+        result.put("misses", misses.get());
+        synchronized (memory) {
+            result.put("memory-entries", memory.size());
+            result.put("memory-chars", memoryChars);
+        }
+        return result;
+    }
+}
@@ -1,45 +1,72 @@
 package com.example.demo.service;
 
+import com.example.demo.util.Base64EncodingInputStream;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.boot.web.client.RestTemplateBuilder;
-import org.springframework.http.HttpEntity;
-import org.springframework.http.HttpHeaders;
-import org.springframework.http.HttpMethod;
-import org.springframework.http.MediaType;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestClientException;
-import org.springframework.web.client.RestTemplate;
 
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
 import java.time.Duration;
-import java.util.Base64;
-import java.util.Arrays;
 import java.util.Collections;
-import java.util.LinkedHashMap;
 import java.util.List;
-import java.util.Map;
+import java.util.function.Supplier;
 
 @Service
 public class GeminiSpeechToTextService implements SpeechToTextService {
 
-    private final RestTemplate restTemplate;
+    private static final String PROVIDER = "gemini-stt";
+
+    private static final String PROMPT =
+            "請將以下音訊內容完整轉寫成繁體中文逐字稿，" +
+            "保留說話者的口語與語氣，不要總結，不要翻譯成其他語言，" +
+            "只輸出逐字稿本身，不要加說明文字。";
+
+    // transcribe 以文字回傳的錯誤訊息開頭
+    private static final List<String> FAILURE_PREFIXES = List.of(
+            "尚未設定 GOOGLE_API_KEY",
+            "呼叫 Gemini API",
+            "Gemini 回傳",
+            "Gemini 沒有回傳"
+    );
+
+    private final OutboundHttpClient httpClient;
+    private final ObjectMapper objectMapper;
+    private final Duration readTimeout;
     private final String apiKey;
     private final String sttModelName;
     private final String defaultTextModelName;
+    private final GeminiRateLimiter rateLimiter;
+    private final ProviderResilience resilience;
 
     public GeminiSpeechToTextService(
-            RestTemplateBuilder restTemplateBuilder,
+            OutboundHttpClient httpClient,
+            ObjectMapper objectMapper,
+            GeminiRateLimiter rateLimiter,
+            ProviderResilience resilience,
             @Value("${GOOGLE_API_KEY:}") String apiKey,
             @Value("${GEMINI_STT_MODEL:}") String sttModelName,
-            @Value("${GEMINI_MODEL:gemini-2.0-flash-exp}") String defaultTextModelName
+            @Value("${GEMINI_MODEL:gemini-2.0-flash-exp}") String defaultTextModelName,
+            @Value("${http.client.gemini-stt.read-timeout-ms:300000}") long readTimeoutMs
     ) {
-        this.restTemplate = restTemplateBuilder
-                .setConnectTimeout(Duration.ofSeconds(10))
-                .setReadTimeout(Duration.ofMinutes(5))
-                .build();
+        this.httpClient = httpClient;
+        this.objectMapper = objectMapper;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
         this.apiKey = apiKey;
         this.sttModelName = sttModelName;
         this.defaultTextModelName = defaultTextModelName;
+        this.rateLimiter = rateLimiter;
+        this.resilience = resilience;
     }
 
     @Override
@@ -50,39 +77,48 @@ public class GeminiSpeechToTextService implements SpeechToTextService {
         if (apiKey == null || apiKey.isEmpty()) {
             return "尚未設定 GOOGLE_API_KEY，無法進行語音轉文字。";
         }
+        return send(() -> new ByteArrayInputStream(audioBytes), audioBytes.length, mimeType);
+    }
 
+    /**
+     * 直接從檔案串流：邊讀邊 Base64 編碼寫進 request body，不在 heap 建立 byte[] 或 Base64 字串。
+     */
+    @Override
+    public String transcribe(Path audioFile, String mimeType) throws IOException {
+        long size = Files.size(audioFile);
+        if (size == 0) {
+            return "";
+        }
+        if (apiKey == null || apiKey.isEmpty()) {
+            return "尚未設定 GOOGLE_API_KEY，無法進行語音轉文字。";
+        }
+        return send(() -> {
+            try {
+                return Files.newInputStream(audioFile);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }, size, mimeType);
+    }
+
+    @Override
+    public boolean isFailure(String transcript) {
+        if (transcript == null) {
+            return false;
+        }
+        for (String prefix : FAILURE_PREFIXES) {
+            if (transcript.startsWith(prefix)) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private String send(Supplier<InputStream> audio, long audioLength, String mimeType) {
         String effectiveMimeType = (mimeType == null || mimeType.isEmpty())
                 ? "audio/mpeg"
                 : mimeType;
 
-        String base64Audio = Base64.getEncoder().encodeToString(audioBytes);
-
-        Map<String, Object> inlineData = new LinkedHashMap<>();
-        inlineData.put("mimeType", effectiveMimeType);
-        inlineData.put("data", base64Audio);
-
-        Map<String, Object> textPart = new LinkedHashMap<>();
-        textPart.put(
-                "text",
-                "請將以下音訊內容完整轉寫成繁體中文逐字稿，" +
-                "保留說話者的口語與語氣，不要總結，不要翻譯成其他語言，" +
-                "只輸出逐字稿本身，不要加說明文字。"
-        );
-
-        Map<String, Object> audioPart = new LinkedHashMap<>();
-        audioPart.put("inlineData", inlineData);
-
-        Map<String, Object> content = new LinkedHashMap<>();
-        content.put("parts", Arrays.asList(textPart, audioPart));
-
-        Map<String, Object> generationConfig = new LinkedHashMap<>();
-        generationConfig.put("temperature", 0.1);
-        generationConfig.put("maxOutputTokens", 8192);
-
-        Map<String, Object> requestBody = new LinkedHashMap<>();
-        requestBody.put("contents", Collections.singletonList(content));
-        requestBody.put("generationConfig", generationConfig);
-
         // 如果沒有特別指定 GEMINI_STT_MODEL，就沿用文字分析那顆 GEMINI_MODEL
         String modelToUse;
         if (sttModelName != null && !sttModelName.isEmpty()) {
@@ -97,59 +133,94 @@ public class GeminiSpeechToTextService implements SpeechToTextService {
                         + ":generateContent?key="
                         + apiKey;
 
-        HttpHeaders headers = new HttpHeaders();
-        headers.setContentType(MediaType.APPLICATION_JSON);
-
-        HttpEntity<Map<String, Object>> entity = new HttpEntity<>(requestBody, headers);
-
         try {
-            ResponseEntity<Map> response = restTemplate.exchange(
-                    url,
-                    HttpMethod.POST,
-                    entity,
-                    Map.class
-            );
-
-            if (!response.getStatusCode().is2xxSuccessful() || response.getBody() == null) {
-                return "呼叫 Gemini API 失敗，狀態碼: " + response.getStatusCodeValue();
+            // JSON 結構與原本相同，只是 inlineData.data 改成串流寫入：
+            // {"contents":[{"parts":[{"text":...},{"inlineData":{"mimeType":...,"data":"<base64>"}}]}],"generationConfig":{...}}
+            byte[] prefix = ("{\"contents\":[{\"parts\":[{\"text\":"
+                    + objectMapper.writeValueAsString(PROMPT)
+                    + "},{\"inlineData\":{\"mimeType\":"
+                    + objectMapper.writeValueAsString(effectiveMimeType)
+                    + ",\"data\":\"").getBytes(StandardCharsets.UTF_8);
+            byte[] suffix = ("\"}}]}],\"generationConfig\":{\"temperature\":0.1,\"maxOutputTokens\":8192}}")
+                    .getBytes(StandardCharsets.UTF_8);
+            long contentLength = prefix.length
+                    + Base64EncodingInputStream.encodedLength(audioLength)
+                    + suffix.length;
+
+            Supplier<InputStream> body = () -> new SequenceInputStream(Collections.enumeration(List.of(
+                    new ByteArrayInputStream(prefix),
+                    new Base64EncodingInputStream(audio.get()),
+                    new ByteArrayInputStream(suffix)
+            )));
+
+            HttpRequest request = HttpRequest.newBuilder()
+                    .uri(URI.create(url))
+                    .header("Content-Type", "application/json")
+                    .timeout(readTimeout)
+                    .POST(HttpRequest.BodyPublishers.fromPublisher(
+                            HttpRequest.BodyPublishers.ofInputStream(body), contentLength))
+                    .build();
+
+            JsonNode root = null;
+            long estimatedTokens = GeminiRateLimiter.estimateAudioTokens(audioLength);
+            for (int attempt = 1; root == null; attempt++) {
+                // 斷路器開啟時不必排隊等額度
+                resilience.checkAvailable(PROVIDER);
+                GeminiRateLimiter.Permit permit = rateLimiter.acquire(estimatedTokens);
+                try {
+                    HttpResponse<InputStream> response =
+                            httpClient.send(PROVIDER, request, HttpResponse.BodyHandlers.ofInputStream());
+
+                    try (InputStream in = response.body()) {
+                        int status = response.statusCode();
+                        if ((status == 429 || status == 503)
+                                && attempt < resilience.maxAttempts()
+                                && resilience.tryRetry(PROVIDER)) {
+                            // 暫停交給 rateLimiter，其他 Gemini 呼叫也會一起等
+                            int failedAttempt = attempt;
+                            rateLimiter.backOff(ProviderResilience
+                                    .parseRetryAfter(response.headers().firstValue("Retry-After").orElse(null))
+                                    .orElseGet(() -> resilience.backoff(failedAttempt)));
+                            continue;
+                        }
+                        if (status / 100 != 2) {
+                            return "呼叫 Gemini API 失敗，狀態碼: " + status;
+                        }
+                        root = objectMapper.readTree(in);
+                    }
+                } finally {
+                    permit.close();
+                }
             }
 
-            Map<String, Object> body = response.getBody();
-            Object candidatesObj = body.get("candidates");
-            if (!(candidatesObj instanceof List)) {
+            JsonNode candidates = root.get("candidates");
+            if (candidates == null || !candidates.isArray()) {
                 return "Gemini 回傳內容中沒有 candidates 欄位。";
             }
-
-            List<?> candidates = (List<?>) candidatesObj;
-            if (candidates.isEmpty()) {
+            if (candidates.size() == 0) {
                 return "Gemini 沒有回傳任何候選結果。";
             }
 
-            Object firstCandidateObj = candidates.get(0);
-            if (!(firstCandidateObj instanceof Map)) {
+            JsonNode firstCandidate = candidates.get(0);
+            if (!firstCandidate.isObject()) {
                 return "Gemini 回傳的第一個候選結果格式不符合預期。";
             }
 
-            Map<?, ?> firstCandidate = (Map<?, ?>) firstCandidateObj;
-            Object contentObj = firstCandidate.get("content");
-            if (!(contentObj instanceof Map)) {
+            JsonNode contentNode = firstCandidate.get("content");
+            if (contentNode == null || !contentNode.isObject()) {
                 return "Gemini 回傳內容中缺少 content 欄位。";
             }
 
-            Map<?, ?> contentMap = (Map<?, ?>) contentObj;
-            Object partsObj = contentMap.get("parts");
-            if (!(partsObj instanceof List)) {
+            JsonNode parts = contentNode.get("parts");
+            if (parts == null || !parts.isArray()) {
                 return "Gemini 回傳內容中缺少 parts 欄位。";
             }
 
-            List<?> parts = (List<?>) partsObj;
             StringBuilder sb = new StringBuilder();
-            for (Object partObj : parts) {
-                if (partObj instanceof Map) {
-                    Object textObj = ((Map<?, ?>) partObj).get("text");
-                    if (textObj != null) {
-                        sb.append(textObj.toString());
-                    }
+            for (JsonNode part : parts) {
+                JsonNode text = part.get("text");
+                if (text != null && !text.isNull()) {
+                    sb.append(text.asText());
                 }
             }
 
@@ -159,7 +230,12 @@ public class GeminiSpeechToTextService implements SpeechToTextService {
 
             return sb.toString();
 
-        } catch (RestClientException ex) {
+        } catch (GeminiRateLimiter.LimitTimeoutException | ProviderUnavailableException ex) {
+            return "呼叫 Gemini API 失敗，" + ex.getMessage();
+        } catch (IOException | UncheckedIOException ex) {
+            return "呼叫 Gemini API 發生例外: " + ex.getMessage();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
             return "呼叫 Gemini API 發生例外: " + ex.getMessage();
         }
     }
@@ -0,0 +1,242 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PriceSeries;
+import com.example.demo.model.StockTaSummary;
+import com.example.demo.util.PriceIndicators;
+import com.example.demo.util.TradingCalendar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.Indicator;
+import org.ta4j.core.indicators.ATRIndicator;
+import org.ta4j.core.indicators.EMAIndicator;
+import org.ta4j.core.indicators.MACDIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsLowerIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsMiddleIndicator;
+import org.ta4j.core.indicators.bollinger.BollingerBandsUpperIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.indicators.statistics.StandardDeviationIndicator;
+import org.ta4j.core.indicators.volume.OnBalanceVolumeIndicator;
+import org.ta4j.core.num.DoubleNum;
+import org.ta4j.core.num.Num;
+
+import java.time.Duration;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.util.EnumSet;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 計算技術指標並寫進 {@link StockTaSummary}：
+ * SMA20 / RSI14 直接用 {@link PriceIndicators} 在 primitive 陣列上算；
+ * EMA、MACD、布林、ATR、OBV 則每檔股票建一個 ta4j BarSeries，共用同一個 ClosePriceIndicator 一次算完。
+ * <p>
+ * 結果依 (market, symbol, 最後一根日期, K 線數) 快取，同一根 K 線的重複請求不會重算。
+ */
+@Component
+public class IndicatorEngine {
+
+    public enum IndicatorType {
+        SMA, EMA, MACD, BOLLINGER, ATR, RSI, OBV
+    }
+
+    private static final int SMA_PERIOD = 20;
+    private static final int RSI_PERIOD = 14;
+    private static final int ATR_PERIOD = 14;
+
+    private final Set<IndicatorType> enabled;
+    private final int emaPeriod;
+    private final int macdShort;
+    private final int macdLong;
+    private final int macdSignal;
+    private final int bollingerPeriod;
+    private final double bollingerK;
+
+    private final Map<String, Snapshot> snapshots;
+
+    public IndicatorEngine(
+            @Value("${ta.indicators.enabled:SMA,EMA,MACD,BOLLINGER,ATR,RSI,OBV}") String[] enabled,
+            @Value("${ta.indicators.ema-period:20}") int emaPeriod,
+            @Value("${ta.indicators.macd-short:12}") int macdShort,
+            @Value("${ta.indicators.macd-long:26}") int macdLong,
+            @Value("${ta.indicators.macd-signal:9}") int macdSignal,
+            @Value("${ta.indicators.bollinger-period:20}") int bollingerPeriod,
+            @Value("${ta.indicators.bollinger-k:2.0}") double bollingerK,
+            @Value("${ta.indicators.cache-size:1000}") int cacheSize
+    ) {
+        this.enabled = EnumSet.noneOf(IndicatorType.class);
+        for (String name : enabled) {
+            if (name != null && !name.isBlank()) {
+                this.enabled.add(IndicatorType.valueOf(name.trim().toUpperCase(Locale.ROOT)));
+            }
+        }
+        this.emaPeriod = emaPeriod;
+        this.macdShort = macdShort;
+        this.macdLong = macdLong;
+        this.macdSignal = macdSignal;
+        this.bollingerPeriod = bollingerPeriod;
+        this.bollingerK = bollingerK;
+        this.snapshots = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Snapshot> eldest) {
+                return size() > cacheSize;
+            }
+        };
+    }
+
+    /**
+     * 計算 window 最後一根 K 線上的各項指標，並填入 summary（含 lastClose、起訖日期與 message=OK）。
+     */
+    public void apply(StockTaSummary summary, String market, String symbol, PriceSeries window) {
+        String key = market + ":" + symbol + ":" + window.epochDay(window.size() - 1) + ":" + window.size();
+
+        Snapshot snapshot;
+        synchronized (snapshots) {
+            snapshot = snapshots.get(key);
+        }
+        if (snapshot == null) {
+            snapshot = compute(market, symbol, window);
+            synchronized (snapshots) {
+                snapshots.put(key, snapshot);
+            }
+        }
+
+        summary.setStartDate(window.firstDate().toString());
+        summary.setEndDate(window.lastDate().toString());
+        summary.setLastClose(snapshot.lastClose);
+        summary.setSma20(snapshot.sma20);
+        summary.setRsi14(snapshot.rsi14);
+        // 沒算 SMA 時 sma20 為 0，收盤價永遠「站上」，不能照比
+        summary.setAboveSma20(enabled.contains(IndicatorType.SMA) && snapshot.lastClose >= snapshot.sma20);
+        summary.setEma(snapshot.ema);
+        summary.setEmaPeriod(snapshot.ema != null ? emaPeriod : null);
+        summary.setMacd(snapshot.macd);
+        summary.setMacdSignal(snapshot.macdSignal);
+        summary.setMacdHistogram(snapshot.macdHistogram);
+        summary.setBollingerUpper(snapshot.bollingerUpper);
+        summary.setBollingerMiddle(snapshot.bollingerMiddle);
+        summary.setBollingerLower(snapshot.bollingerLower);
+        summary.setAtr14(snapshot.atr14);
+        summary.setObv(snapshot.obv);
+        summary.setMessage("OK");
+    }
+
+    private Snapshot compute(String market, String symbol, PriceSeries window) {
+        int size = window.size();
+        Snapshot s = new Snapshot();
+        s.lastClose = window.close(size - 1);
+
+        // SMA20 / RSI14 直接在 primitive 收盤價上算：資料不足 20 根時用全部資料，不足 15 根時 RSI 為 0
+        if (enabled.contains(IndicatorType.SMA)) {
+            s.sma20 = PriceIndicators.sma(window, SMA_PERIOD);
+        }
+        if (enabled.contains(IndicatorType.RSI)) {
+            s.rsi14 = PriceIndicators.wilderRsi(window, RSI_PERIOD);
+        }
+
+        if (!needsBarSeries()) {
+            return s;
+        }
+
+        // 其餘指標交給 ta4j；ta4j 的 Num 是物件，所以只在需要時才建 BarSeries，且結果會被快取
+        BarSeries series = toBarSeries(market, symbol, window);
+        int last = series.getEndIndex();
+        ClosePriceIndicator close = new ClosePriceIndicator(series);
+
+        if (enabled.contains(IndicatorType.EMA) && size >= emaPeriod) {
+            s.ema = valueAt(new EMAIndicator(close, emaPeriod), last);
+        }
+
+        if (enabled.contains(IndicatorType.MACD) && size >= macdLong + macdSignal) {
+            MACDIndicator macd = new MACDIndicator(close, macdShort, macdLong);
+            EMAIndicator signal = new EMAIndicator(macd, macdSignal);
+            s.macd = valueAt(macd, last);
+            s.macdSignal = valueAt(signal, last);
+            if (s.macd != null && s.macdSignal != null) {
+                s.macdHistogram = s.macd - s.macdSignal;
+            }
+        }
+
+        if (enabled.contains(IndicatorType.BOLLINGER) && size >= bollingerPeriod) {
+            SMAIndicator sma = new SMAIndicator(close, bollingerPeriod);
+            StandardDeviationIndicator stdDev = new StandardDeviationIndicator(close, bollingerPeriod);
+            BollingerBandsMiddleIndicator middle = new BollingerBandsMiddleIndicator(sma);
+            Num k = series.numOf(bollingerK);
+            s.bollingerMiddle = valueAt(middle, last);
+            s.bollingerUpper = valueAt(new BollingerBandsUpperIndicator(middle, stdDev, k), last);
+            s.bollingerLower = valueAt(new BollingerBandsLowerIndicator(middle, stdDev, k), last);
+        }
+
+        if (enabled.contains(IndicatorType.ATR) && size > ATR_PERIOD) {
+            s.atr14 = valueAt(new ATRIndicator(series, ATR_PERIOD), last);
+        }
+
+        if (enabled.contains(IndicatorType.OBV)) {
+            s.obv = valueAt(new OnBalanceVolumeIndicator(series), last);
+        }
+
+        return s;
+    }
+
+    private boolean needsBarSeries() {
+        return enabled.contains(IndicatorType.EMA)
+                || enabled.contains(IndicatorType.MACD)
+                || enabled.contains(IndicatorType.BOLLINGER)
+                || enabled.contains(IndicatorType.ATR)
+                || enabled.contains(IndicatorType.OBV);
+    }
+
+    private BarSeries toBarSeries(String market, String symbol, PriceSeries window) {
+        BarSeries series = new BaseBarSeriesBuilder()
+                .withName(market + ":" + symbol)
+                .withNumTypeOf(DoubleNum.class)
+                .build();
+
+        ZoneId zone = TradingCalendar.zone(market);
+        LocalTime closeTime = TradingCalendar.closeTime(market);
+        Duration period = Duration.ofDays(1);
+
+        for (int i = 0; i < window.size(); i++) {
+            ZonedDateTime endTime = ZonedDateTime.of(window.date(i), closeTime, zone);
+            series.addBar(
+                    period,
+                    endTime,
+                    series.numOf(window.open(i)),
+                    series.numOf(window.high(i)),
+                    series.numOf(window.low(i)),
+                    series.numOf(window.close(i)),
+                    series.numOf(window.volume(i))
+            );
+        }
+        return series;
+    }
+
+    private static Double valueAt(Indicator<Num> indicator, int index) {
+        Num value = indicator.getValue(index);
+        if (value == null || value.isNaN()) {
+            return null;
+        }
+        return value.doubleValue();
+    }
+
+    private static final class Snapshot {
+        private double lastClose;
+        private double sma20;
+        private double rsi14;
+        private Double ema;
+        private Double macd;
+        private Double macdSignal;
+        private Double macdHistogram;
+        private Double bollingerUpper;
+        private Double bollingerMiddle;
+        private Double bollingerLower;
+        private Double atr14;
+        private Double obv;
+    }
+}
@@ -0,0 +1,16 @@
+package com.example.demo.service;
+
+/**
+ * 長時間流程回報目前進行到哪個階段（例如 transcribing → analyzing → technical-analysis）。
+ */
+@FunctionalInterface
+public interface JobProgress {
+
+    /**
+     * 同步呼叫（不是背景工作）時使用，不記錄任何進度。
+     */
+    JobProgress NONE = stage -> {
+    };
+
+    void stage(String name);
+}
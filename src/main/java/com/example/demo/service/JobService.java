@@ -0,0 +1,188 @@
+package com.example.demo.service;
+
+import com.example.demo.model.JobView;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+
+/**
+ * 長時間流程（轉錄、Gemini 分析、技術分析）的背景工作：
+ * - 送出後立即回傳 jobId，實際工作在 jobExecutor 上執行，不佔用 Tomcat request thread
+ * - jobExecutor 的佇列滿了就拒絕（{@link RejectedExecutionException}），由呼叫端回 503
+ * - 完成的工作保留 retention 時間供查詢，之後由排程清除；總數超過 maxRetained 時先清最舊的
+ */
+@Service
+public class JobService implements MetricsSource {
+
+    public enum Status {
+        QUEUED, RUNNING, SUCCEEDED, FAILED
+    }
+
+    @FunctionalInterface
+    public interface JobTask {
+        Object run(JobProgress progress) throws Exception;
+    }
+
+    private final Executor jobExecutor;
+    private final Duration retention;
+    private final int maxRetained;
+    private final Map<String, Job> jobs = new ConcurrentHashMap<>();
+
+    public JobService(
+            @Qualifier("jobExecutor") Executor jobExecutor,
+            @Value("${job.retention-minutes:60}") long retentionMinutes,
+            @Value("${job.max-retained:500}") int maxRetained
+    ) {
+        this.jobExecutor = jobExecutor;
+        this.retention = Duration.ofMinutes(retentionMinutes);
+        this.maxRetained = maxRetained;
+    }
+
+    /**
+     * @throws RejectedExecutionException 工作佇列已滿
+     */
+    public JobView submit(String type, JobTask task) {
+        Job job = new Job(UUID.randomUUID().toString(), type, Instant.now());
+        jobs.put(job.id, job);
+        try {
+            jobExecutor.execute(() -> run(job, task));
+        } catch (RejectedExecutionException e) {
+            jobs.remove(job.id);
+            throw e;
+        }
+        return job.toView();
+    }
+
+    public Optional<JobView> find(String jobId) {
+        Job job = jobs.get(jobId);
+        return job == null ? Optional.empty() : Optional.of(job.toView());
+    }
+
+    private void run(Job job, JobTask task) {
+        job.start(Instant.now());
+        try {
+            Object result = task.run(job::stage);
+            job.finish(Status.SUCCEEDED, result, null, Instant.now());
+        } catch (Exception e) {
+            String message = e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
+            job.finish(Status.FAILED, null, message, Instant.now());
+        }
+    }
+
+    /**
+     * 清掉超過保留時間的已完成工作；數量仍超過上限時，再從最早完成的開始清。
+     */
+    @Scheduled(fixedDelayString = "${job.evict-interval-ms:60000}")
+    public void evictExpired() {
+        Instant cutoff = Instant.now().minus(retention);
+        jobs.values().removeIf(job -> job.finishedBefore(cutoff));
+
+        int excess = jobs.size() - maxRetained;
+        if (excess <= 0) {
+            return;
+        }
+        List<Job> finished = new ArrayList<>();
+        for (Job job : jobs.values()) {
+            if (job.finishedAt() != null) {
+                finished.add(job);
+            }
+        }
+        finished.sort(Comparator.comparing(Job::finishedAt));
+        for (int i = 0; i < excess && i < finished.size(); i++) {
+            jobs.remove(finished.get(i).id);
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "jobs";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        for (Status status : Status.values()) {
+            result.put(status.name().toLowerCase(), 0L);
+        }
+        for (Job job : jobs.values()) {
+            String key = job.status().name().toLowerCase();
+            result.put(key, (Long) result.get(key) + 1);
+        }
+        return result;
+    }
+
+    private static final class Job {
+        private final String id;
+        private final String type;
+        private final Instant submittedAt;
+        private final List<String> stages = new ArrayList<>();
+        private Status status = Status.QUEUED;
+        private Instant startedAt;
+        private Instant finishedAt;
+        private Object result;
+        private String error;
+
+        private Job(String id, String type, Instant submittedAt) {
+            this.id = id;
+            this.type = type;
+            this.submittedAt = submittedAt;
+        }
+
+        synchronized void start(Instant now) {
+            status = Status.RUNNING;
+            startedAt = now;
+        }
+
+        synchronized void stage(String name) {
+            stages.add(name);
+        }
+
+        synchronized void finish(Status finalStatus, Object finalResult, String finalError, Instant now) {
+            status = finalStatus;
+            result = finalResult;
+            error = finalError;
+            finishedAt = now;
+        }
+
+        synchronized Status status() {
+            return status;
+        }
+
+        synchronized Instant finishedAt() {
+            return finishedAt;
+        }
+
+        synchronized boolean finishedBefore(Instant cutoff) {
+            return finishedAt != null && finishedAt.isBefore(cutoff);
+        }
+
+        synchronized JobView toView() {
+            JobView view = new JobView();
+            view.setJobId(id);
+            view.setType(type);
+            view.setStatus(status.name());
+            view.setStage(stages.isEmpty() ? null : stages.get(stages.size() - 1));
+            view.setStages(new ArrayList<>(stages));
+            view.setSubmittedAt(submittedAt);
+            view.setStartedAt(startedAt);
+            view.setFinishedAt(finishedAt);
+            view.setResult(result);
+            view.setError(error);
+            return view;
+        }
+    }
+}
@@ -0,0 +1,19 @@
+package com.example.demo.service;
+
+import java.util.Map;
+
+/**
+ * 可以被 /api/metrics 讀取的執行期指標（連線池、快取命中率、佇列長度等）。
+ */
+public interface MetricsSource {
+
+    /**
+     * 指標群組名稱，例如 http.outbound、http.whisper-pool。
+     */
+    String metricsName();
+
+    /**
+     * 目前的指標快照；每次呼叫都重新計算。
+     */
+    Map<String, Object> metrics();
+}
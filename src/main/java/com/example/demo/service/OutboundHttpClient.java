@@ -0,0 +1,149 @@
+package com.example.demo.service;
+
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.net.http.HttpClient;
+import java.net.http.HttpTimeoutException;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 所有對外 HTTP 呼叫共用的 {@link HttpClient}（AppConfig 的 outboundHttpClient），
+ * 外加依資料源（provider）統計的進行中 / 累計 / 失敗次數。
+ * <p>
+ * 共用同一個 client 才能重複使用 keep-alive 連線與 HTTP/2 連線，不必每次重新做 TLS handshake。
+ * 進行中的定義是「已送出、還沒收到回應標頭」；body 用 InputStream 讀取時，讀取時間不計入。
+ * <p>
+ * 受 {@link ProviderResilience} 管理的資料源會先經過斷路器；GET 請求遇到連線錯誤、5xx 或 429 時
+ * 在重試預算內以 jitter backoff 重試，最後一次的回應照常回傳給呼叫端判斷。
+ * 逾時不重試，以免一個請求佔住執行緒好幾倍的逾時時間。
+ */
+@Component
+public class OutboundHttpClient implements MetricsSource {
+
+    private final HttpClient httpClient;
+    private final Map<String, ProviderStats> stats = new ConcurrentHashMap<>();
+    private final ProviderResilience resilience;
+
+    public OutboundHttpClient(HttpClient outboundHttpClient, ProviderResilience resilience) {
+        this.httpClient = outboundHttpClient;
+        this.resilience = resilience;
+    }
+
+    /**
+     * @throws ProviderUnavailableException 資料源的斷路器開啟中
+     */
+    public <T> HttpResponse<T> send(String provider,
+                                    HttpRequest request,
+                                    HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        boolean retryable = resilience.guards(provider) && "GET".equals(request.method());
+        resilience.onRequest(provider);
+
+        for (int attempt = 1; ; attempt++) {
+            boolean last = !retryable || attempt >= resilience.maxAttempts();
+            HttpResponse<T> response;
+            try {
+                response = sendOnce(provider, request, handler);
+            } catch (HttpTimeoutException e) {
+                throw e;
+            } catch (IOException e) {
+                if (last || !resilience.tryRetry(provider)) {
+                    throw e;
+                }
+                Thread.sleep(resilience.backoff(attempt).toMillis());
+                continue;
+            }
+
+            if (last || !ProviderResilience.isFailureStatus(response.statusCode())) {
+                return response;
+            }
+            Duration delay = retryDelay(response, attempt);
+            if (delay == null || !resilience.tryRetry(provider)) {
+                return response;
+            }
+            discard(response);
+            Thread.sleep(delay.toMillis());
+        }
+    }
+
+    private <T> HttpResponse<T> sendOnce(String provider,
+                                         HttpRequest request,
+                                         HttpResponse.BodyHandler<T> handler)
+            throws IOException, InterruptedException {
+        resilience.acquirePermission(provider);
+        ProviderStats s = stats.computeIfAbsent(provider, k -> new ProviderStats());
+        s.inFlight.incrementAndGet();
+        s.total.incrementAndGet();
+        try {
+            HttpResponse<T> response = httpClient.send(request, handler);
+            if (ProviderResilience.isFailureStatus(response.statusCode())) {
+                resilience.onFailure(provider);
+            } else {
+                resilience.onSuccess(provider);
+            }
+            return response;
+        } catch (IOException e) {
+            s.errors.incrementAndGet();
+            resilience.onFailure(provider);
+            throw e;
+        } catch (InterruptedException | RuntimeException e) {
+            s.errors.incrementAndGet();
+            resilience.onCancel(provider);
+            throw e;
+        } finally {
+            s.inFlight.decrementAndGet();
+        }
+    }
+
+    /**
+     * 有 Retry-After 時照它等，但超過 maxDelay 就不重試（回傳 null），交給呼叫端處理。
+     */
+    private Duration retryDelay(HttpResponse<?> response, int attempt) {
+        Optional<Duration> retryAfter = ProviderResilience.parseRetryAfter(
+                response.headers().firstValue("Retry-After").orElse(null));
+        if (retryAfter.isPresent()) {
+            return retryAfter.get().compareTo(resilience.maxDelay()) > 0 ? null : retryAfter.get();
+        }
+        return resilience.backoff(attempt);
+    }
+
+    private static void discard(HttpResponse<?> response) {
+        if (response.body() instanceof AutoCloseable) {
+            try {
+                ((AutoCloseable) response.body()).close();
+            } catch (Exception ignore) {
+                // 要重送了，舊的回應關不掉也無所謂
+            }
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "http.outbound";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> result = new TreeMap<>();
+        stats.forEach((provider, s) -> {
+            result.put(provider + ".in-flight", s.inFlight.get());
+            result.put(provider + ".requests", s.total.get());
+            result.put(provider + ".errors", s.errors.get());
+        });
+        return result;
+    }
+
+    private static final class ProviderStats {
+        private final AtomicLong inFlight = new AtomicLong();
+        private final AtomicLong total = new AtomicLong();
+        private final AtomicLong errors = new AtomicLong();
+    }
+}
@@ -0,0 +1,35 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.StockTaSummary;
+
+/**
+ * 逐字稿分析過程中，各階段一完成就回報的中間結果（給 SSE 串流等需要逐步呈現的呼叫端）。
+ * 最終結果仍由方法的回傳值提供。
+ */
+public interface PodcastAnalysisListener {
+
+    /**
+     * 不需要中間結果時使用；分析也不會改走 Gemini 串流 API。
+     */
+    PodcastAnalysisListener NONE = new PodcastAnalysisListener() {
+    };
+
+    default void onCleanedText(String cleanedText) {
+    }
+
+    /**
+     * Gemini 產生 summary 的片段，依序串起來就是完整的 summary。
+     */
+    default void onSummaryDelta(String delta) {
+    }
+
+    default void onAnalysis(PodcastAnalysisResult analysis) {
+    }
+
+    /**
+     * 每檔股票的技術分析完成時呼叫，在 taExecutor 的 worker thread 上執行，可能同時被多個執行緒呼叫。
+     */
+    default void onTechnical(StockTaSummary technical) {
+    }
+}
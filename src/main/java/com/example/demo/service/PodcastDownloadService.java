@@ -3,25 +3,33 @@ package com.example.demo.service;
 import com.example.demo.model.PodcastDownloadResult;
 import org.springframework.stereotype.Service;
 
+import com.example.demo.util.KeyedLocks;
+import com.example.demo.util.TempFiles;
+
 import java.io.IOException;
 import java.net.URI;
-import java.net.http.HttpClient;
-import java.net.http.HttpRequest;
-import java.net.http.HttpResponse;
-import java.nio.file.Files;
 import java.nio.file.Path;
+import java.util.Optional;
 
 @Service
 public class PodcastDownloadService {
 
-    private final HttpClient httpClient;
+    private final RangedDownloader downloader;
+    private final AudioCache audioCache;
+
+    // 同一個網址同時只下載一次，其他請求等下載完直接命中快取
+    private final KeyedLocks urlLocks = new KeyedLocks();
 
-    public PodcastDownloadService() {
-        this.httpClient = HttpClient.newBuilder()
-                .followRedirects(HttpClient.Redirect.NORMAL)
-                .build();
+    public PodcastDownloadService(RangedDownloader downloader, AudioCache audioCache) {
+        // 共用的 client 已設定 followRedirects(NORMAL)，SoundOn 的音檔網址會轉址到 CDN
+        this.downloader = downloader;
+        this.audioCache = audioCache;
     }
 
+    /**
+     * 下載（或直接使用本機快取的）音檔。不回傳本機路徑：快取中的檔案在 lease 關閉後隨時可能被淘汰，
+     * 呼叫端改用 downloadPath（GET /api/podcast-audio/{sha256}）取得內容；服務內部使用時改用 {@link #open}。
+     */
     public PodcastDownloadResult download(String audioUrl) {
         PodcastDownloadResult result = new PodcastDownloadResult();
         result.setAudioUrl(audioUrl);
@@ -31,43 +39,19 @@ public class PodcastDownloadService {
             return result;
         }
 
-        try {
-            URI uri = URI.create(audioUrl);
-
-            // 建立暫存檔案
-            String fileSuffix = guessSuffixFromUrl(audioUrl);
-            Path tempFile = Files.createTempFile("podcast-", fileSuffix);
-
-            HttpRequest request = HttpRequest.newBuilder()
-                    .uri(uri)
-                    .GET()
-                    .build();
-
-            HttpResponse<Path> response = httpClient.send(
-                    request,
-                    HttpResponse.BodyHandlers.ofFile(tempFile)
-            );
-
-            int statusCode = response.statusCode();
-            if (statusCode < 200 || statusCode >= 300) {
-                result.setMessage("下載失敗，HTTP 狀態碼: " + statusCode);
-                return result;
-            }
-
-            String contentType = response.headers()
-                    .firstValue("Content-Type")
-                    .orElse("application/octet-stream");
-
-            long size = Files.size(tempFile);
-
-            result.setFileName(tempFile.getFileName().toString());
-            result.setContentType(contentType);
-            result.setSizeBytes(size);
-            result.setTempFilePath(tempFile.toAbsolutePath().toString());
+        try (AudioCache.Lease lease = open(audioUrl, result)) {
+            result.setFileName(lease.getPath().getFileName().toString());
+            result.setContentType(lease.getContentType());
+            result.setSizeBytes(lease.getSizeBytes());
+            result.setDownloadPath("/api/podcast-audio/" + lease.getSha256());
+            result.setAudioSha256(lease.getSha256());
+            result.setFromCache(lease.isFromCache());
             result.setMessage("OK");
-
             return result;
 
+        } catch (RangedDownloader.HttpStatusException e) {
+            result.setMessage("下載失敗，HTTP 狀態碼: " + e.getStatusCode());
+            return result;
         } catch (IOException e) {
             result.setMessage("下載過程發生 I/O 例外: " + e.getMessage());
             return result;
@@ -81,6 +65,62 @@ public class PodcastDownloadService {
         }
     }
 
+    /**
+     * 取得音檔的使用權（lease）：本機快取有就直接用，否則下載後放進快取。
+     * 用完要 close，在那之前檔案不會被快取淘汰。
+     *
+     * @throws RangedDownloader.HttpStatusException 來源回應非 2xx
+     */
+    public AudioCache.Lease open(String audioUrl) throws IOException, InterruptedException {
+        return open(audioUrl, null);
+    }
+
+    /**
+     * 以 sha256 取得快取中的音檔（{@link #download} 回傳的 audioSha256）；不在快取中（已被淘汰）時為空。
+     * 用完要 close。
+     */
+    public Optional<AudioCache.Lease> openCached(String sha256) {
+        return audioCache.acquireBySha256(sha256);
+    }
+
+    /**
+     * @param stats 不為 null 時填入下載耗時、速度與連線數
+     */
+    private AudioCache.Lease open(String audioUrl, PodcastDownloadResult stats)
+            throws IOException, InterruptedException {
+        Optional<AudioCache.Lease> cached = audioCache.acquire(audioUrl);
+        if (cached.isPresent()) {
+            return cached.get();
+        }
+
+        URI uri = URI.create(audioUrl);
+        urlLocks.lock(audioUrl);
+        try {
+            // 等鎖的期間可能已經有人下載完了
+            cached = audioCache.acquire(audioUrl);
+            if (cached.isPresent()) {
+                return cached.get();
+            }
+
+            String fileSuffix = guessSuffixFromUrl(audioUrl);
+            Path tempFile = audioCache.newTempFile(fileSuffix);
+            try {
+                // CDN 支援 Range 時分段平行下載，否則單一連線串流
+                RangedDownloader.Result download = downloader.download(uri, tempFile);
+                if (stats != null) {
+                    stats.setElapsedMillis(download.getElapsedMillis());
+                    stats.setThroughputBytesPerSec(download.getThroughputBytesPerSec());
+                    stats.setConnections(download.getConnections());
+                }
+                return audioCache.put(audioUrl, tempFile, fileSuffix, download.getContentType());
+            } finally {
+                TempFiles.deleteQuietly(tempFile);
+            }
+        } finally {
+            urlLocks.unlock(audioUrl);
+        }
+    }
+
     private String guessSuffixFromUrl(String audioUrl) {
         String lower = audioUrl.toLowerCase();
         if (lower.contains(".mp3")) {
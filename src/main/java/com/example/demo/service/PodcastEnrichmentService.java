@@ -1,42 +1,65 @@
 package com.example.demo.service;
 
+import com.example.demo.model.ListedSymbol;
 import com.example.demo.model.PodcastAnalysisResult;
 import com.example.demo.model.PodcastWithTaResponse;
 import com.example.demo.model.StockTaSummary;
 import com.example.demo.model.TickerView;
 import com.example.demo.model.SectorView;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 
 import java.util.*;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
 
 @Service
 public class PodcastEnrichmentService {
 
     private final AiService aiService;
-    private final TechnicalAnalysisService technicalAnalysisService;
+    private final TechnicalAnalysisFanOutService technicalAnalysisFanOutService;
+    private final SymbolUniverse symbolUniverse;
+    private final boolean filterUnknown;
 
     public PodcastEnrichmentService(AiService aiService,
-                                    TechnicalAnalysisService technicalAnalysisService) {
+                                    TechnicalAnalysisFanOutService technicalAnalysisFanOutService,
+                                    SymbolUniverse symbolUniverse,
+                                    @Value("${symbols.filter-unknown:true}") boolean filterUnknown) {
         this.aiService = aiService;
-        this.technicalAnalysisService = technicalAnalysisService;
+        this.technicalAnalysisFanOutService = technicalAnalysisFanOutService;
+        this.symbolUniverse = symbolUniverse;
+        this.filterUnknown = filterUnknown;
     }
 
     public PodcastWithTaResponse analyzeWithTa(String text) {
+        return analyzeWithTa(text, JobProgress.NONE);
+    }
+
+    /**
+     * @param progress 依序回報 analyzing（Gemini 文字分析）與 technical-analysis 兩個階段
+     */
+    public PodcastWithTaResponse analyzeWithTa(String text, JobProgress progress) {
+        return analyzeWithTa(text, progress, PodcastAnalysisListener.NONE);
+    }
+
+    /**
+     * @param listener 收到 summary 片段、分析結果與每檔技術分析時回報
+     */
+    public PodcastWithTaResponse analyzeWithTa(String text, JobProgress progress, PodcastAnalysisListener listener) {
         PodcastWithTaResponse response = new PodcastWithTaResponse();
 
-        PodcastAnalysisResult analysis = aiService.analyzePodcastText(text);
+        progress.stage("analyzing");
+        PodcastAnalysisResult analysis = listener == PodcastAnalysisListener.NONE
+                ? aiService.analyzePodcastText(text)
+                : aiService.analyzePodcastText(text, listener::onSummaryDelta);
         response.setAnalysis(analysis);
+        listener.onAnalysis(analysis);
 
-        String summary = analysis.getSummary();
-        if (summary != null && summary.startsWith("呼叫 Gemini API 失敗")) {
+        if (analysis.isFailed()) {
+            response.setFailed(true);
             response.setTechnicals(Collections.emptyMap());
-            response.setMessage("文字分析失敗（" + summary + "），故未執行技術分析。");
+            response.setMessage("文字分析失敗（" + analysis.getSummary() + "），故未執行技術分析。");
             return response;
         }
 
-        Map<String, StockTaSummary> techMap = new LinkedHashMap<>();
         Set<String> symbolSet = new LinkedHashSet<>();
 
         List<TickerView> tickers = analysis.getTickers();
@@ -46,53 +69,78 @@ public class PodcastEnrichmentService {
                     continue;
                 }
                 String symbol = t.getSymbol();
-                if (symbol == null) {
-                    continue;
-                }
-                String trimmed = symbol.trim();
-                if (!trimmed.isEmpty()) {
-                    symbolSet.add(trimmed);
+                if (symbol == null || symbol.isBlank() || symbol.trim().equalsIgnoreCase("null")) {
+                    // Gemini 只認出公司名稱時，用股票清單補上代號（final answer 也會用到）
+                    Optional<ListedSymbol> resolved = symbolUniverse.resolveName(t.getName());
+                    if (resolved.isEmpty()) {
+                        continue;
+                    }
+                    symbol = resolved.get().getSymbol();
+                    t.setSymbol(symbol);
+                } else {
+                    // 2330.TW 之類的寫法統一成清單中的代號
+                    Optional<ListedSymbol> known = symbolUniverse.find(symbol);
+                    if (known.isPresent()) {
+                        symbol = known.get().getSymbol();
+                        t.setSymbol(symbol);
+                    }
                 }
+                symbolSet.add(symbol.trim());
             }
         }
 
-        if (text != null && !text.isBlank()) {
-            Pattern p = Pattern.compile("\\b(\\d{4})\\b");
-            Matcher m = p.matcher(text);
-            while (m.find()) {
-                String code = m.group(1);
-                symbolSet.add(code);
-            }
+        // 逐字稿中提到、但 Gemini 沒有列出的股票（代號或公司名稱）
+        for (SymbolUniverse.Mention mention : symbolUniverse.findMentions(text)) {
+            symbolSet.add(mention.getSymbol().getSymbol());
         }
 
-int twCount = 0;
-int usCount = 0;
-int skippedCount = 0;
+        Map<String, String> symbolMarkets = new LinkedHashMap<>();
+        int twCount = 0;
+        int usCount = 0;
+        int skippedCount = 0;
 
-for (String symbol : symbolSet) {
-    // *** 這是我們加入的優化判斷 ***
-    if (symbol == null || symbol.equalsIgnoreCase("null") || symbol.isBlank()) {
-        continue; // 跳過無效的 symbol，例如 Gemini 回傳的 null 或空字串
-    }
-    
-    String trimmed = symbol.trim().toUpperCase(); // 統一轉為大寫，增加比對穩定性
-
-    // 台股：4 位數字，例如 2330
-    if (trimmed.matches("\\d{4}")) {
-        StockTaSummary ta = technicalAnalysisService.analyzeTaiwanStock(trimmed, 120);
-        techMap.put(trimmed, ta);
-        twCount++;
-    }
-    // 美股：1~5 個英文字母或帶一個點，例如 TSLA、NVDA、BRK.B
-    // 這裡我們也檢查一下，確保不是 "NULL" 這個字串
-    else if (!trimmed.equals("NULL") && trimmed.matches("^[A-Z\\.]{1,5}$")) {
-        StockTaSummary ta = technicalAnalysisService.analyzeUsStock(trimmed, 120);
-        techMap.put(trimmed, ta);
-        usCount++;
-    } else {
-        skippedCount++;
-    }
-}
+        for (String symbol : symbolSet) {
+            String trimmed = symbol.trim().toUpperCase(); // 統一轉為大寫，增加比對穩定性
+            if (symbolMarkets.containsKey(trimmed)) {
+                continue;
+            }
+
+            Optional<ListedSymbol> known = symbolUniverse.find(trimmed);
+            String market;
+            if (known.isPresent()) {
+                market = known.get().getMarket();
+            }
+            // 台股：4 位數字，例如 2330
+            else if (trimmed.matches("\\d{4}")) {
+                market = TechnicalAnalysisFanOutService.MARKET_TW;
+            }
+            // 美股：1~5 個英文字母或帶一個點，例如 TSLA、NVDA、BRK.B
+            else if (trimmed.matches("^[A-Z\\.]{1,5}$")) {
+                market = TechnicalAnalysisFanOutService.MARKET_US;
+            } else {
+                market = null;
+            }
+            // 不在股票清單中的代號不送去查價，避免浪費 FinMind / FMP 的額度；
+            // 該市場的完整清單還沒載入（剛啟動、抓取失敗、沒有 FMP key）時只能先照格式判斷
+            if (known.isEmpty() && market != null && filterUnknown && symbolUniverse.isListingLoaded(market)) {
+                market = null;
+            }
+
+            if (TechnicalAnalysisFanOutService.MARKET_TW.equals(market)) {
+                symbolMarkets.put(trimmed, market);
+                twCount++;
+            } else if (TechnicalAnalysisFanOutService.MARKET_US.equals(market)) {
+                symbolMarkets.put(trimmed, market);
+                usCount++;
+            } else {
+                skippedCount++;
+            }
+        }
+
+        // 平行跑技術分析，回傳順序與 symbolMarkets 相同
+        progress.stage("technical-analysis");
+        Map<String, StockTaSummary> techMap = technicalAnalysisFanOutService.analyzeAll(
+                symbolMarkets, 120, listener == PodcastAnalysisListener.NONE ? null : listener::onTechnical);
 
 response.setTechnicals(techMap);
 
@@ -108,7 +156,7 @@ if (twCount == 0 && usCount == 0) {
     msg.append("，目前未偵測到可分析的股票代碼，故未執行技術分析。");
 }
 if (skippedCount > 0) {
-    msg.append(" 共有 ").append(skippedCount).append(" 檔代碼格式不明或暫不支援，略過。");
+    msg.append(" 共有 ").append(skippedCount).append(" 檔代碼不在股票清單中或格式不明，略過。");
 }
 
 // 這裡加上一行，呼叫我們即將新增的 helper
@@ -120,7 +168,8 @@ response.setMessage(msg.toString());
         return response;
     }
 
-  private String buildFinalAnswer(PodcastAnalysisResult analysis,
+  // package-private：benchmark（src/jmh/java）會直接呼叫
+  String buildFinalAnswer(PodcastAnalysisResult analysis,
                                 java.util.Map<String, StockTaSummary> technicals) {
     StringBuilder sb = new StringBuilder();
 
@@ -0,0 +1,196 @@
+package com.example.demo.service;
+
+import com.example.demo.api.ProcessPodcastVttResponse;
+import com.example.demo.model.PodcastEpisode;
+import com.example.demo.model.PodcastWithTaResponse;
+import com.example.demo.model.TranscriptionResponse;
+import com.example.demo.util.TranscriptCleaner;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+
+/**
+ * 長時間的 Podcast 處理流程（轉錄 → Gemini 分析 → 技術分析）。
+ * 同步 API 與背景工作（{@link JobService}）共用，同步呼叫時傳入 {@link JobProgress#NONE}。
+ * <p>
+ * 轉錄前一律先查 {@link TranscriptStore}（音檔 sha256 / RSS guid），命中就不呼叫任何 STT 服務。
+ */
+@Service
+public class PodcastPipelineService {
+
+    private final SpeechToTextService speechToTextService;
+    private final WhisperClient whisperClient;
+    private final ChunkedTranscriptionService chunkedTranscriptionService;
+    private final PodcastEnrichmentService podcastEnrichmentService;
+    private final TranscriptStore transcriptStore;
+    private final PodcastDownloadService podcastDownloadService;
+
+    public PodcastPipelineService(SpeechToTextService speechToTextService,
+                                  WhisperClient whisperClient,
+                                  ChunkedTranscriptionService chunkedTranscriptionService,
+                                  PodcastEnrichmentService podcastEnrichmentService,
+                                  TranscriptStore transcriptStore,
+                                  PodcastDownloadService podcastDownloadService) {
+        this.speechToTextService = speechToTextService;
+        this.whisperClient = whisperClient;
+        this.chunkedTranscriptionService = chunkedTranscriptionService;
+        this.podcastEnrichmentService = podcastEnrichmentService;
+        this.transcriptStore = transcriptStore;
+        this.podcastDownloadService = podcastDownloadService;
+    }
+
+    /**
+     * VTT 清洗 → podcast 分析 + TA。
+     */
+    public ProcessPodcastVttResponse processVtt(String rawText, JobProgress progress) {
+        return processVtt(rawText, progress, PodcastAnalysisListener.NONE);
+    }
+
+    /**
+     * @param listener 清洗完成、summary 片段、分析結果與每檔技術分析一完成就回報（SSE 串流用）
+     */
+    public ProcessPodcastVttResponse processVtt(String rawText, JobProgress progress,
+                                                PodcastAnalysisListener listener) {
+        progress.stage("cleaning");
+        String cleaned = TranscriptCleaner.clean(rawText);
+        listener.onCleanedText(cleaned);
+        PodcastWithTaResponse analysis = podcastEnrichmentService.analyzeWithTa(cleaned, progress, listener);
+
+        ProcessPodcastVttResponse response = new ProcessPodcastVttResponse();
+        response.setCleanedText(cleaned);
+        response.setAnalysis(analysis);
+        return response;
+    }
+
+    /**
+     * 音檔 → 逐字稿（預設的 SpeechToTextService，長音檔切段平行轉錄）。
+     * 轉錄失敗時 transcript 為 null，message 為錯誤訊息（成功時為 "OK"）。
+     *
+     * @param audioSha256 上傳時邊寫檔邊算出的雜湊
+     */
+    public TranscriptionResponse transcribe(Path audioFile, String audioSha256, String mimeType, long sizeBytes,
+                                            JobProgress progress) throws IOException {
+        if (mimeType == null || mimeType.isEmpty()) {
+            // 若無法從上傳內容判斷，就給一個預設值
+            mimeType = "audio/mpeg";
+        }
+
+        TranscriptionResponse response = new TranscriptionResponse();
+        response.setMimeType(mimeType);
+        response.setSizeBytes(sizeBytes);
+
+        progress.stage("transcribing");
+        String transcript;
+        try {
+            transcript = transcribeCached(
+                    speechToTextService, "gemini", audioFile, audioSha256, null, mimeType);
+        } catch (IllegalStateException e) {
+            // 分段轉錄有任一段失敗
+            response.setMessage(e.getMessage());
+            return response;
+        }
+        if (speechToTextService.isFailure(transcript)) {
+            response.setMessage(transcript);
+            return response;
+        }
+
+        response.setTranscript(transcript);
+        response.setMessage("OK");
+        return response;
+    }
+
+    /**
+     * 音檔 → Whisper 逐字稿 → podcast 分析 + TA。
+     */
+    public Map<String, Object> analyzeAudioWithTa(Path audioFile, String audioSha256, String originalFilename,
+                                                  String contentType, long sizeBytes,
+                                                  JobProgress progress) throws IOException {
+        // 步驟 1: 呼叫 WhisperClient 進行語音轉文字（長音檔切段平行送出，也避開 Whisper 的檔案大小上限）
+        progress.stage("transcribing");
+        String transcript = transcribeCached(
+                whisperClient.asSpeechToTextService(originalFilename), "whisper",
+                audioFile, audioSha256, null, contentType);
+
+        // 步驟 2: 將純文字逐字稿交給 EnrichmentService 進行後續分析
+        Object analysisResult = podcastEnrichmentService.analyzeWithTa(transcript, progress);
+
+        // 步驟 3: 組合回應
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("transcript", transcript);
+        result.put("analysisResult", analysisResult);
+        result.put("originalFilename", originalFilename);
+        result.put("sizeBytes", sizeBytes);
+        result.put("message", "OK");
+        return result;
+    }
+
+    /**
+     * RSS 集數 → 逐字稿。guid 已經轉錄過就直接回傳，不下載音檔。
+     * 下載或轉錄失敗時 transcript 為 null，message 為錯誤訊息（成功時為 "OK"）。
+     */
+    public TranscriptionResponse transcribeEpisode(PodcastEpisode episode, JobProgress progress) throws IOException {
+        TranscriptionResponse response = new TranscriptionResponse();
+
+        Optional<String> known = transcriptStore.findByEpisodeGuid(episode.getGuid());
+        if (known.isPresent()) {
+            response.setTranscript(known.get());
+            response.setMessage("OK");
+            return response;
+        }
+
+        progress.stage("downloading");
+        // 音檔放在 AudioCache，重新處理同一集時直接用本機檔案；lease 期間檔案不會被淘汰
+        try (AudioCache.Lease audio = podcastDownloadService.open(episode.getAudioUrl())) {
+            // 不同 guid 可能是同一個音檔（重新發布），用內容雜湊再查一次
+            progress.stage("transcribing");
+            String transcript;
+            try {
+                transcript = transcribeCached(
+                        speechToTextService, "gemini", audio.getPath(), audio.getSha256(), episode.getGuid(),
+                        audio.getContentType());
+            } catch (IllegalStateException e) {
+                response.setMessage(e.getMessage());
+                return response;
+            }
+
+            if (speechToTextService.isFailure(transcript)) {
+                response.setMessage(transcript);
+                return response;
+            }
+
+            response.setTranscript(transcript);
+            response.setMimeType(audio.getContentType());
+            response.setSizeBytes(audio.getSizeBytes());
+            response.setMessage("OK");
+            return response;
+        } catch (RangedDownloader.HttpStatusException e) {
+            response.setMessage("下載失敗，HTTP 狀態碼: " + e.getStatusCode());
+            return response;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            response.setMessage("下載過程被中斷");
+            return response;
+        }
+    }
+
+    private String transcribeCached(SpeechToTextService stt, String provider, Path audioFile,
+                                    String audioSha256, String episodeGuid, String mimeType) throws IOException {
+        Optional<String> cached = transcriptStore.findByAudioSha256(audioSha256);
+        if (cached.isPresent()) {
+            if (episodeGuid != null) {
+                transcriptStore.save(audioSha256, episodeGuid, provider, cached.get());
+            }
+            return cached.get();
+        }
+
+        String transcript = chunkedTranscriptionService.transcribe(stt, audioFile, mimeType);
+        if (!stt.isFailure(transcript)) {
+            transcriptStore.save(audioSha256, episodeGuid, provider, transcript);
+        }
+        return transcript;
+    }
+}
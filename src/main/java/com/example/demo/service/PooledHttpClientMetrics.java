@@ -0,0 +1,39 @@
+package com.example.demo.service;
+
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.core5.pool.PoolStats;
+import org.springframework.stereotype.Component;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Apache HttpClient 連線池（Whisper 上傳用）的使用狀況。
+ */
+@Component
+public class PooledHttpClientMetrics implements MetricsSource {
+
+    private final PoolingHttpClientConnectionManager connectionManager;
+
+    public PooledHttpClientMetrics(PoolingHttpClientConnectionManager connectionManager) {
+        this.connectionManager = connectionManager;
+    }
+
+    @Override
+    public String metricsName() {
+        return "http.apache-pool";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        PoolStats stats = connectionManager.getTotalStats();
+        Map<String, Object> result = new LinkedHashMap<>();
+        // leased = 正在使用中的連線（即進行中的請求）
+        result.put("leased", stats.getLeased());
+        result.put("available", stats.getAvailable());
+        result.put("pending", stats.getPending());
+        result.put("max-total", stats.getMax());
+        result.put("max-per-route", connectionManager.getDefaultMaxPerRoute());
+        return result;
+    }
+}
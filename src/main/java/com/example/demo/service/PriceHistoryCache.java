@@ -0,0 +1,304 @@
+package com.example.demo.service;
+
+import com.example.demo.model.PriceSeries;
+import com.example.demo.repository.PriceBarRepository;
+import com.example.demo.util.TradingCalendar;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 日 K 歷史資料快取，key = (market, symbol)。
+ * <p>
+ * - 記憶體 → PostgreSQL（price_bar）→ 外部資料源，依序查找；從資料源抓到的新資料會寫回 DB
+ * - 第一次請求抓完整區間，之後只補抓最後一根之後的新資料
+ * - 依 {@link TradingCalendar} 判斷：最近一個已收盤交易日的資料已在快取中，就不再打外部 API
+ * - 收盤後資料源還沒更新（或遇到假日）時，至少間隔 recheckInterval 才會再問一次
+ * - 一次要補很多檔台股時，可先用 {@link #prefetchTaiwan} 以一次全市場查詢補齊缺口
+ */
+@Component
+public class PriceHistoryCache {
+
+    // 多抓一點天數，避免中間有停牌或假日導致資料不足
+    private static final int LOOKBACK_PADDING_DAYS = 30;
+
+    // DB 第一根晚於需求起點這麼多天以內（連假、停牌），仍視為歷史足夠
+    private static final int STORED_COVERAGE_TOLERANCE_DAYS = 10;
+
+    private final FinMindClient finMindClient;
+    private final FmpClient fmpClient;
+    private final PriceBarRepository priceBarRepository;
+    private final int maxEntries;
+    private final int maxBarsPerSymbol;
+    private final Duration recheckInterval;
+    private final int batchMinSymbols;
+    private final int batchMaxGapDays;
+
+    private final Map<String, CacheEntry> entries;
+
+    public PriceHistoryCache(
+            FinMindClient finMindClient,
+            FmpClient fmpClient,
+            PriceBarRepository priceBarRepository,
+            @Value("${price.cache.max-symbols:500}") int maxEntries,
+            @Value("${price.cache.max-bars-per-symbol:400}") int maxBarsPerSymbol,
+            @Value("${price.cache.recheck-minutes:30}") long recheckMinutes,
+            @Value("${price.cache.finmind-batch.min-symbols:5}") int batchMinSymbols,
+            @Value("${price.cache.finmind-batch.max-gap-days:7}") int batchMaxGapDays
+    ) {
+        this.finMindClient = finMindClient;
+        this.fmpClient = fmpClient;
+        this.priceBarRepository = priceBarRepository;
+        this.maxEntries = maxEntries;
+        this.maxBarsPerSymbol = maxBarsPerSymbol;
+        this.recheckInterval = Duration.ofMinutes(recheckMinutes);
+        this.batchMinSymbols = batchMinSymbols;
+        this.batchMaxGapDays = batchMaxGapDays;
+        this.entries = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, CacheEntry> eldest) {
+                return size() > PriceHistoryCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * 取得至少涵蓋最近 days 個日曆天（再加緩衝）的日 K，由舊到新。
+     */
+    public PriceSeries getDailySeries(String market, String symbol, int days) throws Exception {
+        CacheEntry entry = entryFor(market, symbol);
+
+        // 同一檔股票同時只有一個執行緒在補資料，其他人等著直接拿結果
+        synchronized (entry) {
+            Instant now = Instant.now();
+            LocalDate today = TradingCalendar.today(market, now);
+            LocalDate requiredFrom = today.minusDays(days + (long) LOOKBACK_PADDING_DAYS);
+            // 只抓到最近一個已收盤的交易日，避免把盤中尚未定案的 K 線寫進快取和 DB
+            LocalDate settled = TradingCalendar.lastCompletedSession(market, now);
+
+            if (entry.series == null || entry.coveredFrom.isAfter(requiredFrom)) {
+                PriceSeries loaded = loadCold(market, symbol, requiredFrom, settled);
+                entry.series = trim(loaded);
+                // 被截掉的話，實際涵蓋範圍從保留下來的第一根開始算
+                entry.coveredFrom = entry.series.size() < loaded.size()
+                        ? entry.series.firstDate()
+                        : requiredFrom;
+                entry.lastCheckedAt = now;
+                return entry.series;
+            }
+
+            if (isFresh(market, entry, now)) {
+                return entry.series;
+            }
+
+            LocalDate lastDate = entry.series.lastDate();
+            LocalDate from = lastDate == null ? requiredFrom : lastDate.plusDays(1);
+            if (!from.isAfter(settled)) {
+                PriceSeries newer = fetch(market, symbol, from, settled);
+                store(market, symbol, newer);
+                entry.series = trim(entry.series.appendNewer(newer));
+            }
+            entry.lastCheckedAt = now;
+            return entry.series;
+        }
+    }
+
+    /**
+     * 多檔台股一起分析前先呼叫：需要補資料的代號超過 batchMinSymbols 檔時，
+     * 用一次不帶 data_id 的 FinMind 查詢抓全市場的缺口日期，再依 stock_id 分進各檔快取。
+     * <p>
+     * 只處理「已有足夠歷史、只差最近幾天」的代號（缺口不超過 batchMaxGapDays 個日曆天）；
+     * 完全沒有歷史的代號，以及批次查詢失敗時，之後的 {@link #getDailySeries} 仍會走單檔查詢。
+     *
+     * @return 透過批次查詢補齊的代號數
+     */
+    public int prefetchTaiwan(Collection<String> symbols, int days) {
+        String market = TradingCalendar.MARKET_TW;
+        if (symbols == null || symbols.size() <= batchMinSymbols || !finMindClient.hasToken()) {
+            return 0;
+        }
+
+        Instant now = Instant.now();
+        LocalDate today = TradingCalendar.today(market, now);
+        LocalDate requiredFrom = today.minusDays(days + (long) LOOKBACK_PADDING_DAYS);
+        LocalDate settled = TradingCalendar.lastCompletedSession(market, now);
+
+        Set<String> gapSymbols = new LinkedHashSet<>();
+        LocalDate batchFrom = settled;
+        for (String symbol : symbols) {
+            LocalDate from = gapStart(market, symbol, requiredFrom, settled, now);
+            if (from != null) {
+                gapSymbols.add(symbol);
+                if (from.isBefore(batchFrom)) {
+                    batchFrom = from;
+                }
+            }
+        }
+        if (gapSymbols.size() <= batchMinSymbols) {
+            return 0;
+        }
+
+        Map<String, PriceSeries> rows;
+        try {
+            rows = finMindClient.getTaiwanDailySeriesBatch(gapSymbols, batchFrom, settled);
+        } catch (Exception e) {
+            // 批次失敗就交給單檔查詢
+            return 0;
+        }
+
+        Instant checkedAt = Instant.now();
+        for (String symbol : gapSymbols) {
+            PriceSeries newer = rows.getOrDefault(symbol, PriceSeries.empty());
+            CacheEntry entry = entryFor(market, symbol);
+            synchronized (entry) {
+                if (entry.series == null) {
+                    continue; // 這段期間被 LRU 淘汰了
+                }
+                store(market, symbol, newer);
+                entry.series = trim(entry.series.appendNewer(newer));
+                entry.lastCheckedAt = checkedAt;
+            }
+        }
+        return gapSymbols.size();
+    }
+
+    /**
+     * 批次模式用：回傳該代號需要補資料的起始日；不需要補、或缺口太大不適合批次時回傳 null。
+     * 記憶體沒有但 DB 歷史足夠的代號，會先把 DB 的資料放進快取。
+     */
+    private LocalDate gapStart(String market, String symbol,
+                               LocalDate requiredFrom, LocalDate settled, Instant now) {
+        CacheEntry entry = entryFor(market, symbol);
+        synchronized (entry) {
+            if (entry.series == null || entry.coveredFrom.isAfter(requiredFrom)) {
+                PriceSeries stored = readStored(market, symbol, requiredFrom, settled);
+                boolean storedCoversWindow = !stored.isEmpty()
+                        && !stored.firstDate().isAfter(requiredFrom.plusDays(STORED_COVERAGE_TOLERANCE_DAYS));
+                if (!storedCoversWindow) {
+                    return null;
+                }
+                entry.series = trim(stored);
+                entry.coveredFrom = entry.series.size() < stored.size() ? entry.series.firstDate() : requiredFrom;
+                // 還沒跟資料源確認過，視為過期
+                entry.lastCheckedAt = Instant.EPOCH;
+            } else if (isFresh(market, entry, now)) {
+                return null;
+            }
+
+            LocalDate lastDate = entry.series.lastDate();
+            if (lastDate == null || !lastDate.isBefore(settled)) {
+                return null;
+            }
+            LocalDate from = lastDate.plusDays(1);
+            return ChronoUnit.DAYS.between(from, settled) < batchMaxGapDays ? from : null;
+        }
+    }
+
+    /**
+     * 記憶體沒有時：先讀 DB，DB 的歷史夠長就只向資料源補 DB 最後一根之後的日期。
+     */
+    private PriceSeries loadCold(String market, String symbol,
+                                 LocalDate requiredFrom, LocalDate settled) throws Exception {
+        PriceSeries stored = readStored(market, symbol, requiredFrom, settled);
+
+        boolean storedCoversWindow = !stored.isEmpty()
+                && !stored.firstDate().isAfter(requiredFrom.plusDays(STORED_COVERAGE_TOLERANCE_DAYS));
+
+        if (!storedCoversWindow) {
+            PriceSeries fetched = fetch(market, symbol, requiredFrom, settled);
+            store(market, symbol, fetched);
+            return fetched;
+        }
+
+        LocalDate lastStored = stored.lastDate();
+        if (!lastStored.isBefore(settled)) {
+            return stored;
+        }
+
+        PriceSeries newer = fetch(market, symbol, lastStored.plusDays(1), settled);
+        store(market, symbol, newer);
+        return stored.appendNewer(newer);
+    }
+
+    private PriceSeries readStored(String market, String symbol, LocalDate from, LocalDate to) {
+        try {
+            return priceBarRepository.findSeries(market, symbol, from, to);
+        } catch (RuntimeException e) {
+            // DB 讀不到就當作沒有，直接走資料源
+            return PriceSeries.empty();
+        }
+    }
+
+    private void store(String market, String symbol, PriceSeries series) {
+        try {
+            priceBarRepository.upsertSeries(market, symbol, series);
+        } catch (RuntimeException e) {
+            // DB 寫入失敗不影響本次分析，下次冷啟動再從資料源補
+        }
+    }
+
+    public void invalidate(String market, String symbol) {
+        synchronized (entries) {
+            entries.remove(key(market, symbol));
+        }
+    }
+
+    private CacheEntry entryFor(String market, String symbol) {
+        String key = key(market, symbol);
+        synchronized (entries) {
+            CacheEntry entry = entries.get(key);
+            if (entry == null) {
+                entry = new CacheEntry();
+                entries.put(key, entry);
+            }
+            return entry;
+        }
+    }
+
+    private boolean isFresh(String market, CacheEntry entry, Instant now) {
+        LocalDate expected = TradingCalendar.lastCompletedSession(market, now);
+        LocalDate lastDate = entry.series.lastDate();
+        if (lastDate == null) {
+            // 查無資料（例如代碼有誤）也短暫快取，避免同一個錯誤代碼一直打外部 API
+            return entry.lastCheckedAt.plus(recheckInterval).isAfter(now);
+        }
+        if (!lastDate.isBefore(expected)) {
+            return true;
+        }
+        // 已經在資料可用時間之後問過，但資料源還沒有（延遲發布或假日），就先別一直重問
+        Instant readyAt = TradingCalendar.dataReadyInstant(market, expected);
+        return entry.lastCheckedAt != null
+                && entry.lastCheckedAt.isAfter(readyAt)
+                && entry.lastCheckedAt.plus(recheckInterval).isAfter(now);
+    }
+
+    private PriceSeries fetch(String market, String symbol, LocalDate from, LocalDate to) throws Exception {
+        if (TradingCalendar.MARKET_TW.equals(market)) {
+            return finMindClient.getTaiwanDailySeries(symbol, from, to);
+        }
+        return fmpClient.fetchDailyBars(symbol, from, to);
+    }
+
+    private PriceSeries trim(PriceSeries series) {
+        return series.size() > maxBarsPerSymbol ? series.tail(maxBarsPerSymbol) : series;
+    }
+
+    private static String key(String market, String symbol) {
+        return market + ":" + symbol;
+    }
+
+    private static final class CacheEntry {
+        private PriceSeries series;
+        private LocalDate coveredFrom;
+        private Instant lastCheckedAt;
+    }
+}
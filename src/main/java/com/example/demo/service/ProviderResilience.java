@@ -0,0 +1,323 @@
+package com.example.demo.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 外部資料源（Gemini、FMP、FinMind、Whisper、RSS）共用的容錯設定：
+ * <p>
+ * - 每個資料源一個斷路器：最近 window 次呼叫中失敗比例超過門檻就開啟，開啟期間直接丟
+ *   {@link ProviderUnavailableException}，不再讓每個請求各等一次逾時；
+ *   openDuration 之後進入半開，只放行一個探測請求，成功才關閉
+ * - 重試間隔為指數成長加 full jitter，避免大家同時重試
+ * - 重試預算：每個資料源先有 minRetries 次的存量，之後每送出一個請求補 retryRatio 次，
+ *   長期來看重試不超過請求數的 retryRatio，資料源故障時重試不會把流量放大好幾倍
+ * <p>
+ * 失敗指的是連線錯誤、逾時、5xx 與 429；其他 4xx 代表資料源有回應，算成功。
+ * 不在 providers 清單中的資料源（例如下載各家 podcast 主機的音檔）不受斷路器管理。
+ */
+@Component
+public class ProviderResilience implements MetricsSource {
+
+    private final List<String> providers;
+    private final int window;
+    private final int minCalls;
+    private final double failureRateThreshold;
+    private final long openNanos;
+    private final int maxAttempts;
+    private final long baseDelayMillis;
+    private final long maxDelayMillis;
+    private final double retryRatio;
+    private final double minRetries;
+
+    private final Map<String, Breaker> breakers = new ConcurrentHashMap<>();
+
+    public ProviderResilience(
+            @Value("${resilience.providers:gemini,gemini-stt,fmp,finmind,whisper,rss}") List<String> providers,
+            @Value("${resilience.breaker.window:20}") int window,
+            @Value("${resilience.breaker.min-calls:10}") int minCalls,
+            @Value("${resilience.breaker.failure-rate-percent:50}") int failureRatePercent,
+            @Value("${resilience.breaker.open-ms:30000}") long openMs,
+            @Value("${resilience.retry.max-attempts:3}") int maxAttempts,
+            @Value("${resilience.retry.base-delay-ms:200}") long baseDelayMillis,
+            @Value("${resilience.retry.max-delay-ms:5000}") long maxDelayMillis,
+            @Value("${resilience.retry.budget-percent:20}") int budgetPercent,
+            @Value("${resilience.retry.min-retries:10}") int minRetries
+    ) {
+        this.providers = providers;
+        this.window = Math.max(1, window);
+        this.minCalls = Math.max(1, Math.min(minCalls, this.window));
+        this.failureRateThreshold = failureRatePercent / 100.0;
+        this.openNanos = TimeUnit.MILLISECONDS.toNanos(openMs);
+        this.maxAttempts = Math.max(1, maxAttempts);
+        this.baseDelayMillis = baseDelayMillis;
+        this.maxDelayMillis = maxDelayMillis;
+        this.retryRatio = budgetPercent / 100.0;
+        this.minRetries = minRetries;
+    }
+
+    public boolean guards(String provider) {
+        return providers.contains(provider);
+    }
+
+    /**
+     * 送出請求之前呼叫；斷路器開啟時丟出例外。取得許可之後一定要呼叫
+     * {@link #onSuccess}、{@link #onFailure} 或 {@link #onCancel} 其中之一。
+     */
+    public void acquirePermission(String provider) {
+        if (guards(provider)) {
+            breaker(provider).acquirePermission();
+        }
+    }
+
+    /**
+     * 只檢查、不佔用半開的探測名額；用在送出請求前還要先排隊的地方（例如 {@link GeminiRateLimiter}），
+     * 斷路器開啟時不必排隊。
+     */
+    public void checkAvailable(String provider) {
+        if (guards(provider)) {
+            breaker(provider).checkAvailable();
+        }
+    }
+
+    public void onSuccess(String provider) {
+        if (guards(provider)) {
+            breaker(provider).record(true);
+        }
+    }
+
+    public void onFailure(String provider) {
+        if (guards(provider)) {
+            breaker(provider).record(false);
+        }
+    }
+
+    /**
+     * 請求被中斷、沒有結果：不計入成功或失敗，只歸還半開的探測名額。
+     */
+    public void onCancel(String provider) {
+        if (guards(provider)) {
+            breaker(provider).cancel();
+        }
+    }
+
+    public static boolean isFailureStatus(int status) {
+        return status / 100 == 5 || status == 429;
+    }
+
+    /**
+     * Retry-After 可能是秒數或 HTTP 日期。
+     */
+    public static Optional<Duration> parseRetryAfter(String value) {
+        if (value == null || value.isBlank()) {
+            return Optional.empty();
+        }
+        String v = value.trim();
+        try {
+            return Optional.of(Duration.ofSeconds(Math.max(0, Long.parseLong(v))));
+        } catch (NumberFormatException ignore) {
+            // 不是秒數就試 HTTP 日期
+        }
+        try {
+            ZonedDateTime at = ZonedDateTime.parse(v, DateTimeFormatter.RFC_1123_DATE_TIME);
+            Duration d = Duration.between(ZonedDateTime.now(at.getZone()), at);
+            return Optional.of(d.isNegative() ? Duration.ZERO : d);
+        } catch (DateTimeParseException e) {
+            return Optional.empty();
+        }
+    }
+
+    public int maxAttempts() {
+        return maxAttempts;
+    }
+
+    /**
+     * 第 attempt 次失敗之後要等多久：0 ~ min(maxDelay, baseDelay * 2^(attempt-1)) 之間隨機。
+     */
+    public Duration backoff(int attempt) {
+        long cap = Math.min(maxDelayMillis, baseDelayMillis << Math.min(20, Math.max(0, attempt - 1)));
+        return Duration.ofMillis(ThreadLocalRandom.current().nextLong(cap + 1));
+    }
+
+    public Duration maxDelay() {
+        return Duration.ofMillis(maxDelayMillis);
+    }
+
+    /**
+     * 第一次送出請求時呼叫，累積重試預算。
+     */
+    public void onRequest(String provider) {
+        if (guards(provider)) {
+            breaker(provider).deposit();
+        }
+    }
+
+    /**
+     * 要重試之前呼叫；預算用完（或斷路器已開啟）時回傳 false，呼叫端應直接使用最後一次的結果。
+     */
+    public boolean tryRetry(String provider) {
+        if (!guards(provider)) {
+            return true;
+        }
+        return breaker(provider).withdraw();
+    }
+
+    private Breaker breaker(String provider) {
+        return breakers.computeIfAbsent(provider, Breaker::new);
+    }
+
+    @Override
+    public String metricsName() {
+        return "resilience";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> result = new TreeMap<>();
+        breakers.forEach((provider, b) -> result.put(provider, b.metrics()));
+        return result;
+    }
+
+    private enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+
+    private final class Breaker {
+        private final String provider;
+
+        // 最近 window 次呼叫的結果，true = 失敗
+        private final boolean[] outcomes = new boolean[window];
+        private int next;
+        private int calls;
+        private int failures;
+
+        private State state = State.CLOSED;
+        private long openedAt;
+        private boolean probeInFlight;
+        private double retryBalance = minRetries;
+
+        private final AtomicLong rejected = new AtomicLong();
+        private final AtomicLong opened = new AtomicLong();
+        private final AtomicLong retries = new AtomicLong();
+        private final AtomicLong budgetExhausted = new AtomicLong();
+
+        private Breaker(String provider) {
+            this.provider = provider;
+        }
+
+        private synchronized void acquirePermission() {
+            checkAvailable();
+            if (state == State.OPEN) {
+                state = State.HALF_OPEN;
+            }
+            if (state == State.HALF_OPEN) {
+                probeInFlight = true;
+            }
+        }
+
+        private synchronized void checkAvailable() {
+            if (state == State.CLOSED) {
+                return;
+            }
+            long remaining = openNanos - (System.nanoTime() - openedAt);
+            if (state == State.OPEN && remaining <= 0) {
+                return;
+            }
+            rejected.incrementAndGet();
+            throw new ProviderUnavailableException(provider, Duration.ofNanos(Math.max(0, remaining)));
+        }
+
+        private synchronized void record(boolean success) {
+            switch (state) {
+                case HALF_OPEN:
+                    probeInFlight = false;
+                    if (success) {
+                        reset();
+                        state = State.CLOSED;
+                    } else {
+                        open();
+                    }
+                    break;
+                case CLOSED:
+                    if (calls == window) {
+                        failures -= outcomes[next] ? 1 : 0;
+                    } else {
+                        calls++;
+                    }
+                    outcomes[next] = !success;
+                    failures += success ? 0 : 1;
+                    next = (next + 1) % window;
+                    if (calls >= minCalls && failures >= failureRateThreshold * calls) {
+                        open();
+                    }
+                    break;
+                default:
+                    // 開啟前就已送出的請求，結果不影響目前狀態
+                    break;
+            }
+        }
+
+        private synchronized void cancel() {
+            if (state == State.HALF_OPEN && probeInFlight) {
+                // 探測沒有結果，回到開啟狀態但允許下一個請求立即探測
+                probeInFlight = false;
+                state = State.OPEN;
+                openedAt = System.nanoTime() - openNanos;
+            }
+        }
+
+        private void open() {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            opened.incrementAndGet();
+            reset();
+        }
+
+        private void reset() {
+            calls = 0;
+            failures = 0;
+            next = 0;
+        }
+
+        private synchronized void deposit() {
+            retryBalance = Math.min(minRetries, retryBalance + retryRatio);
+        }
+
+        private synchronized boolean withdraw() {
+            if (state != State.CLOSED || retryBalance < 1) {
+                budgetExhausted.incrementAndGet();
+                return false;
+            }
+            retryBalance -= 1;
+            retries.incrementAndGet();
+            return true;
+        }
+
+        private synchronized Map<String, Object> metrics() {
+            Map<String, Object> m = new LinkedHashMap<>();
+            m.put("state", state.name());
+            m.put("windowCalls", calls);
+            m.put("windowFailures", failures);
+            m.put("opened", opened.get());
+            m.put("rejected", rejected.get());
+            m.put("retries", retries.get());
+            m.put("budgetExhausted", budgetExhausted.get());
+            m.put("retryBudget", Math.floor(retryBalance));
+            return m;
+        }
+    }
+}
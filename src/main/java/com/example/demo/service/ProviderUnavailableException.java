@@ -0,0 +1,34 @@
+package com.example.demo.service;
+
+import java.time.Duration;
+
+/**
+ * 外部資料源的斷路器為開啟狀態，請求沒有送出就直接失敗。
+ * <p>
+ * 沿用 {@link IllegalStateException}，原本攔截資料源錯誤的地方（回傳錯誤訊息、改用舊資料）不需要修改。
+ */
+public class ProviderUnavailableException extends IllegalStateException {
+
+    private static final long serialVersionUID = 1L;
+
+    private final String provider;
+    private final Duration retryAfter;
+
+    public ProviderUnavailableException(String provider, Duration retryAfter) {
+        super("外部服務 " + provider + " 暫時無法使用（斷路器開啟），約 "
+                + Math.max(1, retryAfter.toSeconds()) + " 秒後再試");
+        this.provider = provider;
+        this.retryAfter = retryAfter;
+    }
+
+    public String getProvider() {
+        return provider;
+    }
+
+    /**
+     * 斷路器預計進入半開（放行探測請求）之前的剩餘時間。
+     */
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
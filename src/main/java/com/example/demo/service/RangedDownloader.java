@@ -0,0 +1,517 @@
+package com.example.demo.service;
+
+import com.example.demo.util.KeyedLocks;
+import com.example.demo.util.Sha256;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * 音檔下載引擎：
+ * <p>
+ * - 先送 Range: bytes=0-0 探測 Content-Range（總長度）與是否支援 Range
+ * - 支援且檔案夠大時，切成固定大小的區段，由多條連線平行下載，以 FileChannel positional write 寫進預先配置大小的檔案
+ * - 每完成一個區段就寫入旁邊的 .parts 紀錄；連線中斷、5xx、429 時區段內從斷點以 jitter backoff 重試（照 Retry-After），
+ *   整體失敗後下次下載同一個網址會從已完成的區段續傳
+ * - 不支援 Range（回 200）或檔案太小時，直接用單一連線串流寫檔
+ * <p>
+ * 續傳時以 If-Range（強 ETag 或 Last-Modified）確認來源檔案沒有變更，變更了就捨棄已下載的部分。
+ */
+@Component
+public class RangedDownloader implements MetricsSource {
+
+    private static final String PROVIDER = "podcast-download";
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes\\s+(\\d+)-(\\d+)/(\\d+)");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final OutboundHttpClient httpClient;
+    private final ProviderResilience resilience;
+    private final Executor downloadExecutor;
+    private final Duration readTimeout;
+    private final int connections;
+    private final long segmentBytes;
+    private final long minParallelBytes;
+    private final int maxRetries;
+    private final Path partialDir;
+
+    // 同一個網址同時只能有一個下載在寫同一個續傳檔
+    private final KeyedLocks urlLocks = new KeyedLocks();
+
+    private final AtomicLong rangedDownloads = new AtomicLong();
+    private final AtomicLong singleStreamDownloads = new AtomicLong();
+    private final AtomicLong bytesTransferred = new AtomicLong();
+    private final AtomicLong resumedBytes = new AtomicLong();
+    private final AtomicLong segmentRetries = new AtomicLong();
+    private final AtomicLong lastThroughput = new AtomicLong();
+
+    public RangedDownloader(
+            OutboundHttpClient httpClient,
+            ProviderResilience resilience,
+            @Qualifier("downloadExecutor") Executor downloadExecutor,
+            @Value("${http.client.podcast-download.read-timeout-ms:600000}") long readTimeoutMs,
+            @Value("${download.parallel.connections:4}") int connections,
+            @Value("${download.parallel.segment-bytes:8388608}") long segmentBytes,
+            @Value("${download.parallel.min-bytes:16777216}") long minParallelBytes,
+            @Value("${download.parallel.max-retries:3}") int maxRetries,
+            @Value("${download.partial-dir:${java.io.tmpdir}/podcast-partial}") String partialDir
+    ) {
+        this.httpClient = httpClient;
+        this.resilience = resilience;
+        this.downloadExecutor = downloadExecutor;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.connections = Math.max(1, connections);
+        this.segmentBytes = Math.max(BUFFER_SIZE, segmentBytes);
+        this.minParallelBytes = minParallelBytes;
+        this.maxRetries = maxRetries;
+        this.partialDir = Path.of(partialDir);
+    }
+
+    /**
+     * 下載 uri 到 target（覆蓋）。
+     *
+     * @throws HttpStatusException 探測請求回應非 2xx，或區段請求在重試後仍回應錯誤狀態碼（已完成的區段會保留）
+     */
+    public Result download(URI uri, Path target) throws IOException, InterruptedException {
+        long startedAt = System.nanoTime();
+
+        HttpRequest probe = newRequest(uri).header("Range", "bytes=0-0").build();
+        HttpResponse<InputStream> resp =
+                httpClient.send(PROVIDER, probe, HttpResponse.BodyHandlers.ofInputStream());
+
+        String contentType = resp.headers().firstValue("Content-Type").orElse("application/octet-stream");
+        int status = resp.statusCode();
+
+        if (status == 200) {
+            // 伺服器不支援 Range，回應本身就是完整檔案
+            singleStreamDownloads.incrementAndGet();
+            long size = copy(resp.body(), target);
+            return finish(contentType, size, size, 0, 1, startedAt);
+        }
+
+        // 探測只需要標頭，body（至多 1 byte 或錯誤頁）直接關掉
+        resp.body().close();
+        if (status / 100 != 2) {
+            throw new HttpStatusException(status);
+        }
+
+        long total = status == 206 ? parseTotal(resp.headers()) : -1;
+        // 轉址後的實際位置（CDN），之後的區段請求直接打這裡
+        URI resolved = resp.uri();
+
+        if (total < minParallelBytes) {
+            singleStreamDownloads.incrementAndGet();
+            HttpResponse<InputStream> full = httpClient.send(
+                    PROVIDER, newRequest(resolved).build(), HttpResponse.BodyHandlers.ofInputStream());
+            if (full.statusCode() / 100 != 2) {
+                full.body().close();
+                throw new HttpStatusException(full.statusCode());
+            }
+            long size = copy(full.body(), target);
+            return finish(contentType, size, size, 0, 1, startedAt);
+        }
+
+        rangedDownloads.incrementAndGet();
+        String key = Sha256.of(uri.toString());
+        urlLocks.lock(key);
+        try {
+            Ranged ranged = new Ranged(resolved, total, validator(resp.headers()), key);
+            long transferred = ranged.run();
+            Files.move(ranged.partial, target, StandardCopyOption.REPLACE_EXISTING);
+            Files.deleteIfExists(ranged.sidecar);
+            return finish(contentType, total, transferred, total - transferred,
+                    Math.min(connections, ranged.segments), startedAt);
+        } finally {
+            urlLocks.unlock(key);
+        }
+    }
+
+    private HttpRequest.Builder newRequest(URI uri) {
+        return HttpRequest.newBuilder().uri(uri).timeout(readTimeout).GET();
+    }
+
+    private long copy(InputStream body, Path target) throws IOException {
+        try (InputStream in = body) {
+            long size = Files.copy(in, target, StandardCopyOption.REPLACE_EXISTING);
+            bytesTransferred.addAndGet(size);
+            return size;
+        }
+    }
+
+    private Result finish(String contentType, long size, long transferred, long resumed,
+                          int usedConnections, long startedAt) {
+        long elapsedMillis = Math.max(1, (System.nanoTime() - startedAt) / 1_000_000);
+        long throughput = transferred * 1000 / elapsedMillis;
+        lastThroughput.set(throughput);
+        resumedBytes.addAndGet(resumed);
+        return new Result(contentType, size, elapsedMillis, throughput, usedConnections, resumed);
+    }
+
+    private static long parseTotal(HttpHeaders headers) {
+        Matcher m = CONTENT_RANGE.matcher(headers.firstValue("Content-Range").orElse(""));
+        return m.find() ? Long.parseLong(m.group(3)) : -1;
+    }
+
+    /**
+     * If-Range 只接受強 ETag 或日期；兩者都沒有時回傳空字串，只靠總長度判斷檔案是否變更。
+     */
+    private static String validator(HttpHeaders headers) {
+        String etag = headers.firstValue("ETag").orElse("");
+        if (!etag.isEmpty() && !etag.startsWith("W/")) {
+            return etag;
+        }
+        return headers.firstValue("Last-Modified").orElse("");
+    }
+
+    /**
+     * 一次分段下載：區段佇列由 connections 個 worker 共同消化。
+     */
+    private final class Ranged {
+        private final URI uri;
+        private final long total;
+        private final String validator;
+        private final Path partial;
+        private final Path sidecar;
+        private final int segments;
+        private final BitSet completed;
+        private final AtomicBoolean aborted = new AtomicBoolean();
+        private final AtomicBoolean sourceChanged = new AtomicBoolean();
+        private final AtomicLong transferred = new AtomicLong();
+
+        private Ranged(URI uri, long total, String validator, String key) throws IOException {
+            this.uri = uri;
+            this.total = total;
+            this.validator = validator;
+            this.partial = partialDir.resolve(key + ".part");
+            this.sidecar = partialDir.resolve(key + ".parts");
+            this.segments = (int) ((total + segmentBytes - 1) / segmentBytes);
+            Files.createDirectories(partialDir);
+            this.completed = readSidecar();
+        }
+
+        /**
+         * @return 這次實際下載的 bytes（不含續傳前已完成的區段）
+         */
+        private long run() throws IOException, InterruptedException {
+            Queue<Integer> pending = new ConcurrentLinkedQueue<>();
+            for (int i = completed.nextClearBit(0); i < segments; i = completed.nextClearBit(i + 1)) {
+                pending.add(i);
+            }
+
+            try (FileChannel channel = FileChannel.open(partial,
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+                if (channel.size() != total) {
+                    // 預先配置檔案大小，各區段直接寫到自己的位置
+                    channel.truncate(0);
+                    channel.write(ByteBuffer.wrap(new byte[1]), total - 1);
+                }
+
+                int workers = Math.min(connections, pending.size());
+                List<CompletableFuture<Void>> futures = new ArrayList<>(workers);
+                for (int w = 0; w < workers; w++) {
+                    futures.add(CompletableFuture.runAsync(() -> drain(pending, channel), downloadExecutor));
+                }
+                await(futures);
+            } finally {
+                if (sourceChanged.get()) {
+                    Files.deleteIfExists(partial);
+                    Files.deleteIfExists(sidecar);
+                }
+            }
+            return transferred.get();
+        }
+
+        /**
+         * 某個區段失敗後不再領新的區段，但進行中的區段會下載完並記錄，下次可續傳。
+         */
+        private void drain(Queue<Integer> pending, FileChannel channel) {
+            Integer segment;
+            while (!aborted.get() && (segment = pending.poll()) != null) {
+                try {
+                    fetchSegment(segment, channel);
+                    markCompleted(segment, channel);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    aborted.set(true);
+                    throw new UncheckedIOException(new IOException("下載被中斷", e));
+                } catch (IOException e) {
+                    aborted.set(true);
+                    throw new UncheckedIOException(e);
+                }
+            }
+        }
+
+        private void await(List<CompletableFuture<Void>> futures) throws IOException, InterruptedException {
+            IOException failure = null;
+            for (CompletableFuture<Void> f : futures) {
+                try {
+                    f.get();
+                } catch (InterruptedException e) {
+                    aborted.set(true);
+                    throw e;
+                } catch (ExecutionException e) {
+                    Throwable cause = e.getCause() instanceof UncheckedIOException
+                            ? e.getCause().getCause()
+                            : e.getCause();
+                    if (failure == null) {
+                        failure = cause instanceof IOException
+                                ? (IOException) cause
+                                : new IOException(cause.getMessage(), cause);
+                    }
+                }
+            }
+            if (failure != null) {
+                throw failure;
+            }
+        }
+
+        /**
+         * 下載一個區段；連線中斷時從已寫入的位置重試，最多 maxRetries 次。
+         */
+        private void fetchSegment(int segment, FileChannel channel) throws IOException, InterruptedException {
+            long start = segment * segmentBytes;
+            long end = Math.min(total, start + segmentBytes) - 1;
+            // 連線中途斷掉時也要保留已寫入的位置，重試從這裡接著下載
+            long[] position = {start};
+            int attempt = 0;
+
+            while (true) {
+                try {
+                    fetchRange(position, end, channel);
+                    if (position[0] > end) {
+                        return;
+                    }
+                    throw new IOException("區段 " + segment + " 的連線提早結束");
+                } catch (IOException e) {
+                    if (sourceChanged.get() || aborted.get() || ++attempt > maxRetries) {
+                        throw e;
+                    }
+                    Duration delay = retryDelay(e, attempt);
+                    if (delay == null) {
+                        throw e;
+                    }
+                    segmentRetries.incrementAndGet();
+                    Thread.sleep(delay.toMillis());
+                }
+            }
+        }
+
+        /**
+         * 連線中斷、5xx、429 可以重試（有 Retry-After 時照它等，超過 maxDelay 就放棄）；
+         * 其他狀態碼（例如簽章過期的 403）重試也沒用，回傳 null。
+         */
+        private Duration retryDelay(IOException e, int attempt) {
+            if (!(e instanceof HttpStatusException)) {
+                return resilience.backoff(attempt);
+            }
+            HttpStatusException status = (HttpStatusException) e;
+            if (!ProviderResilience.isFailureStatus(status.getStatusCode())) {
+                return null;
+            }
+            Optional<Duration> retryAfter = status.getRetryAfter();
+            if (retryAfter.isPresent()) {
+                return retryAfter.get().compareTo(resilience.maxDelay()) > 0 ? null : retryAfter.get();
+            }
+            return resilience.backoff(attempt);
+        }
+
+        /**
+         * 從 position[0] 下載到 end，邊寫邊推進 position[0]；整段完成時為 end + 1。
+         */
+        private void fetchRange(long[] position, long end, FileChannel channel) throws IOException, InterruptedException {
+            HttpRequest.Builder request = newRequest(uri).header("Range", "bytes=" + position[0] + "-" + end);
+            if (!validator.isEmpty()) {
+                request.header("If-Range", validator);
+            }
+            HttpResponse<InputStream> resp =
+                    httpClient.send(PROVIDER, request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+            try (InputStream in = resp.body()) {
+                int status = resp.statusCode();
+                if (status == 200 || status == 416 || (status == 206 && parseTotal(resp.headers()) != total)) {
+                    // If-Range 不符時伺服器會回 200 整個檔案，檔案變短時回 416：來源已變更，已下載的部分不能再用
+                    sourceChanged.set(true);
+                    throw new IOException("來源檔案已變更（status=" + status + "），請重新下載");
+                }
+                if (status != 206) {
+                    // CDN 暫時性的錯誤：已完成的區段與紀錄都保留，重試或下次續傳
+                    throw new HttpStatusException(status, ProviderResilience.parseRetryAfter(
+                            resp.headers().firstValue("Retry-After").orElse(null)));
+                }
+
+                byte[] buffer = new byte[BUFFER_SIZE];
+                ByteBuffer wrapped = ByteBuffer.wrap(buffer);
+                int n;
+                while (position[0] <= end && (n = in.read(buffer)) > 0) {
+                    int len = (int) Math.min(n, end + 1 - position[0]);
+                    wrapped.clear().limit(len);
+                    while (wrapped.hasRemaining()) {
+                        position[0] += channel.write(wrapped, position[0]);
+                    }
+                    transferred.addAndGet(len);
+                    bytesTransferred.addAndGet(len);
+                }
+            }
+        }
+
+        private synchronized void markCompleted(int segment, FileChannel channel) throws IOException {
+            // 先確定資料落地，再記錄區段完成，當機後續傳也不會拿到沒寫完的區段
+            channel.force(false);
+            completed.set(segment);
+            String content = total + "\n" + validator + "\n" + segmentBytes + "\n"
+                    + completed.toString().replaceAll("[{} ]", "") + "\n";
+            Path tmp = sidecar.resolveSibling(sidecar.getFileName() + ".tmp");
+            Files.write(tmp, content.getBytes(StandardCharsets.UTF_8));
+            Files.move(tmp, sidecar, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+
+        /**
+         * 讀取上次留下的區段紀錄；總長度、validator、區段大小任何一個不同就從頭開始。
+         */
+        private BitSet readSidecar() throws IOException {
+            BitSet done = new BitSet(segments);
+            if (!Files.exists(sidecar) || !Files.exists(partial) || Files.size(partial) != total) {
+                return done;
+            }
+            List<String> lines = Files.readAllLines(sidecar, StandardCharsets.UTF_8);
+            if (lines.size() < 4
+                    || !lines.get(0).equals(Long.toString(total))
+                    || !lines.get(1).equals(validator)
+                    || !lines.get(2).equals(Long.toString(segmentBytes))) {
+                return done;
+            }
+            for (String s : lines.get(3).split(",")) {
+                if (!s.isEmpty()) {
+                    int index = Integer.parseInt(s);
+                    if (index < segments) {
+                        done.set(index);
+                    }
+                }
+            }
+            return done;
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "download";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        m.put("rangedDownloads", rangedDownloads.get());
+        m.put("singleStreamDownloads", singleStreamDownloads.get());
+        m.put("bytesTransferred", bytesTransferred.get());
+        m.put("resumedBytes", resumedBytes.get());
+        m.put("segmentRetries", segmentRetries.get());
+        m.put("lastThroughputBytesPerSec", lastThroughput.get());
+        return m;
+    }
+
+    /**
+     * 探測請求或區段請求回應非預期的狀態碼。
+     */
+    public static final class HttpStatusException extends IOException {
+        private static final long serialVersionUID = 1L;
+
+        private final int statusCode;
+        private final Duration retryAfter;
+
+        public HttpStatusException(int statusCode) {
+            this(statusCode, Optional.empty());
+        }
+
+        public HttpStatusException(int statusCode, Optional<Duration> retryAfter) {
+            super("HTTP 狀態碼: " + statusCode);
+            this.statusCode = statusCode;
+            this.retryAfter = retryAfter.orElse(null);
+        }
+
+        public int getStatusCode() {
+            return statusCode;
+        }
+
+        public Optional<Duration> getRetryAfter() {
+            return Optional.ofNullable(retryAfter);
+        }
+    }
+
+    public static final class Result {
+        private final String contentType;
+        private final long sizeBytes;
+        private final long elapsedMillis;
+        private final long throughputBytesPerSec;
+        private final int connections;
+        private final long resumedBytes;
+
+        private Result(String contentType, long sizeBytes, long elapsedMillis,
+                       long throughputBytesPerSec, int connections, long resumedBytes) {
+            this.contentType = contentType;
+            this.sizeBytes = sizeBytes;
+            this.elapsedMillis = elapsedMillis;
+            this.throughputBytesPerSec = throughputBytesPerSec;
+            this.connections = connections;
+            this.resumedBytes = resumedBytes;
+        }
+
+        public String getContentType() {
+            return contentType;
+        }
+
+        public long getSizeBytes() {
+            return sizeBytes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedMillis;
+        }
+
+        /**
+         * 這次實際傳輸的 bytes / 經過時間（不含續傳前已完成的部分）。
+         */
+        public long getThroughputBytesPerSec() {
+            return throughputBytesPerSec;
+        }
+
+        public int getConnections() {
+            return connections;
+        }
+
+        public long getResumedBytes() {
+            return resumedBytes;
+        }
+    }
+}
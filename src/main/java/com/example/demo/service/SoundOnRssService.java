@@ -1,91 +1,246 @@
 package com.example.demo.service;
 
 import com.example.demo.model.PodcastEpisode;
-import org.springframework.http.ResponseEntity;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
-import org.springframework.web.client.RestTemplate;
-import org.xml.sax.InputSource;
 
-import javax.xml.parsers.DocumentBuilder;
-import javax.xml.parsers.DocumentBuilderFactory;
-import java.io.StringReader;
+
+import com.example.demo.util.RssEpisodeReader;
+
+import java.io.InputStream;
+import java.net.URI;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.Instant;
 import java.util.ArrayList;
 import java.util.Collections;
+import java.util.LinkedHashMap;
 import java.util.List;
-
-import org.w3c.dom.Document;
-import org.w3c.dom.Element;
-import org.w3c.dom.NodeList;
-
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * SoundOn RSS 讀取，依 feed URL 快取解析後的集數清單。
+ * <p>
+ * - 用 {@link RssEpisodeReader} 串流解析，讀到需要的集數就關閉連線，不讀完整份 feed
+ * - TTL 內直接回傳快取；過期後帶 If-None-Match / If-Modified-Since 重新驗證，304 就沿用快取
+ * - 同一個 feed 同時只有一個執行緒在下載，其他請求等同一個結果
+ * - 下載或解析失敗時，有舊資料就先回舊資料
+ */
 @Service
-public class SoundOnRssService {
-
-    private final RestTemplate restTemplate;
-
-    public SoundOnRssService(RestTemplate restTemplate) {
-        this.restTemplate = restTemplate;
+public class SoundOnRssService implements MetricsSource {
+
+    private static final String PROVIDER = "rss";
+
+    private final OutboundHttpClient httpClient;
+    private final Duration readTimeout;
+    private final Duration ttl;
+    private final int maxFeeds;
+    private final int minItems;
+
+    private final Map<String, Feed> feeds;
+    private final ConcurrentHashMap<String, CompletableFuture<Feed>> refreshing = new ConcurrentHashMap<>();
+
+    private final AtomicLong hits = new AtomicLong();
+    private final AtomicLong downloads = new AtomicLong();
+    private final AtomicLong notModified = new AtomicLong();
+    private final AtomicLong coalesced = new AtomicLong();
+    private final AtomicLong staleServed = new AtomicLong();
+    private final AtomicLong errors = new AtomicLong();
+
+    public SoundOnRssService(
+            OutboundHttpClient httpClient,
+            @Value("${http.client.rss.read-timeout-ms:15000}") long readTimeoutMs,
+            @Value("${rss.cache.ttl-seconds:300}") long ttlSeconds,
+            @Value("${rss.cache.max-feeds:50}") int maxFeeds,
+            @Value("${rss.cache.min-items:10}") int minItems
+    ) {
+        this.httpClient = httpClient;
+        this.readTimeout = Duration.ofMillis(readTimeoutMs);
+        this.ttl = Duration.ofSeconds(ttlSeconds);
+        this.maxFeeds = maxFeeds;
+        this.minItems = minItems;
+        this.feeds = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Feed> eldest) {
+                return size() > SoundOnRssService.this.maxFeeds;
+            }
+        };
     }
 
     /**
      * 從 SoundOn RSS 取得最近幾集節目資訊
      */
     public List<PodcastEpisode> fetchEpisodes(String rssUrl, int limit) {
-        ResponseEntity<String> resp = restTemplate.getForEntity(rssUrl, String.class);
-        if (!resp.getStatusCode().is2xxSuccessful() || resp.getBody() == null) {
-            return Collections.emptyList();
+        Feed cached;
+        synchronized (feeds) {
+            cached = feeds.get(rssUrl);
+        }
+        if (cached != null && cached.covers(limit) && cached.checkedAt.plus(ttl).isAfter(Instant.now())) {
+            hits.incrementAndGet();
+            return head(cached.episodes, limit);
         }
 
-        String xml = resp.getBody();
-
-        try {
-            DocumentBuilderFactory factory = DocumentBuilderFactory.newInstance();
-            factory.setNamespaceAware(false);
-            DocumentBuilder builder = factory.newDocumentBuilder();
-            Document doc = builder.parse(new InputSource(new StringReader(xml)));
-
-            NodeList itemNodes = doc.getElementsByTagName("item");
-            int count = Math.min(itemNodes.getLength(), limit);
-
-            List<PodcastEpisode> result = new ArrayList<>();
+        Feed feed = refresh(rssUrl, cached, limit);
+        return feed == null ? Collections.emptyList() : head(feed.episodes, limit);
+    }
 
-            for (int i = 0; i < count; i++) {
-                Element item = (Element) itemNodes.item(i);
+    /**
+     * 下載（或重新驗證）feed；同一個 URL 已經有人在下載時，直接等那次的結果，
+     * 那次讀的集數不夠時再自己下載一次。
+     *
+     * @return 失敗且沒有舊資料時回傳 null
+     */
+    private Feed refresh(String rssUrl, Feed cached, int limit) {
+        CompletableFuture<Feed> mine = new CompletableFuture<>();
+        CompletableFuture<Feed> running;
+        while ((running = refreshing.putIfAbsent(rssUrl, mine)) != null) {
+            coalesced.incrementAndGet();
+            try {
+                Feed shared = running.get();
+                if (shared != null && shared.covers(limit)) {
+                    return shared;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return cached;
+            } catch (ExecutionException e) {
+                return cached;
+            }
+        }
 
-                String title = getTagText(item, "title");
-                String link = getTagText(item, "link");
-                String guid = getTagText(item, "guid");
-                String pubDate = getTagText(item, "pubDate");
+        try {
+            Feed feed = download(rssUrl, cached, Math.max(limit, minItems));
+            if (feed == null) {
+                errors.incrementAndGet();
+                if (cached != null) {
+                    staleServed.incrementAndGet();
+                }
+                feed = cached;
+            } else {
+                synchronized (feeds) {
+                    feeds.put(rssUrl, feed);
+                }
+            }
+            mine.complete(feed);
+            return feed;
+        } catch (RuntimeException e) {
+            mine.completeExceptionally(e);
+            throw e;
+        } finally {
+            refreshing.remove(rssUrl, mine);
+        }
+    }
 
-                String audioUrl = null;
-                NodeList enclosures = item.getElementsByTagName("enclosure");
-                if (enclosures.getLength() > 0) {
-                    Element enclosure = (Element) enclosures.item(0);
-                    audioUrl = enclosure.getAttribute("url");
+    /**
+     * @param parseLimit 最多解析幾集；舊資料的集數不夠時不帶 validator，避免拿到 304
+     * @return 新的快取內容；非 2xx / 304、逾時或 XML 無法解析時回傳 null
+     */
+    private Feed download(String rssUrl, Feed cached, int parseLimit) {
+        if (cached != null && !cached.covers(parseLimit)) {
+            cached = null;
+        }
+        try {
+            HttpRequest.Builder request = HttpRequest.newBuilder()
+                    .uri(URI.create(rssUrl))
+                    .timeout(readTimeout)
+                    .GET();
+            if (cached != null) {
+                if (cached.etag != null) {
+                    request.header("If-None-Match", cached.etag);
+                }
+                if (cached.lastModified != null) {
+                    request.header("If-Modified-Since", cached.lastModified);
                 }
+            }
 
-                PodcastEpisode ep = new PodcastEpisode();
-                ep.setTitle(title);
-                ep.setLink(link);
-                ep.setGuid(guid);
-                ep.setPubDate(pubDate);
-                ep.setAudioUrl(audioUrl);
+            HttpResponse<InputStream> resp =
+                    httpClient.send(PROVIDER, request.build(), HttpResponse.BodyHandlers.ofInputStream());
+
+            List<PodcastEpisode> episodes = new ArrayList<>(Math.min(parseLimit, 64));
+            boolean complete;
+            // 提早 return 或讀到 parseLimit 時關閉 body，HttpClient 會中止這個連線上剩下的傳輸
+            try (InputStream body = resp.body()) {
+                if (resp.statusCode() == 304 && cached != null) {
+                    notModified.incrementAndGet();
+                    return new Feed(cached.episodes, cached.complete,
+                            resp.headers().firstValue("ETag").orElse(cached.etag),
+                            resp.headers().firstValue("Last-Modified").orElse(cached.lastModified),
+                            Instant.now());
+                }
+                if (resp.statusCode() / 100 != 2) {
+                    return null;
+                }
 
-                result.add(ep);
+                downloads.incrementAndGet();
+                // 直接讀 bytes，編碼以 XML 宣告為準
+                complete = RssEpisodeReader.read(body, parseLimit, episodes::add);
             }
 
-            return result;
+            return new Feed(Collections.unmodifiableList(episodes), complete,
+                    resp.headers().firstValue("ETag").orElse(null),
+                    resp.headers().firstValue("Last-Modified").orElse(null),
+                    Instant.now());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return null;
         } catch (Exception e) {
             // 可以加上 log，看錯在哪裡
-            return Collections.emptyList();
+            return null;
         }
     }
 
-    private String getTagText(Element parent, String tagName) {
-        NodeList nodes = parent.getElementsByTagName(tagName);
-        if (nodes.getLength() == 0) {
-            return null;
+    private static List<PodcastEpisode> head(List<PodcastEpisode> episodes, int limit) {
+        int count = Math.max(0, Math.min(episodes.size(), limit));
+        return new ArrayList<>(episodes.subList(0, count));
+    }
+
+    @Override
+    public String metricsName() {
+        return "rss.feed-cache";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> m = new LinkedHashMap<>();
+        synchronized (feeds) {
+            m.put("feeds", feeds.size());
         }
-        return nodes.item(0).getTextContent();
+        m.put("hits", hits.get());
+        m.put("downloads", downloads.get());
+        m.put("notModified", notModified.get());
+        m.put("coalesced", coalesced.get());
+        m.put("staleServed", staleServed.get());
+        m.put("errors", errors.get());
+        return m;
     }
 
+    /**
+     * 解析後的集數清單與重新驗證用的 validator；不可變，整筆替換。
+     * complete = false 表示解析到上限就停了，feed 裡可能還有更舊的集數。
+     */
+    private static final class Feed {
+        private final List<PodcastEpisode> episodes;
+        private final boolean complete;
+        private final String etag;
+        private final String lastModified;
+        private final Instant checkedAt;
+
+        private Feed(List<PodcastEpisode> episodes, boolean complete,
+                     String etag, String lastModified, Instant checkedAt) {
+            this.episodes = episodes;
+            this.complete = complete;
+            this.etag = etag;
+            this.lastModified = lastModified;
+            this.checkedAt = checkedAt;
+        }
+
+        private boolean covers(int limit) {
+            return complete || episodes.size() >= limit;
+        }
+    }
 }
@@ -1,5 +1,9 @@
 package com.example.demo.service;
 
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
 public interface SpeechToTextService {
 
     /**
@@ -10,4 +14,26 @@ public interface SpeechToTextService {
      * @return 轉譯後的逐字稿文字
      */
     String transcribe(byte[] audioBytes, String mimeType);
+
+    /**
+     * 將磁碟上的音訊檔轉成文字逐字稿。
+     * <p>
+     * 預設實作會把整個檔案讀進記憶體再呼叫 {@link #transcribe(byte[], String)}；
+     * 能以串流方式上傳的實作應覆寫此方法，讓大檔不佔用 heap。
+     *
+     * @param audioFile 音訊檔路徑
+     * @param mimeType  音訊檔的 MIME 類型，例如 audio/mpeg
+     * @return 轉譯後的逐字稿文字
+     */
+    default String transcribe(Path audioFile, String mimeType) throws IOException {
+        return transcribe(Files.readAllBytes(audioFile), mimeType);
+    }
+
+    /**
+     * 實作若以回傳文字（而不是丟例外）的方式表示失敗，覆寫此方法讓呼叫端分辨，
+     * 避免把錯誤訊息接進分段逐字稿或存進逐字稿快取。
+     */
+    default boolean isFailure(String transcript) {
+        return false;
+    }
 }
@@ -0,0 +1,437 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ListedSymbol;
+import com.example.demo.util.AhoCorasick;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.io.Resource;
+import org.springframework.core.io.ResourceLoader;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 台股 / 美股清單（代號、中英文名稱、別名），用來：
+ * - 在逐字稿中找出提到的股票：所有名稱建成一個 Aho-Corasick 自動機，整份逐字稿只掃一次
+ * - 補上 Gemini 只給公司名稱、symbol 為 null 的 TickerView
+ * - 判斷代號屬於哪個市場，並可在技術分析前過濾掉不存在的代號（例如被當成代號的年份、價格）
+ * <p>
+ * 清單有兩個來源：
+ * - symbols/universe.tsv：人工整理的常見股票，含中文俗稱與別名，啟動時載入
+ * - 完整的上市櫃清單（FinMind TaiwanStockInfo、FMP stock-list），啟動後在背景載入並定期更新；
+ *   抓不到時（沒有網路、沒有 FMP key）沿用上一次的結果
+ * <p>
+ * 比對規則：
+ * - 中文名稱、英文名稱、別名：英文不分大小寫
+ * - 台股代號：照原樣比對
+ * - 美股代號：大小寫要完全相符（避免 "arm"、"cost" 之類的一般單字），且至少 3 個字母
+ * - 英數字開頭 / 結尾的字串，前後不能緊接英數字（"Intel" 不會命中 "Intelligence"，"2330" 不會命中 "12330"）
+ * - 互相重疊的命中只保留最左、最長的一個（「台積電ADR」不會再算成「台積電」）
+ * - 純數字的代號後面緊接「年」「元」「%」之類的單位時不算（「2002 年」是年份，不是中鋼）
+ * - 完整清單只補進代號查詢與名稱完全相同的查詢，不加入逐字稿比對：上市櫃代號涵蓋 2020~2034、1000 附近，
+ *   年份與價格幾乎都會命中；逐字稿比對只用人工清單
+ */
+@Component
+public class SymbolUniverse implements MetricsSource {
+
+    private static final int MIN_US_SYMBOL_PATTERN = 3;
+    // 接在數字後面代表數量的字：年份、價格、指數點數、張數、百分比
+    private static final String NUMERIC_UNITS = "年元塊點億萬張%％";
+
+    private final FinMindClient finMindClient;
+    private final FmpClient fmpClient;
+    private final boolean listingsEnabled;
+    private final List<ListedSymbol> curated;
+
+    private volatile Index index;
+    private volatile List<ListedSymbol> listedTw = Collections.emptyList();
+    private volatile List<ListedSymbol> listedUs = Collections.emptyList();
+
+    private final AtomicLong scans = new AtomicLong();
+    private final AtomicLong mentions = new AtomicLong();
+    private final AtomicLong resolvedNames = new AtomicLong();
+    private final AtomicLong unknownLookups = new AtomicLong();
+    private final AtomicLong listingRefreshes = new AtomicLong();
+    private final AtomicLong listingFailures = new AtomicLong();
+
+    public SymbolUniverse(
+            ResourceLoader resourceLoader,
+            FinMindClient finMindClient,
+            FmpClient fmpClient,
+            @Value("${symbols.universe-location:classpath:symbols/universe.tsv}") String location,
+            @Value("${symbols.listings.enabled:true}") boolean listingsEnabled
+    ) {
+        this.finMindClient = finMindClient;
+        this.fmpClient = fmpClient;
+        this.listingsEnabled = listingsEnabled;
+        this.curated = load(resourceLoader.getResource(location));
+        this.index = buildIndex(curated, listedTw, listedUs);
+    }
+
+    /**
+     * 重新抓完整的上市櫃清單並重建索引；任一市場失敗時該市場沿用上一次的結果。
+     */
+    @Scheduled(initialDelayString = "${symbols.listings.initial-delay-ms:5000}",
+            fixedDelayString = "${symbols.listings.refresh-interval-ms:86400000}")
+    public void refreshListings() {
+        if (!listingsEnabled) {
+            return;
+        }
+        listingRefreshes.incrementAndGet();
+        try {
+            List<ListedSymbol> tw = finMindClient.getTaiwanStockInfo();
+            if (!tw.isEmpty()) {
+                listedTw = tw;
+            }
+        } catch (Exception e) {
+            listingFailures.incrementAndGet();
+        }
+        if (fmpClient.hasApiKey()) {
+            try {
+                List<ListedSymbol> us = fmpClient.fetchStockList();
+                if (!us.isEmpty()) {
+                    listedUs = us;
+                }
+            } catch (Exception e) {
+                listingFailures.incrementAndGet();
+            }
+        }
+        index = buildIndex(curated, listedTw, listedUs);
+    }
+
+    /**
+     * 該市場的完整上市櫃清單是否已載入；還沒載入時清單只有人工整理的部分，不能拿來判斷代號不存在。
+     */
+    public boolean isListingLoaded(String market) {
+        if (TechnicalAnalysisFanOutService.MARKET_TW.equals(market)) {
+            return !listedTw.isEmpty();
+        }
+        if (TechnicalAnalysisFanOutService.MARKET_US.equals(market)) {
+            return !listedUs.isEmpty();
+        }
+        return false;
+    }
+
+    /**
+     * 人工清單優先（保留別名）；完整清單只補上人工清單沒有的代號。
+     */
+    private static Index buildIndex(List<ListedSymbol> curated, List<ListedSymbol> listedTw,
+                                    List<ListedSymbol> listedUs) {
+        Map<String, ListedSymbol> bySymbol = new HashMap<>();
+        Map<String, ListedSymbol> byName = new HashMap<>();
+        AhoCorasick.Builder<Pattern> builder = AhoCorasick.builder();
+        int patterns = 0;
+
+        for (ListedSymbol entry : curated) {
+            bySymbol.put(entry.getSymbol(), entry);
+
+            Set<String> names = new LinkedHashSet<>();
+            names.add(entry.getNameZh());
+            names.add(entry.getNameEn());
+            names.addAll(entry.getAliases());
+            for (String name : names) {
+                if (name.isEmpty()) {
+                    continue;
+                }
+                byName.putIfAbsent(name.toLowerCase(Locale.ROOT), entry);
+                builder.add(name, new Pattern(entry, name, false));
+                patterns++;
+            }
+
+            boolean usSymbol = TechnicalAnalysisFanOutService.MARKET_US.equals(entry.getMarket());
+            if (!usSymbol || entry.getSymbol().length() >= MIN_US_SYMBOL_PATTERN) {
+                builder.add(entry.getSymbol(), new Pattern(entry, entry.getSymbol(), usSymbol));
+                patterns++;
+            }
+        }
+
+        for (ListedSymbol entry : listedTw) {
+            ListedSymbol existing = bySymbol.putIfAbsent(entry.getSymbol(), entry);
+            if (existing != null) {
+                // 人工清單已有這檔：官方簡稱（例如「統一」）只補進名稱查詢，不加入逐字稿比對
+                byName.putIfAbsent(entry.getNameZh().toLowerCase(Locale.ROOT), existing);
+                continue;
+            }
+            byName.putIfAbsent(entry.getNameZh().toLowerCase(Locale.ROOT), entry);
+        }
+
+        for (ListedSymbol entry : listedUs) {
+            if (bySymbol.putIfAbsent(entry.getSymbol(), entry) != null) {
+                continue;
+            }
+            if (!entry.getNameEn().isEmpty()) {
+                byName.putIfAbsent(entry.getNameEn().toLowerCase(Locale.ROOT), entry);
+            }
+        }
+
+        return new Index(bySymbol, byName, builder.build(), patterns);
+    }
+
+    /**
+     * 檔案格式：tab 分隔的 market、symbol、中文名稱、英文名稱、別名（以 | 分隔）；# 開頭與空白行略過。
+     */
+    private static List<ListedSymbol> load(Resource resource) {
+        List<ListedSymbol> entries = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(
+                new InputStreamReader(resource.getInputStream(), StandardCharsets.UTF_8))) {
+            String line;
+            int lineNo = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNo++;
+                if (line.isBlank() || line.startsWith("#")) {
+                    continue;
+                }
+                String[] cols = line.split("\t", -1);
+                if (cols.length < 4 || cols[0].isBlank() || cols[1].isBlank()) {
+                    throw new IllegalStateException("股票清單格式錯誤，" + resource.getDescription() + " 第 " + lineNo + " 行");
+                }
+                List<String> aliases = new ArrayList<>();
+                if (cols.length > 4) {
+                    for (String alias : cols[4].split("\\|")) {
+                        if (!alias.isBlank()) {
+                            aliases.add(alias.trim());
+                        }
+                    }
+                }
+                entries.add(new ListedSymbol(
+                        cols[0].trim().toUpperCase(Locale.ROOT),
+                        cols[1].trim().toUpperCase(Locale.ROOT),
+                        cols[2].trim(),
+                        cols[3].trim(),
+                        aliases));
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("讀取股票清單失敗：" + resource.getDescription(), e);
+        }
+        return entries;
+    }
+
+    /**
+     * 依代號查詢；接受 "2330.TW"、"6669.TWO" 這類帶交易所後綴的寫法，英文不分大小寫。
+     */
+    public Optional<ListedSymbol> find(String symbol) {
+        if (symbol == null || symbol.isBlank()) {
+            return Optional.empty();
+        }
+        String normalized = symbol.trim().toUpperCase(Locale.ROOT);
+        if (normalized.endsWith(".TW")) {
+            normalized = normalized.substring(0, normalized.length() - 3);
+        } else if (normalized.endsWith(".TWO")) {
+            normalized = normalized.substring(0, normalized.length() - 4);
+        }
+        ListedSymbol entry = index.bySymbol.get(normalized);
+        if (entry == null) {
+            unknownLookups.incrementAndGet();
+        }
+        return Optional.ofNullable(entry);
+    }
+
+    /**
+     * 由公司名稱找股票：先找完全相同的名稱 / 別名，再找名稱中提到的股票（例如 "台積電 TSMC"），
+     * 提到的股票不只一檔時視為無法判斷。
+     */
+    public Optional<ListedSymbol> resolveName(String name) {
+        if (name == null || name.isBlank()) {
+            return Optional.empty();
+        }
+        ListedSymbol exact = index.byName.get(name.trim().toLowerCase(Locale.ROOT));
+        if (exact != null) {
+            resolvedNames.incrementAndGet();
+            return Optional.of(exact);
+        }
+        ListedSymbol found = null;
+        for (Mention mention : scan(name)) {
+            if (found != null && found != mention.getSymbol()) {
+                return Optional.empty();
+            }
+            found = mention.getSymbol();
+        }
+        if (found != null) {
+            resolvedNames.incrementAndGet();
+        }
+        return Optional.ofNullable(found);
+    }
+
+    /**
+     * 找出文字中提到的所有股票，依出現位置排列（同一檔提到幾次就有幾筆）。
+     */
+    public List<Mention> findMentions(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return Collections.emptyList();
+        }
+        scans.incrementAndGet();
+        List<Mention> result = scan(text);
+        mentions.addAndGet(result.size());
+        return result;
+    }
+
+    private List<Mention> scan(CharSequence text) {
+        List<AhoCorasick.Match<Pattern>> candidates = new ArrayList<>();
+        for (AhoCorasick.Match<Pattern> match : index.automaton.findAll(text)) {
+            if (accepts(text, match)) {
+                candidates.add(match);
+            }
+        }
+        if (candidates.isEmpty()) {
+            return Collections.emptyList();
+        }
+
+        candidates.sort(Comparator.<AhoCorasick.Match<Pattern>>comparingInt(AhoCorasick.Match::getStart)
+                .thenComparing(m -> -m.getEnd()));
+        List<Mention> result = new ArrayList<>();
+        int lastEnd = 0;
+        for (AhoCorasick.Match<Pattern> match : candidates) {
+            if (match.getStart() < lastEnd) {
+                continue;
+            }
+            result.add(new Mention(match.getValue().entry, match.getStart(), match.getEnd(),
+                    text.subSequence(match.getStart(), match.getEnd()).toString()));
+            lastEnd = match.getEnd();
+        }
+        return result;
+    }
+
+    private static boolean accepts(CharSequence text, AhoCorasick.Match<Pattern> match) {
+        Pattern pattern = match.getValue();
+        int start = match.getStart();
+        int end = match.getEnd();
+        if (pattern.exactCase) {
+            for (int i = start; i < end; i++) {
+                if (text.charAt(i) != pattern.text.charAt(i - start)) {
+                    return false;
+                }
+            }
+        }
+        if (isAsciiWordChar(pattern.text.charAt(0)) && start > 0 && isAsciiWordChar(text.charAt(start - 1))) {
+            return false;
+        }
+        if (isAsciiWordChar(pattern.text.charAt(pattern.text.length() - 1))
+                && end < text.length() && isAsciiWordChar(text.charAt(end))) {
+            return false;
+        }
+        return !(isDigits(pattern.text) && followedByUnit(text, end));
+    }
+
+    private static boolean followedByUnit(CharSequence text, int end) {
+        int i = end;
+        while (i < text.length() && text.charAt(i) == ' ') {
+            i++;
+        }
+        return i < text.length() && NUMERIC_UNITS.indexOf(text.charAt(i)) >= 0;
+    }
+
+    private static boolean isDigits(String s) {
+        for (int i = 0; i < s.length(); i++) {
+            if (s.charAt(i) < '0' || s.charAt(i) > '9') {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static boolean isAsciiWordChar(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9');
+    }
+
+    @Override
+    public String metricsName() {
+        return "symbols";
+    }
+
+    @Override
+    public Map<String, Object> metrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        Index current = index;
+        result.put("entries", current.bySymbol.size());
+        result.put("curated-entries", curated.size());
+        result.put("listed-tw", listedTw.size());
+        result.put("listed-us", listedUs.size());
+        result.put("patterns", current.patternCount);
+        result.put("scans", scans.get());
+        result.put("mentions", mentions.get());
+        result.put("resolved-names", resolvedNames.get());
+        result.put("unknown-lookups", unknownLookups.get());
+        result.put("listing-refreshes", listingRefreshes.get());
+        result.put("listing-failures", listingFailures.get());
+        return result;
+    }
+
+    /**
+     * 某一版清單建出的查詢結構；更新清單時整份換掉，讀取端不需要加鎖。
+     */
+    private static final class Index {
+        private final Map<String, ListedSymbol> bySymbol;
+        private final Map<String, ListedSymbol> byName;
+        private final AhoCorasick<Pattern> automaton;
+        private final int patternCount;
+
+        private Index(Map<String, ListedSymbol> bySymbol, Map<String, ListedSymbol> byName,
+                      AhoCorasick<Pattern> automaton, int patternCount) {
+            this.bySymbol = bySymbol;
+            this.byName = byName;
+            this.automaton = automaton;
+            this.patternCount = patternCount;
+        }
+    }
+
+    private static final class Pattern {
+        private final ListedSymbol entry;
+        private final String text;
+        // 美股代號：自動機不分大小寫，命中後再確認大小寫
+        private final boolean exactCase;
+
+        private Pattern(ListedSymbol entry, String text, boolean exactCase) {
+            this.entry = entry;
+            this.text = text;
+            this.exactCase = exactCase;
+        }
+    }
+
+    /**
+     * 文字中的一次提及：text 的 [start, end) 是 matchedText。
+     */
+    public static final class Mention {
+        private final ListedSymbol symbol;
+        private final int start;
+        private final int end;
+        private final String matchedText;
+
+        private Mention(ListedSymbol symbol, int start, int end, String matchedText) {
+            this.symbol = symbol;
+            this.start = start;
+            this.end = end;
+            this.matchedText = matchedText;
+        }
+
+        public ListedSymbol getSymbol() {
+            return symbol;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public String getMatchedText() {
+            return matchedText;
+        }
+    }
+}
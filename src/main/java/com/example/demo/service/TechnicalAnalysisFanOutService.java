@@ -0,0 +1,216 @@
+package com.example.demo.service;
+
+import com.example.demo.model.StockTaSummary;
+import com.example.demo.util.TradingCalendar;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+/**
+ * 多檔股票的技術分析 fan-out：
+ * - 丟到獨立的 taExecutor 平行執行
+ * - 台股（FinMind）與美股（FMP）各自有同時請求上限
+ * - 整批共用一個 deadline，逾時的股票回傳帶訊息的 summary，不拖累其他結果
+ * - 台股檔數多時先用 FinMind 批次查詢補齊快取（同樣在 taExecutor 上執行，各檔最多等到 deadline），
+ *   之後各檔大多直接命中快取
+ */
+@Service
+public class TechnicalAnalysisFanOutService {
+
+    public static final String MARKET_TW = TradingCalendar.MARKET_TW;
+    public static final String MARKET_US = TradingCalendar.MARKET_US;
+
+    private final TechnicalAnalysisService technicalAnalysisService;
+    private final PriceHistoryCache priceHistoryCache;
+    private final Executor taExecutor;
+    private final Semaphore twPermits;
+    private final Semaphore usPermits;
+    private final long deadlineMillis;
+
+    public TechnicalAnalysisFanOutService(
+            TechnicalAnalysisService technicalAnalysisService,
+            PriceHistoryCache priceHistoryCache,
+            @Qualifier("taExecutor") Executor taExecutor,
+            @Value("${ta.fanout.tw-concurrency:4}") int twConcurrency,
+            @Value("${ta.fanout.us-concurrency:4}") int usConcurrency,
+            @Value("${ta.fanout.deadline-ms:20000}") long deadlineMillis
+    ) {
+        this.technicalAnalysisService = technicalAnalysisService;
+        this.priceHistoryCache = priceHistoryCache;
+        this.taExecutor = taExecutor;
+        this.twPermits = new Semaphore(Math.max(1, twConcurrency), true);
+        this.usPermits = new Semaphore(Math.max(1, usConcurrency), true);
+        this.deadlineMillis = deadlineMillis;
+    }
+
+    public Map<String, StockTaSummary> analyzeAll(Map<String, String> symbolMarkets, int days) {
+        return analyzeAll(symbolMarkets, days, null);
+    }
+
+    /**
+     * @param symbolMarkets key = 股票代號，value = 市場（TW / US），回傳結果依此 Map 的順序排列
+     * @param days          分析天數
+     * @param onResult      每檔完成時的回呼（可為 null），在 worker thread 上執行；
+     *                      只在本方法回傳前呼叫，逾時後才完成的股票不會再回呼
+     */
+    public Map<String, StockTaSummary> analyzeAll(Map<String, String> symbolMarkets,
+                                                  int days,
+                                                  Consumer<StockTaSummary> onResult) {
+        Map<String, StockTaSummary> result = new LinkedHashMap<>();
+        if (symbolMarkets == null || symbolMarkets.isEmpty()) {
+            return result;
+        }
+
+        long deadlineNanos = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(deadlineMillis);
+
+        List<String> symbols = new ArrayList<>(symbolMarkets.keySet());
+
+        List<String> twSymbols = new ArrayList<>();
+        for (String symbol : symbols) {
+            if (MARKET_TW.equals(symbolMarkets.get(symbol))) {
+                twSymbols.add(symbol);
+            }
+        }
+        // 全市場批次查詢也在 taExecutor 上跑，各台股只等到 deadline 為止，不佔用 request thread
+        CompletableFuture<Void> prefetch = prefetchTaiwan(twSymbols, days);
+
+        List<CompletableFuture<StockTaSummary>> futures = new ArrayList<>(symbols.size());
+        // 回傳後設為 true；回呼與回傳互斥，回傳之後不會再有回呼
+        boolean[] returned = new boolean[1];
+
+        for (String symbol : symbols) {
+            String market = symbolMarkets.get(symbol);
+            CompletableFuture<StockTaSummary> future;
+            try {
+                future = CompletableFuture.supplyAsync(
+                        () -> analyzeOne(symbol, market, days, deadlineNanos, prefetch),
+                        taExecutor
+                );
+            } catch (RejectedExecutionException e) {
+                // 佇列已滿：不在 request thread 上執行，直接當作逾時
+                future = CompletableFuture.completedFuture(timedOut(symbol, market));
+            }
+            if (onResult != null) {
+                future = future.whenComplete((ta, error) -> {
+                    synchronized (returned) {
+                        if (ta != null && !returned[0]) {
+                            onResult.accept(ta);
+                        }
+                    }
+                });
+            }
+            futures.add(future);
+        }
+
+        // 依原本順序收集，確保 techMap 的插入順序不變
+        for (int i = 0; i < symbols.size(); i++) {
+            String symbol = symbols.get(i);
+            String market = symbolMarkets.get(symbol);
+            CompletableFuture<StockTaSummary> future = futures.get(i);
+
+            long remaining = deadlineNanos - System.nanoTime();
+            try {
+                StockTaSummary ta = future.get(Math.max(0L, remaining), TimeUnit.NANOSECONDS);
+                result.put(symbol, ta);
+            } catch (TimeoutException e) {
+                // 已經在執行的工作停不下來，結果直接丟掉（之後進快取的價格仍可重用）
+                result.put(symbol, timedOut(symbol, market));
+            } catch (ExecutionException e) {
+                Throwable cause = e.getCause() != null ? e.getCause() : e;
+                result.put(symbol, failed(symbol, market, cause.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                result.put(symbol, failed(symbol, market, "技術分析被中斷。"));
+            }
+        }
+
+        synchronized (returned) {
+            returned[0] = true;
+        }
+        return result;
+    }
+
+    private CompletableFuture<Void> prefetchTaiwan(List<String> twSymbols, int days) {
+        if (twSymbols.isEmpty()) {
+            return CompletableFuture.completedFuture(null);
+        }
+        try {
+            return CompletableFuture.runAsync(() -> priceHistoryCache.prefetchTaiwan(twSymbols, days), taExecutor);
+        } catch (RejectedExecutionException e) {
+            // 佇列已滿就不批次查詢，各檔自己查
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    private StockTaSummary analyzeOne(String symbol, String market, int days, long deadlineNanos,
+                                      CompletableFuture<Void> prefetch) {
+        Semaphore permits = MARKET_TW.equals(market) ? twPermits : usPermits;
+
+        boolean acquired = false;
+        try {
+            if (MARKET_TW.equals(market)) {
+                awaitPrefetch(prefetch, deadlineNanos);
+            }
+
+            long remaining = deadlineNanos - System.nanoTime();
+            acquired = remaining > 0 && permits.tryAcquire(remaining, TimeUnit.NANOSECONDS);
+            if (!acquired) {
+                // 排隊排到 deadline 都沒輪到，就不用再打外部 API 了
+                return timedOut(symbol, market);
+            }
+
+            if (MARKET_TW.equals(market)) {
+                return technicalAnalysisService.analyzeTaiwanStock(symbol, days);
+            }
+            return technicalAnalysisService.analyzeUsStock(symbol, days);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return failed(symbol, market, "技術分析被中斷。");
+        } finally {
+            if (acquired) {
+                permits.release();
+            }
+        }
+    }
+
+    /**
+     * 等批次查詢補完快取，最多等到 deadline；批次失敗或逾時就改成單檔查詢（逾時的話下一步就會回傳逾時）。
+     */
+    private static void awaitPrefetch(CompletableFuture<Void> prefetch, long deadlineNanos)
+            throws InterruptedException {
+        long remaining = deadlineNanos - System.nanoTime();
+        if (remaining <= 0) {
+            return;
+        }
+        try {
+            prefetch.get(remaining, TimeUnit.NANOSECONDS);
+        } catch (ExecutionException | TimeoutException ignore) {
+            // 批次查詢本身會吞掉資料源的錯誤；這裡只是不再等它
+        }
+    }
+
+    private StockTaSummary timedOut(String symbol, String market) {
+        return failed(symbol, market, "技術分析逾時（超過 " + deadlineMillis + " ms），暫無資料。");
+    }
+
+    private StockTaSummary failed(String symbol, String market, String message) {
+        StockTaSummary summary = new StockTaSummary();
+        summary.setSymbol(symbol);
+        summary.setMarket(market);
+        summary.setMessage(message == null || message.isBlank() ? "技術分析失敗。" : message);
+        return summary;
+    }
+}
@@ -0,0 +1,193 @@
+package com.example.demo.service;
+
+import com.example.demo.repository.TranscriptRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+
+/**
+ * 逐字稿儲存：同一個音檔（sha256）或同一集節目（RSS guid）只轉錄一次。
+ * <p>
+ * - 記憶體層：LRU，依保存的字元總數淘汰
+ * - PostgreSQL：transcript（gzip 壓縮）與 transcript_episode（guid → sha256）；讀寫失敗只當作未命中
+ */
+@Component
+public class TranscriptStore implements MetricsSource {
+
+    // guid → sha256 的對應很小，只限制筆數
+    private static final int MAX_GUID_ENTRIES = 10_000;
+
+    private final TranscriptRepository repository;
+    private final long maxMemoryChars;
+
+    private final LinkedHashMap<String, String> bySha = new LinkedHashMap<>(64, 0.75f, true);
+    private final LinkedHashMap<String, String> shaByGuid;
+    private long memoryChars;
+
+    private final AtomicLong memoryHits = new AtomicLong();
+    private final AtomicLong persistentHits = new AtomicLong();
+    private final AtomicLong misses = new AtomicLong();
+
+    public TranscriptStore(
+            TranscriptRepository repository,
+            @Value("${transcript.store.max-memory-chars:2000000}") long maxMemoryChars
+    ) {
+        this.repository = repository;
+        this.maxMemoryChars = maxMemoryChars;
+        this.shaByGuid = new LinkedHashMap<>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, String> eldest) {
+                return size() > MAX_GUID_ENTRIES;
+            }
+        };
+    }
+
+    public Optional<String> findByAudioSha256(String audioSha256) {
+        if (audioSha256 == null) {
+            return Optional.empty();
+        }
+        synchronized (this) {
+            String cached = bySha.get(audioSha256);
+            if (cached != null) {
+                memoryHits.incrementAndGet();
+                return Optional.of(cached);
+            }
+        }
+
+        Optional<String> stored = readStored(audioSha256);
+        if (stored.isPresent()) {
+            persistentHits.incrementAndGet();
+            putMemory(audioSha256, stored.get());
+            return stored;
+        }
+        misses.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * 依 RSS guid 找逐字稿；找得到就不用下載音檔。
+     */
+    public Optional<String> findByEpisodeGuid(String episodeGuid) {
+        if (episodeGuid == null || episodeGuid.isBlank()) {
+            return Optional.empty();
+        }
+        String sha;
+        synchronized (this) {
+            sha = shaByGuid.get(episodeGuid);
+        }
+        if (sha == null) {
+            try {
+                sha = repository.findAudioSha256ByGuid(episodeGuid).orElse(null);
+            } catch (RuntimeException e) {
+                sha = null;
+            }
+            if (sha == null) {
+                misses.incrementAndGet();
+                return Optional.empty();
+            }
+            synchronized (this) {
+                shaByGuid.put(episodeGuid, sha);
+            }
+        }
+        return findByAudioSha256(sha);
+    }
+
+    /**
+     * @param episodeGuid 可為 null（直接上傳的音檔沒有 guid）
+     */
+    public void save(String audioSha256, String episodeGuid, String provider, String transcript) {
+        if (audioSha256 == null || transcript == null || transcript.isBlank()) {
+            return;
+        }
+        putMemory(audioSha256, transcript);
+        boolean hasGuid = episodeGuid != null && !episodeGuid.isBlank();
+        if (hasGuid) {
+            synchronized (this) {
+                shaByGuid.put(episodeGuid, audioSha256);
+            }
+        }
+
+        try {
+            repository.save(audioSha256, provider, gzip(transcript), transcript.length());
+            if (hasGuid) {
+                repository.linkGuid(episodeGuid, audioSha256);
+            }
+        } catch (RuntimeException e) {
+            // DB 寫入失敗不影響本次回應，只是重啟後不會命中
+        }
+    }
+
+    private Optional<String> readStored(String audioSha256) {
+        try {
+            return repository.findCompressed(audioSha256).map(TranscriptStore::gunzip);
+        } catch (RuntimeException e) {
+            return Optional.empty();
+        }
+    }
+
+    private synchronized void putMemory(String audioSha256, String transcript) {
+        if (transcript.length() > maxMemoryChars) {
+            return;
+        }
+        String previous = bySha.put(audioSha256, transcript);
+        if (previous != null) {
+            memoryChars -= previous.length();
+        }
+        memoryChars += transcript.length();
+
+        Iterator<Map.Entry<String, String>> it = bySha.entrySet().iterator();
+        while (memoryChars > maxMemoryChars && it.hasNext()) {
+            Map.Entry<String, String> eldest = it.next();
+            memoryChars -= eldest.getValue().length();
+            it.remove();
+        }
+    }
+
+    static byte[] gzip(String text) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(Math.max(64, text.length()));
+        try (OutputStream out = new GZIPOutputStream(bytes)) {
+            out.write(text.getBytes(StandardCharsets.UTF_8));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        return bytes.toByteArray();
+    }
+
+    static String gunzip(byte[] compressed) {
+        try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(compressed))) {
+            return new String(in.readAllBytes(), StandardCharsets.UTF_8);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @Override
+    public String metricsName() {
+        return "transcript.store";
+    }
+
+    @Override
+    public synchronized Map<String, Object> metrics() {
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("memory-hits", memoryHits.get());
+        result.put("persistent-hits", persistentHits.get());
+        result.put("misses", misses.get());
+        result.put("memory-entries", bySha.size());
+        result.put("memory-chars", memoryChars);
+        return result;
+    }
+}
@@ -7,26 +7,47 @@ import org.apache.hc.client5.http.config.RequestConfig; // 引入 RequestConfig
 import org.apache.hc.client5.http.entity.mime.HttpMultipartMode;
 import org.apache.hc.client5.http.entity.mime.MultipartEntityBuilder;
 import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
-import org.apache.hc.client5.http.impl.classic.HttpClients;
 import org.apache.hc.core5.http.ContentType;
 import org.apache.hc.core5.http.HttpEntity;
+import org.apache.hc.core5.http.ParseException;
 import org.apache.hc.core5.http.io.entity.EntityUtils;
 import org.apache.hc.core5.util.Timeout; // 引入 Timeout
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
 
 @Component
 public class WhisperClient {
 
     private static final String WHISPER_API_URL = "https://api.openai.com/v1/audio/transcriptions";
 
+    private static final String PROVIDER = "whisper";
+
     private final String apiKey;
     private final ObjectMapper objectMapper;
+    private final CloseableHttpClient httpClient;
+    private final RequestConfig requestConfig;
+    private final ProviderResilience resilience;
 
-    public WhisperClient(ObjectMapper objectMapper) {
+    public WhisperClient(
+            ObjectMapper objectMapper,
+            CloseableHttpClient pooledHttpClient,
+            ProviderResilience resilience,
+            @Value("${http.client.whisper.read-timeout-ms:600000}") long readTimeoutMs
+    ) {
         this.apiKey = System.getenv("OPENAI_API_KEY");
         this.objectMapper = objectMapper;
+        // 共用 AppConfig 的連線池，連線保持 keep-alive，不用每次重新 TLS handshake
+        this.httpClient = pooledHttpClient;
+        this.resilience = resilience;
+        // 上傳大檔 + 轉錄需要較長的回應時間（預設 10 分鐘）
+        this.requestConfig = RequestConfig.custom()
+                .setResponseTimeout(Timeout.ofMilliseconds(readTimeoutMs))
+                .build();
     }
 
     public String transcribe(byte[] audioBytes, String originalFilename) throws IOException, IllegalStateException {
@@ -37,48 +58,103 @@ public class WhisperClient {
             return "";
         }
 
-        // *** 核心修改點：建立客製化的 HttpClient，並設定超時時間 ***
-// 設定請求逾時時間為 10 分鐘 (600,000 毫秒)
-RequestConfig requestConfig = RequestConfig.custom()
-        .setResponseTimeout(Timeout.ofMinutes(10))
-        .setConnectionRequestTimeout(Timeout.ofMinutes(10))
-        .setConnectTimeout(Timeout.ofMinutes(10))
-        .build();
-        // 將超時設定套用到 HttpClient
-        try (CloseableHttpClient httpClient = HttpClients.custom()
-                .setDefaultRequestConfig(requestConfig)
-                .build()) {
-            
-            HttpPost httpPost = new HttpPost(WHISPER_API_URL);
-            httpPost.setHeader("Authorization", "Bearer " + apiKey);
-
-            HttpEntity multipartEntity = MultipartEntityBuilder.create()
-                    .setMode(HttpMultipartMode.EXTENDED)
-                    .addBinaryBody("file", audioBytes, ContentType.DEFAULT_BINARY, originalFilename)
-                    .addTextBody("model", "whisper-1")
-                    .addTextBody("language", "zh")
-                    .build();
-
-            httpPost.setEntity(multipartEntity);
+        return execute(MultipartEntityBuilder.create()
+                .setMode(HttpMultipartMode.EXTENDED)
+                .addBinaryBody("file", audioBytes, ContentType.DEFAULT_BINARY, originalFilename));
+    }
 
-            return httpClient.execute(httpPost, response -> {
-                int statusCode = response.getCode();
-                HttpEntity responseEntity = response.getEntity();
-                String responseBody = EntityUtils.toString(responseEntity);
+    /**
+     * 直接從檔案上傳：multipart body 由 HttpClient 邊讀檔邊送出，不把整個音檔讀進 heap。
+     */
+    public String transcribe(Path audioFile, String originalFilename) throws IOException, IllegalStateException {
+        if (apiKey == null || apiKey.isBlank()) {
+            throw new IllegalStateException("尚未設定 OPENAI_API_KEY 環境變數。");
+        }
+        if (Files.size(audioFile) == 0) {
+            return "";
+        }
 
-                if (statusCode / 100 != 2) {
-                    throw new IllegalStateException(
-                            "Whisper API HTTP 狀態碼異常: " + statusCode
-                                    + "，回應內容=" + responseBody);
+        return execute(MultipartEntityBuilder.create()
+                .setMode(HttpMultipartMode.EXTENDED)
+                .addBinaryBody("file", audioFile.toFile(), ContentType.DEFAULT_BINARY, originalFilename));
+    }
+
+    /**
+     * 包成 {@link SpeechToTextService}，給分段轉錄等只認得該介面的流程使用。
+     *
+     * @param originalFilename Whisper 依副檔名判斷格式，所以要帶原始檔名
+     */
+    public SpeechToTextService asSpeechToTextService(String originalFilename) {
+        return new SpeechToTextService() {
+            @Override
+            public String transcribe(byte[] audioBytes, String mimeType) {
+                try {
+                    return WhisperClient.this.transcribe(audioBytes, originalFilename);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
                 }
+            }
+
+            @Override
+            public String transcribe(Path audioFile, String mimeType) throws IOException {
+                return WhisperClient.this.transcribe(audioFile, originalFilename);
+            }
+        };
+    }
+
+    private String execute(MultipartEntityBuilder multipart) throws IOException {
+        HttpPost httpPost = new HttpPost(WHISPER_API_URL);
+        httpPost.setHeader("Authorization", "Bearer " + apiKey);
+        httpPost.setConfig(requestConfig);
+
+        HttpEntity multipartEntity = multipart
+                .addTextBody("model", "whisper-1")
+                .addTextBody("language", "zh")
+                .build();
 
-                JsonNode root = objectMapper.readTree(responseBody);
-                if (root.has("text")) {
-                    return root.get("text").asText();
+        httpPost.setEntity(multipartEntity);
+
+        // 上傳的是大檔，不在這裡重試（分段轉錄由呼叫端處理失敗），只經過斷路器
+        resilience.acquirePermission(PROVIDER);
+        boolean[] recorded = new boolean[1];
+        try {
+            return httpClient.execute(httpPost, response -> {
+                int statusCode = response.getCode();
+                recorded[0] = true;
+                if (ProviderResilience.isFailureStatus(statusCode)) {
+                    resilience.onFailure(PROVIDER);
                 } else {
-                    throw new IllegalStateException("Whisper API 回應中找不到 'text' 欄位。");
+                    resilience.onSuccess(PROVIDER);
                 }
+                return readTranscript(statusCode, response.getEntity());
             });
+        } catch (IOException e) {
+            if (!recorded[0]) {
+                recorded[0] = true;
+                resilience.onFailure(PROVIDER);
+            }
+            throw e;
+        } finally {
+            if (!recorded[0]) {
+                resilience.onCancel(PROVIDER);
+            }
+        }
+    }
+
+    private String readTranscript(int statusCode, HttpEntity responseEntity) throws IOException, ParseException {
+        String responseBody = EntityUtils.toString(responseEntity);
+
+        if (statusCode / 100 != 2) {
+            throw new IllegalStateException(
+                    "Whisper API HTTP 狀態碼異常: " + statusCode
+                            + "，回應內容=" + responseBody);
+        }
+
+        JsonNode root = objectMapper.readTree(responseBody);
+        if (root.has("text")) {
+            return root.get("text").asText();
+        } else {
+            throw new IllegalStateException("Whisper API 回應中找不到 'text' 欄位。");
         }
     }
 }
\ No newline at end of file
@@ -0,0 +1,165 @@
+package com.example.demo.util;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+
+/**
+ * 多字串比對（Aho-Corasick）：建好之後對任意長度的文字只掃一次，就找出所有字典字串出現的位置，
+ * 時間與文字長度加上命中數成正比，與字典大小無關。
+ * <p>
+ * 英文字母不分大小寫（建表與比對時都轉成小寫），其他字元原樣比對。建好後可多執行緒共用。
+ *
+ * @param <V> 每個字典字串附帶的值
+ */
+public final class AhoCorasick<V> {
+
+    private final List<Node<V>> nodes;
+
+    private AhoCorasick(List<Node<V>> nodes) {
+        this.nodes = nodes;
+    }
+
+    public static <V> Builder<V> builder() {
+        return new Builder<>();
+    }
+
+    /**
+     * @return 依結束位置排列的所有命中（包含互相重疊的）
+     */
+    public List<Match<V>> findAll(CharSequence text) {
+        if (text == null || text.length() == 0) {
+            return Collections.emptyList();
+        }
+        List<Match<V>> matches = new ArrayList<>();
+        Node<V> root = nodes.get(0);
+        Node<V> state = root;
+        for (int i = 0; i < text.length(); i++) {
+            char c = fold(text.charAt(i));
+            while (state != root && !state.next.containsKey(c)) {
+                state = state.fail;
+            }
+            state = state.next.getOrDefault(c, root);
+            for (Node<V> out = state; out != root; out = out.outputLink) {
+                if (out.values != null) {
+                    for (V value : out.values) {
+                        matches.add(new Match<>(i + 1 - out.depth, i + 1, value));
+                    }
+                }
+            }
+        }
+        return matches;
+    }
+
+    private static char fold(char c) {
+        return c >= 'A' && c <= 'Z' ? (char) (c + ('a' - 'A')) : c;
+    }
+
+    public static final class Builder<V> {
+        private final List<Node<V>> nodes = new ArrayList<>();
+
+        private Builder() {
+            nodes.add(new Node<>(0));
+        }
+
+        /**
+         * 同一個字串加入多次時，每個值都會回傳。
+         */
+        public Builder<V> add(String pattern, V value) {
+            if (pattern == null || pattern.isEmpty()) {
+                return this;
+            }
+            Node<V> node = nodes.get(0);
+            for (int i = 0; i < pattern.length(); i++) {
+                char c = fold(pattern.charAt(i));
+                Node<V> child = node.next.get(c);
+                if (child == null) {
+                    child = new Node<>(node.depth + 1);
+                    node.next.put(c, child);
+                    nodes.add(child);
+                }
+                node = child;
+            }
+            if (node.values == null) {
+                node.values = new ArrayList<>(1);
+            }
+            node.values.add(value);
+            return this;
+        }
+
+        /**
+         * 以 BFS 建立 failure link，以及只指向「有值的節點」的 output link，
+         * 比對時沿 output link 走就不會經過沒有命中的中間節點。
+         */
+        public AhoCorasick<V> build() {
+            Node<V> root = nodes.get(0);
+            root.fail = root;
+            root.outputLink = root;
+            Queue<Node<V>> queue = new ArrayDeque<>();
+            for (Node<V> child : root.next.values()) {
+                child.fail = root;
+                child.outputLink = root;
+                queue.add(child);
+            }
+            while (!queue.isEmpty()) {
+                Node<V> node = queue.remove();
+                for (Map.Entry<Character, Node<V>> e : node.next.entrySet()) {
+                    char c = e.getKey();
+                    Node<V> child = e.getValue();
+                    Node<V> f = node.fail;
+                    while (f != root && !f.next.containsKey(c)) {
+                        f = f.fail;
+                    }
+                    Node<V> target = f.next.get(c);
+                    child.fail = target != null && target != child ? target : root;
+                    child.outputLink = child.fail.values != null ? child.fail : child.fail.outputLink;
+                    queue.add(child);
+                }
+            }
+            return new AhoCorasick<>(new ArrayList<>(nodes));
+        }
+    }
+
+    private static final class Node<V> {
+        private final int depth;
+        private final Map<Character, Node<V>> next = new HashMap<>(4);
+        private Node<V> fail;
+        private Node<V> outputLink;
+        private List<V> values;
+
+        private Node(int depth) {
+            this.depth = depth;
+        }
+    }
+
+    /**
+     * 一次命中：text 中 [start, end) 這一段等於某個字典字串（英文不分大小寫）。
+     */
+    public static final class Match<V> {
+        private final int start;
+        private final int end;
+        private final V value;
+
+        private Match(int start, int end, V value) {
+            this.start = start;
+            this.end = end;
+            this.value = value;
+        }
+
+        public int getStart() {
+            return start;
+        }
+
+        public int getEnd() {
+            return end;
+        }
+
+        public V getValue() {
+            return value;
+        }
+    }
+}
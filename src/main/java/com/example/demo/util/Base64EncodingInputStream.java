@@ -0,0 +1,83 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.Base64;
+
+/**
+ * 邊讀邊做 Base64 編碼的 InputStream：每次只讀一小塊原始資料進固定大小的緩衝區編碼，
+ * 不需要把整個檔案與編碼後的字串放進記憶體。
+ */
+public final class Base64EncodingInputStream extends InputStream {
+
+    // 3 的倍數，除了最後一塊以外都不會產生 padding
+    private static final int RAW_BLOCK = 3 * 16 * 1024;
+
+    private final InputStream source;
+    private final Base64.Encoder encoder = Base64.getEncoder();
+    private final byte[] raw = new byte[RAW_BLOCK];
+    private final byte[] encoded = new byte[RAW_BLOCK / 3 * 4];
+    private int pos;
+    private int limit;
+    private boolean eof;
+
+    public Base64EncodingInputStream(InputStream source) {
+        this.source = source;
+    }
+
+    /**
+     * 編碼後的長度（含 padding），可用來設定 Content-Length。
+     */
+    public static long encodedLength(long rawLength) {
+        return (rawLength + 2) / 3 * 4;
+    }
+
+    @Override
+    public int read() throws IOException {
+        if (!fill()) {
+            return -1;
+        }
+        return encoded[pos++];
+    }
+
+    @Override
+    public int read(byte[] b, int off, int len) throws IOException {
+        if (len == 0) {
+            return 0;
+        }
+        if (!fill()) {
+            return -1;
+        }
+        int n = Math.min(len, limit - pos);
+        System.arraycopy(encoded, pos, b, off, n);
+        pos += n;
+        return n;
+    }
+
+    private boolean fill() throws IOException {
+        if (pos < limit) {
+            return true;
+        }
+        if (eof) {
+            return false;
+        }
+        // readNBytes 會讀滿整塊（或到檔尾），確保只有最後一塊不是 3 的倍數
+        int n = source.readNBytes(raw, 0, RAW_BLOCK);
+        if (n < RAW_BLOCK) {
+            eof = true;
+        }
+        if (n == 0) {
+            return false;
+        }
+        byte[] src = n == RAW_BLOCK ? raw : Arrays.copyOf(raw, n);
+        limit = encoder.encode(src, encoded);
+        pos = 0;
+        return true;
+    }
+
+    @Override
+    public void close() throws IOException {
+        source.close();
+    }
+}
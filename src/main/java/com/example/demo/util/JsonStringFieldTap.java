@@ -0,0 +1,145 @@
+package com.example.demo.util;
+
+import java.util.function.Consumer;
+
+/**
+ * 從分段到達的 JSON 文字中，邊收邊取出某個字串欄位的值（例如 Gemini 串流回應裡的 "summary"）。
+ * <p>
+ * 不解析整份 JSON：找到第一個 {@code "field":"} 之後開始輸出，遇到結尾的引號就停止；
+ * 跳脫字元（\n、\"、\\uXXXX 等）會還原，被切在兩段之間的跳脫序列會等下一段到了再處理。
+ * 欄位要排在其他可能含相同字樣的欄位之前（例如 prompt 指定的 JSON 結構中 summary 在第一個）。
+ */
+public final class JsonStringFieldTap {
+
+    private final String keyPattern;
+    private final Consumer<String> sink;
+
+    // 尚未找到欄位前保留的尾巴，避免 key 被切在兩段之間
+    private final StringBuilder pending = new StringBuilder();
+    private boolean inValue;
+    private boolean done;
+
+    public JsonStringFieldTap(String field, Consumer<String> sink) {
+        this.keyPattern = "\"" + field + "\"";
+        this.sink = sink;
+    }
+
+    public void accept(CharSequence chunk) {
+        if (done || chunk == null || chunk.length() == 0) {
+            return;
+        }
+        pending.append(chunk);
+        if (!inValue && !findValueStart()) {
+            return;
+        }
+        emitValue();
+    }
+
+    public boolean isDone() {
+        return done;
+    }
+
+    /**
+     * 在 pending 中找 "field" : " ；找到時把 pending 截到值的開頭。
+     */
+    private boolean findValueStart() {
+        int from = 0;
+        while (true) {
+            int key = pending.indexOf(keyPattern, from);
+            if (key < 0) {
+                // 保留可能是 key 開頭的尾巴
+                int keep = Math.min(pending.length(), keyPattern.length() + 8);
+                pending.delete(0, pending.length() - keep);
+                return false;
+            }
+            int i = skipWhitespace(key + keyPattern.length());
+            if (i >= pending.length()) {
+                pending.delete(0, key);
+                return false;
+            }
+            if (pending.charAt(i) != ':') {
+                from = key + 1;
+                continue;
+            }
+            i = skipWhitespace(i + 1);
+            if (i >= pending.length()) {
+                pending.delete(0, key);
+                return false;
+            }
+            if (pending.charAt(i) != '"') {
+                // 值不是字串（例如 null），不輸出
+                done = true;
+                pending.setLength(0);
+                return false;
+            }
+            pending.delete(0, i + 1);
+            inValue = true;
+            return true;
+        }
+    }
+
+    private int skipWhitespace(int i) {
+        while (i < pending.length() && Character.isWhitespace(pending.charAt(i))) {
+            i++;
+        }
+        return i;
+    }
+
+    private void emitValue() {
+        StringBuilder out = new StringBuilder(pending.length());
+        int i = 0;
+        int length = pending.length();
+        while (i < length) {
+            char c = pending.charAt(i);
+            if (c == '"') {
+                done = true;
+                break;
+            }
+            if (c != '\\') {
+                out.append(c);
+                i++;
+                continue;
+            }
+            if (i + 1 >= length) {
+                break;
+            }
+            char e = pending.charAt(i + 1);
+            if (e == 'u') {
+                if (i + 6 > length) {
+                    break;
+                }
+                try {
+                    out.append((char) Integer.parseInt(pending.substring(i + 2, i + 6), 16));
+                } catch (NumberFormatException ignore) {
+                    // 格式錯誤的跳脫就略過
+                }
+                i += 6;
+                continue;
+            }
+            out.append(unescape(e));
+            i += 2;
+        }
+        pending.delete(0, done ? length : i);
+        if (out.length() > 0) {
+            sink.accept(out.toString());
+        }
+    }
+
+    private static char unescape(char e) {
+        switch (e) {
+            case 'n':
+                return '\n';
+            case 't':
+                return '\t';
+            case 'r':
+                return '\r';
+            case 'b':
+                return '\b';
+            case 'f':
+                return '\f';
+            default:
+                // \" \\ \/
+                return e;
+        }
+    }
+}
@@ -0,0 +1,46 @@
+package com.example.demo.util;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * 依 key（例如音檔網址）互斥的鎖。每個 key 的鎖只在有人持有或等待時存在，
+ * 最後一個人 unlock 之後就從 map 移除，不會隨著處理過的網址越來越多而無限成長。
+ * <p>
+ * 用法與 {@link ReentrantLock} 相同：lock 之後一定要在 finally 中 unlock 同一個 key。
+ */
+public final class KeyedLocks {
+
+    private final ConcurrentHashMap<String, Entry> locks = new ConcurrentHashMap<>();
+
+    public void lock(String key) {
+        Entry entry = locks.compute(key, (k, e) -> {
+            Entry held = e != null ? e : new Entry();
+            held.refs++;
+            return held;
+        });
+        entry.lock.lock();
+    }
+
+    public void unlock(String key) {
+        Entry entry = locks.get(key);
+        if (entry == null) {
+            throw new IllegalStateException("沒有持有這個 key 的鎖: " + key);
+        }
+        entry.lock.unlock();
+        locks.computeIfPresent(key, (k, e) -> --e.refs == 0 ? null : e);
+    }
+
+    /**
+     * 目前有人持有或等待的 key 數。
+     */
+    int size() {
+        return locks.size();
+    }
+
+    private static final class Entry {
+        private final ReentrantLock lock = new ReentrantLock();
+        // 只在 ConcurrentHashMap.compute 裡讀寫，同一個 key 的 compute 彼此互斥
+        private int refs;
+    }
+}
@@ -0,0 +1,251 @@
+package com.example.demo.util;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * 依 MP3 frame 邊界把音檔切成固定長度（含少量重疊）的片段，不需要解碼。
+ * <p>
+ * 每個 frame 都是可以獨立解碼的單位，從 frame 邊界切開的片段本身就是合法的 MP3。
+ * 非 MP3（找不到連續的 frame header）時回傳單一片段，由呼叫端整段送出。
+ * <p>
+ * 以 {@link ByteBuffer} 讀取，檔案可以用 memory-mapped 的方式傳進來，不需要先載入 heap。
+ */
+public final class Mp3Splitter {
+
+    // [version: 0=MPEG1, 1=MPEG2/2.5][layer: 0=I, 1=II, 2=III][bitrate index]，單位 kbps
+    private static final int[][][] BITRATES = {
+            {
+                    {0, 32, 64, 96, 128, 160, 192, 224, 256, 288, 320, 352, 384, 416, 448},
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320, 384},
+                    {0, 32, 40, 48, 56, 64, 80, 96, 112, 128, 160, 192, 224, 256, 320}
+            },
+            {
+                    {0, 32, 48, 56, 64, 80, 96, 112, 128, 144, 160, 176, 192, 224, 256},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160},
+                    {0, 8, 16, 24, 32, 40, 48, 56, 64, 80, 96, 112, 128, 144, 160}
+            }
+    };
+
+    // [MPEG1, MPEG2, MPEG2.5][sample rate index]
+    private static final int[][] SAMPLE_RATES = {
+            {44100, 48000, 32000},
+            {22050, 24000, 16000},
+            {11025, 12000, 8000}
+    };
+
+    // 解析出的 frame 至少要涵蓋這個比例的位元組，才當作 MP3 處理
+    private static final double MIN_FRAME_COVERAGE = 0.9;
+
+    private Mp3Splitter() {
+    }
+
+    /**
+     * 片段在原始音檔中的位元組範圍 [start, end) 與起始秒數。
+     */
+    public static final class Chunk {
+        private final int index;
+        private final long start;
+        private final long end;
+        private final double startSeconds;
+
+        public Chunk(int index, long start, long end, double startSeconds) {
+            this.index = index;
+            this.start = start;
+            this.end = end;
+            this.startSeconds = startSeconds;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getStart() {
+            return start;
+        }
+
+        public long getEnd() {
+            return end;
+        }
+
+        public long length() {
+            return end - start;
+        }
+
+        public double getStartSeconds() {
+            return startSeconds;
+        }
+
+        public byte[] slice(byte[] audio) {
+            return Arrays.copyOfRange(audio, (int) start, (int) end);
+        }
+    }
+
+    /**
+     * @param chunkSeconds   每段的長度（不含重疊）
+     * @param overlapSeconds 每段往後多帶的秒數，讓下一段開頭的句子在兩段都出現，方便接合
+     */
+    public static List<Chunk> split(byte[] audio, double chunkSeconds, double overlapSeconds) {
+        if (audio == null || audio.length == 0) {
+            return Collections.emptyList();
+        }
+        return split(ByteBuffer.wrap(audio), chunkSeconds, overlapSeconds);
+    }
+
+    /**
+     * 同 {@link #split(byte[], double, double)}，從 buffer 的位置 0 讀到 limit。
+     */
+    public static List<Chunk> split(ByteBuffer audio, double chunkSeconds, double overlapSeconds) {
+        int size = audio.limit();
+        if (size == 0) {
+            return Collections.emptyList();
+        }
+        Chunk whole = new Chunk(0, 0, size, 0);
+
+        int pos = skipId3v2(audio);
+        int dataStart = pos;
+
+        // 先走過所有 frame，記下每個 frame 的位置與起始時間
+        int[] offsets = new int[1024];
+        double[] times = new double[1024];
+        int frames = 0;
+        long covered = 0;
+        double t = 0;
+
+        while (pos + 4 <= size) {
+            int length = frameLength(audio, pos);
+            if (length <= 0 || pos + length > size) {
+                pos++; // 不是 frame header（或被截斷），往後找下一個同步字
+                continue;
+            }
+            if (frames == offsets.length) {
+                offsets = Arrays.copyOf(offsets, frames * 2);
+                times = Arrays.copyOf(times, frames * 2);
+            }
+            offsets[frames] = pos;
+            times[frames] = t;
+            frames++;
+            covered += length;
+            t += frameSeconds(audio, pos);
+            pos += length;
+        }
+
+        if (frames == 0 || covered < (size - dataStart) * MIN_FRAME_COVERAGE) {
+            return Collections.singletonList(whole);
+        }
+
+        // 第一個 frame 若是 Xing / Info（VBR 標頭，記錄整檔的長度），不放進片段裡
+        int first = isXingFrame(audio, offsets[0]) ? 1 : 0;
+        int end = offsets[frames - 1] + frameLength(audio, offsets[frames - 1]);
+        if (t <= chunkSeconds + overlapSeconds || first >= frames) {
+            return Collections.singletonList(whole);
+        }
+
+        List<Chunk> chunks = new ArrayList<>();
+        int startFrame = first;
+        while (startFrame < frames) {
+            double startTime = times[startFrame];
+            int nextStart = firstFrameAtOrAfter(times, startFrame, frames, startTime + chunkSeconds);
+            int stopFrame = firstFrameAtOrAfter(times, nextStart, frames, startTime + chunkSeconds + overlapSeconds);
+
+            // 最後一小段太短就併進這一段
+            if (nextStart < frames && t - times[nextStart] < overlapSeconds * 2) {
+                nextStart = frames;
+                stopFrame = frames;
+            }
+
+            long to = stopFrame < frames ? offsets[stopFrame] : end;
+            chunks.add(new Chunk(chunks.size(), offsets[startFrame], to, startTime));
+            startFrame = nextStart;
+        }
+        return chunks;
+    }
+
+    private static int firstFrameAtOrAfter(double[] times, int from, int frames, double time) {
+        int i = from;
+        while (i < frames && times[i] < time) {
+            i++;
+        }
+        return i;
+    }
+
+    private static int skipId3v2(ByteBuffer audio) {
+        if (audio.limit() < 10 || audio.get(0) != 'I' || audio.get(1) != 'D' || audio.get(2) != '3') {
+            return 0;
+        }
+        // syncsafe integer：每個 byte 只用低 7 bits
+        int tagSize = ((audio.get(6) & 0x7F) << 21) | ((audio.get(7) & 0x7F) << 14)
+                | ((audio.get(8) & 0x7F) << 7) | (audio.get(9) & 0x7F);
+        boolean footer = (audio.get(5) & 0x10) != 0;
+        int total = 10 + tagSize + (footer ? 10 : 0);
+        return Math.min(total, audio.limit());
+    }
+
+    /**
+     * 回傳 pos 處 frame 的長度（位元組），不是合法 header 時回傳 -1。
+     */
+    static int frameLength(ByteBuffer b, int pos) {
+        int h1 = b.get(pos) & 0xFF;
+        int h2 = b.get(pos + 1) & 0xFF;
+        int h3 = b.get(pos + 2) & 0xFF;
+        if (h1 != 0xFF || (h2 & 0xE0) != 0xE0) {
+            return -1;
+        }
+        int versionBits = (h2 >> 3) & 0x03;
+        int layerBits = (h2 >> 1) & 0x03;
+        int bitrateIndex = (h3 >> 4) & 0x0F;
+        int sampleRateIndex = (h3 >> 2) & 0x03;
+        int padding = (h3 >> 1) & 0x01;
+        if (versionBits == 1 || layerBits == 0 || bitrateIndex == 0 || bitrateIndex == 15 || sampleRateIndex == 3) {
+            return -1;
+        }
+
+        int layer = 3 - layerBits; // 0 = Layer I, 1 = II, 2 = III
+        int bitrate = BITRATES[versionBits == 3 ? 0 : 1][layer][bitrateIndex] * 1000;
+        int sampleRate = SAMPLE_RATES[versionIndex(versionBits)][sampleRateIndex];
+
+        if (layer == 0) {
+            return (12 * bitrate / sampleRate + padding) * 4;
+        }
+        return samplesPerFrame(versionBits, layer) / 8 * bitrate / sampleRate + padding;
+    }
+
+    private static double frameSeconds(ByteBuffer b, int pos) {
+        int h2 = b.get(pos + 1) & 0xFF;
+        int h3 = b.get(pos + 2) & 0xFF;
+        int versionBits = (h2 >> 3) & 0x03;
+        int layer = 3 - ((h2 >> 1) & 0x03);
+        int sampleRate = SAMPLE_RATES[versionIndex(versionBits)][(h3 >> 2) & 0x03];
+        return (double) samplesPerFrame(versionBits, layer) / sampleRate;
+    }
+
+    private static int versionIndex(int versionBits) {
+        // 11 = MPEG1, 10 = MPEG2, 00 = MPEG2.5
+        return versionBits == 3 ? 0 : versionBits == 2 ? 1 : 2;
+    }
+
+    private static int samplesPerFrame(int versionBits, int layer) {
+        if (layer == 0) {
+            return 384;
+        }
+        if (layer == 1) {
+            return 1152;
+        }
+        return versionBits == 3 ? 1152 : 576;
+    }
+
+    private static boolean isXingFrame(ByteBuffer b, int pos) {
+        int length = frameLength(b, pos);
+        int limit = Math.min(pos + Math.min(length, 64), b.limit() - 4);
+        for (int i = pos + 4; i <= limit; i++) {
+            if ((b.get(i) == 'X' && b.get(i + 1) == 'i' && b.get(i + 2) == 'n' && b.get(i + 3) == 'g')
+                    || (b.get(i) == 'I' && b.get(i + 1) == 'n' && b.get(i + 2) == 'f' && b.get(i + 3) == 'o')) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -0,0 +1,206 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.SectorView;
+import com.example.demo.model.TickerView;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 合併長逐字稿各段的分析結果（map-reduce 的 reduce 端，不含 summary）：
+ * <p>
+ * - tickers：代碼或名稱相同就合併（例如某段只給「台積電」、另一段給 2330 / 台積電），
+ *   但代碼不同的不會因為名稱相同而合併；情緒以多數決，偏多與偏空票數相同時視為 neutral
+ * - sectors：依名稱合併，情緒規則同上
+ * - macroView：去除重複，保留第一次出現的順序
+ * 理由（reason）保留前幾個不重複的句子，用「；」串接。
+ */
+public final class PodcastAnalysisMerger {
+
+    private static final int MAX_REASONS = 3;
+
+    private PodcastAnalysisMerger() {
+    }
+
+    /**
+     * @param parts 依逐字稿順序排列
+     */
+    public static PodcastAnalysisResult merge(List<PodcastAnalysisResult> parts) {
+        List<Merged> tickers = new ArrayList<>();
+        Map<String, Merged> tickersBySymbol = new HashMap<>();
+        Map<String, Merged> tickersByName = new HashMap<>();
+        Map<String, Merged> sectors = new LinkedHashMap<>();
+        Set<String> macro = new LinkedHashSet<>();
+
+        for (PodcastAnalysisResult part : parts) {
+            if (part.getTickers() != null) {
+                for (TickerView t : part.getTickers()) {
+                    if (t == null) {
+                        continue;
+                    }
+                    String symbolKey = key(t.getSymbol());
+                    String nameKey = key(t.getName());
+                    if (symbolKey == null && nameKey == null) {
+                        continue;
+                    }
+                    Merged m = findTicker(tickers, tickersBySymbol, tickersByName, symbolKey, nameKey);
+                    if (m.symbol == null && symbolKey != null) {
+                        m.symbol = t.getSymbol().trim();
+                    }
+                    if (m.name == null && nameKey != null) {
+                        m.name = t.getName().trim();
+                    }
+                    if (symbolKey != null) {
+                        tickersBySymbol.put(symbolKey, m);
+                    }
+                    if (nameKey != null) {
+                        tickersByName.putIfAbsent(nameKey, m);
+                    }
+                    m.vote(t.getSentiment(), t.getReason());
+                }
+            }
+            if (part.getSectors() != null) {
+                for (SectorView s : part.getSectors()) {
+                    if (s == null) {
+                        continue;
+                    }
+                    String key = key(s.getName());
+                    if (key == null) {
+                        continue;
+                    }
+                    Merged m = sectors.computeIfAbsent(key, k -> new Merged());
+                    m.name = m.name != null ? m.name : s.getName();
+                    m.vote(s.getSentiment(), s.getReason());
+                }
+            }
+            if (part.getMacroView() != null) {
+                for (String view : part.getMacroView()) {
+                    if (view != null && !view.isBlank()) {
+                        macro.add(view.trim());
+                    }
+                }
+            }
+        }
+
+        List<TickerView> tickerViews = new ArrayList<>(tickers.size());
+        for (Merged m : tickers) {
+            TickerView t = new TickerView();
+            t.setSymbol(m.symbol);
+            t.setName(m.name);
+            t.setSentiment(m.sentiment());
+            t.setReason(m.reason());
+            tickerViews.add(t);
+        }
+
+        List<SectorView> sectorViews = new ArrayList<>(sectors.size());
+        for (Merged m : sectors.values()) {
+            SectorView s = new SectorView();
+            s.setName(m.name);
+            s.setSentiment(m.sentiment());
+            s.setReason(m.reason());
+            sectorViews.add(s);
+        }
+
+        PodcastAnalysisResult merged = new PodcastAnalysisResult();
+        merged.setTickers(tickerViews);
+        merged.setSectors(sectorViews);
+        merged.setMacroView(new ArrayList<>(macro));
+        return merged;
+    }
+
+    /**
+     * 先依代碼找，再依名稱找（只接受沒有代碼、或代碼相同的項目）；
+     * 兩邊找到的是不同項目時（先前一段只給代碼、一段只給名稱），把名稱那一筆併進代碼那一筆。
+     */
+    private static Merged findTicker(List<Merged> tickers, Map<String, Merged> bySymbol,
+                                     Map<String, Merged> byName, String symbolKey, String nameKey) {
+        Merged bySym = symbolKey != null ? bySymbol.get(symbolKey) : null;
+        Merged byNm = nameKey != null ? byName.get(nameKey) : null;
+        if (byNm != null && symbolKey != null && byNm.symbol != null
+                && !symbolKey.equals(key(byNm.symbol))) {
+            byNm = null;
+        }
+
+        if (bySym == null && byNm == null) {
+            Merged m = new Merged();
+            tickers.add(m);
+            return m;
+        }
+        if (bySym == null || byNm == null || bySym == byNm) {
+            return bySym != null ? bySym : byNm;
+        }
+
+        bySym.absorb(byNm);
+        tickers.remove(byNm);
+        for (Map.Entry<String, Merged> e : byName.entrySet()) {
+            if (e.getValue() == byNm) {
+                e.setValue(bySym);
+            }
+        }
+        return bySym;
+    }
+
+    private static String key(String raw) {
+        if (raw == null || raw.isBlank() || raw.trim().equalsIgnoreCase("null")) {
+            return null;
+        }
+        return raw.trim().toUpperCase(Locale.ROOT);
+    }
+
+    private static final class Merged {
+        private String symbol;
+        private String name;
+        private int bullish;
+        private int bearish;
+        private int neutral;
+        private final Set<String> reasons = new LinkedHashSet<>();
+
+        private void vote(String sentiment, String reason) {
+            String s = sentiment == null ? "" : sentiment.trim().toLowerCase(Locale.ROOT);
+            if ("bullish".equals(s)) {
+                bullish++;
+            } else if ("bearish".equals(s)) {
+                bearish++;
+            } else {
+                neutral++;
+            }
+            if (reason != null && !reason.isBlank() && reasons.size() < MAX_REASONS) {
+                reasons.add(reason.trim());
+            }
+        }
+
+        private void absorb(Merged other) {
+            name = name != null ? name : other.name;
+            bullish += other.bullish;
+            bearish += other.bearish;
+            neutral += other.neutral;
+            for (String reason : other.reasons) {
+                if (reasons.size() >= MAX_REASONS) {
+                    break;
+                }
+                reasons.add(reason);
+            }
+        }
+
+        private String sentiment() {
+            if (bullish > bearish && bullish >= neutral) {
+                return "bullish";
+            }
+            if (bearish > bullish && bearish >= neutral) {
+                return "bearish";
+            }
+            return "neutral";
+        }
+
+        private String reason() {
+            return reasons.isEmpty() ? null : String.join("；", reasons);
+        }
+    }
+}
@@ -0,0 +1,57 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PriceSeries;
+
+/**
+ * 直接在 {@link PriceSeries} 的收盤價欄位上計算的指標，全程使用 primitive double，不產生物件。
+ * 公式與 ta4j 的 SMAIndicator / RSIIndicator 一致，方便兩邊結果互相對照。
+ */
+public final class PriceIndicators {
+
+    private PriceIndicators() {
+    }
+
+    /**
+     * 最後 period 根收盤價的簡單移動平均；資料不足 period 根時用全部資料。
+     */
+    public static double sma(PriceSeries series, int period) {
+        int size = series.size();
+        if (size == 0 || period <= 0) {
+            return 0.0;
+        }
+        int from = Math.max(0, size - period);
+        double sum = 0.0;
+        for (int i = from; i < size; i++) {
+            sum += series.close(i);
+        }
+        return sum / (size - from);
+    }
+
+    /**
+     * Wilder RSI：漲跌幅以 1/period 的平滑移動平均（MMA）累積，從第一根一路算到最後一根。
+     * 資料不超過 period 根時回傳 0。
+     */
+    public static double wilderRsi(PriceSeries series, int period) {
+        int size = series.size();
+        if (size <= period || period <= 0) {
+            return 0.0;
+        }
+
+        double alpha = 1.0 / period;
+        double avgGain = 0.0;
+        double avgLoss = 0.0;
+        for (int i = 1; i < size; i++) {
+            double diff = series.close(i) - series.close(i - 1);
+            double gain = diff > 0 ? diff : 0.0;
+            double loss = diff < 0 ? -diff : 0.0;
+            avgGain += (gain - avgGain) * alpha;
+            avgLoss += (loss - avgLoss) * alpha;
+        }
+
+        if (avgLoss == 0.0) {
+            return avgGain == 0.0 ? 0.0 : 100.0;
+        }
+        double rs = avgGain / avgLoss;
+        return 100.0 - 100.0 / (1.0 + rs);
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PriceSeries;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+/**
+ * 用 Jackson streaming {@link JsonParser} 逐 token 讀取 FinMind / FMP 的日 K 回應，
+ * 直接填進 {@link PriceSeries.Builder}，不經過 String → JsonNode tree → List 的多次複製。
+ * <p>
+ * 日期欄位直接從 parser 的字元緩衝區解析成 epochDay，不建立字串。
+ */
+public final class PriceJsonReader {
+
+    private static final int INVALID_DAY = Integer.MIN_VALUE;
+
+    private PriceJsonReader() {
+    }
+
+    /**
+     * 讀取 FinMind 回應：{"msg": "...", "status": 200, "data": [ {...}, ... ]}。
+     * FinMind 依日期由舊到新排序，讀到晚於 to 的資料就提早停止。
+     *
+     * @throws IllegalStateException msg 不是 success 時
+     */
+    public static PriceSeries readFinMind(JsonParser parser, LocalDate from, LocalDate to) throws IOException {
+        PriceSeries.Builder builder = PriceSeries.builder(256);
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        String msg = null;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("FinMind 回應格式不符合預期（不是 JSON 物件）。");
+        }
+
+        Row row = new Row();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("msg".equals(field)) {
+                msg = parser.getValueAsString();
+            } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readFinMindRow(parser, row, false);
+                    if (row.epochDay == INVALID_DAY || !row.hasClose) {
+                        continue;
+                    }
+                    if (row.epochDay > toDay) {
+                        // 之後的資料只會更新，不用再讀了
+                        return finishFinMind(builder, msg);
+                    }
+                    if (row.epochDay >= fromDay) {
+                        builder.add(row.epochDay, row.open, row.high, row.low, row.close, row.volume);
+                    }
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        return finishFinMind(builder, msg);
+    }
+
+    /**
+     * 讀取不帶 data_id 的全市場 FinMind 回應，依 stock_id 拆成各檔的序列。
+     * 只保留 wanted 裡的代號；全市場資料的排序不保證依日期，所以不提早停止。
+     *
+     * @return key = stock_id，只包含實際有資料的代號
+     * @throws IllegalStateException msg 不是 success 時
+     */
+    public static Map<String, PriceSeries> readFinMindByStock(JsonParser parser, LocalDate from, LocalDate to,
+                                                              Set<String> wanted) throws IOException {
+        Map<String, PriceSeries.Builder> builders = new HashMap<>();
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+        String msg = null;
+
+        if (parser.nextToken() != JsonToken.START_OBJECT) {
+            throw new IllegalStateException("FinMind 回應格式不符合預期（不是 JSON 物件）。");
+        }
+
+        Row row = new Row();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("msg".equals(field)) {
+                msg = parser.getValueAsString();
+            } else if ("data".equals(field) && value == JsonToken.START_ARRAY) {
+                while (parser.nextToken() == JsonToken.START_OBJECT) {
+                    readFinMindRow(parser, row, true);
+                    if (row.epochDay == INVALID_DAY || !row.hasClose || row.stockId == null
+                            || row.epochDay < fromDay || row.epochDay > toDay
+                            || !wanted.contains(row.stockId)) {
+                        continue;
+                    }
+                    builders.computeIfAbsent(row.stockId, k -> PriceSeries.builder(16))
+                            .add(row.epochDay, row.open, row.high, row.low, row.close, row.volume);
+                }
+            } else {
+                parser.skipChildren();
+            }
+        }
+
+        if (msg != null && !"success".equalsIgnoreCase(msg)) {
+            throw new IllegalStateException("FinMind 回傳錯誤: " + msg);
+        }
+
+        Map<String, PriceSeries> result = new LinkedHashMap<>();
+        for (Map.Entry<String, PriceSeries.Builder> e : builders.entrySet()) {
+            result.put(e.getKey(), e.getValue().build());
+        }
+        return result;
+    }
+
+    /**
+     * 讀取 FMP historical-price-eod 回應：直接是陣列，或是 {"historical": [...]}。
+     * FMP 依日期由新到舊排序，讀到早於 from 的資料就提早停止。
+     *
+     * @throws IllegalStateException 回應中帶有 "Error Message" 時
+     */
+    public static PriceSeries readFmp(JsonParser parser, LocalDate from, LocalDate to) throws IOException {
+        PriceSeries.Builder builder = PriceSeries.builder(256);
+        int fromDay = (int) from.toEpochDay();
+        int toDay = (int) to.toEpochDay();
+
+        JsonToken first = parser.nextToken();
+        if (first == JsonToken.START_ARRAY) {
+            readFmpArray(parser, builder, fromDay, toDay);
+            return builder.build();
+        }
+        if (first != JsonToken.START_OBJECT) {
+            return PriceSeries.empty();
+        }
+
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+
+            if ("Error Message".equals(field)) {
+                throw new IllegalStateException("FMP API 回傳錯誤: " + parser.getValueAsString());
+            } else if ("historical".equals(field) && value == JsonToken.START_ARRAY) {
+                readFmpArray(parser, builder, fromDay, toDay);
+                return builder.build();
+            } else {
+                parser.skipChildren();
+            }
+        }
+        return builder.build();
+    }
+
+    private static void readFmpArray(JsonParser parser, PriceSeries.Builder builder,
+                                     int fromDay, int toDay) throws IOException {
+        Row row = new Row();
+        while (parser.nextToken() == JsonToken.START_OBJECT) {
+            readFmpRow(parser, row);
+            if (row.epochDay == INVALID_DAY || !row.hasClose) {
+                continue;
+            }
+            if (row.epochDay < fromDay) {
+                // 新到舊排序，之後都是更舊的資料
+                return;
+            }
+            if (row.epochDay <= toDay) {
+                builder.add(row.epochDay, row.open, row.high, row.low, row.close, row.volume);
+            }
+        }
+    }
+
+    private static PriceSeries finishFinMind(PriceSeries.Builder builder, String msg) {
+        if (msg != null && !"success".equalsIgnoreCase(msg)) {
+            throw new IllegalStateException("FinMind 回傳錯誤: " + msg);
+        }
+        return builder.build();
+    }
+
+    private static void readFinMindRow(JsonParser parser, Row row, boolean withStockId) throws IOException {
+        row.reset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "date":
+                    row.epochDay = readEpochDay(parser, value);
+                    break;
+                case "stock_id":
+                    // 單檔查詢用不到，不建立字串
+                    if (withStockId && value == JsonToken.VALUE_STRING) {
+                        row.stockId = parser.getText();
+                    }
+                    break;
+                case "open":
+                    row.open = readDouble(parser, value);
+                    break;
+                case "max":
+                    row.high = readDouble(parser, value);
+                    break;
+                case "min":
+                    row.low = readDouble(parser, value);
+                    break;
+                case "close":
+                    row.close = readDouble(parser, value);
+                    row.hasClose = !Double.isNaN(row.close);
+                    break;
+                case "Trading_Volume":
+                    row.volume = readLong(parser, value);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        fillMissingWithClose(row);
+    }
+
+    private static void readFmpRow(JsonParser parser, Row row) throws IOException {
+        row.reset();
+        while (parser.nextToken() == JsonToken.FIELD_NAME) {
+            String field = parser.getCurrentName();
+            JsonToken value = parser.nextToken();
+            switch (field) {
+                case "date":
+                    row.epochDay = readEpochDay(parser, value);
+                    break;
+                case "open":
+                    row.open = readDouble(parser, value);
+                    break;
+                case "high":
+                    row.high = readDouble(parser, value);
+                    break;
+                case "low":
+                    row.low = readDouble(parser, value);
+                    break;
+                case "close":
+                    // 跟舊版一樣只接受數字型態的收盤價
+                    row.hasClose = value.isNumeric();
+                    row.close = row.hasClose ? parser.getDoubleValue() : Double.NaN;
+                    break;
+                case "volume":
+                    row.volume = readLong(parser, value);
+                    break;
+                default:
+                    parser.skipChildren();
+            }
+        }
+        fillMissingWithClose(row);
+    }
+
+    // 缺 open/high/low 的資料用收盤價補
+    private static void fillMissingWithClose(Row row) {
+        if (row.hasClose) {
+            if (Double.isNaN(row.open)) {
+                row.open = row.close;
+            }
+            if (Double.isNaN(row.high)) {
+                row.high = row.close;
+            }
+            if (Double.isNaN(row.low)) {
+                row.low = row.close;
+            }
+        }
+    }
+
+    private static double readDouble(JsonParser parser, JsonToken value) throws IOException {
+        if (value.isNumeric()) {
+            return parser.getDoubleValue();
+        }
+        if (value == JsonToken.VALUE_STRING) {
+            try {
+                return Double.parseDouble(parser.getText());
+            } catch (NumberFormatException ignore) {
+                return Double.NaN;
+            }
+        }
+        parser.skipChildren();
+        return Double.NaN;
+    }
+
+    private static long readLong(JsonParser parser, JsonToken value) throws IOException {
+        if (value == JsonToken.VALUE_NUMBER_INT) {
+            return parser.getLongValue();
+        }
+        if (value == JsonToken.VALUE_NUMBER_FLOAT) {
+            return (long) parser.getDoubleValue();
+        }
+        parser.skipChildren();
+        return 0L;
+    }
+
+    private static int readEpochDay(JsonParser parser, JsonToken value) throws IOException {
+        if (value != JsonToken.VALUE_STRING) {
+            parser.skipChildren();
+            return INVALID_DAY;
+        }
+        return parseEpochDay(parser.getTextCharacters(), parser.getTextOffset(), parser.getTextLength());
+    }
+
+    /**
+     * 解析 "yyyy-MM-dd"（後面允許接時間，例如 "2024-08-16 00:00:00"）成 epochDay。
+     */
+    static int parseEpochDay(char[] buf, int off, int len) {
+        if (len < 10 || buf[off + 4] != '-' || buf[off + 7] != '-') {
+            return INVALID_DAY;
+        }
+        int year = digits(buf, off, 4);
+        int month = digits(buf, off + 5, 2);
+        int day = digits(buf, off + 8, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > 31) {
+            return INVALID_DAY;
+        }
+        return daysFromCivil(year, month, day);
+    }
+
+    private static int digits(char[] buf, int off, int count) {
+        int v = 0;
+        for (int i = 0; i < count; i++) {
+            char c = buf[off + i];
+            if (c < '0' || c > '9') {
+                return -1;
+            }
+            v = v * 10 + (c - '0');
+        }
+        return v;
+    }
+
+    /**
+     * 西曆日期轉 1970-01-01 起算的天數（Howard Hinnant 的 days_from_civil），結果與 LocalDate.toEpochDay 相同。
+     */
+    private static int daysFromCivil(int y, int m, int d) {
+        y -= m <= 2 ? 1 : 0;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yoe = y - era * 400;
+        int doy = (153 * (m + (m > 2 ? -3 : 9)) + 2) / 5 + d - 1;
+        int doe = yoe * 365 + yoe / 4 - yoe / 100 + doy;
+        return era * 146097 + doe - 719468;
+    }
+
+    /**
+     * 逐筆重複使用的欄位暫存，避免每根 K 線建立物件。
+     */
+    static final class Row {
+        int epochDay;
+        double open;
+        double high;
+        double low;
+        double close;
+        long volume;
+        boolean hasClose;
+        String stockId;
+
+        void reset() {
+            epochDay = INVALID_DAY;
+            stockId = null;
+            open = Double.NaN;
+            high = Double.NaN;
+            low = Double.NaN;
+            close = Double.NaN;
+            volume = 0L;
+            hasClose = false;
+        }
+    }
+}
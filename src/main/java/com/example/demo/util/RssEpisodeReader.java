@@ -0,0 +1,140 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PodcastEpisode;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+import java.io.InputStream;
+import java.util.function.Consumer;
+
+/**
+ * 用 StAX {@link XMLStreamReader} 逐個事件讀取 RSS，每讀完一個 &lt;item&gt; 就交給呼叫端，
+ * 收集到 limit 集就停止，不建立整份 DOM，記憶體用量與 feed 大小無關。
+ * <p>
+ * 欄位對應與原本的 DOM 版本相同：取 item 裡第一個 title / link / guid / pubDate，
+ * 以及第一個 enclosure 的 url；帶 namespace prefix 的元素（例如 itunes:title）不算。
+ */
+public final class RssEpisodeReader {
+
+    private static final XMLInputFactory FACTORY = newFactory();
+
+    private RssEpisodeReader() {
+    }
+
+    private static XMLInputFactory newFactory() {
+        XMLInputFactory factory = XMLInputFactory.newInstance();
+        factory.setProperty(XMLInputFactory.IS_NAMESPACE_AWARE, true);
+        factory.setProperty(XMLInputFactory.IS_COALESCING, true);
+        // RSS 不需要 DTD，順便避開外部實體（XXE）
+        factory.setProperty(XMLInputFactory.SUPPORT_DTD, false);
+        factory.setProperty(XMLInputFactory.IS_SUPPORTING_EXTERNAL_ENTITIES, false);
+        return factory;
+    }
+
+    /**
+     * 讀取最多 limit 集；編碼以 XML 宣告為準。不會關閉 in，提早停止時由呼叫端關閉連線。
+     *
+     * @return true 表示整份 feed 都讀完了（集數不到 limit）；false 表示在 limit 提早停止
+     */
+    public static boolean read(InputStream in, int limit, Consumer<PodcastEpisode> sink) throws XMLStreamException {
+        if (limit <= 0) {
+            return false;
+        }
+        XMLStreamReader reader = FACTORY.createXMLStreamReader(in);
+        try {
+            int count = 0;
+            while (reader.hasNext()) {
+                if (reader.next() == XMLStreamConstants.START_ELEMENT && isPlain(reader, "item")) {
+                    sink.accept(readItem(reader));
+                    if (++count >= limit) {
+                        return false;
+                    }
+                }
+            }
+            return true;
+        } finally {
+            reader.close();
+        }
+    }
+
+    /**
+     * 從 &lt;item&gt; 的 START_ELEMENT 開始，讀到對應的 END_ELEMENT 為止。
+     */
+    private static PodcastEpisode readItem(XMLStreamReader reader) throws XMLStreamException {
+        PodcastEpisode ep = new PodcastEpisode();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            if (event == XMLStreamConstants.END_ELEMENT) {
+                depth--;
+                continue;
+            }
+            if (event != XMLStreamConstants.START_ELEMENT) {
+                continue;
+            }
+            depth++;
+
+            if (!isPlainNamespace(reader)) {
+                continue;
+            }
+            String name = reader.getLocalName();
+            if ("enclosure".equals(name)) {
+                if (ep.getAudioUrl() == null) {
+                    String url = reader.getAttributeValue(null, "url");
+                    ep.setAudioUrl(url == null ? "" : url);
+                }
+            } else if ("title".equals(name) && ep.getTitle() == null) {
+                ep.setTitle(readText(reader));
+                depth--;
+            } else if ("link".equals(name) && ep.getLink() == null) {
+                ep.setLink(readText(reader));
+                depth--;
+            } else if ("guid".equals(name) && ep.getGuid() == null) {
+                ep.setGuid(readText(reader));
+                depth--;
+            } else if ("pubDate".equals(name) && ep.getPubDate() == null) {
+                ep.setPubDate(readText(reader));
+                depth--;
+            }
+        }
+        return ep;
+    }
+
+    /**
+     * 讀取目前元素底下所有文字（同 DOM 的 getTextContent），停在該元素的 END_ELEMENT。
+     */
+    private static String readText(XMLStreamReader reader) throws XMLStreamException {
+        StringBuilder sb = new StringBuilder();
+        int depth = 1;
+        while (depth > 0) {
+            int event = reader.next();
+            switch (event) {
+                case XMLStreamConstants.START_ELEMENT:
+                    depth++;
+                    break;
+                case XMLStreamConstants.END_ELEMENT:
+                    depth--;
+                    break;
+                case XMLStreamConstants.CHARACTERS:
+                case XMLStreamConstants.CDATA:
+                case XMLStreamConstants.SPACE:
+                    sb.append(reader.getTextCharacters(), reader.getTextStart(), reader.getTextLength());
+                    break;
+                default:
+                    break;
+            }
+        }
+        return sb.toString();
+    }
+
+    private static boolean isPlain(XMLStreamReader reader, String localName) {
+        return localName.equals(reader.getLocalName()) && isPlainNamespace(reader);
+    }
+
+    private static boolean isPlainNamespace(XMLStreamReader reader) {
+        String prefix = reader.getPrefix();
+        return prefix == null || prefix.isEmpty();
+    }
+}
@@ -0,0 +1,73 @@
+package com.example.demo.util;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.security.DigestInputStream;
+import java.security.MessageDigest;
+
+/**
+ * 上傳音檔落地成暫存檔的共用工具。
+ */
+public final class TempFiles {
+
+    private TempFiles() {
+    }
+
+    /**
+     * 已落地的暫存檔，附帶寫入時順便算出的 SHA-256。
+     */
+    public static final class Saved {
+        private final Path path;
+        private final String sha256;
+        private final long size;
+
+        private Saved(Path path, String sha256, long size) {
+            this.path = path;
+            this.sha256 = sha256;
+            this.size = size;
+        }
+
+        public Path getPath() {
+            return path;
+        }
+
+        public String getSha256() {
+            return sha256;
+        }
+
+        public long getSize() {
+            return size;
+        }
+    }
+
+    /**
+     * 把 in 的內容寫進新的暫存檔，寫入的同時計算 SHA-256（只讀一次）。
+     * 失敗時會刪掉寫到一半的檔案。
+     */
+    public static Saved saveWithSha256(InputStream in, String prefix, String suffix) throws IOException {
+        Path file = Files.createTempFile(prefix, suffix);
+        MessageDigest digest = Sha256.newDigest();
+        try (InputStream src = new DigestInputStream(in, digest);
+             OutputStream out = Files.newOutputStream(file)) {
+            long size = src.transferTo(out);
+            return new Saved(file, Sha256.hex(digest.digest()), size);
+        } catch (IOException | RuntimeException e) {
+            deleteQuietly(file);
+            throw e;
+        }
+    }
+
+    public static void deleteQuietly(Path path) {
+        if (path == null) {
+            return;
+        }
+        try {
+            Files.deleteIfExists(path);
+        } catch (IOException ignore) {
+            // 暫存檔刪不掉就留給系統清理
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package com.example.demo.util;
+
+import java.time.DayOfWeek;
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+
+/**
+ * 台股 / 美股的交易時段判斷（只處理週末，不含國定假日）。
+ * <p>
+ * 「資料可用時間」= 收盤時間 + 資料源發布延遲，過了這個時間才預期拿得到當天的日 K。
+ */
+public final class TradingCalendar {
+
+    public static final String MARKET_TW = "TW";
+    public static final String MARKET_US = "US";
+
+    private static final ZoneId TW_ZONE = ZoneId.of("Asia/Taipei");
+    private static final ZoneId US_ZONE = ZoneId.of("America/New_York");
+
+    // 台股 13:30 收盤，FinMind 通常收盤後一段時間才更新
+    private static final LocalTime TW_CLOSE = LocalTime.of(13, 30);
+    private static final LocalTime TW_DATA_READY = LocalTime.of(14, 30);
+
+    // 美股 16:00 收盤（紐約時間，自動處理夏令時間）
+    private static final LocalTime US_CLOSE = LocalTime.of(16, 0);
+    private static final LocalTime US_DATA_READY = LocalTime.of(17, 0);
+
+    private TradingCalendar() {
+    }
+
+    public static ZoneId zone(String market) {
+        return MARKET_TW.equalsIgnoreCase(market) ? TW_ZONE : US_ZONE;
+    }
+
+    public static LocalTime closeTime(String market) {
+        return MARKET_TW.equalsIgnoreCase(market) ? TW_CLOSE : US_CLOSE;
+    }
+
+    public static LocalDate today(String market, Instant now) {
+        return now.atZone(zone(market)).toLocalDate();
+    }
+
+    public static boolean isTradingDay(LocalDate date) {
+        DayOfWeek dow = date.getDayOfWeek();
+        return dow != DayOfWeek.SATURDAY && dow != DayOfWeek.SUNDAY;
+    }
+
+    /**
+     * 該交易日的日 K 預期可以從資料源取得的時間點。
+     */
+    public static Instant dataReadyInstant(String market, LocalDate session) {
+        LocalTime ready = MARKET_TW.equalsIgnoreCase(market) ? TW_DATA_READY : US_DATA_READY;
+        return ZonedDateTime.of(session, ready, zone(market)).toInstant();
+    }
+
+    /**
+     * 截至 now 為止，最近一個「日 K 已經可以取得」的交易日。
+     */
+    public static LocalDate lastCompletedSession(String market, Instant now) {
+        LocalDate day = today(market, now);
+        if (!isTradingDay(day) || now.isBefore(dataReadyInstant(market, day))) {
+            day = previousTradingDay(day);
+        }
+        while (!isTradingDay(day)) {
+            day = day.minusDays(1);
+        }
+        return day;
+    }
+
+    public static LocalDate previousTradingDay(LocalDate date) {
+        LocalDate d = date.minusDays(1);
+        while (!isTradingDay(d)) {
+            d = d.minusDays(1);
+        }
+        return d;
+    }
+}
@@ -0,0 +1,128 @@
+package com.example.demo.util;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 把長逐字稿依句子邊界切成多段，每段不超過指定的 token 預算。
+ * <p>
+ * token 數為估計值：中日韓文字約 1 字 1 token，其他文字約 4 個字元 1 token，
+ * 不需要呼叫 tokenizer，用來決定切段已足夠。
+ */
+public final class TranscriptChunker {
+
+    private TranscriptChunker() {
+    }
+
+    public static int estimateTokens(CharSequence text) {
+        if (text == null) {
+            return 0;
+        }
+        return estimateTokens(text, 0, text.length());
+    }
+
+    private static int estimateTokens(CharSequence text, int start, int end) {
+        int cjk = 0;
+        int other = 0;
+        for (int i = start; i < end; i++) {
+            if (isCjk(text.charAt(i))) {
+                cjk++;
+            } else {
+                other++;
+            }
+        }
+        return cjk + (other + 3) / 4;
+    }
+
+    /**
+     * @param maxTokens 每段的 token 上限；單一句子就超過上限時，該句會被硬切
+     */
+    public static List<String> split(String text, int maxTokens) {
+        List<String> chunks = new ArrayList<>();
+        if (text == null || text.isBlank()) {
+            return chunks;
+        }
+
+        StringBuilder current = new StringBuilder();
+        int currentTokens = 0;
+        int sentenceStart = 0;
+        int length = text.length();
+
+        for (int i = 0; i < length; i++) {
+            if (!isSentenceEnd(text, i) && i != length - 1) {
+                continue;
+            }
+            int end = i + 1;
+            int tokens = estimateTokens(text, sentenceStart, end);
+
+            if (currentTokens > 0 && currentTokens + tokens > maxTokens) {
+                addChunk(chunks, current);
+                current.setLength(0);
+                currentTokens = 0;
+            }
+            if (tokens > maxTokens) {
+                hardSplit(chunks, text, sentenceStart, end, maxTokens);
+            } else {
+                current.append(text, sentenceStart, end);
+                currentTokens += tokens;
+            }
+            sentenceStart = end;
+        }
+        addChunk(chunks, current);
+        return chunks;
+    }
+
+    private static void hardSplit(List<String> chunks, String text, int start, int end, int maxTokens) {
+        StringBuilder piece = new StringBuilder();
+        int tokens = 0;
+        for (int i = start; i < end; i++) {
+            char c = text.charAt(i);
+            piece.append(c);
+            tokens += isCjk(c) ? 4 : 1; // 以 1/4 token 為單位累計
+            if (tokens >= maxTokens * 4) {
+                addChunk(chunks, piece);
+                piece.setLength(0);
+                tokens = 0;
+            }
+        }
+        addChunk(chunks, piece);
+    }
+
+    private static void addChunk(List<String> chunks, StringBuilder sb) {
+        String chunk = sb.toString().trim();
+        if (!chunk.isEmpty()) {
+            chunks.add(chunk);
+        }
+    }
+
+    private static boolean isSentenceEnd(String text, int i) {
+        char c = text.charAt(i);
+        switch (c) {
+            case '。':
+            case '！':
+            case '？':
+            case '；':
+            case '!':
+            case '?':
+            case '\n':
+                return true;
+            case '.':
+                // 英文句點後面接空白才算句尾，避免切開 3.5、U.S. 之類
+                return i + 1 < text.length() && Character.isWhitespace(text.charAt(i + 1));
+            default:
+                return false;
+        }
+    }
+
+    private static boolean isCjk(char c) {
+        Character.UnicodeBlock block = Character.UnicodeBlock.of(c);
+        return block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_UNIFIED_IDEOGRAPHS_EXTENSION_A
+                || block == Character.UnicodeBlock.CJK_COMPATIBILITY_IDEOGRAPHS
+                || block == Character.UnicodeBlock.CJK_SYMBOLS_AND_PUNCTUATION
+                || block == Character.UnicodeBlock.HALFWIDTH_AND_FULLWIDTH_FORMS
+                || block == Character.UnicodeBlock.HIRAGANA
+                || block == Character.UnicodeBlock.KATAKANA
+                || block == Character.UnicodeBlock.HANGUL_SYLLABLES;
+    }
+}
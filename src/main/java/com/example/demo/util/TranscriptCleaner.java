@@ -1,10 +1,25 @@
 package com.example.demo.util;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.Charset;
 
+/**
+ * 把 VTT / SRT 字幕清成純文字（一行一句，以換行串接）。
+ * <p>
+ * 逐字元掃過輸入一次，不用 regex、不先切成行陣列，結果直接寫進同一個預先配置的 buffer：
+ * - 略過 WEBVTT 標頭區塊、NOTE / STYLE / REGION 區塊、Kind: / Language: 之類 metadata 行
+ * - 略過時間戳行（00:00:01.000 --> ...、00:01.000 --> ...、SRT 的逗號格式，後面可接 cue 設定）
+ * - 略過 cue 編號（純數字行，或緊接在時間戳行之前、自成一行的識別字）
+ * - 去掉行內的 VTT 標籤（&lt;c&gt;、&lt;v 講者&gt;、&lt;00:00:01.200&gt; 之類）
+ * - 與上一行完全相同的行只保留一次：YouTube 自動字幕的滾動字幕，每個 cue 都會重複上一個 cue 的最後一行
+ */
 public final class TranscriptCleaner {
 
+    private static final int READ_BUFFER = 8192;
+
     private TranscriptCleaner() {
     }
 
@@ -12,46 +27,339 @@ public final class TranscriptCleaner {
         if (rawText == null || rawText.isBlank()) {
             return "";
         }
+        Scanner scanner = new Scanner(rawText.length());
+        for (int i = 0; i < rawText.length(); i++) {
+            scanner.accept(rawText.charAt(i));
+        }
+        return scanner.finish();
+    }
+
+    /**
+     * 串流版本，不需要先把整份字幕讀成 String；reader 不會被關閉。
+     *
+     * @param sizeHint 預估的字元數（例如 Content-Length），用來預先配置輸出 buffer；不知道時給 0
+     */
+    public static String clean(Reader reader, int sizeHint) throws IOException {
+        Scanner scanner = new Scanner(Math.max(sizeHint, READ_BUFFER));
+        char[] buffer = new char[READ_BUFFER];
+        int n;
+        while ((n = reader.read(buffer)) != -1) {
+            for (int i = 0; i < n; i++) {
+                scanner.accept(buffer[i]);
+            }
+        }
+        return scanner.finish();
+    }
+
+    public static String clean(InputStream in, Charset charset, int sizeHint) throws IOException {
+        return clean(new InputStreamReader(in, charset), sizeHint);
+    }
+
+    private enum Block {
+        // 還沒遇到任何非空白行
+        START,
+        // WEBVTT 標頭區塊，到第一個空白行為止
+        HEADER,
+        // NOTE / STYLE / REGION 區塊，到空白行為止
+        SKIPPED,
+        // 一般 cue 區塊
+        CUE
+    }
+
+    /**
+     * 以「行」為單位的狀態機；行本身邊收字元邊組，不建立 String。
+     * <p>
+     * 空白行之後的第一行先放在 pending，看到下一行才決定：下一行是時間戳，pending 就是 cue 識別字而丟掉。
+     */
+    private static final class Scanner {
+        private final StringBuilder out;
+        private final StringBuilder line = new StringBuilder(256);
+        private final StringBuilder pending = new StringBuilder(256);
+        private boolean hasPending;
+
+        private Block block = Block.START;
+        private boolean afterBlank = true;
+        private boolean lastWasCr;
+
+        // 最後一行輸出在 out 中的起點，用來比對重複行；-1 表示還沒有輸出
+        private int lastLineStart = -1;
+
+        private Scanner(int capacity) {
+            this.out = new StringBuilder(capacity);
+        }
+
+        private void accept(char c) {
+            switch (c) {
+                case '\n':
+                    if (lastWasCr) {
+                        // \r\n 只算一個換行
+                        lastWasCr = false;
+                        return;
+                    }
+                    endLine();
+                    return;
+                case '\r':
+                    endLine();
+                    lastWasCr = true;
+                    return;
+                case '\u0085':
+                case '\u2028':
+                case '\u2029':
+                    endLine();
+                    break;
+                case '\uFEFF':
+                    // BOM
+                    break;
+                default:
+                    line.append(c);
+                    break;
+            }
+            lastWasCr = false;
+        }
 
-        String[] lines = rawText.split("\\R");
-        List<String> resultLines = new ArrayList<>();
+        private String finish() {
+            endLine();
+            flushPending();
+            return out.toString();
+        }
 
-        for (String line : lines) {
-            String trimmed = line.trim();
+        private void endLine() {
+            int start = 0;
+            int end = line.length();
+            while (start < end && line.charAt(start) <= ' ') {
+                start++;
+            }
+            while (end > start && line.charAt(end - 1) <= ' ') {
+                end--;
+            }
 
-            // 跳過完全空白行
-            if (trimmed.isEmpty()) {
-                continue;
+            if (start == end) {
+                flushPending();
+                afterBlank = true;
+                if (block != Block.START) {
+                    block = Block.CUE;
+                }
+                line.setLength(0);
+                return;
             }
 
-            // 跳過 WEBVTT 標頭
-            if (trimmed.equalsIgnoreCase("WEBVTT")) {
-                continue;
+            boolean firstOfBlock = afterBlank;
+            afterBlank = false;
+            handleLine(start, end, firstOfBlock);
+            line.setLength(0);
+        }
+
+        private void handleLine(int start, int end, boolean firstOfBlock) {
+            if (block == Block.START) {
+                block = Block.CUE;
+                if (startsWithIgnoreCase(start, end, "WEBVTT")) {
+                    block = Block.HEADER;
+                    return;
+                }
+            }
+            if (block == Block.HEADER || block == Block.SKIPPED) {
+                return;
             }
 
-            // 跳過 Kind: / Language: 之類 metadata 行
-            String lower = trimmed.toLowerCase();
-            if (lower.startsWith("kind:") || lower.startsWith("language:")) {
-                continue;
+            if (isTimestamp(start, end)) {
+                // 時間戳前一行自成一個區塊開頭，就是 cue 識別字
+                hasPending = false;
+                return;
             }
+            flushPending();
 
-            // 跳過時間戳行，例如：
-            // 00:00:01.000 --> 00:00:04.000
-            // 00:10:05,123 --> 00:10:10,456
-            if (trimmed.matches("^\\d{2}:\\d{2}:\\d{2}[\\.,]\\d{3} --> .*")) {
-                continue;
+            if (firstOfBlock && (startsWithWord(start, end, "NOTE")
+                    || startsWithWord(start, end, "STYLE")
+                    || startsWithWord(start, end, "REGION"))) {
+                block = Block.SKIPPED;
+                return;
+            }
+            if (startsWithIgnoreCase(start, end, "kind:") || startsWithIgnoreCase(start, end, "language:")) {
+                return;
+            }
+            if (isDigits(start, end)) {
+                return;
             }
 
-            // 跳過純數字行（例如 SRT 的序號）
-            if (trimmed.matches("^\\d+$")) {
-                continue;
+            if (firstOfBlock) {
+                pending.setLength(0);
+                pending.append(line, start, end);
+                hasPending = true;
+            } else {
+                emit(line, start, end);
             }
+        }
 
-            resultLines.add(trimmed);
+        private void flushPending() {
+            if (hasPending) {
+                hasPending = false;
+                emit(pending, 0, pending.length());
+            }
         }
 
-        // 最後再把多行合成一個大段文字
-        // 這裡用單一換行符號連接，之後你要改成空白或段落分組都可以
-        return String.join("\n", resultLines).trim();
+        /**
+         * 去掉 VTT 標籤後寫入 out；與上一行相同時撤回。
+         */
+        private void emit(CharSequence src, int start, int end) {
+            int previousStart = lastLineStart;
+            int previousEnd = out.length();
+            int mark = out.length();
+            if (mark > 0) {
+                out.append('\n');
+            }
+            int textStart = out.length();
+
+            int i = start;
+            while (i < end) {
+                char c = src.charAt(i);
+                if (c == '<') {
+                    int close = tagEnd(src, i, end);
+                    if (close > 0) {
+                        i = close + 1;
+                        continue;
+                    }
+                }
+                out.append(c);
+                i++;
+            }
+
+            // 去掉標籤後可能留下頭尾空白
+            int textEnd = out.length();
+            while (textEnd > textStart && out.charAt(textEnd - 1) <= ' ') {
+                textEnd--;
+            }
+            int lead = textStart;
+            while (lead < textEnd && out.charAt(lead) <= ' ') {
+                lead++;
+            }
+            if (lead > textStart) {
+                out.delete(textStart, lead);
+                textEnd -= lead - textStart;
+            }
+            out.setLength(textEnd);
+
+            if (textEnd == textStart || (previousStart >= 0 && sameAs(previousStart, previousEnd, textStart))) {
+                out.setLength(mark);
+                return;
+            }
+            lastLineStart = textStart;
+        }
+
+        private boolean sameAs(int previousStart, int previousEnd, int currentStart) {
+            int length = previousEnd - previousStart;
+            if (out.length() - currentStart != length) {
+                return false;
+            }
+            for (int i = 0; i < length; i++) {
+                if (out.charAt(previousStart + i) != out.charAt(currentStart + i)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 標籤的結尾位置；不像標籤（例如 "a < b"）時回傳 -1。
+         */
+        private static int tagEnd(CharSequence src, int open, int end) {
+            if (open + 1 >= end) {
+                return -1;
+            }
+            char first = src.charAt(open + 1);
+            if (first != '/' && !Character.isLetterOrDigit(first)) {
+                return -1;
+            }
+            for (int i = open + 1; i < end; i++) {
+                char c = src.charAt(i);
+                if (c == '>') {
+                    return i;
+                }
+                if (c == '<') {
+                    return -1;
+                }
+            }
+            return -1;
+        }
+
+        /**
+         * [hh:]mm:ss.ttt（或逗號）之後接 -->。
+         */
+        private boolean isTimestamp(int start, int end) {
+            int i = start;
+            int groups = 0;
+            while (true) {
+                int digits = 0;
+                while (i < end && isDigit(line.charAt(i))) {
+                    i++;
+                    digits++;
+                }
+                if (digits < 2 || i >= end) {
+                    return false;
+                }
+                groups++;
+                char c = line.charAt(i);
+                if (c == ':' && groups < 3) {
+                    i++;
+                    continue;
+                }
+                if ((c == '.' || c == ',') && groups >= 2) {
+                    i++;
+                    break;
+                }
+                return false;
+            }
+            int millis = 0;
+            while (i < end && isDigit(line.charAt(i))) {
+                i++;
+                millis++;
+            }
+            if (millis != 3) {
+                return false;
+            }
+            while (i < end && line.charAt(i) <= ' ') {
+                i++;
+            }
+            return i + 3 <= end && line.charAt(i) == '-' && line.charAt(i + 1) == '-' && line.charAt(i + 2) == '>';
+        }
+
+        private boolean isDigits(int start, int end) {
+            for (int i = start; i < end; i++) {
+                if (!isDigit(line.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private static boolean isDigit(char c) {
+            return c >= '0' && c <= '9';
+        }
+
+        private boolean startsWithIgnoreCase(int start, int end, String prefix) {
+            if (end - start < prefix.length()) {
+                return false;
+            }
+            for (int i = 0; i < prefix.length(); i++) {
+                if (Character.toLowerCase(line.charAt(start + i)) != Character.toLowerCase(prefix.charAt(i))) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        /**
+         * 以 word 開頭，後面是行尾或空白（NOTE 區塊的規定格式）。
+         */
+        private boolean startsWithWord(int start, int end, String word) {
+            if (end - start < word.length()) {
+                return false;
+            }
+            for (int i = 0; i < word.length(); i++) {
+                if (line.charAt(start + i) != word.charAt(i)) {
+                    return false;
+                }
+            }
+            return end - start == word.length() || line.charAt(start + word.length()) <= ' ';
+        }
     }
 }
@@ -0,0 +1,83 @@
+package com.example.demo.util;
+
+import java.util.List;
+
+/**
+ * 把分段轉錄的逐字稿接回一份，去掉相鄰片段重疊區間重複出現的文字。
+ * <p>
+ * 重疊的音訊只會在前一段的結尾與下一段的開頭，所以只在兩段交界處找：
+ * 取前一段結尾與下一段開頭各 window 個字元，找最長的共同子字串，
+ * 且它在前一段要接近結尾、在下一段要接近開頭（兩邊都最多差 maxEdgeSkip 個字元，
+ * 容許片段邊緣被切斷的半個字詞轉錄得不一樣）。
+ * 長度夠長就視為重疊內容，前一段保留到該子字串之前，下一段從該子字串開始接。
+ * 找不到（例如轉錄結果用字不同，或只是兩段各自遠處有相同的句子）時就直接換行串接，寧可重複也不要丟字。
+ */
+public final class TranscriptStitcher {
+
+    private TranscriptStitcher() {
+    }
+
+    public static String stitch(List<String> parts, int window, int minMatch, int maxEdgeSkip) {
+        StringBuilder sb = new StringBuilder();
+        for (String part : parts) {
+            if (part == null || part.isBlank()) {
+                continue;
+            }
+            String next = part.strip();
+            if (sb.length() == 0) {
+                sb.append(next);
+                continue;
+            }
+
+            int tailStart = Math.max(0, sb.length() - window);
+            String tail = sb.substring(tailStart);
+            String head = next.substring(0, Math.min(window, next.length()));
+
+            int[] match = longestBoundaryMatch(tail, head, maxEdgeSkip);
+            int length = match[0];
+            if (length >= minMatch) {
+                int endInTail = match[1];
+                int endInHead = match[2];
+                sb.setLength(tailStart + endInTail - length);
+                sb.append(next, endInHead - length, next.length());
+            } else {
+                sb.append('\n').append(next);
+            }
+        }
+        return sb.toString();
+    }
+
+    /**
+     * tail 與 head 的最長共同子字串，限定在 tail 中的結束位置距離結尾、在 head 中的開始位置距離開頭
+     * 都不超過 maxEdgeSkip。
+     *
+     * @return {長度, 在 tail 中的結束位置, 在 head 中的結束位置}；找不到時長度為 0
+     */
+    static int[] longestBoundaryMatch(String tail, String head, int maxEdgeSkip) {
+        int[] prev = new int[head.length() + 1];
+        int[] curr = new int[head.length() + 1];
+        int best = 0;
+        int bestTail = 0;
+        int bestHead = 0;
+        for (int i = 1; i <= tail.length(); i++) {
+            char c = tail.charAt(i - 1);
+            boolean nearTailEnd = tail.length() - i <= maxEdgeSkip;
+            for (int j = 1; j <= head.length(); j++) {
+                if (c == head.charAt(j - 1)) {
+                    curr[j] = prev[j - 1] + 1;
+                    if (nearTailEnd && curr[j] > best && j - curr[j] <= maxEdgeSkip) {
+                        best = curr[j];
+                        bestTail = i;
+                        bestHead = j;
+                    }
+                } else {
+                    curr[j] = 0;
+                }
+            }
+            int[] tmp = prev;
+            prev = curr;
+            curr = tmp;
+        }
+        return new int[]{best, bestTail, bestHead};
+    }
+}
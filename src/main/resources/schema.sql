@@ -0,0 +1,59 @@
+-- 啟動時由 spring.sql.init 執行，之後 Hibernate 以 ddl-auto=validate 檢查結構
+
+-- 日 K 資料，主鍵同時作為 (market, symbol, trade_date) 區間查詢的索引
+CREATE TABLE IF NOT EXISTS price_bar (
+    market      VARCHAR(8)       NOT NULL,
+    symbol      VARCHAR(16)      NOT NULL,
+    trade_date  DATE             NOT NULL,
+    open        DOUBLE PRECISION NOT NULL,
+    high        DOUBLE PRECISION NOT NULL,
+    low         DOUBLE PRECISION NOT NULL,
+    close       DOUBLE PRECISION NOT NULL,
+    volume      BIGINT           NOT NULL,
+    updated_at  TIMESTAMPTZ      NOT NULL DEFAULT now(),
+    PRIMARY KEY (market, symbol, trade_date)
+);
+
+-- Gemini 分析結果快取，cache_key = sha256(model | prompt 版本 | 正規化後的輸入文字)
+CREATE TABLE IF NOT EXISTS gemini_result_cache (
+    cache_key       CHAR(64)     NOT NULL PRIMARY KEY,
+    model           VARCHAR(64)  NOT NULL,
+    prompt_version  VARCHAR(64)  NOT NULL,
+    result          TEXT         NOT NULL,
+    created_at      TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- 逐字稿，以音檔內容的 sha256 為 key，逐字稿以 gzip 壓縮保存
+CREATE TABLE IF NOT EXISTS transcript (
+    audio_sha256     CHAR(64)     NOT NULL PRIMARY KEY,
+    provider         VARCHAR(32)  NOT NULL,
+    transcript_gzip  BYTEA        NOT NULL,
+    char_count       INTEGER      NOT NULL,
+    created_at       TIMESTAMPTZ  NOT NULL DEFAULT now()
+);
+
+-- RSS 集數（guid）對應到音檔 sha256，不用重新下載就能找到逐字稿
+CREATE TABLE IF NOT EXISTS transcript_episode (
+    episode_guid  VARCHAR(512)  NOT NULL PRIMARY KEY,
+    audio_sha256  CHAR(64)      NOT NULL REFERENCES transcript (audio_sha256),
+    created_at    TIMESTAMPTZ   NOT NULL DEFAULT now()
+);
+
+-- 背景輪詢 RSS 的處理進度，一個 guid 一筆：NEW → TRANSCRIBED → DONE（超過重試次數為 FAILED）
+-- lease_until 為處理中的租約，租約內其他輪詢不會重複處理；result_json 為 PodcastWithTaResponse
+CREATE TABLE IF NOT EXISTS episode_ingest (
+    episode_guid  VARCHAR(512)  NOT NULL PRIMARY KEY,
+    source_id     VARCHAR(32)   NOT NULL,
+    title         TEXT,
+    pub_date      VARCHAR(64),
+    audio_url     TEXT          NOT NULL,
+    status        VARCHAR(16)   NOT NULL DEFAULT 'NEW',
+    attempts      INTEGER       NOT NULL DEFAULT 0,
+    last_error    TEXT,
+    lease_until   TIMESTAMPTZ,
+    result_json   TEXT,
+    created_at    TIMESTAMPTZ   NOT NULL DEFAULT now(),
+    updated_at    TIMESTAMPTZ   NOT NULL DEFAULT now()
+);
+
+CREATE INDEX IF NOT EXISTS episode_ingest_status_idx ON episode_ingest (status, created_at);
@@ -0,0 +1,78 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AudioCacheTest {
+
+	private Path dir;
+	private AudioCache cache;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		dir = Files.createTempDirectory("audio-cache-test");
+		// 上限 10 bytes：放進第二個檔案時第一個會被淘汰
+		cache = new AudioCache(dir.resolve("audio").toString(), 10, dir.resolve("partial").toString(), 24);
+		cache.sweep();
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	void acquiresBySha256UntilEvicted() throws IOException {
+		String sha256;
+		try (AudioCache.Lease lease = put("https://a/1.mp3", "12345678")) {
+			sha256 = lease.getSha256();
+		}
+
+		try (AudioCache.Lease lease = cache.acquireBySha256(sha256).orElseThrow()) {
+			assertArrayEquals("12345678".getBytes(), Files.readAllBytes(lease.getPath()));
+			assertTrue(lease.isFromCache());
+		}
+
+		put("https://a/2.mp3", "abcdefgh").close();
+		assertFalse(cache.acquireBySha256(sha256).isPresent());
+		assertFalse(cache.acquire("https://a/1.mp3").isPresent());
+	}
+
+	@Test
+	void leasedFileIsNotEvicted() throws IOException {
+		try (AudioCache.Lease first = put("https://a/1.mp3", "12345678")) {
+			put("https://a/2.mp3", "abcdefgh").close();
+
+			// 使用中的檔案略過，改淘汰剛用完的第二個
+			assertTrue(Files.exists(first.getPath()));
+			assertFalse(cache.acquire("https://a/2.mp3").isPresent());
+		}
+		assertEquals(8L, cache.metrics().get("bytes"));
+	}
+
+	@Test
+	void unknownSha256IsMiss() {
+		assertFalse(cache.acquireBySha256("0000").isPresent());
+		assertFalse(cache.acquireBySha256(null).isPresent());
+	}
+
+	private AudioCache.Lease put(String url, String content) throws IOException {
+		Path file = cache.newTempFile(".mp3");
+		Files.writeString(file, content);
+		return cache.put(url, file, ".mp3", "audio/mpeg");
+	}
+}
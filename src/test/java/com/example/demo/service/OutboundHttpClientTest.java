@@ -0,0 +1,241 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import javax.net.ssl.SSLContext;
+import javax.net.ssl.SSLParameters;
+import javax.net.ssl.SSLSession;
+import java.io.IOException;
+import java.net.Authenticator;
+import java.net.CookieHandler;
+import java.net.ProxySelector;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpHeaders;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class OutboundHttpClientTest {
+
+	private static final String PROVIDER = "fmp";
+	private static final HttpRequest GET = HttpRequest.newBuilder(URI.create("http://localhost/quote")).build();
+
+	@Test
+	void retriesFailureStatusUntilSuccess() throws Exception {
+		FakeHttpClient http = new FakeHttpClient(503, 503, 200);
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(10));
+
+		HttpResponse<String> response = client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(200, response.statusCode());
+		assertEquals(3, http.sent);
+	}
+
+	@Test
+	void stopsRetryingWhenBudgetIsExhausted() throws Exception {
+		// 預算 1 次：第一個請求重試一次，第二個請求不再重試
+		FakeHttpClient http = new FakeHttpClient(503, 503, 503, 503);
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(1));
+
+		assertEquals(503, client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString()).statusCode());
+		assertEquals(2, http.sent);
+		assertEquals(503, client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString()).statusCode());
+		assertEquals(3, http.sent);
+	}
+
+	@Test
+	void returnsResponseWhenRetryAfterDateIsBeyondMaxDelay() throws Exception {
+		String later = DateTimeFormatter.RFC_1123_DATE_TIME.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(30));
+		FakeHttpClient http = new FakeHttpClient(429, 200);
+		http.retryAfter = later;
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(10));
+
+		HttpResponse<String> response = client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString());
+
+		assertEquals(429, response.statusCode());
+		assertEquals(1, http.sent);
+	}
+
+	@Test
+	void honoursRetryAfterDateInThePast() throws Exception {
+		FakeHttpClient http = new FakeHttpClient(429, 200);
+		http.retryAfter = "Wed, 21 Oct 2015 07:28:00 GMT";
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(10));
+
+		assertEquals(200, client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString()).statusCode());
+		assertEquals(2, http.sent);
+	}
+
+	@Test
+	void doesNotRetryPost() throws Exception {
+		FakeHttpClient http = new FakeHttpClient(503, 200);
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(10));
+		HttpRequest post = HttpRequest.newBuilder(URI.create("http://localhost/generate"))
+				.POST(HttpRequest.BodyPublishers.ofString("{}")).build();
+
+		assertEquals(503, client.send(PROVIDER, post, HttpResponse.BodyHandlers.ofString()).statusCode());
+		assertEquals(1, http.sent);
+	}
+
+	@Test
+	void rethrowsConnectionErrorAfterLastAttempt() {
+		FakeHttpClient http = new FakeHttpClient(-1, -1, -1);
+		OutboundHttpClient client = new OutboundHttpClient(http, ProviderResilienceTest.resilience(10));
+
+		assertThrows(IOException.class, () -> client.send(PROVIDER, GET, HttpResponse.BodyHandlers.ofString()));
+		assertEquals(3, http.sent);
+		Map<String, Object> metrics = client.metrics();
+		assertEquals(3L, metrics.get(PROVIDER + ".errors"));
+		assertEquals(0L, metrics.get(PROVIDER + ".in-flight"));
+	}
+
+	/**
+	 * 依序回傳指定的狀態碼；-1 代表連線錯誤。
+	 */
+	private static final class FakeHttpClient extends HttpClient {
+		private final Deque<Integer> statuses = new ArrayDeque<>();
+		private String retryAfter;
+		private int sent;
+
+		private FakeHttpClient(int... statuses) {
+			for (int status : statuses) {
+				this.statuses.add(status);
+			}
+		}
+
+		@Override
+		@SuppressWarnings("unchecked")
+		public <T> HttpResponse<T> send(HttpRequest request, HttpResponse.BodyHandler<T> handler) throws IOException {
+			sent++;
+			int status = statuses.remove();
+			if (status < 0) {
+				throw new IOException("connection reset");
+			}
+			Map<String, List<String>> headers = retryAfter == null
+					? Map.of() : Map.of("Retry-After", List.of(retryAfter));
+			return (HttpResponse<T>) new FakeResponse(request, status, HttpHeaders.of(headers, (k, v) -> true));
+		}
+
+		@Override
+		public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public <T> CompletableFuture<HttpResponse<T>> sendAsync(HttpRequest request, HttpResponse.BodyHandler<T> handler,
+																HttpResponse.PushPromiseHandler<T> pushPromiseHandler) {
+			throw new UnsupportedOperationException();
+		}
+
+		@Override
+		public Optional<CookieHandler> cookieHandler() {
+			return Optional.empty();
+		}
+
+		@Override
+		public Optional<Duration> connectTimeout() {
+			return Optional.empty();
+		}
+
+		@Override
+		public Redirect followRedirects() {
+			return Redirect.NEVER;
+		}
+
+		@Override
+		public Optional<ProxySelector> proxy() {
+			return Optional.empty();
+		}
+
+		@Override
+		public SSLContext sslContext() {
+			return null;
+		}
+
+		@Override
+		public SSLParameters sslParameters() {
+			return null;
+		}
+
+		@Override
+		public Optional<Authenticator> authenticator() {
+			return Optional.empty();
+		}
+
+		@Override
+		public Version version() {
+			return Version.HTTP_1_1;
+		}
+
+		@Override
+		public Optional<Executor> executor() {
+			return Optional.empty();
+		}
+	}
+
+	private static final class FakeResponse implements HttpResponse<String> {
+		private final HttpRequest request;
+		private final int status;
+		private final HttpHeaders headers;
+
+		private FakeResponse(HttpRequest request, int status, HttpHeaders headers) {
+			this.request = request;
+			this.status = status;
+			this.headers = headers;
+		}
+
+		@Override
+		public int statusCode() {
+			return status;
+		}
+
+		@Override
+		public HttpRequest request() {
+			return request;
+		}
+
+		@Override
+		public Optional<HttpResponse<String>> previousResponse() {
+			return Optional.empty();
+		}
+
+		@Override
+		public HttpHeaders headers() {
+			return headers;
+		}
+
+		@Override
+		public String body() {
+			return "";
+		}
+
+		@Override
+		public Optional<SSLSession> sslSession() {
+			return Optional.empty();
+		}
+
+		@Override
+		public URI uri() {
+			return request.uri();
+		}
+
+		@Override
+		public HttpClient.Version version() {
+			return HttpClient.Version.HTTP_1_1;
+		}
+	}
+}
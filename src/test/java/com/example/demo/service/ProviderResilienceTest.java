@@ -0,0 +1,171 @@
+package com.example.demo.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ProviderResilienceTest {
+
+	private static final String PROVIDER = "fmp";
+	private static final long OPEN_MS = 200;
+
+	@Test
+	void breakerOpensThenHalfOpensAndClosesAfterSuccessfulProbe() throws Exception {
+		ProviderResilience resilience = resilience(10);
+
+		for (int i = 0; i < 4; i++) {
+			resilience.acquirePermission(PROVIDER);
+			resilience.onFailure(PROVIDER);
+		}
+		assertEquals("OPEN", state(resilience));
+		ProviderUnavailableException ex = assertThrows(ProviderUnavailableException.class,
+				() -> resilience.acquirePermission(PROVIDER));
+		assertEquals(PROVIDER, ex.getProvider());
+		assertTrue(ex.getRetryAfter().toMillis() <= OPEN_MS);
+
+		Thread.sleep(OPEN_MS + 50);
+		resilience.acquirePermission(PROVIDER);
+		assertEquals("HALF_OPEN", state(resilience));
+		// 半開時只放行一個探測請求
+		assertThrows(ProviderUnavailableException.class, () -> resilience.acquirePermission(PROVIDER));
+
+		resilience.onSuccess(PROVIDER);
+		assertEquals("CLOSED", state(resilience));
+		resilience.acquirePermission(PROVIDER);
+		resilience.onSuccess(PROVIDER);
+	}
+
+	@Test
+	void failedProbeReopensBreaker() throws Exception {
+		ProviderResilience resilience = resilience(10);
+		for (int i = 0; i < 4; i++) {
+			resilience.acquirePermission(PROVIDER);
+			resilience.onFailure(PROVIDER);
+		}
+
+		Thread.sleep(OPEN_MS + 50);
+		resilience.acquirePermission(PROVIDER);
+		resilience.onFailure(PROVIDER);
+
+		assertEquals("OPEN", state(resilience));
+		assertThrows(ProviderUnavailableException.class, () -> resilience.acquirePermission(PROVIDER));
+	}
+
+	@Test
+	void cancelledProbeLetsNextRequestProbeImmediately() throws Exception {
+		ProviderResilience resilience = resilience(10);
+		for (int i = 0; i < 4; i++) {
+			resilience.acquirePermission(PROVIDER);
+			resilience.onFailure(PROVIDER);
+		}
+
+		Thread.sleep(OPEN_MS + 50);
+		resilience.acquirePermission(PROVIDER);
+		resilience.onCancel(PROVIDER);
+		resilience.acquirePermission(PROVIDER);
+
+		assertEquals("HALF_OPEN", state(resilience));
+	}
+
+	@Test
+	void breakerStaysClosedBelowMinimumCalls() {
+		ProviderResilience resilience = resilience(10);
+		for (int i = 0; i < 3; i++) {
+			resilience.acquirePermission(PROVIDER);
+			resilience.onFailure(PROVIDER);
+		}
+
+		assertEquals("CLOSED", state(resilience));
+	}
+
+	@Test
+	void retryBudgetIsExhaustedAndRefilledByRequests() {
+		// 存量 2 次，之後每個請求補 0.5 次
+		ProviderResilience resilience = resilience(2);
+
+		assertTrue(resilience.tryRetry(PROVIDER));
+		assertTrue(resilience.tryRetry(PROVIDER));
+		assertFalse(resilience.tryRetry(PROVIDER));
+
+		resilience.onRequest(PROVIDER);
+		assertFalse(resilience.tryRetry(PROVIDER));
+		resilience.onRequest(PROVIDER);
+		assertTrue(resilience.tryRetry(PROVIDER));
+		assertFalse(resilience.tryRetry(PROVIDER));
+
+		Map<String, Object> metrics = providerMetrics(resilience);
+		assertEquals(3L, metrics.get("retries"));
+		assertEquals(3L, metrics.get("budgetExhausted"));
+	}
+
+	@Test
+	void retryBudgetDoesNotGrowPastMinimum() {
+		ProviderResilience resilience = resilience(2);
+		for (int i = 0; i < 100; i++) {
+			resilience.onRequest(PROVIDER);
+		}
+
+		assertTrue(resilience.tryRetry(PROVIDER));
+		assertTrue(resilience.tryRetry(PROVIDER));
+		assertFalse(resilience.tryRetry(PROVIDER));
+	}
+
+	@Test
+	void unguardedProviderIsNeverLimited() {
+		ProviderResilience resilience = resilience(0);
+		for (int i = 0; i < 20; i++) {
+			resilience.acquirePermission("podcast-host");
+			resilience.onFailure("podcast-host");
+		}
+
+		resilience.acquirePermission("podcast-host");
+		assertTrue(resilience.tryRetry("podcast-host"));
+	}
+
+	@Test
+	void parsesRetryAfterSeconds() {
+		assertEquals(Optional.of(Duration.ofSeconds(3)), ProviderResilience.parseRetryAfter(" 3 "));
+		assertEquals(Optional.of(Duration.ZERO), ProviderResilience.parseRetryAfter("-5"));
+		assertEquals(Optional.empty(), ProviderResilience.parseRetryAfter(null));
+		assertEquals(Optional.empty(), ProviderResilience.parseRetryAfter("soon"));
+	}
+
+	@Test
+	void parsesRetryAfterHttpDate() {
+		String inTenSeconds = DateTimeFormatter.RFC_1123_DATE_TIME
+				.format(ZonedDateTime.now(ZoneOffset.UTC).plusSeconds(10));
+
+		Duration delay = ProviderResilience.parseRetryAfter(inTenSeconds).orElseThrow();
+
+		assertTrue(delay.compareTo(Duration.ofSeconds(8)) >= 0, delay.toString());
+		assertTrue(delay.compareTo(Duration.ofSeconds(10)) <= 0, delay.toString());
+		assertEquals(Optional.of(Duration.ZERO),
+				ProviderResilience.parseRetryAfter("Wed, 21 Oct 2015 07:28:00 GMT"));
+	}
+
+	static ProviderResilience resilience(int minRetries) {
+		// window 8、至少 4 次呼叫、失敗率 50% 開啟；重試預算 50%
+		return new ProviderResilience(List.of(PROVIDER), 8, 4, 50, OPEN_MS,
+				3, 1, 5, 50, minRetries);
+	}
+
+	@SuppressWarnings("unchecked")
+	private static Map<String, Object> providerMetrics(ProviderResilience resilience) {
+		return (Map<String, Object>) resilience.metrics().get(PROVIDER);
+	}
+
+	private static String state(ProviderResilience resilience) {
+		return (String) providerMetrics(resilience).get("state");
+	}
+}
@@ -0,0 +1,164 @@
+package com.example.demo.service;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Comparator;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class RangedDownloaderTest {
+
+	private static final int SEGMENT = 64 * 1024;
+	private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+	private final byte[] audio = new byte[SEGMENT * 4 + 1234];
+	// 區段起點 → 還要回幾次的錯誤狀態碼
+	private final Map<Long, AtomicInteger> failures = new ConcurrentHashMap<>();
+	private final Map<Long, Integer> failureStatus = new ConcurrentHashMap<>();
+
+	private HttpServer server;
+	private Path dir;
+	private RangedDownloader downloader;
+	private URI uri;
+
+	@BeforeEach
+	void setUp() throws IOException {
+		new Random(42).nextBytes(audio);
+		server = HttpServer.create(new InetSocketAddress("127.0.0.1", 0), 0);
+		server.createContext("/episode.mp3", this::serve);
+		server.start();
+		uri = URI.create("http://127.0.0.1:" + server.getAddress().getPort() + "/episode.mp3");
+
+		dir = Files.createTempDirectory("ranged-test");
+		ProviderResilience resilience = ProviderResilienceTest.resilience(10);
+		downloader = new RangedDownloader(new OutboundHttpClient(HttpClient.newHttpClient(), resilience),
+				resilience, Runnable::run, 10_000, 2, SEGMENT, 0, 2, dir.resolve("partial").toString());
+	}
+
+	@AfterEach
+	void tearDown() throws IOException {
+		server.stop(0);
+		try (Stream<Path> files = Files.walk(dir)) {
+			files.sorted(Comparator.reverseOrder()).forEach(p -> p.toFile().delete());
+		}
+	}
+
+	@Test
+	void retriesTransientCdnErrorOnSegment() throws Exception {
+		failAt(SEGMENT * 2L, 503, 1);
+		Path target = dir.resolve("out.mp3");
+
+		downloader.download(uri, target);
+
+		assertArrayEquals(audio, Files.readAllBytes(target));
+		assertEquals(1L, downloader.metrics().get("segmentRetries"));
+	}
+
+	@Test
+	void keepsCompletedRangesWhenCdnKeepsFailingAndResumesLater() throws Exception {
+		failAt(SEGMENT * 2L, 503, 100);
+		Path target = dir.resolve("out.mp3");
+
+		RangedDownloader.HttpStatusException ex = assertThrows(RangedDownloader.HttpStatusException.class,
+				() -> downloader.download(uri, target));
+		assertEquals(503, ex.getStatusCode());
+		assertTrue(hasPartialFiles(), "已完成的區段應保留");
+
+		failures.clear();
+		RangedDownloader.Result result = downloader.download(uri, target);
+
+		assertArrayEquals(audio, Files.readAllBytes(target));
+		assertTrue(result.getResumedBytes() >= SEGMENT * 2L, Long.toString(result.getResumedBytes()));
+		assertFalse(hasPartialFiles());
+	}
+
+	@Test
+	void doesNotRetryClientErrors() throws Exception {
+		failAt(SEGMENT, 403, 1);
+
+		RangedDownloader.HttpStatusException ex = assertThrows(RangedDownloader.HttpStatusException.class,
+				() -> downloader.download(uri, dir.resolve("out.mp3")));
+
+		assertEquals(403, ex.getStatusCode());
+		assertEquals(0L, downloader.metrics().get("segmentRetries"));
+		assertTrue(hasPartialFiles());
+	}
+
+	@Test
+	void discardsPartialDownloadWhenSourceChanged() throws Exception {
+		// If-Range 不符時伺服器回 200 整個檔案
+		failAt(SEGMENT * 3L, 200, 1);
+
+		assertThrows(IOException.class, () -> downloader.download(uri, dir.resolve("out.mp3")));
+
+		assertFalse(hasPartialFiles());
+	}
+
+	private void failAt(long start, int status, int times) {
+		failures.put(start, new AtomicInteger(times));
+		failureStatus.put(start, status);
+	}
+
+	private boolean hasPartialFiles() throws IOException {
+		Path partial = dir.resolve("partial");
+		if (!Files.exists(partial)) {
+			return false;
+		}
+		try (Stream<Path> files = Files.list(partial)) {
+			return files.findAny().isPresent();
+		}
+	}
+
+	private void serve(HttpExchange exchange) throws IOException {
+		exchange.getResponseHeaders().set("ETag", "\"v1\"");
+		exchange.getResponseHeaders().set("Content-Type", "audio/mpeg");
+		Matcher m = RANGE.matcher(exchange.getRequestHeaders().getFirst("Range"));
+		if (!m.matches()) {
+			send(exchange, 200, audio, 0, audio.length);
+			return;
+		}
+		long start = Long.parseLong(m.group(1));
+		long end = Math.min(audio.length - 1, Long.parseLong(m.group(2)));
+		AtomicInteger remaining = failures.get(start);
+		if (remaining != null && remaining.getAndDecrement() > 0) {
+			int status = failureStatus.get(start);
+			if (status == 200) {
+				send(exchange, 200, audio, 0, audio.length);
+			} else {
+				send(exchange, status, new byte[0], 0, 0);
+			}
+			return;
+		}
+		exchange.getResponseHeaders().set("Content-Range", "bytes " + start + "-" + end + "/" + audio.length);
+		send(exchange, 206, audio, (int) start, (int) (end - start + 1));
+	}
+
+	private static void send(HttpExchange exchange, int status, byte[] body, int offset, int length) throws IOException {
+		exchange.sendResponseHeaders(status, length == 0 ? -1 : length);
+		try (OutputStream out = exchange.getResponseBody()) {
+			out.write(body, offset, length);
+		}
+	}
+}
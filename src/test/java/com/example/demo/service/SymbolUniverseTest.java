@@ -0,0 +1,91 @@
+package com.example.demo.service;
+
+import com.example.demo.model.ListedSymbol;
+import org.junit.jupiter.api.Test;
+import org.springframework.core.io.DefaultResourceLoader;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class SymbolUniverseTest {
+
+	@Test
+	void yearsAndPricesAreNotMentionsEvenWhenListedAsCodes() {
+		SymbolUniverse universe = universeWithTwListing();
+
+		List<SymbolUniverse.Mention> mentions = universe.findMentions(
+				"2024 年 AI 伺服器出貨成長三成，2025年還會更好，股價一度站上 1000 元，2002 年的時候還沒有這種行情");
+
+		assertTrue(mentions.isEmpty(), mentions.toString());
+	}
+
+	@Test
+	void listedCodesAreLookupOnly() {
+		SymbolUniverse universe = universeWithTwListing();
+
+		assertTrue(universe.isListingLoaded(TechnicalAnalysisFanOutService.MARKET_TW));
+		assertFalse(universe.isListingLoaded(TechnicalAnalysisFanOutService.MARKET_US));
+		assertEquals("2024", universe.find("2024.TW").get().getSymbol());
+		assertEquals("8299", universe.resolveName("群聯").get().getSymbol());
+		// 不在人工清單中的代號與名稱不參與逐字稿比對
+		assertTrue(universe.findMentions("今天聊 8299 群聯").isEmpty());
+	}
+
+	@Test
+	void curatedEntriesAreStillFoundInTranscript() {
+		SymbolUniverse universe = universeWithTwListing();
+
+		List<SymbolUniverse.Mention> mentions = universe.findMentions("台積電 2330 跟中鋼 2002 都有提到");
+
+		List<String> symbols = new ArrayList<>();
+		for (SymbolUniverse.Mention mention : mentions) {
+			symbols.add(mention.getSymbol().getSymbol());
+		}
+		assertEquals(List.of("2330", "2330", "2002", "2002"), symbols);
+	}
+
+	@Test
+	void listingIsNotLoadedWhenDisabled() {
+		SymbolUniverse universe = new SymbolUniverse(new DefaultResourceLoader(), null, null,
+				"classpath:symbols/universe.tsv", false);
+		universe.refreshListings();
+
+		assertFalse(universe.isListingLoaded(TechnicalAnalysisFanOutService.MARKET_TW));
+		assertTrue(universe.find("2024").isEmpty());
+	}
+
+	private static SymbolUniverse universeWithTwListing() {
+		FinMindClient finMind = new FinMindClient(null, null, 1000) {
+			@Override
+			public List<ListedSymbol> getTaiwanStockInfo() {
+				List<ListedSymbol> listed = new ArrayList<>();
+				for (int code = 2020; code <= 2034; code++) {
+					listed.add(tw(Integer.toString(code), "上市" + code));
+				}
+				listed.add(tw("1000", "測試一千"));
+				listed.add(tw("8299", "群聯"));
+				listed.add(tw("2330", "台積電"));
+				return listed;
+			}
+		};
+		FmpClient fmp = new FmpClient(null, null, 1000) {
+			@Override
+			public boolean hasApiKey() {
+				return false;
+			}
+		};
+		SymbolUniverse universe = new SymbolUniverse(new DefaultResourceLoader(), finMind, fmp,
+				"classpath:symbols/universe.tsv", true);
+		universe.refreshListings();
+		return universe;
+	}
+
+	private static ListedSymbol tw(String symbol, String name) {
+		return new ListedSymbol(TechnicalAnalysisFanOutService.MARKET_TW, symbol, name, "", Collections.emptyList());
+	}
+}
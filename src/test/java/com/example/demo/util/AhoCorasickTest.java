@@ -0,0 +1,60 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class AhoCorasickTest {
+
+	@Test
+	void findsOverlappingMatchesWithOffsets() {
+		AhoCorasick<String> ac = AhoCorasick.<String>builder()
+				.add("台積電", "2330")
+				.add("台積電ADR", "TSM")
+				.add("積電", "x")
+				.build();
+
+		assertEquals(List.of("0-3:2330", "1-3:x", "0-6:TSM"), describe(ac.findAll("台積電ADR")));
+	}
+
+	@Test
+	void foldsAsciiCase() {
+		AhoCorasick<String> ac = AhoCorasick.<String>builder()
+				.add("NVIDIA", "NVDA")
+				.build();
+
+		assertEquals(List.of("2-8:NVDA"), describe(ac.findAll("看好nvidia")));
+	}
+
+	@Test
+	void followsFailureLinks() {
+		AhoCorasick<String> ac = AhoCorasick.<String>builder()
+				.add("he", "he")
+				.add("she", "she")
+				.add("his", "his")
+				.add("hers", "hers")
+				.build();
+
+		assertEquals(List.of("1-4:she", "2-4:he", "2-6:hers"), describe(ac.findAll("ushers")));
+	}
+
+	@Test
+	void emptyInputHasNoMatches() {
+		AhoCorasick<String> ac = AhoCorasick.<String>builder().add("a", "a").build();
+
+		assertTrue(ac.findAll("").isEmpty());
+		assertTrue(ac.findAll(null).isEmpty());
+	}
+
+	private static List<String> describe(List<AhoCorasick.Match<String>> matches) {
+		List<String> result = new ArrayList<>();
+		for (AhoCorasick.Match<String> m : matches) {
+			result.add(m.getStart() + "-" + m.getEnd() + ":" + m.getValue());
+		}
+		return result;
+	}
+}
@@ -0,0 +1,54 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class JsonStringFieldTapTest {
+
+	private static final String PAYLOAD = "{\"candidates\":[{\"content\":{\"parts\":[{\"text\":\"x\"}]}}],"
+			+ "\"note\":\"summary 不在這裡\", \"summary\" :  \"第一段\\n台積電 \\\"TSMC\\\" 漲 3%\\t"
+			+ "\\u53f0\\u7a4d\\u96fb \\\\ \\/ 結束\", \"tickers\":[{\"summary\":\"不要輸出\"}]}";
+	private static final String EXPECTED = "第一段\n台積電 \"TSMC\" 漲 3%\t台積電 \\ / 結束";
+
+	@Test
+	void producesSameOutputForEveryChunkSize() {
+		for (int size = 1; size <= PAYLOAD.length(); size++) {
+			StringBuilder out = new StringBuilder();
+			JsonStringFieldTap tap = new JsonStringFieldTap("summary", out::append);
+			for (int i = 0; i < PAYLOAD.length(); i += size) {
+				tap.accept(PAYLOAD.substring(i, Math.min(PAYLOAD.length(), i + size)));
+			}
+
+			assertEquals(EXPECTED, out.toString(), "chunk size " + size);
+			assertTrue(tap.isDone(), "chunk size " + size);
+		}
+	}
+
+	@Test
+	void emitsValueIncrementallyBeforeClosingQuote() {
+		StringBuilder out = new StringBuilder();
+		JsonStringFieldTap tap = new JsonStringFieldTap("summary", out::append);
+
+		tap.accept("{\"summary\":\"今天");
+		assertEquals("今天", out.toString());
+		assertFalse(tap.isDone());
+
+		tap.accept("聊台積電\",\"x\":1}");
+		assertEquals("今天聊台積電", out.toString());
+		assertTrue(tap.isDone());
+	}
+
+	@Test
+	void ignoresNonStringValue() {
+		StringBuilder out = new StringBuilder();
+		JsonStringFieldTap tap = new JsonStringFieldTap("summary", out::append);
+
+		tap.accept("{\"summary\": null, \"other\":\"summary\"}");
+
+		assertEquals("", out.toString());
+		assertTrue(tap.isDone());
+	}
+}
@@ -0,0 +1,86 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+class KeyedLocksTest {
+
+	@Test
+	void removesLockAfterLastHolderUnlocks() {
+		KeyedLocks locks = new KeyedLocks();
+
+		locks.lock("https://a/1.mp3");
+		locks.lock("https://a/2.mp3");
+		assertEquals(2, locks.size());
+
+		locks.unlock("https://a/1.mp3");
+		locks.unlock("https://a/2.mp3");
+		assertEquals(0, locks.size());
+	}
+
+	@Test
+	void sameKeyIsMutuallyExclusiveAndPrunedAfterwards() throws Exception {
+		KeyedLocks locks = new KeyedLocks();
+		AtomicInteger inside = new AtomicInteger();
+		AtomicInteger maxInside = new AtomicInteger();
+		CountDownLatch start = new CountDownLatch(1);
+		ExecutorService pool = Executors.newFixedThreadPool(8);
+		try {
+			Future<?>[] futures = new Future<?>[8];
+			for (int t = 0; t < futures.length; t++) {
+				futures[t] = pool.submit(() -> {
+					start.await();
+					for (int i = 0; i < 200; i++) {
+						locks.lock("same");
+						try {
+							maxInside.accumulateAndGet(inside.incrementAndGet(), Math::max);
+							inside.decrementAndGet();
+						} finally {
+							locks.unlock("same");
+						}
+					}
+					return null;
+				});
+			}
+			start.countDown();
+			for (Future<?> f : futures) {
+				f.get(10, TimeUnit.SECONDS);
+			}
+		} finally {
+			pool.shutdownNow();
+		}
+
+		assertEquals(1, maxInside.get());
+		assertEquals(0, locks.size());
+	}
+
+	@Test
+	void differentKeysDoNotBlockEachOther() throws Exception {
+		KeyedLocks locks = new KeyedLocks();
+		locks.lock("a");
+		Thread other = new Thread(() -> {
+			locks.lock("b");
+			locks.unlock("b");
+		});
+		other.start();
+		other.join(5000);
+
+		assertFalse(other.isAlive());
+		locks.unlock("a");
+	}
+
+	@Test
+	void unlockWithoutLockFails() {
+		assertThrows(IllegalStateException.class, () -> new KeyedLocks().unlock("missing"));
+	}
+}
@@ -0,0 +1,93 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class Mp3SplitterTest {
+
+	// MPEG1 Layer III、128 kbps、44.1 kHz、無 padding：每個 frame 417 bytes、1152 samples
+	private static final int FRAME_BYTES = 417;
+	private static final double FRAME_SECONDS = 1152.0 / 44100;
+
+	@Test
+	void splitsOnFrameBoundariesWithOverlap() {
+		// 0、30、60、90 秒起各一段，最後一段 20 秒
+		int frames = (int) Math.ceil(110 / FRAME_SECONDS);
+		byte[] audio = mp3(frames);
+
+		List<Mp3Splitter.Chunk> chunks = Mp3Splitter.split(audio, 30, 5);
+
+		assertEquals(4, chunks.size());
+		assertEquals(0, chunks.get(0).getStart());
+		assertEquals(audio.length, chunks.get(chunks.size() - 1).getEnd());
+		for (int i = 0; i < chunks.size(); i++) {
+			Mp3Splitter.Chunk chunk = chunks.get(i);
+			assertEquals(i, chunk.getIndex());
+			assertEquals(0, chunk.getStart() % FRAME_BYTES);
+			assertEquals(0, chunk.getEnd() % FRAME_BYTES);
+			// 每段的起點落在 frame 邊界上，誤差逐段累積，每段最多一個 frame
+			assertEquals(30.0 * i, chunk.getStartSeconds(), (i + 1) * FRAME_SECONDS);
+			if (i > 0) {
+				// 前一段多帶約 5 秒
+				long overlap = chunks.get(i - 1).getEnd() - chunk.getStart();
+				assertEquals(5.0, overlap / FRAME_BYTES * FRAME_SECONDS, FRAME_SECONDS);
+			}
+		}
+	}
+
+	@Test
+	void mergesShortLastChunk() {
+		byte[] audio = mp3((int) Math.ceil(65 / FRAME_SECONDS));
+
+		List<Mp3Splitter.Chunk> chunks = Mp3Splitter.split(audio, 30, 5);
+
+		// 60 秒之後只剩 5 秒，併進第二段
+		assertEquals(2, chunks.size());
+		assertEquals(audio.length, chunks.get(1).getEnd());
+	}
+
+	@Test
+	void skipsId3TagAndReturnsWholeFileWhenShort() {
+		byte[] tag = {'I', 'D', '3', 4, 0, 0, 0, 0, 0, 20};
+		byte[] frames = mp3((int) Math.ceil(10 / FRAME_SECONDS));
+		byte[] audio = new byte[tag.length + 20 + frames.length];
+		System.arraycopy(tag, 0, audio, 0, tag.length);
+		System.arraycopy(frames, 0, audio, tag.length + 20, frames.length);
+
+		List<Mp3Splitter.Chunk> chunks = Mp3Splitter.split(audio, 30, 5);
+
+		assertEquals(1, chunks.size());
+		assertEquals(0, chunks.get(0).getStart());
+		assertEquals(audio.length, chunks.get(0).getEnd());
+	}
+
+	@Test
+	void returnsWholeFileForNonMp3() {
+		byte[] audio = new byte[200_000];
+		for (int i = 0; i < audio.length; i++) {
+			audio[i] = (byte) (i * 31);
+		}
+
+		List<Mp3Splitter.Chunk> chunks = Mp3Splitter.split(audio, 1, 0.1);
+
+		assertEquals(1, chunks.size());
+		assertEquals(audio.length, chunks.get(0).length());
+		assertTrue(Mp3Splitter.split(new byte[0], 30, 5).isEmpty());
+	}
+
+	private static byte[] mp3(int frames) {
+		byte[] audio = new byte[frames * FRAME_BYTES];
+		for (int i = 0; i < frames; i++) {
+			int pos = i * FRAME_BYTES;
+			audio[pos] = (byte) 0xFF;
+			audio[pos + 1] = (byte) 0xFB;
+			audio[pos + 2] = (byte) 0x90;
+			audio[pos + 3] = (byte) 0x00;
+		}
+		return audio;
+	}
+}
@@ -0,0 +1,116 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PodcastAnalysisResult;
+import com.example.demo.model.SectorView;
+import com.example.demo.model.TickerView;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+
+class PodcastAnalysisMergerTest {
+
+	@Test
+	void mergesTickerGivenBySymbolInOneChunkAndByNameInAnother() {
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(
+				part(ticker("2330", "台積電", "bullish", "法說會展望佳")),
+				part(ticker(null, "台積電", "bullish", "先進製程滿載")),
+				part(ticker("2330", null, "bearish", "匯率拖累毛利"))));
+
+		assertEquals(1, merged.getTickers().size());
+		TickerView t = merged.getTickers().get(0);
+		assertEquals("2330", t.getSymbol());
+		assertEquals("台積電", t.getName());
+		assertEquals("bullish", t.getSentiment());
+		assertEquals("法說會展望佳；先進製程滿載；匯率拖累毛利", t.getReason());
+	}
+
+	@Test
+	void mergesNameOnlyEntryThatAppearedBeforeTheSymbol() {
+		// 前兩段各自只給名稱、只給代碼，第三段同時給出時才知道是同一檔
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(
+				part(ticker(null, "台積電", "bearish", null)),
+				part(ticker("2330", null, "bearish", null)),
+				part(ticker("2330", "台積電", "bullish", null))));
+
+		assertEquals(1, merged.getTickers().size());
+		TickerView t = merged.getTickers().get(0);
+		assertEquals("2330", t.getSymbol());
+		assertEquals("台積電", t.getName());
+		assertEquals("bearish", t.getSentiment());
+		assertNull(t.getReason());
+	}
+
+	@Test
+	void keepsDifferentSymbolsWithTheSameNameApart() {
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(
+				part(ticker("2330", "台積電", "bullish", null)),
+				part(ticker("TSM", "台積電", "bearish", null))));
+
+		assertEquals(2, merged.getTickers().size());
+		assertEquals("2330", merged.getTickers().get(0).getSymbol());
+		assertEquals("TSM", merged.getTickers().get(1).getSymbol());
+	}
+
+	@Test
+	void matchesSymbolsAndNamesIgnoringCaseAndSkipsBlankEntries() {
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(
+				part(ticker("nvda", "Nvidia", "bullish", null), ticker("null", " ", "bearish", null)),
+				part(ticker(null, "NVIDIA", "bearish", null), ticker("NVDA", null, "bullish", null))));
+
+		assertEquals(1, merged.getTickers().size());
+		assertEquals("nvda", merged.getTickers().get(0).getSymbol());
+		assertEquals("bullish", merged.getTickers().get(0).getSentiment());
+	}
+
+	@Test
+	void tieBetweenBullishAndBearishIsNeutral() {
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(
+				part(ticker("TSLA", null, "bullish", null)),
+				part(ticker("TSLA", null, "bearish", null))));
+
+		assertEquals("neutral", merged.getTickers().get(0).getSentiment());
+	}
+
+	@Test
+	void mergesSectorsByNameAndDeduplicatesMacroView() {
+		PodcastAnalysisResult first = part();
+		first.setSectors(List.of(sector("半導體", "bullish")));
+		first.setMacroView(List.of("聯準會按兵不動", "新台幣偏強"));
+		PodcastAnalysisResult second = part();
+		second.setSectors(List.of(sector("半導體", "bullish"), sector("金融", "bearish")));
+		second.setMacroView(List.of(" 新台幣偏強 ", "油價走低"));
+
+		PodcastAnalysisResult merged = PodcastAnalysisMerger.merge(List.of(first, second));
+
+		assertEquals(2, merged.getSectors().size());
+		assertEquals("半導體", merged.getSectors().get(0).getName());
+		assertEquals("bullish", merged.getSectors().get(0).getSentiment());
+		assertEquals("bearish", merged.getSectors().get(1).getSentiment());
+		assertEquals(List.of("聯準會按兵不動", "新台幣偏強", "油價走低"), merged.getMacroView());
+	}
+
+	private static PodcastAnalysisResult part(TickerView... tickers) {
+		PodcastAnalysisResult result = new PodcastAnalysisResult();
+		result.setTickers(List.of(tickers));
+		return result;
+	}
+
+	private static TickerView ticker(String symbol, String name, String sentiment, String reason) {
+		TickerView t = new TickerView();
+		t.setSymbol(symbol);
+		t.setName(name);
+		t.setSentiment(sentiment);
+		t.setReason(reason);
+		return t;
+	}
+
+	private static SectorView sector(String name, String sentiment) {
+		SectorView s = new SectorView();
+		s.setName(name);
+		s.setSentiment(sentiment);
+		return s;
+	}
+}
@@ -0,0 +1,108 @@
+package com.example.demo.util;
+
+import com.example.demo.model.PriceSeries;
+import org.junit.jupiter.api.Test;
+import org.ta4j.core.BarSeries;
+import org.ta4j.core.BaseBarSeriesBuilder;
+import org.ta4j.core.indicators.RSIIndicator;
+import org.ta4j.core.indicators.SMAIndicator;
+import org.ta4j.core.indicators.helpers.ClosePriceIndicator;
+import org.ta4j.core.num.DoubleNum;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.ZonedDateTime;
+import java.util.Arrays;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class PriceIndicatorsTest {
+
+	private static final double EPSILON = 1e-9;
+	private static final LocalDate START = LocalDate.of(2024, 1, 2);
+
+	@Test
+	void matchesTa4jOnRandomWalk() {
+		Random random = new Random(20240102L);
+		double[] closes = new double[120];
+		closes[0] = 600.0;
+		for (int i = 1; i < closes.length; i++) {
+			closes[i] = Math.max(1.0, closes[i - 1] + (random.nextDouble() - 0.5) * 20.0);
+		}
+
+		// 每個前綴都比一次，涵蓋 RSI 剛有值到暖身完成的整段
+		for (int n = 15; n <= closes.length; n++) {
+			assertMatchesTa4j(Arrays.copyOf(closes, n));
+		}
+	}
+
+	@Test
+	void matchesTa4jOnFlatSeries() {
+		double[] closes = new double[40];
+		Arrays.fill(closes, 100.0);
+
+		assertMatchesTa4j(closes);
+		assertEquals(100.0, PriceIndicators.sma(series(closes), 20), EPSILON);
+		assertEquals(0.0, PriceIndicators.wilderRsi(series(closes), 14), EPSILON);
+	}
+
+	@Test
+	void matchesTa4jOnMonotonicSeries() {
+		double[] rising = new double[30];
+		for (int i = 0; i < rising.length; i++) {
+			rising[i] = 50.0 + i;
+		}
+
+		assertMatchesTa4j(rising);
+		assertEquals(100.0, PriceIndicators.wilderRsi(series(rising), 14), EPSILON);
+	}
+
+	@Test
+	void shortSeriesUsesAllBarsForSmaAndLeavesRsiAtZero() {
+		double[] closes = {100.0, 102.0, 101.0, 105.0, 103.0, 104.0, 108.0, 107.0, 110.0, 109.0};
+
+		// ta4j 的 SMA 在不足 period 根時同樣用全部資料
+		assertEquals(sma20(closes), PriceIndicators.sma(series(closes), 20), EPSILON);
+		assertEquals(104.9, PriceIndicators.sma(series(closes), 20), EPSILON);
+		// RSI 不足 period + 1 根時刻意回傳 0（IndicatorEngine 的約定），不沿用 ta4j 暖身期的值
+		assertEquals(0.0, PriceIndicators.wilderRsi(series(closes), 14), EPSILON);
+		assertEquals(0.0, PriceIndicators.wilderRsi(series(Arrays.copyOf(closes, 1)), 14), EPSILON);
+		assertEquals(0.0, PriceIndicators.sma(PriceSeries.empty(), 20), EPSILON);
+	}
+
+	private static void assertMatchesTa4j(double[] closes) {
+		PriceSeries series = series(closes);
+		String label = " (n=" + closes.length + ")";
+		assertEquals(sma20(closes), PriceIndicators.sma(series, 20), EPSILON, "SMA20" + label);
+		assertEquals(rsi14(closes), PriceIndicators.wilderRsi(series, 14), EPSILON, "RSI14" + label);
+	}
+
+	private static double sma20(double[] closes) {
+		BarSeries bars = bars(closes);
+		return new SMAIndicator(new ClosePriceIndicator(bars), 20).getValue(bars.getEndIndex()).doubleValue();
+	}
+
+	private static double rsi14(double[] closes) {
+		BarSeries bars = bars(closes);
+		return new RSIIndicator(new ClosePriceIndicator(bars), 14).getValue(bars.getEndIndex()).doubleValue();
+	}
+
+	private static PriceSeries series(double[] closes) {
+		PriceSeries.Builder builder = PriceSeries.builder(closes.length);
+		for (int i = 0; i < closes.length; i++) {
+			builder.add(START.plusDays(i), closes[i], closes[i], closes[i], closes[i], 1000L);
+		}
+		return builder.build();
+	}
+
+	private static BarSeries bars(double[] closes) {
+		BarSeries bars = new BaseBarSeriesBuilder().withNumTypeOf(DoubleNum.class).build();
+		for (int i = 0; i < closes.length; i++) {
+			ZonedDateTime endTime = START.plusDays(i).atTime(13, 30).atZone(ZoneOffset.UTC);
+			bars.addBar(Duration.ofDays(1), endTime, closes[i], closes[i], closes[i], closes[i], 1000.0);
+		}
+		return bars;
+	}
+}
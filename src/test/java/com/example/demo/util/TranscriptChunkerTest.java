@@ -0,0 +1,60 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class TranscriptChunkerTest {
+
+	@Test
+	void estimatesCjkAsOneTokenPerCharAndOtherTextAsFourCharsPerToken() {
+		assertEquals(3, TranscriptChunker.estimateTokens("台積電"));
+		assertEquals(2, TranscriptChunker.estimateTokens("NVIDIA"));
+		assertEquals(5, TranscriptChunker.estimateTokens("台積電 TSMC"));
+		assertEquals(0, TranscriptChunker.estimateTokens(null));
+	}
+
+	@Test
+	void keepsShortTextInOneChunk() {
+		assertEquals(List.of("今天聊台積電。明天聊聯發科。"), TranscriptChunker.split("今天聊台積電。明天聊聯發科。", 100));
+	}
+
+	@Test
+	void splitsOnSentenceBoundariesWithinBudget() {
+		String text = "第一句話在這裡。第二句話在這裡！第三句話在這裡？第四句話在這裡；";
+
+		List<String> chunks = TranscriptChunker.split(text, 16);
+
+		assertEquals(List.of("第一句話在這裡。第二句話在這裡！", "第三句話在這裡？第四句話在這裡；"), chunks);
+		assertEquals(text, String.join("", chunks));
+	}
+
+	@Test
+	void doesNotSplitOnDecimalPoint() {
+		List<String> chunks = TranscriptChunker.split("GDP grew 3.5 percent. Rates stay high.", 6);
+
+		assertEquals(List.of("GDP grew 3.5 percent.", "Rates stay high."), chunks);
+	}
+
+	@Test
+	void hardSplitsSentenceLongerThanBudget() {
+		String sentence = "很長的句子".repeat(10);
+
+		List<String> chunks = TranscriptChunker.split("短句。" + sentence + "。結尾。", 12);
+
+		assertEquals("短句。", chunks.get(0));
+		for (String chunk : chunks) {
+			assertTrue(TranscriptChunker.estimateTokens(chunk) <= 12, chunk);
+		}
+		assertEquals("短句。" + sentence + "。結尾。", String.join("", chunks));
+	}
+
+	@Test
+	void returnsNoChunksForBlankText() {
+		assertTrue(TranscriptChunker.split("  \n ", 10).isEmpty());
+		assertTrue(TranscriptChunker.split(null, 10).isEmpty());
+	}
+}
@@ -0,0 +1,59 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranscriptCleanerTest {
+
+	@Test
+	void removesSrtNumbersAndTimestamps() {
+		String srt = "1\r\n00:00:01,000 --> 00:00:04,000\r\n大家好\r\n歡迎收聽\r\n\r\n"
+				+ "2\r\n00:00:04,500 --> 00:00:06,000\r\n今天談台積電\r\n";
+
+		assertEquals("大家好\n歡迎收聽\n今天談台積電", TranscriptCleaner.clean(srt));
+	}
+
+	@Test
+	void removesVttHeaderBlocksCueIdsAndTags() {
+		String vtt = "\uFEFFWEBVTT\nKind: captions\nLanguage: zh-TW\n\n"
+				+ "NOTE 這是註解\n跨行註解\n\n"
+				+ "STYLE\n::cue { color: red }\n\n"
+				+ "intro\n00:00:01.000 --> 00:00:04.000 align:start position:0%\n<v 主持人>大家好</v>\n\n"
+				+ "00:04.000 --> 00:06.000\n第二句 a < b\n";
+
+		assertEquals("大家好\n第二句 a < b", TranscriptCleaner.clean(vtt));
+	}
+
+	@Test
+	void collapsesRollingCaptions() {
+		String vtt = "WEBVTT\n\n"
+				+ "00:00:00.000 --> 00:00:02.000\n \nhello<00:00:00.500><c> world</c>\n\n"
+				+ "00:00:02.000 --> 00:00:02.010\nhello world\n \n\n"
+				+ "00:00:02.010 --> 00:00:04.000\nhello world\nthis<00:00:02.500><c> is</c><00:00:03.000><c> nvidia</c>\n\n"
+				+ "00:00:04.000 --> 00:00:04.010\nthis is nvidia\n \n";
+
+		assertEquals("hello world\nthis is nvidia", TranscriptCleaner.clean(vtt));
+	}
+
+	@Test
+	void keepsPlainText() {
+		assertEquals("第一段第一行\n第一段第二行\n第二段",
+				TranscriptCleaner.clean("第一段第一行\n第一段第二行\n\n第二段\n"));
+	}
+
+	@Test
+	void readerAndStringGiveSameResult() throws Exception {
+		StringBuilder vtt = new StringBuilder("WEBVTT\n\n");
+		for (int i = 0; i < 2000; i++) {
+			vtt.append(i + 1).append('\n')
+					.append("00:00:01.000 --> 00:00:02.000\n")
+					.append("第 ").append(i).append(" 句\n\n");
+		}
+		String text = vtt.toString();
+
+		assertEquals(TranscriptCleaner.clean(text), TranscriptCleaner.clean(new StringReader(text), 0));
+	}
+}
@@ -0,0 +1,50 @@
+package com.example.demo.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+class TranscriptStitcherTest {
+
+	private static final int WINDOW = 52;
+	private static final int MIN_MATCH = 8;
+	private static final int EDGE_SKIP = 12;
+
+	@Test
+	void removesOverlapAtBoundary() {
+		String previous = "今天先聊聯準會的利率決策，接著看半導體，最後重疊區的內容甲乙丙丁戊";
+		String next = "重疊區的內容甲乙丙丁戊，然後我們來看台積電的財報";
+
+		assertEquals("今天先聊聯準會的利率決策，接著看半導體，最後重疊區的內容甲乙丙丁戊，然後我們來看台積電的財報",
+				TranscriptStitcher.stitch(List.of(previous, next), WINDOW, MIN_MATCH, EDGE_SKIP));
+	}
+
+	@Test
+	void toleratesGarbledWordsAtChunkEdges() {
+		// 片段邊緣的半個字詞轉錄得不一樣
+		String previous = "前面的內容，重疊區的內容甲乙丙丁戊己";
+		String next = "嗯區的內容甲乙丙丁戊己，後面的內容";
+
+		assertEquals("前面的內容，重疊區的內容甲乙丙丁戊己，後面的內容",
+				TranscriptStitcher.stitch(List.of(previous, next), WINDOW, MIN_MATCH, EDGE_SKIP));
+	}
+
+	@Test
+	void ignoresRepeatedPhraseAwayFromBoundary() {
+		String previous = "接下來我們來看一下美股" + "輝達的財報優於預期，資料中心營收成長".repeat(5) + "重疊區甲乙丙";
+		String next = "重疊區甲乙丙" + "聯準會這次按兵不動，市場解讀偏鴿".repeat(5) + "接下來我們來看一下台股";
+
+		String stitched = TranscriptStitcher.stitch(List.of(previous, next), WINDOW, MIN_MATCH, EDGE_SKIP);
+
+		// 真正的重疊太短，寧可重複也不丟字
+		assertEquals(previous + "\n" + next, stitched);
+	}
+
+	@Test
+	void concatenatesWhenNoOverlap() {
+		assertEquals("第一段\n第二段",
+				TranscriptStitcher.stitch(List.of(" 第一段 ", "", "第二段"), WINDOW, MIN_MATCH, EDGE_SKIP));
+	}
+}